@@ -0,0 +1,25 @@
+package com.github.nadia.vacinasapi.api.DTO.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EstatisticasResponse {
+
+    @Schema(description = "Total de doses aplicadas", example = "1520")
+    private Long total;
+    @Schema(description = "Doses aplicadas por nome de vacina")
+    private Map<String, Long> porNome;
+    @Schema(description = "Doses aplicadas por dia")
+    private Map<LocalDate, Long> porDia;
+    @Schema(description = "Última conferência dos contadores com o banco")
+    private OffsetDateTime reconciliadoEm;
+}
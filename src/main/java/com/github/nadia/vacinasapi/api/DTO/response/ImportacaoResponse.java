@@ -0,0 +1,29 @@
+package com.github.nadia.vacinasapi.api.DTO.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportacaoResponse {
+
+    @Schema(description = "Id da importação (use em ?importacao= para retomar)", example = "1")
+    private Long id;
+    @Schema(description = "Situação da importação", example = "CONCLUIDA")
+    private String status;
+    @Schema(description = "Última linha do arquivo confirmada no banco", example = "250000")
+    private Long linhasConfirmadas;
+    @Schema(description = "Quantidade de usuários importados", example = "249870")
+    private Long importados;
+    @Schema(description = "Quantidade de linhas rejeitadas", example = "130")
+    private Long rejeitados;
+    @Schema(description = "Endereço do relatório de erros em CSV", example = "/api/v1/usuarios/import/1/erros")
+    private String relatorioErros;
+    @Schema(description = "Data da última atualização")
+    private OffsetDateTime atualizadaEm;
+}
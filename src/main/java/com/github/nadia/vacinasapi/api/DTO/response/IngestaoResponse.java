@@ -0,0 +1,21 @@
+package com.github.nadia.vacinasapi.api.DTO.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IngestaoResponse {
+
+    @Schema(description = "Id de acompanhamento da vacina enfileirada", example = "5f0c2f0e-6a0d-4e43-9b5e-2a3c1d7e8f90")
+    private String id;
+    @Schema(description = "PENDENTE, GRAVADA ou FALHOU", example = "GRAVADA")
+    private String situacao;
+    @Schema(description = "Id da vacina, depois de gravada", example = "1")
+    private Long vacinaId;
+    @Schema(description = "Motivo da falha", example = "Email inválido. Nenhum usuário resgistrado com esse email.")
+    private String mensagem;
+}
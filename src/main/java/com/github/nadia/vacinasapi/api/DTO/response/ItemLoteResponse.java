@@ -0,0 +1,31 @@
+package com.github.nadia.vacinasapi.api.DTO.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ItemLoteResponse {
+
+    @Schema(description = "Posição do item na lista enviada", example = "0")
+    private Integer indice;
+    @Schema(description = "Indica se o item foi cadastrado", example = "true")
+    private Boolean sucesso;
+    @Schema(description = "Id gerado da Vacina", example = "1")
+    private Long id;
+    @Schema(description = "Motivo da falha", example = "Email inválido. Nenhum usuário resgistrado com esse email.")
+    private String erro;
+
+    public static ItemLoteResponse sucesso(int indice, Long id) {
+        return new ItemLoteResponse(indice, true, id, null);
+    }
+
+    public static ItemLoteResponse falha(int indice, String erro) {
+        return new ItemLoteResponse(indice, false, null, erro);
+    }
+}
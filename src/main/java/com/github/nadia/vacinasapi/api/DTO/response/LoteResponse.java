@@ -0,0 +1,21 @@
+package com.github.nadia.vacinasapi.api.DTO.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoteResponse {
+
+    @Schema(description = "Quantidade de itens cadastrados", example = "998")
+    private Integer sucessos;
+    @Schema(description = "Quantidade de itens rejeitados", example = "2")
+    private Integer falhas;
+    @Schema(description = "Resultado de cada item, na ordem enviada")
+    private List<ItemLoteResponse> itens;
+}
@@ -0,0 +1,17 @@
+package com.github.nadia.vacinasapi.api.DTO.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NomeVacinaResponse {
+
+    @Schema(description = "Nome da vacina como foi registrado", example = "Febre Amarela")
+    private String nome;
+    @Schema(description = "Doses aplicadas com esse nome", example = "320")
+    private Long quantidade;
+}
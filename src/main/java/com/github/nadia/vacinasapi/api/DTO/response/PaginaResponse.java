@@ -0,0 +1,19 @@
+package com.github.nadia.vacinasapi.api.DTO.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaginaResponse<T> {
+
+    @Schema(description = "Itens da página")
+    private List<T> itens;
+    @Schema(description = "Cursor para buscar a próxima página (nulo na última página)", example = "MTA")
+    private String proximoCursor;
+}
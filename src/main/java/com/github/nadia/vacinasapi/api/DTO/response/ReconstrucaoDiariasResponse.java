@@ -0,0 +1,23 @@
+package com.github.nadia.vacinasapi.api.DTO.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReconstrucaoDiariasResponse {
+
+    @Schema(description = "Primeiro dia reconstruído", example = "2021-01-18")
+    private LocalDate de;
+    @Schema(description = "Último dia reconstruído", example = "2022-04-10")
+    private LocalDate ate;
+    @Schema(description = "Fatias de datas processadas em paralelo", example = "15")
+    private Integer fatias;
+    @Schema(description = "Linhas (dia, nome) gravadas", example = "2300")
+    private Long linhas;
+}
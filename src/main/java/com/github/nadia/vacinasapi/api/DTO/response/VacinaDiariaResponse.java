@@ -0,0 +1,21 @@
+package com.github.nadia.vacinasapi.api.DTO.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class VacinaDiariaResponse {
+
+    @Schema(description = "Dia da aplicação", example = "2022-04-10")
+    private LocalDate dataAplicacao;
+    @Schema(description = "Nome da vacina", example = "CoronaVac")
+    private String nome;
+    @Schema(description = "Doses aplicadas no dia", example = "120")
+    private Long quantidade;
+}
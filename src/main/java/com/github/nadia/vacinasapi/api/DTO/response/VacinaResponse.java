@@ -1,5 +1,6 @@
 package com.github.nadia.vacinasapi.api.DTO.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -20,4 +21,12 @@ public class VacinaResponse {
     private String email;
     @Schema(description = "Data de aplicação da Vacina", example = "2022-08-13")
     private LocalDate dataAplicacao;
+    //usado só para invalidar o cache de respostas quando o usuário muda
+    @JsonIgnore
+    @Schema(hidden = true)
+    private Long usuarioId;
+
+    public VacinaResponse(Long id, String nome, String email, LocalDate dataAplicacao) {
+        this(id, nome, email, dataAplicacao, null);
+    }
 }
@@ -0,0 +1,45 @@
+package com.github.nadia.vacinasapi.api.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.nadia.vacinasapi.core.lote.BuscaEmBlocos;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.function.Function;
+
+//escreve {"itens": [...], "ausentes": [...]} conforme os blocos chegam, sem montar a resposta inteira em memória
+final class RespostaPorIds {
+
+    private RespostaPorIds() {
+    }
+
+    static <T> ResponseEntity<StreamingResponseBody> escrever(ObjectMapper objectMapper, BuscaEmBlocos<T> busca, Function<T, ?> mapear) {
+        StreamingResponseBody corpo = saida -> {
+            try (JsonGenerator gerador = objectMapper.getFactory().createGenerator(saida)) {
+                var ausentes = new ArrayList<Long>();
+                gerador.writeStartObject();
+                gerador.writeArrayFieldStart("itens");
+                busca.executar(item -> {
+                    try {
+                        gerador.writeObject(mapear.apply(item));
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }, ausentes::add);
+                gerador.writeEndArray();
+                gerador.writeArrayFieldStart("ausentes");
+                for (Long id : ausentes) {
+                    gerador.writeNumber(id);
+                }
+                gerador.writeEndArray();
+                gerador.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(corpo);
+    }
+}
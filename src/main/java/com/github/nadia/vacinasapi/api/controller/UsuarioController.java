@@ -2,20 +2,46 @@ package com.github.nadia.vacinasapi.api.controller;
 
 import com.github.nadia.vacinasapi.api.DTO.request.UsuarioRequest;
 import com.github.nadia.vacinasapi.api.DTO.request.UsuarioUpdateRequest;
+import com.github.nadia.vacinasapi.api.DTO.response.ImportacaoResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.PaginaResponse;
 import com.github.nadia.vacinasapi.api.DTO.response.UsuarioResponse;
 import com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse;
+import com.github.nadia.vacinasapi.core.cache.CacheRespostas;
+import com.github.nadia.vacinasapi.core.cache.ETags;
+import com.github.nadia.vacinasapi.core.mapper.ImportacaoMapper;
 import com.github.nadia.vacinasapi.core.mapper.UsuarioMapper;
 import com.github.nadia.vacinasapi.core.mapper.VacinaMapper;
+import com.github.nadia.vacinasapi.core.pagination.Cursor;
+import com.github.nadia.vacinasapi.core.pagination.CursorDataId;
+import com.github.nadia.vacinasapi.domain.service.ImportacaoUsuarioService;
 import com.github.nadia.vacinasapi.domain.service.UsuarioService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 
 @Tag(name = "Usuários Controller")
@@ -32,22 +58,72 @@ public class UsuarioController {
     @Autowired
     private VacinaMapper vacinaMapper;
 
-    @ApiResponse(responseCode = "200", description = "Busca realizada com sucesso!")
+    @Autowired
+    private ImportacaoUsuarioService importacaoUsuarioService;
+
+    @Autowired
+    private ImportacaoMapper importacaoMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CacheRespostas cacheRespostas;
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Busca realizada com sucesso!"),
+            @ApiResponse(responseCode = "400", description = "Cursor inválido.")
+    })
     @GetMapping
-    @Operation(summary = "Busca todos os Usuários")
-    public List<UsuarioResponse> buscarTodos(){
-        return usuarioMapper.toUsuarioResponseList(usuarioService.buscarTodos());
+    @Operation(summary = "Busca todos os Usuários (paginado por cursor)")
+    public PaginaResponse<UsuarioResponse> buscarTodos(
+            @Parameter(description = "Cursor retornado na página anterior") @RequestParam(value = "after", required = false) String after,
+            @Parameter(description = "Quantidade máxima de itens (até 500)") @RequestParam(value = "limit", defaultValue = "50") int limit){
+        return usuarioMapper.toUsuarioResponsePagina(usuarioService.buscarTodos(Cursor.decodificarId(after), limit));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Usuários encontrados em \"itens\", na ordem pedida; ids sem usuário em \"ausentes\"."),
+            @ApiResponse(responseCode = "400", description = "Lista vazia ou acima de 10000 ids.")
+    })
+    @GetMapping(params = "ids", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Busca vários Usuários por Id (até 10000), em blocos, com a resposta escrita em streaming")
+    public ResponseEntity<StreamingResponseBody> buscarPorIds(
+            @Parameter(description = "Ids separados por vírgula", example = "1,2,3") @RequestParam("ids") List<Long> ids){
+        return RespostaPorIds.escrever(objectMapper, usuarioService.buscarPorIds(ids), usuarioMapper::toUsuarioResponse);
     }
 
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Busca realizada com sucesso!"),
+            @ApiResponse(responseCode = "400", description = "Busca com menos de 2 caracteres ou índice ainda em construção.")
+    })
+    @GetMapping("/busca")
+    @Operation(summary = "Busca Usuários por trecho de cpf, email ou nome (ranqueada)")
+    public List<UsuarioResponse> buscar(
+            @Parameter(description = "Trecho do cpf, do email ou do nome", example = "maria") @RequestParam("q") String q,
+            @Parameter(description = "Quantidade máxima de itens (até 50)") @RequestParam(value = "limit", defaultValue = "20") int limit){
+        return usuarioMapper.toUsuarioResponseList(usuarioService.buscar(q, limit));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Busca realizada com sucesso!",
+                    content = @Content(schema = @Schema(implementation = UsuarioResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Usuário não mudou desde o ETag informado em If-None-Match."),
             @ApiResponse(responseCode = "404", description = "Usuário não encontrado.")
     })
     @GetMapping("/{id}")
     @Operation(summary = "Busca Usuário por Id")
-    public UsuarioResponse buscarPorId(@PathVariable("id") Long id){
-       return usuarioMapper.toUsuarioResponse(usuarioService.buscarPorId(id));
-
+    public ResponseEntity<byte[]> buscarPorId(@PathVariable("id") Long id, WebRequest webRequest){
+        //If-None-Match é respondido só com a versão, sem carregar nem serializar o usuário
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null && webRequest.checkNotModified(ETags.deVersao(versao(id)))) {
+            return null;
+        }
+        //um acerto no cache devolve os bytes prontos, sem banco, mapper ou Jackson
+        var resposta = cacheRespostas.usuario(id, () -> {
+            var usuario = usuarioService.buscarPorId(id);
+            return new CacheRespostas.Resposta(id, usuario.getVersao(), serializar(usuarioMapper.toUsuarioResponse(usuario)));
+        });
+        return ResponseEntity.ok().eTag(ETags.deVersao(resposta.getVersao())).contentType(MediaType.APPLICATION_JSON).body(resposta.getJson());
     }
 
     @ApiResponses(value = {
@@ -62,30 +138,116 @@ public class UsuarioController {
         return usuarioMapper.toUsuarioResponse(usuarioService.salvar(usuario));
     }
 
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Importação concluída! Linhas rejeitadas constam no relatório de erros."),
+            @ApiResponse(responseCode = "400", description = "Cabeçalho inválido ou falha ao gravar um lote (retome com ?importacao=).")
+    })
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @Operation(summary = "Importa Usuários de um CSV (nome,cpf,email,dataNascimento) confirmando lote a lote")
+    public ImportacaoResponse importar(
+            @Parameter(description = "Id de uma importação interrompida para retomar do último lote confirmado") @RequestParam(value = "importacao", required = false) Long importacao,
+            HttpServletRequest request) throws IOException {
+        return importacaoMapper.toImportacaoResponse(importacaoUsuarioService.importar(request.getInputStream(), importacao));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Busca realizada com sucesso!"),
+            @ApiResponse(responseCode = "404", description = "Importação não encontrada.")
+    })
+    @GetMapping("/import/{id}")
+    @Operation(summary = "Situação de uma importação de Usuários")
+    public ImportacaoResponse buscarImportacao(@PathVariable("id") Long id){
+        return importacaoMapper.toImportacaoResponse(importacaoUsuarioService.buscarPorId(id));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Relatório gerado com sucesso!"),
+            @ApiResponse(responseCode = "404", description = "Importação não encontrada.")
+    })
+    @GetMapping(value = "/import/{id}/erros", produces = "text/csv")
+    @Operation(summary = "Relatório de linhas rejeitadas de uma importação (CSV linha,mensagem)")
+    public ResponseEntity<StreamingResponseBody> exportarErros(@PathVariable("id") Long id){
+        importacaoUsuarioService.buscarPorId(id);
+        StreamingResponseBody corpo = saida -> {
+            var escritor = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+            escritor.write("linha,mensagem\n");
+            importacaoUsuarioService.exportarErros(id, erro -> {
+                try {
+                    escritor.write(erro.getLinha() + ",\"" + erro.getMensagem().replace("\"", "\"\"") + "\"\n");
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            escritor.flush();
+        };
+        return ResponseEntity.ok().contentType(new MediaType("text", "csv", StandardCharsets.UTF_8)).body(corpo);
+    }
+
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Usuário atualizado com sucesso!"),
-            @ApiResponse(responseCode = "400", description = "Requisição inválida.")
+            @ApiResponse(responseCode = "400", description = "Requisição inválida."),
+            @ApiResponse(responseCode = "412", description = "O ETag de If-Match não é mais a versão atual do Usuário.")
     })
     @PutMapping("/{id}")
     @Operation(summary = "Atualiza dados do Usuário")
-    public UsuarioResponse atualizar(@PathVariable("id") Long id, @Valid @RequestBody UsuarioUpdateRequest request){
+    public ResponseEntity<UsuarioResponse> atualizar(
+            @PathVariable("id") Long id,
+            @Parameter(description = "ETag da versão que o cliente tem; evita sobrescrever alterações de outra requisição") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody UsuarioUpdateRequest request){
         var usuario = usuarioMapper.toUsuarioEntity(request);
-        return usuarioMapper.toUsuarioResponse(usuarioService.atualizar(id, usuario));
+        var versao = ETags.versaoDoIfMatch(ifMatch);
+        var atualizado = versao != null ? usuarioService.atualizar(id, versao, usuario) : usuarioService.atualizar(id, usuario);
+        return ResponseEntity.ok().eTag(ETags.deVersao(atualizado.getVersao())).body(usuarioMapper.toUsuarioResponse(atualizado));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Usuário atualizado com sucesso!"),
+            @ApiResponse(responseCode = "400", description = "Requisição inválida."),
+            @ApiResponse(responseCode = "404", description = "Usuário não encontrado."),
+            @ApiResponse(responseCode = "412", description = "O ETag de If-Match não é mais a versão atual do Usuário.")
+    })
+    @PatchMapping("/{id}")
+    @Operation(summary = "Atualiza só os campos informados do Usuário")
+    public ResponseEntity<Void> atualizarParcial(
+            @PathVariable("id") Long id,
+            @Parameter(description = "ETag da versão que o cliente tem; evita sobrescrever alterações de outra requisição") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody UsuarioUpdateRequest request){
+        var versao = ETags.versaoDoIfMatch(ifMatch);
+        usuarioService.atualizarParcial(id, versao, usuarioMapper.toUsuarioEntity(request));
+        //sem leitura de volta: só com If-Match a nova versão é conhecida
+        var resposta = ResponseEntity.noContent();
+        if (versao != null) {
+            resposta.eTag(ETags.deVersao(versao + 1));
+        }
+        return resposta.build();
     }
 
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Busca realizada com sucesso!"),
+            @ApiResponse(responseCode = "304", description = "Vacinas não mudaram desde o ETag informado em If-None-Match."),
             @ApiResponse(responseCode = "400", description = "Requisição inválida.")
     })
     @GetMapping("/vacinas/{id}")
-    @Operation(summary = "Lista de vacinas do Usuário")
-    public List<VacinaResponse> listarVacinas(@PathVariable("id") Long id){
-        return vacinaMapper.toVacinaResponseList(usuarioService.listarVacinas(id));
+    @Operation(summary = "Lista de vacinas do Usuário (paginada por cursor, ordenada por data de aplicação)")
+    public ResponseEntity<PaginaResponse<VacinaResponse>> listarVacinas(
+            @PathVariable("id") Long id,
+            @Parameter(description = "Data de aplicação inicial", example = "2022-01-01") @RequestParam(value = "de", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+            @Parameter(description = "Data de aplicação final", example = "2022-12-31") @RequestParam(value = "ate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+            @Parameter(description = "Cursor retornado na página anterior") @RequestParam(value = "after", required = false) String after,
+            @Parameter(description = "Quantidade máxima de itens (até 500)") @RequestParam(value = "limit", defaultValue = "50") int limit,
+            WebRequest webRequest){
+        //versão e página saem da mesma transação; a página só é consultada quando o ETag do cliente está velho
+        var vacinas = usuarioService.listarVacinasSeModificadas(id, de, ate, CursorDataId.decodificar(after), limit,
+                versao -> webRequest.checkNotModified(ETags.deVersao(versao)));
+        if (vacinas.getPagina() == null) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(ETags.deVersao(vacinas.getVersao())).body(vacinaMapper.toVacinaResponsePaginaPorData(vacinas.getPagina()));
     }
 
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Usuário deletado com sucesso!"),
-            @ApiResponse(responseCode = "400", description = "Id de Usuário inválido.")
+            @ApiResponse(responseCode = "404", description = "Usuário não encontrado.")
     })
     @DeleteMapping("/{id}")
     @Operation(summary = "Deleta Usuário por Id")
@@ -93,4 +255,18 @@ public class UsuarioController {
     public void deletar(@PathVariable("id") Long id){
         usuarioService.deletar(id);
     }
+
+    //a versão da resposta em cache evita até a consulta de versão
+    private Long versao(Long id) {
+        var versao = cacheRespostas.versaoUsuario(id);
+        return versao != null ? versao : usuarioService.buscarVersao(id);
+    }
+
+    private byte[] serializar(Object resposta) {
+        try {
+            return objectMapper.writeValueAsBytes(resposta);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
 }
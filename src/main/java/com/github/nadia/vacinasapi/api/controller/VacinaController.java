@@ -2,18 +2,47 @@ package com.github.nadia.vacinasapi.api.controller;
 
 import com.github.nadia.vacinasapi.api.DTO.request.VacinaRequest;
 import com.github.nadia.vacinasapi.api.DTO.request.VacinaUpdateRequest;
+import com.github.nadia.vacinasapi.api.DTO.response.EstatisticasResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.IngestaoResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.LoteResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.NomeVacinaResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.PaginaResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.ReconstrucaoDiariasResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.VacinaDiariaResponse;
 import com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse;
+import com.github.nadia.vacinasapi.core.cache.CacheRespostas;
 import com.github.nadia.vacinasapi.core.mapper.VacinaMapper;
+import com.github.nadia.vacinasapi.core.pagination.Cursor;
+import com.github.nadia.vacinasapi.core.pagination.CursorDataId;
+import com.github.nadia.vacinasapi.domain.service.EstatisticaVacinaService;
+import com.github.nadia.vacinasapi.domain.service.GravacaoAgrupadaVacinaService;
+import com.github.nadia.vacinasapi.domain.service.IngestaoVacinaService;
+import com.github.nadia.vacinasapi.domain.service.NomeVacinaService;
+import com.github.nadia.vacinasapi.domain.service.VacinaDiariaService;
 import com.github.nadia.vacinasapi.domain.service.VacinaService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @Tag(name = "Vacinas Controller")
@@ -27,33 +56,175 @@ public class VacinaController {
     @Autowired
     private VacinaMapper vacinaMapper;
 
-    @ApiResponse(responseCode = "200", description = "Busca realizada com sucesso!")
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CacheRespostas cacheRespostas;
+
+    @Autowired
+    private EstatisticaVacinaService estatisticaVacinaService;
+
+    @Autowired
+    private VacinaDiariaService vacinaDiariaService;
+
+    @Autowired
+    private NomeVacinaService nomeVacinaService;
+
+    @Autowired
+    private IngestaoVacinaService ingestaoVacinaService;
+
+    @Autowired
+    private GravacaoAgrupadaVacinaService gravacaoAgrupadaVacinaService;
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Busca realizada com sucesso!"),
+            @ApiResponse(responseCode = "400", description = "Cursor inválido ou emails acima do limite.")
+    })
     @GetMapping
-    @Operation(summary = "Busca todas Vacinas")
-    public List<VacinaResponse> buscarTodos(){
-        return vacinaMapper.toVacinaResponseList(vacinaService.buscarTodos());
+    @Operation(summary = "Busca Vacinas (paginado por cursor); com filtros, ordenadas por data de aplicação")
+    public PaginaResponse<VacinaResponse> buscarTodos(
+            @Parameter(description = "Nome da vacina") @RequestParam(value = "nome", required = false) String nome,
+            @Parameter(description = "Data de aplicação inicial", example = "2022-01-01") @RequestParam(value = "de", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+            @Parameter(description = "Data de aplicação final", example = "2022-12-31") @RequestParam(value = "ate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+            @Parameter(description = "Emails dos usuários (até 100)") @RequestParam(value = "email", required = false) List<String> emails,
+            @Parameter(description = "Cursor retornado na página anterior") @RequestParam(value = "after", required = false) String after,
+            @Parameter(description = "Quantidade máxima de itens (até 500)") @RequestParam(value = "limit", defaultValue = "50") int limit){
+        //sem filtros mantém a ordem por id; o cursor de uma ordem não serve para a outra
+        if (nome == null && de == null && ate == null && (emails == null || emails.isEmpty())) {
+            return vacinaMapper.toVacinaResponsePagina(vacinaService.buscarTodos(Cursor.decodificarId(after), limit));
+        }
+        var pagina = vacinaService.buscar(nome, de, ate, emails, CursorDataId.decodificar(after), limit);
+        return vacinaMapper.toVacinaResponsePaginaPorData(pagina);
+    }
+
+    @ApiResponse(responseCode = "200", description = "Sugestões calculadas com sucesso!")
+    @GetMapping("/nomes")
+    @Operation(summary = "Autocompletar nomes de vacina já registrados, dos mais aplicados para os menos")
+    public List<NomeVacinaResponse> sugerirNomes(
+            @Parameter(description = "Início do nome, sem diferença de acentos e maiúsculas", example = "feb") @RequestParam(value = "prefixo", defaultValue = "") String prefixo,
+            @Parameter(description = "Quantidade máxima de sugestões (até 20)") @RequestParam(value = "limit", defaultValue = "10") int limit){
+        return nomeVacinaService.sugerir(prefixo, limit);
+    }
+
+    @ApiResponse(responseCode = "200", description = "Estatísticas calculadas com sucesso!")
+    @GetMapping("/estatisticas")
+    @Operation(summary = "Doses aplicadas no total, por nome e por dia (contadores em memória)")
+    public EstatisticasResponse estatisticas(){
+        return estatisticaVacinaService.estatisticas();
     }
 
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Busca realizada com sucesso!"),
+            @ApiResponse(responseCode = "400", description = "Período inválido ou acima de 366 dias.")
+    })
+    @GetMapping("/estatisticas/diarias")
+    @Operation(summary = "Doses por dia e nome de vacina num período (tabela diária)")
+    public List<VacinaDiariaResponse> estatisticasDiarias(
+            @Parameter(description = "Primeiro dia", example = "2022-04-01") @RequestParam("de") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+            @Parameter(description = "Último dia", example = "2022-04-30") @RequestParam("ate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+            @Parameter(description = "Nome da vacina") @RequestParam(value = "nome", required = false) String nome){
+        return vacinaDiariaService.buscar(de, ate, nome);
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tabela diária reconstruída com sucesso!"),
+            @ApiResponse(responseCode = "400", description = "Período inválido.")
+    })
+    @PostMapping("/estatisticas/diarias/reconstrucao")
+    @Operation(summary = "Reconstrói a tabela diária a partir das vacinas, em fatias de datas processadas em paralelo")
+    public ReconstrucaoDiariasResponse reconstruirDiarias(
+            @Parameter(description = "Primeiro dia (padrão: a vacina mais antiga)") @RequestParam(value = "de", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+            @Parameter(description = "Último dia (padrão: a vacina mais recente)") @RequestParam(value = "ate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate){
+        return vacinaDiariaService.reconstruir(de, ate);
+    }
+
+    @ApiResponse(responseCode = "200", description = "Exportação iniciada com sucesso!")
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    @Operation(summary = "Exporta todas as Vacinas em JSON delimitado por linha (NDJSON)")
+    public ResponseEntity<StreamingResponseBody> exportar(){
+        StreamingResponseBody corpo = saida -> {
+            try (JsonGenerator gerador = objectMapper.getFactory().createGenerator(saida)) {
+                gerador.setRootValueSeparator(null);
+                vacinaService.exportar(vacina -> {
+                    try {
+                        gerador.writeObject(vacinaMapper.toVacinaResponse(vacina));
+                        gerador.writeRaw('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(corpo);
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Busca realizada com sucesso!",
+                    content = @Content(schema = @Schema(implementation = VacinaResponse.class))),
             @ApiResponse(responseCode = "404", description = "Vacina não encontrada.")
     })
     @GetMapping("/{id}")
     @Operation(summary = "Busca Vacina por Id")
-    public VacinaResponse buscarPorId(@PathVariable("id") Long id){
-        return vacinaMapper.toVacinaResponse(vacinaService.buscarPorId(id));
+    public ResponseEntity<byte[]> buscarPorId(@PathVariable("id") Long id){
+        //um acerto no cache devolve os bytes prontos, sem banco, mapper ou Jackson
+        var resposta = cacheRespostas.vacina(id, () -> {
+            var vacina = vacinaService.buscarPorId(id);
+            return new CacheRespostas.Resposta(vacina.getUsuarioId(), null, serializar(vacina));
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(resposta.getJson());
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Vacinas encontradas em \"itens\", na ordem pedida; ids sem vacina em \"ausentes\"."),
+            @ApiResponse(responseCode = "400", description = "Lista vazia ou acima de 10000 ids.")
+    })
+    @PostMapping(value = "/buscar", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Busca várias Vacinas por Id (até 10000), em blocos, com a resposta escrita em streaming")
+    public ResponseEntity<StreamingResponseBody> buscarPorIds(@RequestBody List<Long> ids){
+        return RespostaPorIds.escrever(objectMapper, vacinaService.buscarPorIds(ids), vacina -> vacina);
     }
 
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "201", description = "Vacina cadastrada com sucesso!"),
-            @ApiResponse(responseCode = "400", description = "Usuário não encontrado.")
+            @ApiResponse(responseCode = "201", description = "Vacina cadastrada com sucesso!",
+                    content = @Content(schema = @Schema(implementation = VacinaResponse.class))),
+            @ApiResponse(responseCode = "202", description = "Vacina enfileirada (modo assíncrono), ainda não gravada: se o nó cair antes do lote, ela se perde. Acompanhe pelo id retornado.",
+                    content = @Content(schema = @Schema(implementation = IngestaoResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Usuário não encontrado."),
+            @ApiResponse(responseCode = "429", description = "Fila de gravação cheia (modo assíncrono).")
     })
     @PostMapping
     @Operation(summary = "Salva Vacinas")
-    @ResponseStatus(HttpStatus.CREATED)
-    public VacinaResponse salvar(@Valid @RequestBody VacinaRequest vacinaRequest){
+    public ResponseEntity<?> salvar(@Valid @RequestBody VacinaRequest vacinaRequest){
+        if (ingestaoVacinaService.isHabilitada()) {
+            var ingestao = ingestaoVacinaService.enfileirar(vacinaRequest);
+            var situacao = ServletUriComponentsBuilder.fromCurrentRequest().path("/ingestao/{id}").buildAndExpand(ingestao.getId()).toUri();
+            return ResponseEntity.accepted().location(situacao).body(ingestao);
+        }
         var vacina = vacinaMapper.toVacinaEntity(vacinaRequest);
-        return vacinaMapper.toVacinaResponse(vacinaService.salvar(vacina));
+        //fora de transação: a requisição só espera o commit do lote, sem segurar uma conexão enquanto isso
+        var salva = gravacaoAgrupadaVacinaService.isHabilitada() ? gravacaoAgrupadaVacinaService.salvar(vacina) : vacinaService.salvar(vacina);
+        return ResponseEntity.status(HttpStatus.CREATED).body(vacinaMapper.toVacinaResponse(salva));
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Busca realizada com sucesso!"),
+            @ApiResponse(responseCode = "404", description = "Id de acompanhamento não encontrado, expirado ou ainda na fila de outro nó.")
+    })
+    @GetMapping("/ingestao/{id}")
+    @Operation(summary = "Situação de uma vacina enfileirada no modo assíncrono")
+    public IngestaoResponse buscarIngestao(@PathVariable("id") String id){
+        return ingestaoVacinaService.buscarSituacao(id);
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote processado; o resultado de cada item vem na resposta."),
+            @ApiResponse(responseCode = "400", description = "Lote vazio ou acima do limite.")
+    })
+    @PostMapping("/lote")
+    @Operation(summary = "Salva um lote de Vacinas")
+    public LoteResponse salvarLote(@RequestBody List<VacinaRequest> vacinaRequests){
+        return vacinaService.salvarLote(vacinaRequests);
     }
 
     @ApiResponses(value = {
@@ -67,9 +238,33 @@ public class VacinaController {
         return vacinaMapper.toVacinaResponse(vacinaService.atualizar(id, vacina));
     }
 
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Vacina atualizada com sucesso!"),
+            @ApiResponse(responseCode = "400", description = "Requisição inválida."),
+            @ApiResponse(responseCode = "404", description = "Vacina não encontrada.")
+    })
+    @PatchMapping("/{id}")
+    @Operation(summary = "Atualiza o nome da Vacina sem carregá-la")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void atualizarParcial(@PathVariable("id") Long id, @Valid @RequestBody VacinaUpdateRequest vacinaRequest){
+        vacinaService.atualizarNome(id, vacinaRequest.getNome());
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Vacinas deletadas com sucesso!"),
+            @ApiResponse(responseCode = "400", description = "Quantidade de ids inválida."),
+            @ApiResponse(responseCode = "404", description = "Nenhuma das vacinas foi encontrada.")
+    })
+    @DeleteMapping
+    @Operation(summary = "Deleta vacinas em lote (até 1000 ids) com um único comando")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deletar(@Parameter(description = "Ids separados por vírgula", example = "1,2,3") @RequestParam("ids") List<Long> ids){
+        vacinaService.deletar(ids);
+    }
+
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Vacina deletada com sucesso!"),
-            @ApiResponse(responseCode = "400", description = "Id de Vacina inválido.")
+            @ApiResponse(responseCode = "404", description = "Vacina não encontrada.")
     })
     @DeleteMapping("/{id}")
     @Operation(summary = "Deleta vacinas por Id")
@@ -77,4 +272,12 @@ public class VacinaController {
     public void deletar(@PathVariable("id") Long id){
         vacinaService.deletar(id);
     }
+
+    private byte[] serializar(Object resposta) {
+        try {
+            return objectMapper.writeValueAsBytes(resposta);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
 }
@@ -1,9 +1,17 @@
 package com.github.nadia.vacinasapi.api.exceptionHandler;
 
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
 import com.github.nadia.vacinasapi.domain.exception.NotFoundException;
+import com.github.nadia.vacinasapi.domain.exception.PreconditionFailedException;
 import com.github.nadia.vacinasapi.domain.exception.ServiceException;
+import com.github.nadia.vacinasapi.domain.exception.TooManyRequestsException;
 import org.hibernate.PropertyValueException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -14,13 +22,22 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Locale;
 
 @ControllerAdvice
 public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
 
+    private static final Logger log = LoggerFactory.getLogger(ApiExceptionHandler.class);
+
+    //chave duplicada: MySQL devolve o estado genérico 23000 com o código 1062; o H2 tem estado próprio
+    private static final String ESTADO_INTEGRIDADE = "23000";
+    private static final int MYSQL_CHAVE_DUPLICADA = 1062;
+    private static final String H2_CHAVE_DUPLICADA = "23505";
+
     @ExceptionHandler(SQLIntegrityConstraintViolationException.class)
     public ResponseEntity<Object> handlerSQLIntegrityConstraintViolationException(
             SQLIntegrityConstraintViolationException ex,
@@ -30,6 +47,30 @@ public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
         return handleExceptionInternal(ex, problema, new HttpHeaders(), status, request);
     }
 
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Object> handlerDataIntegrityViolationException(
+            DataIntegrityViolationException ex,
+            WebRequest request) {
+        var restricao = nomeDaRestricao(ex).toLowerCase(Locale.ROOT);
+        if (restricao.contains(Usuario.UK_EMAIL)) {
+            return handlerServiceException(new ServiceException("Email já cadastrado!"), request);
+        }
+        if (restricao.contains(Usuario.UK_CPF)) {
+            return handlerServiceException(new ServiceException("Cpf já cadastrado!"), request);
+        }
+        //a mensagem do banco expõe tabelas, colunas e valores: fica só no log
+        log.warn("Violação de integridade sem tradução: {}", ex.getMostSpecificCause().getMessage(), ex);
+        //só chave duplicada é conflito; NOT NULL e chave estrangeira são dados inválidos na requisição
+        if (chaveDuplicada(ex)) {
+            HttpStatus status = HttpStatus.CONFLICT;
+            Problema problema = setProblema("Operação conflita com dados já cadastrados.", status);
+            return handleExceptionInternal(ex, problema, new HttpHeaders(), status, request);
+        }
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        Problema problema = setProblema("Dados inválidos.", status);
+        return handleExceptionInternal(ex, problema, new HttpHeaders(), status, request);
+    }
+
     @ExceptionHandler(NotFoundException.class)
     public ResponseEntity<Object> handlerNotFoundException(NotFoundException ex, WebRequest request) {
         HttpStatus status = HttpStatus.NOT_FOUND;
@@ -37,6 +78,33 @@ public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
         return handleExceptionInternal(ex, problema, new HttpHeaders(), status, request);
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Object> handlerPreconditionFailedException(PreconditionFailedException ex, WebRequest request) {
+        HttpStatus status = HttpStatus.PRECONDITION_FAILED;
+        Problema problema = setProblema(ex.getMessage(), status);
+        return handleExceptionInternal(ex, problema, new HttpHeaders(), status, request);
+    }
+
+    //fila de ingestão cheia: o cliente tenta de novo depois de um instante
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Object> handlerTooManyRequestsException(TooManyRequestsException ex, WebRequest request) {
+        HttpStatus status = HttpStatus.TOO_MANY_REQUESTS;
+        Problema problema = setProblema(ex.getMessage(), status);
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return handleExceptionInternal(ex, problema, headers, status, request);
+    }
+
+    //duas escritas concorrentes sobre a mesma versão: a segunda perde
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Object> handlerObjectOptimisticLockingFailureException(
+            ObjectOptimisticLockingFailureException ex,
+            WebRequest request) {
+        HttpStatus status = HttpStatus.CONFLICT;
+        Problema problema = setProblema("Registro alterado por outra requisição.", status);
+        return handleExceptionInternal(ex, problema, new HttpHeaders(), status, request);
+    }
+
     @ExceptionHandler(ServiceException.class)
     public ResponseEntity<Object> handlerServiceException(ServiceException ex, WebRequest request) {
         HttpStatus status = HttpStatus.BAD_REQUEST;
@@ -66,6 +134,30 @@ public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
         return handleExceptionInternal(ex, problema, headers, status, request);
     }
 
+    //o nome vem do Hibernate quando o dialeto consegue extraí-lo; senão usa a mensagem do driver
+    private String nomeDaRestricao(DataIntegrityViolationException ex){
+        for (Throwable causa = ex; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException && ((ConstraintViolationException) causa).getConstraintName() != null) {
+                return ((ConstraintViolationException) causa).getConstraintName();
+            }
+        }
+        var mensagem = ex.getMostSpecificCause().getMessage();
+        return mensagem != null ? mensagem : "";
+    }
+
+    private boolean chaveDuplicada(DataIntegrityViolationException ex){
+        for (Throwable causa = ex; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLException) {
+                var sql = (SQLException) causa;
+                if (ESTADO_INTEGRIDADE.equals(sql.getSQLState()) && sql.getErrorCode() == MYSQL_CHAVE_DUPLICADA
+                        || H2_CHAVE_DUPLICADA.equals(sql.getSQLState())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     private Problema setProblema(String title, HttpStatus status){
 
         var problema = new Problema();
@@ -0,0 +1,178 @@
+package com.github.nadia.vacinasapi.core.autocompletar;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+//árvore radix imutável sobre os nomes normalizados; cada nó guarda os candidatos mais aplicados da sua subárvore,
+//então a busca custa O(tamanho do prefixo + candidatos), independente de quantos nomes existem
+public final class IndicePrefixos {
+
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+    private static final Comparator<Entrada> MAIS_APLICADOS_NA_CONSTRUCAO = Comparator
+            .comparingLong((Entrada entrada) -> entrada.contagemNaConstrucao).reversed()
+            .thenComparing(entrada -> entrada.nome);
+
+    private final No raiz;
+    private final int nomes;
+    private final int nos;
+
+    private IndicePrefixos(No raiz, int nomes, int nos) {
+        this.raiz = raiz;
+        this.nomes = nomes;
+        this.nos = nos;
+    }
+
+    //indexa no máximo maximoNomes nomes (os mais aplicados) e guarda até candidatosPorNo sugestões em cada nó
+    public static IndicePrefixos construir(Map<String, LongAdder> contagens, int maximoNomes, int candidatosPorNo) {
+        var entradas = contagens.entrySet().stream()
+                .map(contagem -> new Entrada(normalizar(contagem.getKey()), contagem.getKey(), contagem.getValue(), contagem.getValue().sum()))
+                .filter(entrada -> entrada.contagemNaConstrucao > 0)
+                .sorted(MAIS_APLICADOS_NA_CONSTRUCAO)
+                .limit(maximoNomes)
+                .sorted(Comparator.comparing((Entrada entrada) -> entrada.chave).thenComparing(entrada -> entrada.nome))
+                .collect(Collectors.toList());
+        if (entradas.isEmpty()) {
+            return new IndicePrefixos(null, 0, 0);
+        }
+        var construtor = new Construtor(entradas, candidatosPorNo);
+        var raiz = construtor.no(0, entradas.size(), 0);
+        return new IndicePrefixos(raiz, entradas.size(), construtor.nos);
+    }
+
+    //sugestões para o prefixo, ordenadas pela contagem atual; o limite não passa de candidatosPorNo
+    public List<Sugestao> buscar(String prefixo, int limite) {
+        var chave = normalizar(prefixo);
+        var no = raiz;
+        var posicao = 0;
+        while (no != null) {
+            var comparar = Math.min(no.rotulo.length(), chave.length() - posicao);
+            if (!chave.regionMatches(posicao, no.rotulo, 0, comparar)) {
+                return List.of();
+            }
+            posicao += comparar;
+            if (posicao == chave.length()) {
+                return ordenar(no.candidatos, limite);
+            }
+            var indice = Arrays.binarySearch(no.primeiros, chave.charAt(posicao));
+            no = indice >= 0 ? no.filhos[indice] : null;
+        }
+        return List.of();
+    }
+
+    public int getNomes() {
+        return nomes;
+    }
+
+    public int getNos() {
+        return nos;
+    }
+
+    //minúsculas, sem acentos e com espaços simples: "Febre  Amarela" e "febre amarela" caem na mesma chave
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        var semAcentos = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACOS.matcher(semAcentos.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static List<Sugestao> ordenar(Entrada[] candidatos, int limite) {
+        var sugestoes = new ArrayList<Sugestao>(candidatos.length);
+        for (Entrada candidato : candidatos) {
+            var quantidade = candidato.contagem.sum();
+            //zerados por remoções saem na próxima construção
+            if (quantidade > 0) {
+                sugestoes.add(new Sugestao(candidato.nome, quantidade));
+            }
+        }
+        sugestoes.sort(Comparator.comparingLong(Sugestao::getQuantidade).reversed().thenComparing(Sugestao::getNome));
+        return sugestoes.size() > limite ? sugestoes.subList(0, limite) : sugestoes;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Sugestao {
+        private final String nome;
+        private final long quantidade;
+    }
+
+    @AllArgsConstructor
+    private static class Entrada {
+        private final String chave;
+        private final String nome;
+        private final LongAdder contagem;
+        private final long contagemNaConstrucao;
+    }
+
+    @AllArgsConstructor
+    private static class No {
+        private final String rotulo;
+        private final char[] primeiros;
+        private final No[] filhos;
+        private final Entrada[] candidatos;
+    }
+
+    //monta a árvore a partir das entradas ordenadas pela chave, sem nós intermediários de um só filho
+    private static class Construtor {
+        private final List<Entrada> entradas;
+        private final int candidatosPorNo;
+        private int nos;
+
+        private Construtor(List<Entrada> entradas, int candidatosPorNo) {
+            this.entradas = entradas;
+            this.candidatosPorNo = candidatosPorNo;
+        }
+
+        //entradas [inicio, fim) compartilham os primeiros "profundidade" caracteres
+        private No no(int inicio, int fim, int profundidade) {
+            nos++;
+            var primeira = entradas.get(inicio).chave;
+            var ultima = entradas.get(fim - 1).chave;
+            //como estão ordenadas, o prefixo comum da primeira com a última vale para todas
+            var comum = profundidade;
+            while (comum < primeira.length() && comum < ultima.length() && primeira.charAt(comum) == ultima.charAt(comum)) {
+                comum++;
+            }
+            var candidatos = new ArrayList<Entrada>();
+            var atual = inicio;
+            while (atual < fim && entradas.get(atual).chave.length() == comum) {
+                candidatos.add(entradas.get(atual++));
+            }
+            var primeiros = new ArrayList<Character>();
+            var filhos = new ArrayList<No>();
+            while (atual < fim) {
+                var caractere = entradas.get(atual).chave.charAt(comum);
+                var fimDoGrupo = atual;
+                while (fimDoGrupo < fim && entradas.get(fimDoGrupo).chave.charAt(comum) == caractere) {
+                    fimDoGrupo++;
+                }
+                var filho = no(atual, fimDoGrupo, comum + 1);
+                primeiros.add(caractere);
+                filhos.add(filho);
+                candidatos.addAll(Arrays.asList(filho.candidatos));
+                atual = fimDoGrupo;
+            }
+            candidatos.sort(MAIS_APLICADOS_NA_CONSTRUCAO);
+            var melhores = candidatos.subList(0, Math.min(candidatosPorNo, candidatos.size())).toArray(new Entrada[0]);
+            var vetorPrimeiros = new char[primeiros.size()];
+            for (int i = 0; i < vetorPrimeiros.length; i++) {
+                vetorPrimeiros[i] = primeiros.get(i);
+            }
+            //o rótulo do filho começa no caractere que o distinguiu dos irmãos
+            var rotulo = primeira.substring(profundidade == 0 ? 0 : profundidade - 1, comum);
+            return new No(rotulo, vetorPrimeiros, filhos.toArray(new No[0]), melhores);
+        }
+    }
+}
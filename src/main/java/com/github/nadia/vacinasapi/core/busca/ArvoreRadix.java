@@ -0,0 +1,189 @@
+package com.github.nadia.vacinasapi.core.busca;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//árvore radix mutável de chave -> ids: prefixos comuns das chaves ficam guardados uma vez só
+//não é thread-safe: quem usa controla o acesso
+public final class ArvoreRadix {
+
+    private static final char[] SEM_PRIMEIROS = new char[0];
+    private static final No[] SEM_FILHOS = new No[0];
+
+    private final No raiz = new No("");
+    private long chaves;
+
+    public void adicionar(String chave, long id) {
+        var no = raiz;
+        var posicao = 0;
+        while (posicao < chave.length()) {
+            var indice = Arrays.binarySearch(no.primeiros, chave.charAt(posicao));
+            if (indice < 0) {
+                var folha = new No(chave.substring(posicao));
+                no.inserirFilho(-indice - 1, folha);
+                no = folha;
+                break;
+            }
+            var filho = no.filhos[indice];
+            var comum = prefixoComum(filho.rotulo, chave, posicao);
+            if (comum < filho.rotulo.length()) {
+                //a chave diverge no meio do rótulo: um nó intermediário fica com a parte comum
+                var meio = new No(filho.rotulo.substring(0, comum));
+                filho.rotulo = filho.rotulo.substring(comum);
+                meio.primeiros = new char[]{filho.rotulo.charAt(0)};
+                meio.filhos = new No[]{filho};
+                no.filhos[indice] = meio;
+                filho = meio;
+            }
+            no = filho;
+            posicao += comum;
+        }
+        if (no.ids == null) {
+            no.ids = new ListaIds();
+        }
+        if (no.ids.adicionar(id) && no.ids.tamanho() == 1) {
+            chaves++;
+        }
+    }
+
+    public void remover(String chave, long id) {
+        var caminho = new ArrayList<No>();
+        var no = raiz;
+        var posicao = 0;
+        caminho.add(no);
+        while (posicao < chave.length()) {
+            var indice = Arrays.binarySearch(no.primeiros, chave.charAt(posicao));
+            if (indice < 0) {
+                return;
+            }
+            no = no.filhos[indice];
+            if (!chave.startsWith(no.rotulo, posicao)) {
+                return;
+            }
+            posicao += no.rotulo.length();
+            caminho.add(no);
+        }
+        if (no.ids == null || !no.ids.remover(id)) {
+            return;
+        }
+        if (no.ids.tamanho() > 0) {
+            return;
+        }
+        no.ids = null;
+        chaves--;
+        //sobe desfazendo folhas vazias e nós de passagem com um só filho
+        for (int i = caminho.size() - 1; i > 0; i--) {
+            var atual = caminho.get(i);
+            var pai = caminho.get(i - 1);
+            if (atual.ids == null && atual.filhos.length == 0) {
+                pai.removerFilho(Arrays.binarySearch(pai.primeiros, atual.rotulo.charAt(0)));
+            } else if (atual.ids == null && atual.filhos.length == 1) {
+                var unico = atual.filhos[0];
+                atual.rotulo = atual.rotulo + unico.rotulo;
+                atual.primeiros = unico.primeiros;
+                atual.filhos = unico.filhos;
+                atual.ids = unico.ids;
+                break;
+            } else {
+                break;
+            }
+        }
+    }
+
+    //ids das chaves que começam com o prefixo, em ordem de chave, até o limite
+    public List<Long> buscarPrefixo(String prefixo, int limite) {
+        var no = raiz;
+        var posicao = 0;
+        while (posicao < prefixo.length()) {
+            var indice = Arrays.binarySearch(no.primeiros, prefixo.charAt(posicao));
+            if (indice < 0) {
+                return List.of();
+            }
+            no = no.filhos[indice];
+            var comparar = Math.min(no.rotulo.length(), prefixo.length() - posicao);
+            if (!prefixo.regionMatches(posicao, no.rotulo, 0, comparar)) {
+                return List.of();
+            }
+            posicao += comparar;
+        }
+        var ids = new ArrayList<Long>();
+        coletar(no, ids, limite);
+        return ids;
+    }
+
+    public long getChaves() {
+        return chaves;
+    }
+
+    //estimativa com referências comprimidas: cabeçalhos, rótulos em Latin-1, vetores de filhos e listas de ids
+    public long tamanhoEmBytes() {
+        return tamanhoEmBytes(raiz);
+    }
+
+    private static long tamanhoEmBytes(No no) {
+        long bytes = 32 + 24 + 16 + no.rotulo.length() + 16 + no.primeiros.length * 2L + 16 + no.filhos.length * 4L;
+        if (no.ids != null) {
+            bytes += no.ids.tamanhoEmBytes();
+        }
+        for (No filho : no.filhos) {
+            bytes += tamanhoEmBytes(filho);
+        }
+        return bytes;
+    }
+
+    private static void coletar(No no, List<Long> ids, int limite) {
+        if (no.ids != null) {
+            for (int i = 0; i < no.ids.tamanho() && ids.size() < limite; i++) {
+                ids.add(no.ids.get(i));
+            }
+        }
+        for (int i = 0; i < no.filhos.length && ids.size() < limite; i++) {
+            coletar(no.filhos[i], ids, limite);
+        }
+    }
+
+    private static int prefixoComum(String rotulo, String chave, int posicao) {
+        var maximo = Math.min(rotulo.length(), chave.length() - posicao);
+        var comum = 0;
+        while (comum < maximo && rotulo.charAt(comum) == chave.charAt(posicao + comum)) {
+            comum++;
+        }
+        return comum;
+    }
+
+    private static final class No {
+        private String rotulo;
+        private char[] primeiros = SEM_PRIMEIROS;
+        private No[] filhos = SEM_FILHOS;
+        private ListaIds ids;
+
+        private No(String rotulo) {
+            this.rotulo = rotulo;
+        }
+
+        private void inserirFilho(int posicao, No filho) {
+            var novosPrimeiros = new char[primeiros.length + 1];
+            var novosFilhos = new No[filhos.length + 1];
+            System.arraycopy(primeiros, 0, novosPrimeiros, 0, posicao);
+            System.arraycopy(filhos, 0, novosFilhos, 0, posicao);
+            novosPrimeiros[posicao] = filho.rotulo.charAt(0);
+            novosFilhos[posicao] = filho;
+            System.arraycopy(primeiros, posicao, novosPrimeiros, posicao + 1, primeiros.length - posicao);
+            System.arraycopy(filhos, posicao, novosFilhos, posicao + 1, filhos.length - posicao);
+            primeiros = novosPrimeiros;
+            filhos = novosFilhos;
+        }
+
+        private void removerFilho(int posicao) {
+            var novosPrimeiros = new char[primeiros.length - 1];
+            var novosFilhos = new No[filhos.length - 1];
+            System.arraycopy(primeiros, 0, novosPrimeiros, 0, posicao);
+            System.arraycopy(filhos, 0, novosFilhos, 0, posicao);
+            System.arraycopy(primeiros, posicao + 1, novosPrimeiros, posicao, primeiros.length - posicao - 1);
+            System.arraycopy(filhos, posicao + 1, novosFilhos, posicao, filhos.length - posicao - 1);
+            primeiros = novosPrimeiros.length == 0 ? SEM_PRIMEIROS : novosPrimeiros;
+            filhos = novosFilhos.length == 0 ? SEM_FILHOS : novosFilhos;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.nadia.vacinasapi.core.busca;
+
+import com.github.nadia.vacinasapi.core.autocompletar.IndicePrefixos;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+//índice invertido de trigramas dos nomes normalizados; cada trigrama aponta para a lista ordenada de ids
+//não é thread-safe: quem usa controla o acesso
+public final class IndiceTrigramas {
+
+    //acima disso a consulta é ampla demais para valer a verificação de cada candidato
+    public static final int MAXIMO_CANDIDATOS = 1000;
+
+    private final Map<String, ListaIds> postagens = new HashMap<>();
+    private final Map<Long, String> nomes = new HashMap<>();
+
+    public void adicionar(long id, String nome) {
+        remover(id);
+        var normalizado = IndicePrefixos.normalizar(nome);
+        nomes.put(id, normalizado);
+        for (String trigrama : trigramas("  " + normalizado + " ")) {
+            postagens.computeIfAbsent(trigrama, t -> new ListaIds()).adicionar(id);
+        }
+    }
+
+    public void remover(long id) {
+        var normalizado = nomes.remove(id);
+        if (normalizado == null) {
+            return;
+        }
+        for (String trigrama : trigramas("  " + normalizado + " ")) {
+            var lista = postagens.get(trigrama);
+            if (lista != null && lista.remover(id) && lista.tamanho() == 0) {
+                postagens.remove(trigrama);
+            }
+        }
+    }
+
+    //ids cujo nome contém o fragmento, em ordem de id; com 2 caracteres só casa início de palavra
+    public List<Long> buscar(String fragmento) {
+        var normalizado = IndicePrefixos.normalizar(fragmento);
+        if (normalizado.length() < 2) {
+            return List.of();
+        }
+        var chaves = normalizado.length() == 2 ? List.of(" " + normalizado) : new ArrayList<>(trigramas(normalizado));
+        var listas = new ArrayList<ListaIds>();
+        for (String chave : chaves) {
+            var lista = postagens.get(chave);
+            if (lista == null) {
+                return List.of();
+            }
+            listas.add(lista);
+        }
+        //a interseção percorre a menor lista e confere as demais por busca binária
+        listas.sort(Comparator.comparingInt(ListaIds::tamanho));
+        var menor = listas.get(0);
+        var ids = new ArrayList<Long>();
+        for (int i = 0; i < menor.tamanho() && ids.size() < MAXIMO_CANDIDATOS; i++) {
+            var id = menor.get(i);
+            if (contidoEmTodas(listas, id) && contemFragmento(nomes.get(id), normalizado)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    //nome normalizado guardado para o id, usado também no ranqueamento
+    public String nomeNormalizado(long id) {
+        return nomes.get(id);
+    }
+
+    public int getTrigramas() {
+        return postagens.size();
+    }
+
+    //estimativa: entradas dos mapas, chaves em Latin-1 e listas de ids
+    public long tamanhoEmBytes() {
+        long bytes = 0;
+        for (Map.Entry<String, ListaIds> postagem : postagens.entrySet()) {
+            bytes += 32 + 24 + 16 + postagem.getKey().length() + postagem.getValue().tamanhoEmBytes();
+        }
+        for (String nome : nomes.values()) {
+            bytes += 32 + 16 + 24 + 16 + nome.length();
+        }
+        return bytes;
+    }
+
+    private static boolean contidoEmTodas(List<ListaIds> listas, long id) {
+        for (int i = 1; i < listas.size(); i++) {
+            if (!listas.get(i).contem(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //os trigramas não garantem a ordem dos caracteres: a verificação final elimina falsos candidatos
+    private static boolean contemFragmento(String nome, String fragmento) {
+        if (fragmento.length() == 2) {
+            return nome.startsWith(fragmento) || nome.contains(" " + fragmento);
+        }
+        return nome.contains(fragmento);
+    }
+
+    private static LinkedHashSet<String> trigramas(String texto) {
+        var trigramas = new LinkedHashSet<String>();
+        for (int i = 0; i + 3 <= texto.length(); i++) {
+            trigramas.add(texto.substring(i, i + 3));
+        }
+        return trigramas;
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.nadia.vacinasapi.core.busca;
+
+import java.util.Arrays;
+
+//ids ordenados num long[] que cresce sob demanda: 8 bytes por id; ids novos (maiores) entram no fim sem deslocar nada
+//não é thread-safe: quem usa controla o acesso
+final class ListaIds {
+
+    private static final long[] VAZIO = new long[0];
+
+    private long[] ids = VAZIO;
+    private int tamanho;
+
+    boolean adicionar(long id) {
+        var posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+        if (posicao >= 0) {
+            return false;
+        }
+        posicao = -posicao - 1;
+        if (tamanho == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(2, tamanho + (tamanho >> 1) + 1));
+        }
+        System.arraycopy(ids, posicao, ids, posicao + 1, tamanho - posicao);
+        ids[posicao] = id;
+        tamanho++;
+        return true;
+    }
+
+    boolean remover(long id) {
+        var posicao = Arrays.binarySearch(ids, 0, tamanho, id);
+        if (posicao < 0) {
+            return false;
+        }
+        System.arraycopy(ids, posicao + 1, ids, posicao, tamanho - posicao - 1);
+        tamanho--;
+        //devolve a sobra quando a lista encolhe bastante
+        if (tamanho < ids.length / 4) {
+            ids = tamanho == 0 ? VAZIO : Arrays.copyOf(ids, tamanho * 2);
+        }
+        return true;
+    }
+
+    boolean contem(long id) {
+        return Arrays.binarySearch(ids, 0, tamanho, id) >= 0;
+    }
+
+    long get(int indice) {
+        return ids[indice];
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    long tamanhoEmBytes() {
+        return 16 + 16 + ids.length * 8L;
+    }
+}
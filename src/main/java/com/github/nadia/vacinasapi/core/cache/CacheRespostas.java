@@ -0,0 +1,139 @@
+package com.github.nadia.vacinasapi.core.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.nadia.vacinasapi.core.concorrencia.ConsultasEmAndamento;
+import com.github.nadia.vacinasapi.core.transacao.AposCommit;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+//cache dos bytes JSON já serializados das respostas de busca por id (Caffeine, despejo W-TinyLFU limitado por bytes).
+//as invalidações são locais ao nó: uma escrita feita em outro nó só aparece aqui quando a entrada expira, então
+//respostas e versões usadas no If-None-Match ficam desatualizadas por no máximo vacinas-api.cache-respostas.validade
+@Component
+public class CacheRespostas {
+
+    //custo aproximado da entrada além do próprio array de bytes
+    private static final int SOBRECARGA_POR_ENTRADA = 64;
+
+    @Value("${vacinas-api.cache-respostas.usuarios-bytes:33554432}")
+    private long usuariosBytes;
+
+    @Value("${vacinas-api.cache-respostas.vacinas-bytes:33554432}")
+    private long vacinasBytes;
+
+    @Value("${vacinas-api.cache-respostas.validade:PT30S}")
+    private Duration validade;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //relógio da expiração; os testes trocam por um controlado
+    private Ticker ticker = Ticker.systemTicker();
+
+    private Cache<Long, Resposta> usuarios;
+    private Cache<Long, Resposta> vacinas;
+
+    //um id popular invalidado gera muitas falhas simultâneas: só uma carga vai ao banco e as demais esperam por ela
+    private final ConsultasEmAndamento<Long, Resposta> cargasUsuarios = new ConsultasEmAndamento<>();
+    private final ConsultasEmAndamento<Long, Resposta> cargasVacinas = new ConsultasEmAndamento<>();
+
+    @PostConstruct
+    public void iniciar() {
+        usuarios = criar(usuariosBytes, "respostas.usuarios", cargasUsuarios);
+        vacinas = criar(vacinasBytes, "respostas.vacinas", cargasVacinas);
+    }
+
+    public Resposta usuario(Long id, Supplier<Resposta> serializar) {
+        return buscar(usuarios, cargasUsuarios, id, serializar);
+    }
+
+    //versão da resposta em cache, para responder If-None-Match sem ir ao banco; nulo se não estiver em cache
+    public Long versaoUsuario(Long id) {
+        //leitura silenciosa: não conta como acerto nem mexe na frequência do TinyLFU
+        var resposta = usuarios.policy().getIfPresentQuietly(id);
+        return resposta != null ? resposta.getVersao() : null;
+    }
+
+    //o id do dono fica junto da vacina para invalidar quando o email dele muda
+    public Resposta vacina(Long id, Supplier<Resposta> serializar) {
+        return buscar(vacinas, cargasVacinas, id, serializar);
+    }
+
+    //depois do commit, nem a resposta em cache nem uma carga iniciada antes da escrita servem mais
+    public void invalidarUsuario(Long id) {
+        AposCommit.executar(() -> {
+            usuarios.invalidate(id);
+            cargasUsuarios.esquecer(id);
+        });
+    }
+
+    public void invalidarVacina(Long id) {
+        AposCommit.executar(() -> {
+            vacinas.invalidate(id);
+            cargasVacinas.esquecer(id);
+        });
+    }
+
+    //varre só a memória: troca de email é rara e dispensa consultar as vacinas do usuário
+    public void invalidarVacinasDoUsuario(Long usuarioId) {
+        AposCommit.executar(() -> vacinas.asMap().values().removeIf(resposta -> usuarioId.equals(resposta.getUsuarioId())));
+    }
+
+    //a falha também é compartilhada: um 404 chega a todos os que esperavam e nada fica no cache.
+    //quem espera conta como falta do cache e como coalescida, não como acerto; as cargas contam só quem foi ao banco
+    private static Resposta buscar(Cache<Long, Resposta> cache, ConsultasEmAndamento<Long, Resposta> cargas, Long id,
+                                   Supplier<Resposta> serializar) {
+        var emCache = cache.getIfPresent(id);
+        if (emCache != null) {
+            return emCache;
+        }
+        //compute não registra outra falta; e uma invalidação concorrente espera a carga terminar antes de remover
+        return cargas.executar(id, () -> cache.asMap().compute(id, (chave, atual) -> atual != null ? atual : serializar.get()));
+    }
+
+    private Cache<Long, Resposta> criar(long maximoBytes, String nome, ConsultasEmAndamento<Long, Resposta> cargas) {
+        Cache<Long, Resposta> cache = Caffeine.newBuilder()
+                .maximumWeight(maximoBytes)
+                .expireAfterWrite(validade)
+                .ticker(ticker)
+                .weigher((Long id, Resposta resposta) -> resposta.getJson().length + SOBRECARGA_POR_ENTRADA)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, nome);
+        //cleanUp aplica a manutenção pendente, senão o peso lido pode não refletir as últimas inclusões
+        Gauge.builder("vacinas.cache." + nome + ".bytes", cache, c -> {
+                    c.cleanUp();
+                    return c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+                })
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("vacinas.cache." + nome + ".taxa.acerto", cache, c -> c.stats().hitRate())
+                .register(meterRegistry);
+        FunctionCounter.builder("vacinas.cache." + nome + ".cargas", cache, c -> c.stats().loadCount())
+                .register(meterRegistry);
+        FunctionCounter.builder("vacinas.cache." + nome + ".coalescidas", cargas, ConsultasEmAndamento::getCompartilhadas)
+                .register(meterRegistry);
+        return cache;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Resposta {
+        private final Long usuarioId;
+        private final Long versao;
+        private final byte[] json;
+    }
+}
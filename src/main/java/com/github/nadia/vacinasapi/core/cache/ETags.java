@@ -0,0 +1,31 @@
+package com.github.nadia.vacinasapi.core.cache;
+
+import com.github.nadia.vacinasapi.domain.exception.PreconditionFailedException;
+
+//ETags fortes derivados das colunas @Version
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String deVersao(Long versao) {
+        return "\"" + versao + "\"";
+    }
+
+    //nulo quando não há pré-condição (cabeçalho ausente ou "*")
+    public static Long versaoDoIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        var valor = ifMatch.trim();
+        //If-Match usa comparação forte: ETag fraco nunca corresponde
+        if (valor.length() < 2 || !valor.startsWith("\"") || !valor.endsWith("\"")) {
+            throw new PreconditionFailedException("If-Match não corresponde a uma versão do Usuário.");
+        }
+        try {
+            return Long.valueOf(valor.substring(1, valor.length() - 1));
+        } catch (NumberFormatException ex) {
+            throw new PreconditionFailedException("If-Match não corresponde a uma versão do Usuário.");
+        }
+    }
+}
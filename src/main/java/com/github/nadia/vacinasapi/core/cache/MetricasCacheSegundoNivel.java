@@ -0,0 +1,39 @@
+package com.github.nadia.vacinasapi.core.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+//acertos e falhas das regiões do cache de segundo nível lidos das estatísticas do próprio Caffeine, sem depender de
+//hibernate.generate_statistics, que fica desligado fora do diagnóstico
+@Component
+public class MetricasCacheSegundoNivel {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //as regiões já existem aqui: o Hibernate cria todas ao montar a fábrica de sessões (missing_cache_strategy: create)
+    @PostConstruct
+    public void registrarMetricas() {
+        var regionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getCache().getRegionFactory();
+        if (!(regionFactory instanceof JCacheRegionFactory)) {
+            return;
+        }
+        var cacheManager = ((JCacheRegionFactory) regionFactory).getCacheManager();
+        for (var nome : cacheManager.getCacheNames()) {
+            //o Hibernate cria as regiões com a própria configuração, que vem com as estatísticas desligadas
+            cacheManager.enableStatistics(nome, true);
+            JCacheMetrics.monitor(meterRegistry, cacheManager.getCache(nome), Tags.of("camada", "segundo-nivel"));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.nadia.vacinasapi.core.concorrencia;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+//single-flight: chamadas simultâneas com a mesma chave compartilham uma única consulta em andamento e o seu resultado
+public final class ConsultasEmAndamento<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> emAndamento = new ConcurrentHashMap<>();
+    private final AtomicLong executadas = new AtomicLong();
+    private final AtomicLong compartilhadas = new AtomicLong();
+
+    //a primeira chamada executa a consulta na própria thread; as que chegam enquanto ela roda só esperam.
+    //o valor é o mesmo objeto para todas, então quem recebe não deve alterá-lo
+    public V executar(K chave, Supplier<V> consultar) {
+        var nova = new CompletableFuture<V>();
+        var existente = emAndamento.putIfAbsent(chave, nova);
+        if (existente != null) {
+            compartilhadas.incrementAndGet();
+            return aguardar(existente);
+        }
+        executadas.incrementAndGet();
+        try {
+            var valor = consultar.get();
+            nova.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error ex) {
+            //o erro também é compartilhado: um NotFoundException vira 404 para todos os que esperavam
+            nova.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            //quem chegar depois de concluída faz uma consulta nova, nada fica guardado aqui
+            emAndamento.remove(chave, nova);
+        }
+    }
+
+    //após uma escrita: quem chegar a partir de agora não pega carona numa consulta iniciada antes dela
+    public void esquecer(K chave) {
+        emAndamento.remove(chave);
+    }
+
+    public long getExecutadas() {
+        return executadas.get();
+    }
+
+    public long getCompartilhadas() {
+        return compartilhadas.get();
+    }
+
+    public int getEmAndamento() {
+        return emAndamento.size();
+    }
+
+    private static <V> V aguardar(CompletableFuture<V> consulta) {
+        try {
+            return consulta.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+}
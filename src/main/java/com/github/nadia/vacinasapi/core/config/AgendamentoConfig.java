@@ -0,0 +1,10 @@
+package com.github.nadia.vacinasapi.core.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+//habilita as tarefas @Scheduled (reconstrução periódica do filtro de usuários)
+@Configuration
+@EnableScheduling
+public class AgendamentoConfig {
+}
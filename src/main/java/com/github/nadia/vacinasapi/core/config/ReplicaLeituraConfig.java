@@ -0,0 +1,131 @@
+package com.github.nadia.vacinasapi.core.config;
+
+import com.github.nadia.vacinasapi.core.replica.DataSourceRoteado;
+import com.github.nadia.vacinasapi.core.replica.GerenciadorTransacoesReplica;
+import com.github.nadia.vacinasapi.core.replica.LeituraAposEscritaFilter;
+import com.github.nadia.vacinasapi.core.replica.ReplicaLeitura;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+//réplicas de leitura: com vacinas-api.replicas.habilitada=false (padrão) o DataSource continua o do Spring Boot
+@Configuration
+@ConditionalOnProperty(prefix = "vacinas-api.replicas", name = "habilitada", havingValue = "true")
+public class ReplicaLeituraConfig {
+
+    @Value("${vacinas-api.replicas.urls}")
+    private List<String> urls;
+
+    @Value("${vacinas-api.replicas.estrategia:ROUND_ROBIN}")
+    private DataSourceRoteado.Estrategia estrategia;
+
+    @Value("${vacinas-api.replicas.tamanho-pool:10}")
+    private int tamanhoPool;
+
+    //curto: uma réplica fora do ar deve cair para o primário logo, sem segurar a requisição
+    @Value("${vacinas-api.replicas.tempo-limite-conexao:PT2S}")
+    private Duration tempoLimiteConexao;
+
+    @Value("${vacinas-api.replicas.leitura-apos-escrita:PT5S}")
+    private Duration leituraAposEscrita;
+
+    //o pool do primário continua aceitando spring.datasource.hikari.*
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimario(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public DataSourceRoteado dataSourceRoteado(HikariDataSource dataSourcePrimario, DataSourceProperties properties,
+                                               MeterRegistry meterRegistry) {
+        var replicas = new ArrayList<ReplicaLeitura>();
+        for (int i = 0; i < urls.size(); i++) {
+            var pool = new HikariDataSource();
+            pool.setPoolName("replica-" + (i + 1));
+            pool.setJdbcUrl(urls.get(i).trim());
+            pool.setDriverClassName(properties.determineDriverClassName());
+            pool.setUsername(properties.determineUsername());
+            pool.setPassword(properties.determinePassword());
+            pool.setReadOnly(true);
+            pool.setMaximumPoolSize(tamanhoPool);
+            pool.setConnectionTimeout(tempoLimiteConexao.toMillis());
+            //uma réplica fora do ar na subida não impede a aplicação de iniciar; a verificação periódica a ejeta
+            pool.setInitializationFailTimeout(-1);
+            pool.setMetricRegistry(meterRegistry);
+            replicas.add(new ReplicaLeitura(pool.getPoolName(), pool));
+        }
+        var roteado = new DataSourceRoteado(dataSourcePrimario, replicas, estrategia);
+        registrarMetricas(roteado, meterRegistry);
+        return roteado;
+    }
+
+    //o proxy adia a escolha do pool até o primeiro comando, quando o readOnly da transação já é conhecido
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceRoteado dataSourceRoteado) {
+        return new LazyConnectionDataSourceProxy(dataSourceRoteado);
+    }
+
+    //substitui o JpaTransactionManager do Spring Boot
+    @Bean
+    public PlatformTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        var transactionManager = new GerenciadorTransacoesReplica();
+        customizers.ifAvailable(customizer -> customizer.customize(transactionManager));
+        return transactionManager;
+    }
+
+    //por padrão a sessão aberta pelo open-in-view segura a primeira conexão até o fim da requisição;
+    //liberando após cada transação, cada uma é roteada pelo seu próprio readOnly
+    @Bean
+    public HibernatePropertiesCustomizer liberarConexaoAposTransacao() {
+        return propriedades -> propriedades.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public LeituraAposEscritaFilter leituraAposEscritaFilter(MeterRegistry meterRegistry) {
+        var filtro = new LeituraAposEscritaFilter(leituraAposEscrita);
+        FunctionCounter.builder("vacinas.replicas.leituras.apos.escrita", filtro, LeituraAposEscritaFilter::getLeiturasNoPrimario)
+                .register(meterRegistry);
+        return filtro;
+    }
+
+    private void registrarMetricas(DataSourceRoteado roteado, MeterRegistry meterRegistry) {
+        FunctionCounter.builder("vacinas.replicas.conexoes", roteado, DataSourceRoteado::getConexoesPrimario)
+                .tag("destino", "primario")
+                .register(meterRegistry);
+        FunctionCounter.builder("vacinas.replicas.leituras.sem.replica", roteado, DataSourceRoteado::getLeiturasSemReplica)
+                .register(meterRegistry);
+        Gauge.builder("vacinas.replicas.saudaveis", roteado, DataSourceRoteado::getReplicasSaudaveis)
+                .register(meterRegistry);
+        for (ReplicaLeitura replica : roteado.getReplicas()) {
+            FunctionCounter.builder("vacinas.replicas.conexoes", replica, ReplicaLeitura::getConexoes)
+                    .tag("destino", replica.getNome())
+                    .register(meterRegistry);
+            FunctionCounter.builder("vacinas.replicas.ejecoes", replica, ReplicaLeitura::getEjecoes)
+                    .tag("replica", replica.getNome())
+                    .register(meterRegistry);
+        }
+    }
+}
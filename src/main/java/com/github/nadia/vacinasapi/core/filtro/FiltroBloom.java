@@ -0,0 +1,90 @@
+package com.github.nadia.vacinasapi.core.filtro;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//filtro de Bloom thread-safe: "não contém" é definitivo, "pode conter" admite falso positivo
+public class FiltroBloom {
+
+    private final AtomicLongArray bits;
+    private final long tamanhoEmBits;
+    private final int funcoesHash;
+    private final AtomicLong inseridos = new AtomicLong();
+
+    private FiltroBloom(long tamanhoEmBits, int funcoesHash) {
+        this.bits = new AtomicLongArray((int) ((tamanhoEmBits + 63) / 64));
+        this.tamanhoEmBits = tamanhoEmBits;
+        this.funcoesHash = funcoesHash;
+    }
+
+    //dimensiona m = -n ln p / (ln 2)^2 bits e k = m/n ln 2 funções de hash
+    public static FiltroBloom criar(long capacidade, double taxaFalsoPositivo) {
+        var n = Math.max(capacidade, 1);
+        var m = (long) Math.ceil(-n * Math.log(taxaFalsoPositivo) / (Math.log(2) * Math.log(2)));
+        var k = (int) Math.max(1, Math.round((double) m / n * Math.log(2)));
+        return new FiltroBloom(Math.max(m, 64), k);
+    }
+
+    public void adicionar(String valor) {
+        var h1 = hash(valor);
+        var h2 = misturar(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < funcoesHash; i++) {
+            var posicao = Math.floorMod(h1 + i * h2, tamanhoEmBits);
+            var indice = (int) (posicao >>> 6);
+            var mascara = 1L << (posicao & 63);
+            long atual;
+            do {
+                atual = bits.get(indice);
+                if ((atual & mascara) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(indice, atual, atual | mascara));
+        }
+        inseridos.incrementAndGet();
+    }
+
+    public boolean podeConter(String valor) {
+        var h1 = hash(valor);
+        var h2 = misturar(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < funcoesHash; i++) {
+            var posicao = Math.floorMod(h1 + i * h2, tamanhoEmBits);
+            if ((bits.get((int) (posicao >>> 6)) & (1L << (posicao & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //taxa estimada a partir dos itens inseridos: (1 - e^(-kn/m))^k
+    public double taxaFalsoPositivoEstimada() {
+        return Math.pow(1 - Math.exp(-(double) funcoesHash * inseridos.get() / tamanhoEmBits), funcoesHash);
+    }
+
+    public long tamanhoEmBytes() {
+        return bits.length() * 8L;
+    }
+
+    public long getInseridos() {
+        return inseridos.get();
+    }
+
+    //FNV-1a de 64 bits sobre os bytes UTF-8, finalizado com o mix do MurmurHash3
+    private static long hash(String valor) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : valor.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return misturar(h);
+    }
+
+    private static long misturar(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
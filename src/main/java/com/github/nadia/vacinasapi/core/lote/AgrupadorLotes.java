@@ -0,0 +1,146 @@
+package com.github.nadia.vacinasapi.core.lote;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+//group commit / micro-lotes: itens enviados por várias threads dentro de uma janela curta são processados
+//juntos numa única chamada; cada chamador recebe o seu resultado, ou o seu erro, pelo próprio future
+public final class AgrupadorLotes<T, R> implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AgrupadorLotes.class);
+
+    //sem limite: cada item tem uma thread esperando por ele, então a fila nunca passa do número de chamadores
+    private final BlockingQueue<Pendente<T, R>> fila = new LinkedBlockingQueue<>();
+    private final int tamanhoMaximo;
+    private final long janelaNanos;
+    private final Function<List<T>, List<R>> processar;
+    private final Consumer<Integer> aoProcessar;
+    private final Thread escritor;
+    private volatile boolean ativo = true;
+    //enviar confere ativo e entra na fila sob a leitura; close desliga sob a escrita, então nada entra depois da drenagem
+    private final ReadWriteLock trava = new ReentrantReadWriteLock();
+
+    //processar recebe os itens na ordem de chegada e devolve os resultados na mesma ordem
+    public AgrupadorLotes(String nome, int tamanhoMaximo, long janelaMicros,
+                          Function<List<T>, List<R>> processar, Consumer<Integer> aoProcessar) {
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.janelaNanos = TimeUnit.MICROSECONDS.toNanos(janelaMicros);
+        this.processar = processar;
+        this.aoProcessar = aoProcessar;
+        this.escritor = new Thread(this::executar, nome);
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    public CompletableFuture<R> enviar(T item) {
+        var pendente = new Pendente<T, R>(item);
+        trava.readLock().lock();
+        try {
+            if (!ativo) {
+                pendente.resultado.completeExceptionally(new IllegalStateException("Agrupador encerrado."));
+                return pendente.resultado;
+            }
+            fila.add(pendente);
+        } finally {
+            trava.readLock().unlock();
+        }
+        return pendente.resultado;
+    }
+
+    public int getPendentes() {
+        return fila.size();
+    }
+
+    //para de aceitar itens, espera a thread e processa o que ainda estiver na fila
+    @Override
+    public void close() throws InterruptedException {
+        trava.writeLock().lock();
+        try {
+            ativo = false;
+        } finally {
+            trava.writeLock().unlock();
+        }
+        escritor.join(TimeUnit.SECONDS.toMillis(30));
+        var restantes = new ArrayList<Pendente<T, R>>();
+        while (fila.drainTo(restantes, tamanhoMaximo) > 0) {
+            executarLote(restantes);
+            restantes.clear();
+        }
+    }
+
+    private void executar() {
+        var lote = new ArrayList<Pendente<T, R>>(tamanhoMaximo);
+        while (ativo) {
+            try {
+                var primeiro = fila.poll(100, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                lote.add(primeiro);
+                //a janela conta a partir da chegada do primeiro item: ninguém espera mais do que ela na fila
+                var prazo = System.nanoTime() + janelaNanos;
+                while (lote.size() < tamanhoMaximo) {
+                    fila.drainTo(lote, tamanhoMaximo - lote.size());
+                    var restante = prazo - System.nanoTime();
+                    if (lote.size() >= tamanhoMaximo || restante <= 0) {
+                        break;
+                    }
+                    var proximo = fila.poll(restante, TimeUnit.NANOSECONDS);
+                    if (proximo == null) {
+                        break;
+                    }
+                    lote.add(proximo);
+                }
+                executarLote(lote);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Falha inesperada no agrupador de lotes", ex);
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void executarLote(List<Pendente<T, R>> lote) {
+        var itens = new ArrayList<T>(lote.size());
+        lote.forEach(pendente -> itens.add(pendente.item));
+        try {
+            var resultados = processar.apply(itens);
+            aoProcessar.accept(lote.size());
+            for (int i = 0; i < lote.size(); i++) {
+                lote.get(i).resultado.complete(resultados.get(i));
+            }
+        } catch (RuntimeException ex) {
+            if (lote.size() == 1) {
+                lote.get(0).resultado.completeExceptionally(ex);
+                return;
+            }
+            //um item ruim derruba o lote inteiro: cada um é reprocessado sozinho para o erro chegar só ao seu chamador
+            for (Pendente<T, R> pendente : lote) {
+                executarLote(List.of(pendente));
+            }
+        }
+    }
+
+    private static class Pendente<T, R> {
+        private final T item;
+        private final CompletableFuture<R> resultado = new CompletableFuture<>();
+
+        private Pendente(T item) {
+            this.item = item;
+        }
+    }
+}
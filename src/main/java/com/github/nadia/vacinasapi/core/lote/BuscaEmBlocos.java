@@ -0,0 +1,47 @@
+package com.github.nadia.vacinasapi.core.lote;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+//busca por lista de ids em blocos de IN: entrega cada bloco na ordem pedida assim que chega e aponta os ids não encontrados
+public final class BuscaEmBlocos<T> {
+
+    private final List<Long> ids;
+    private final int tamanhoBloco;
+    private final Function<List<Long>, List<T>> carregar;
+    private final Function<T, Long> id;
+
+    //ids repetidos são buscados e entregues uma vez só, na posição da primeira ocorrência
+    public BuscaEmBlocos(List<Long> ids, int tamanhoBloco, Function<List<Long>, List<T>> carregar, Function<T, Long> id) {
+        this.ids = new ArrayList<>(new LinkedHashSet<>(ids));
+        this.tamanhoBloco = tamanhoBloco;
+        this.carregar = carregar;
+        this.id = id;
+    }
+
+    public void executar(Consumer<T> encontrado, Consumer<Long> ausente) {
+        for (int inicio = 0; inicio < ids.size(); inicio += tamanhoBloco) {
+            var bloco = ids.subList(inicio, Math.min(inicio + tamanhoBloco, ids.size()));
+            var porId = new HashMap<Long, T>();
+            for (T item : carregar.apply(bloco)) {
+                porId.put(id.apply(item), item);
+            }
+            for (Long chave : bloco) {
+                var item = porId.get(chave);
+                if (item != null) {
+                    encontrado.accept(item);
+                } else {
+                    ausente.accept(chave);
+                }
+            }
+        }
+    }
+
+    public int getIds() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.nadia.vacinasapi.core.mapper;
+
+import com.github.nadia.vacinasapi.api.DTO.response.ImportacaoResponse;
+import com.github.nadia.vacinasapi.domain.entity.Importacao;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ImportacaoMapper {
+
+    public ImportacaoResponse toImportacaoResponse(Importacao importacao) {
+        ImportacaoResponse response = new ImportacaoResponse();
+        response.setId(importacao.getId());
+        response.setStatus(importacao.getStatus().name());
+        response.setLinhasConfirmadas(importacao.getLinhasConfirmadas());
+        response.setImportados(importacao.getImportados());
+        response.setRejeitados(importacao.getRejeitados());
+        response.setRelatorioErros("/api/v1/usuarios/import/" + importacao.getId() + "/erros");
+        response.setAtualizadaEm(importacao.getAtualizadaEm());
+        return response;
+    }
+}
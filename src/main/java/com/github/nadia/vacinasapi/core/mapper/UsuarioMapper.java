@@ -2,8 +2,11 @@ package com.github.nadia.vacinasapi.core.mapper;
 
 import com.github.nadia.vacinasapi.api.DTO.request.UsuarioRequest;
 import com.github.nadia.vacinasapi.api.DTO.request.UsuarioUpdateRequest;
+import com.github.nadia.vacinasapi.api.DTO.response.PaginaResponse;
 import com.github.nadia.vacinasapi.api.DTO.response.UsuarioResponse;
+import com.github.nadia.vacinasapi.core.pagination.Cursor;
 import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -63,4 +66,13 @@ public class UsuarioMapper {
         return responseList;
     }
 
+    public PaginaResponse<UsuarioResponse> toUsuarioResponsePagina(Slice<Usuario> pagina){
+        var itens = this.toUsuarioResponseList(pagina.getContent());
+        String proximoCursor = null;
+        if (pagina.hasNext()){
+            proximoCursor = Cursor.codificarId(itens.get(itens.size() - 1).getId());
+        }
+        return new PaginaResponse<>(itens, proximoCursor);
+    }
+
 }
@@ -2,12 +2,16 @@ package com.github.nadia.vacinasapi.core.mapper;
 
 import com.github.nadia.vacinasapi.api.DTO.request.VacinaRequest;
 import com.github.nadia.vacinasapi.api.DTO.request.VacinaUpdateRequest;
+import com.github.nadia.vacinasapi.api.DTO.response.PaginaResponse;
 import com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse;
+import com.github.nadia.vacinasapi.core.pagination.Cursor;
+import com.github.nadia.vacinasapi.core.pagination.CursorDataId;
 import com.github.nadia.vacinasapi.domain.entity.Usuario;
 import com.github.nadia.vacinasapi.domain.entity.Vacina;
 import com.github.nadia.vacinasapi.domain.exception.ServiceException;
-import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import com.github.nadia.vacinasapi.domain.service.CarregadorUsuarioService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -16,11 +20,17 @@ import java.util.List;
 @Service
 public class VacinaMapper {
 
+    private static final String EMAIL_INVALIDO = "Email inválido. Nenhum usuário resgistrado com esse email.";
+
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private CarregadorUsuarioService carregadorUsuarioService;
 
     public Vacina toVacinaEntity(VacinaRequest request) {
-        var usuario = usuarioRepository.findByEmail(request.getEmail()).orElseThrow(()-> new ServiceException("Email inválido. Nenhum usuário resgistrado com esse email."));
+        //existência sempre confirmada no cache de natural-id ou no banco: o filtro de Bloom é local ao nó
+        //e não enxerga cadastros feitos em outro nó até a próxima reconstrução.
+        //buscas concorrentes do mesmo instante saem numa única consulta
+        var usuario = carregadorUsuarioService.buscarPorEmail(request.getEmail())
+                .orElseThrow(()-> new ServiceException(EMAIL_INVALIDO));
         Vacina vacina = new Vacina();
         vacina.setNome(request.getNome());
         vacina.setUsuario(usuario);
@@ -51,4 +61,23 @@ public class VacinaMapper {
         return responseList;
     }
 
+    public PaginaResponse<VacinaResponse> toVacinaResponsePagina(Slice<VacinaResponse> pagina) {
+        var itens = pagina.getContent();
+        String proximoCursor = null;
+        if (pagina.hasNext()) {
+            proximoCursor = Cursor.codificarId(itens.get(itens.size() - 1).getId());
+        }
+        return new PaginaResponse<>(itens, proximoCursor);
+    }
+
+    public PaginaResponse<VacinaResponse> toVacinaResponsePaginaPorData(Slice<VacinaResponse> pagina) {
+        var itens = pagina.getContent();
+        String proximoCursor = null;
+        if (pagina.hasNext()) {
+            var ultima = itens.get(itens.size() - 1);
+            proximoCursor = new CursorDataId(ultima.getDataAplicacao(), ultima.getId()).codificar();
+        }
+        return new PaginaResponse<>(itens, proximoCursor);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.github.nadia.vacinasapi.core.pagination;
+
+import com.github.nadia.vacinasapi.domain.exception.ServiceException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+//classe para codificar/decodificar o cursor opaco usado na paginação por keyset
+public final class Cursor {
+
+    private Cursor() {
+    }
+
+    public static String codificar(String valor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decodificar(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new ServiceException("Cursor inválido.");
+        }
+    }
+
+    public static String codificarId(Long id) {
+        return codificar(id.toString());
+    }
+
+    public static Long decodificarId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.valueOf(decodificar(cursor));
+        } catch (NumberFormatException ex) {
+            throw new ServiceException("Cursor inválido.");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.nadia.vacinasapi.core.pagination;
+
+import com.github.nadia.vacinasapi.domain.exception.ServiceException;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+//posição de keyset para listas ordenadas por (data, id)
+@Value
+public class CursorDataId {
+
+    LocalDate data;
+    Long id;
+
+    public String codificar() {
+        return Cursor.codificar(data + ":" + id);
+    }
+
+    public static CursorDataId decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        var partes = Cursor.decodificar(cursor).split(":");
+        try {
+            return new CursorDataId(LocalDate.parse(partes[0]), Long.valueOf(partes[1]));
+        } catch (ArrayIndexOutOfBoundsException | DateTimeParseException | NumberFormatException ex) {
+            throw new ServiceException("Cursor inválido.");
+        }
+    }
+}
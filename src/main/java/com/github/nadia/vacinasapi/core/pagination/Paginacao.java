@@ -0,0 +1,27 @@
+package com.github.nadia.vacinasapi.core.pagination;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+//limites usados nas buscas paginadas por keyset (WHERE id > ? ORDER BY id LIMIT ?)
+public final class Paginacao {
+
+    public static final int LIMITE_PADRAO = 50;
+    public static final int LIMITE_MAXIMO = 500;
+
+    private Paginacao() {
+    }
+
+    public static int limitar(int limite) {
+        return Math.min(Math.max(limite, 1), LIMITE_MAXIMO);
+    }
+
+    public static Pageable limite(int limite) {
+        return PageRequest.of(0, limitar(limite));
+    }
+
+    public static Pageable ordenadoPorId(int limite) {
+        return PageRequest.of(0, limitar(limite), Sort.by("id"));
+    }
+}
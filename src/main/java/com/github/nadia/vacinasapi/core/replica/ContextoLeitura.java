@@ -0,0 +1,37 @@
+package com.github.nadia.vacinasapi.core.replica;
+
+import java.util.function.Supplier;
+
+//marca a thread atual como apta a ler de uma réplica; fora disso (escritas, tarefas agendadas, threads de fundo) tudo vai ao primário
+public final class ContextoLeitura {
+
+    private static final ThreadLocal<Boolean> REPLICA_PERMITIDA = new ThreadLocal<>();
+
+    private ContextoLeitura() {
+    }
+
+    public static void permitirReplica() {
+        REPLICA_PERMITIDA.set(Boolean.TRUE);
+    }
+
+    public static boolean replicaPermitida() {
+        return Boolean.TRUE.equals(REPLICA_PERMITIDA.get());
+    }
+
+    //para leituras cujo resultado vai para um cache sem expiração: uma réplica atrasada deixaria o valor velho lá
+    public static <T> T noPrimario(Supplier<T> leitura) {
+        var anterior = REPLICA_PERMITIDA.get();
+        REPLICA_PERMITIDA.remove();
+        try {
+            return leitura.get();
+        } finally {
+            if (anterior != null) {
+                REPLICA_PERMITIDA.set(anterior);
+            }
+        }
+    }
+
+    public static void limpar() {
+        REPLICA_PERMITIDA.remove();
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.nadia.vacinasapi.core.replica;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+//transações readOnly de uma requisição de leitura vão para uma réplica saudável; todo o resto vai ao primário.
+//precisa ficar atrás de um LazyConnectionDataSourceProxy: o flag readOnly só é publicado depois do início da transação
+public class DataSourceRoteado extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSourceRoteado.class);
+    private static final int SEGUNDOS_VERIFICACAO = 2;
+
+    public enum Estrategia {
+        ROUND_ROBIN,
+        MENOS_CONEXOES
+    }
+
+    private final DataSource primario;
+    private final List<ReplicaLeitura> replicas;
+    private final Estrategia estrategia;
+    private final AtomicInteger proxima = new AtomicInteger();
+    private final AtomicLong conexoesPrimario = new AtomicLong();
+    private final AtomicLong leiturasSemReplica = new AtomicLong();
+
+    public DataSourceRoteado(DataSource primario, List<ReplicaLeitura> replicas, Estrategia estrategia) {
+        this.primario = primario;
+        this.replicas = List.copyOf(replicas);
+        this.estrategia = estrategia;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (ContextoLeitura.replicaPermitida() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            //cada falha tenta a próxima réplica; sem nenhuma, a leitura cai no primário
+            for (int tentativa = 0; tentativa < replicas.size(); tentativa++) {
+                var replica = selecionar();
+                if (replica == null) {
+                    break;
+                }
+                try {
+                    return replica.abrir();
+                } catch (SQLException ex) {
+                    if (!ReplicaLeitura.falhaDeConexao(ex)) {
+                        //pool esgotado (SQLTransientConnectionException do Hikari) não diz nada sobre a saúde da réplica
+                        log.debug("Réplica {} sem conexão disponível", replica.getNome(), ex);
+                    } else if (replica.ejetar()) {
+                        log.warn("Réplica {} retirada do rodízio após falha ao abrir conexão", replica.getNome(), ex);
+                    }
+                }
+            }
+            leiturasSemReplica.incrementAndGet();
+        }
+        conexoesPrimario.incrementAndGet();
+        return primario.getConnection();
+    }
+
+    //usuário e senha são os de cada pool; não há como repassá-los para uma réplica escolhida aqui
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Informe usuário e senha na configuração dos pools.");
+    }
+
+    //readmite a réplica que voltou a responder e ejeta a que parou, mesmo sem tráfego de leitura
+    @Scheduled(fixedDelayString = "${vacinas-api.replicas.intervalo-verificacao:PT5S}")
+    public void verificarReplicas() {
+        for (ReplicaLeitura replica : replicas) {
+            if (replica.verificar(SEGUNDOS_VERIFICACAO)) {
+                if (replica.readmitir()) {
+                    log.info("Réplica {} de volta ao rodízio", replica.getNome());
+                }
+            } else if (replica.ejetar()) {
+                log.warn("Réplica {} retirada do rodízio: não respondeu à verificação", replica.getNome());
+            }
+        }
+    }
+
+    public List<ReplicaLeitura> getReplicas() {
+        return replicas;
+    }
+
+    public long getConexoesPrimario() {
+        return conexoesPrimario.get();
+    }
+
+    public long getLeiturasSemReplica() {
+        return leiturasSemReplica.get();
+    }
+
+    public long getReplicasSaudaveis() {
+        return replicas.stream().filter(ReplicaLeitura::isSaudavel).count();
+    }
+
+    //os pools das réplicas são criados junto com este roteador; o primário é fechado por quem o criou
+    @Override
+    public void close() throws Exception {
+        for (ReplicaLeitura replica : replicas) {
+            if (replica.getDataSource() instanceof AutoCloseable) {
+                ((AutoCloseable) replica.getDataSource()).close();
+            }
+        }
+    }
+
+    private ReplicaLeitura selecionar() {
+        var saudaveis = replicas.stream().filter(ReplicaLeitura::isSaudavel).collect(Collectors.toList());
+        if (saudaveis.isEmpty()) {
+            return null;
+        }
+        //o ponto de partida gira também em "menos conexões", para os empates não caírem sempre na primeira
+        var inicio = Math.floorMod(proxima.getAndIncrement(), saudaveis.size());
+        if (estrategia == Estrategia.ROUND_ROBIN) {
+            return saudaveis.get(inicio);
+        }
+        var escolhida = saudaveis.get(inicio);
+        for (int i = 1; i < saudaveis.size(); i++) {
+            var candidata = saudaveis.get((inicio + i) % saudaveis.size());
+            if (candidata.getEmUso() < escolhida.getEmUso()) {
+                escolhida = candidata;
+            }
+        }
+        return escolhida;
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.nadia.vacinasapi.core.replica;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//transações que podem ler de réplica só consultam o cache de segundo nível, sem gravar nele:
+//uma réplica atrasada, logo após uma atualização em massa esvaziar a região, deixaria lá o estado anterior
+public class GerenciadorTransacoesReplica extends JpaTransactionManager {
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        super.doBegin(transaction, definition);
+        var holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+        if (holder != null) {
+            //a sessão do open-in-view atravessa as transações da requisição, então o modo é definido em todas
+            var leituraEmReplica = definition.isReadOnly() && ContextoLeitura.replicaPermitida();
+            holder.getEntityManager().unwrap(Session.class).setCacheMode(leituraEmReplica ? CacheMode.GET : CacheMode.NORMAL);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.nadia.vacinasapi.core.replica;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+//libera réplica só para GET/HEAD, e não para o cliente que escreveu há pouco: ele lê do primário até a janela passar.
+//o instante da última escrita vai com o próprio cliente (cookie ou cabeçalho), então vale em qualquer nó que ele alcance
+public class LeituraAposEscritaFilter extends OncePerRequestFilter {
+
+    //devolvidos em toda escrita; clientes sem cookies reenviam o valor no cabeçalho
+    public static final String COOKIE_ESCRITA = "vacinas-ultima-escrita";
+    public static final String CABECALHO_ESCRITA = "X-Ultima-Escrita";
+    private static final Set<String> METODOS_LEITURA = Set.of("GET", "HEAD");
+
+    private final long janelaMs;
+    private final AtomicLong leiturasNoPrimario = new AtomicLong();
+
+    public LeituraAposEscritaFilter(Duration janela) {
+        this.janelaMs = janela.toMillis();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var leitura = METODOS_LEITURA.contains(request.getMethod());
+        if (!leitura) {
+            //marcado já na entrada: depois do corpo escrito a resposta não aceita mais cabeçalhos.
+            //a janela conta do começo da escrita, então precisa cobrir a escrita mais longa e o atraso das réplicas
+            marcarEscrita(response);
+        } else if (escreveuHaPouco(request)) {
+            leiturasNoPrimario.incrementAndGet();
+        } else {
+            ContextoLeitura.permitirReplica();
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ContextoLeitura.limpar();
+        }
+    }
+
+    public long getLeiturasNoPrimario() {
+        return leiturasNoPrimario.get();
+    }
+
+    private void marcarEscrita(HttpServletResponse response) {
+        var agora = String.valueOf(System.currentTimeMillis());
+        var cookie = new Cookie(COOKIE_ESCRITA, agora);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, Duration.ofMillis(janelaMs).toSeconds()));
+        response.addCookie(cookie);
+        response.setHeader(CABECALHO_ESCRITA, agora);
+    }
+
+    //o valor vem do cliente: só conta dentro da janela, nos dois sentidos por causa da diferença de relógio entre nós
+    private boolean escreveuHaPouco(HttpServletRequest request) {
+        var valor = request.getHeader(CABECALHO_ESCRITA);
+        if (valor == null) {
+            var cookie = WebUtils.getCookie(request, COOKIE_ESCRITA);
+            valor = cookie != null ? cookie.getValue() : null;
+        }
+        if (valor == null) {
+            return false;
+        }
+        try {
+            var distancia = Math.abs(System.currentTimeMillis() - Long.parseLong(valor.trim()));
+            return distancia < janelaMs;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+}
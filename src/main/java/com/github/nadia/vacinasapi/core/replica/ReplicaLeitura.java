@@ -0,0 +1,105 @@
+package com.github.nadia.vacinasapi.core.replica;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//uma réplica do pool de leitura: conta as conexões em uso (para "menos conexões") e sabe se está fora do rodízio
+public final class ReplicaLeitura {
+
+    private final String nome;
+    private final DataSource dataSource;
+    private final AtomicInteger emUso = new AtomicInteger();
+    private final AtomicLong conexoes = new AtomicLong();
+    private final AtomicLong ejecoes = new AtomicLong();
+    private volatile boolean saudavel = true;
+
+    public ReplicaLeitura(String nome, DataSource dataSource) {
+        this.nome = nome;
+        this.dataSource = dataSource;
+    }
+
+    //a conexão devolvida desconta do contador de uso ao ser fechada, uma única vez
+    Connection abrir() throws SQLException {
+        var conexao = dataSource.getConnection();
+        emUso.incrementAndGet();
+        conexoes.incrementAndGet();
+        var fechada = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, metodo, argumentos) -> {
+                    if (metodo.getName().equals("close") && fechada.compareAndSet(false, true)) {
+                        emUso.decrementAndGet();
+                    }
+                    try {
+                        return metodo.invoke(conexao, argumentos);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+    }
+
+    //true quando a réplica respondeu; só então volta ao rodízio
+    boolean verificar(int segundos) {
+        try (var conexao = dataSource.getConnection()) {
+            return conexao.isValid(segundos);
+        } catch (SQLException ex) {
+            //pool esgotado é réplica ocupada, não fora do ar
+            return !falhaDeConexao(ex);
+        }
+    }
+
+    //só falha de conexão com o servidor ejeta: SQLState classe 08, ou a exceção não transitória de conexão
+    static boolean falhaDeConexao(SQLException ex) {
+        return ex instanceof SQLNonTransientConnectionException
+                || (ex.getSQLState() != null && ex.getSQLState().startsWith("08"));
+    }
+
+    //false quando ela já estava fora: evita contar a mesma queda várias vezes
+    boolean ejetar() {
+        if (!saudavel) {
+            return false;
+        }
+        saudavel = false;
+        ejecoes.incrementAndGet();
+        return true;
+    }
+
+    //false quando ela já estava no rodízio
+    boolean readmitir() {
+        if (saudavel) {
+            return false;
+        }
+        saudavel = true;
+        return true;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public boolean isSaudavel() {
+        return saudavel;
+    }
+
+    public int getEmUso() {
+        return emUso.get();
+    }
+
+    public long getConexoes() {
+        return conexoes.get();
+    }
+
+    public long getEjecoes() {
+        return ejecoes.get();
+    }
+}
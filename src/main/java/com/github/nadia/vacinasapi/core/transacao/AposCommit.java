@@ -0,0 +1,24 @@
+package com.github.nadia.vacinasapi.core.transacao;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//executa a ação depois do commit da transação corrente, ou na hora quando não há transação
+public final class AposCommit {
+
+    private AposCommit() {
+    }
+
+    public static void executar(Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            acao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                acao.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.nadia.vacinasapi.domain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+//progresso de uma importação de usuários; linhasConfirmadas marca o ponto de retomada
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "importacoes")
+public class Importacao {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private StatusImportacao status;
+
+    @Column(name = "linhas_confirmadas", nullable = false)
+    private Long linhasConfirmadas;
+
+    @Column(name = "importados", nullable = false)
+    private Long importados;
+
+    @Column(name = "rejeitados", nullable = false)
+    private Long rejeitados;
+
+    @Column(name = "atualizada_em", nullable = false)
+    private OffsetDateTime atualizadaEm;
+}
@@ -0,0 +1,32 @@
+package com.github.nadia.vacinasapi.domain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "importacao_erros", indexes = {
+        @Index(name = "idx_importacao_erros_importacao_linha", columnList = "importacao_id, linha")
+})
+public class ImportacaoErro {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "importacao_id", nullable = false)
+    private Long importacaoId;
+
+    @Column(name = "linha", nullable = false)
+    private Long linha;
+
+    @Column(name = "mensagem", nullable = false, length = 500)
+    private String mensagem;
+}
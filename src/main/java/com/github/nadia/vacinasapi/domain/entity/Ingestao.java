@@ -0,0 +1,58 @@
+package com.github.nadia.vacinasapi.domain.entity;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+//resultado de uma vacina do modo assíncrono, gravado na mesma transação das vacinas do lote
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "ingestoes", indexes = {
+        @Index(name = "idx_ingestoes_concluida_em", columnList = "concluida_em")
+})
+public class Ingestao implements Persistable<String> {
+
+    //o id de acompanhamento devolvido no 202
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "situacao", nullable = false, length = 10)
+    private String situacao;
+
+    @Column(name = "vacina_id")
+    private Long vacinaId;
+
+    @Column(name = "mensagem")
+    private String mensagem;
+
+    @Column(name = "concluida_em", nullable = false)
+    private OffsetDateTime concluidaEm;
+
+    //o id vem de fora: sem isto o saveAll faria um SELECT antes de cada INSERT
+    @Transient
+    private boolean nova = true;
+
+    public Ingestao(String id, String situacao, Long vacinaId, String mensagem, OffsetDateTime concluidaEm) {
+        this.id = id;
+        this.situacao = situacao;
+        this.vacinaId = vacinaId;
+        this.mensagem = mensagem;
+        this.concluidaEm = concluidaEm;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nova;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marcarGravada() {
+        nova = false;
+    }
+}
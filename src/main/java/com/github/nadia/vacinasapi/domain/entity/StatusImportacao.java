@@ -0,0 +1,7 @@
+package com.github.nadia.vacinasapi.domain.entity;
+
+public enum StatusImportacao {
+    EM_ANDAMENTO,
+    CONCLUIDA,
+    FALHOU
+}
@@ -1,6 +1,10 @@
 package com.github.nadia.vacinasapi.domain.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -14,9 +18,20 @@ import java.util.List;
 @Builder
 @ToString
 @Entity
-@Table(name = "usuarios")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
+@Table(name = "usuarios", uniqueConstraints = {
+        @UniqueConstraint(name = Usuario.UK_EMAIL, columnNames = "email"),
+        @UniqueConstraint(name = Usuario.UK_CPF, columnNames = "cpf")
+}, indexes = {
+        @Index(name = "idx_usuarios_data_nascimento", columnList = "data_nascimento")
+})
 public class Usuario implements Serializable {
 
+    //nomes das restrições únicas, usados para traduzir a violação na mensagem de erro
+    public static final String UK_EMAIL = "uk_usuarios_email";
+    public static final String UK_CPF = "uk_usuarios_cpf";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -24,15 +39,22 @@ public class Usuario implements Serializable {
     @Column(name = "nome", nullable = false)
     private String nome;
 
-    @Column(name = "cpf", unique = true, nullable = false)
+    @Column(name = "cpf", nullable = false)
     private String cpf;
 
-    @Column(name = "email", unique = true, nullable = false)
+    //id natural resolvido pelo cache de segundo nível (email -> id -> entidade)
+    @NaturalId(mutable = true)
+    @Column(name = "email", nullable = false)
     private String email;
 
     @Column(name = "data_nascimento", nullable = false)
     private LocalDate dataNascimento;
 
+    //incrementada a cada atualização; origem do ETag e da checagem do If-Match
+    @Version
+    @Column(name = "versao", nullable = false)
+    private Long versao;
+
     @OneToMany(mappedBy = "usuario", cascade = CascadeType.ALL)
     private List<Vacina> vacinas;
 
@@ -0,0 +1,44 @@
+package com.github.nadia.vacinasapi.domain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+//doses aplicadas por dia e nome; escrita só por upsert (VacinaDiariaRepository.somar), nunca pelo persist
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "vacinas_diarias")
+public class VacinaDiaria {
+
+    @EmbeddedId
+    private Chave id;
+
+    @Column(name = "quantidade", nullable = false)
+    private Long quantidade;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Embeddable
+    public static class Chave implements Serializable {
+
+        @Column(name = "data_aplicacao", nullable = false)
+        private LocalDate dataAplicacao;
+
+        @Column(name = "nome", nullable = false)
+        private String nome;
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.nadia.vacinasapi.domain.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException{
+    public PreconditionFailedException(String msg){
+        super(msg);
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.nadia.vacinasapi.domain.repository;
+
+import com.github.nadia.vacinasapi.domain.entity.ImportacaoErro;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+@Repository
+public interface ImportacaoErroRepository extends JpaRepository<ImportacaoErro, Long> {
+
+    @QueryHints(value = {
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    public Stream<ImportacaoErro> streamByImportacaoIdOrderByLinha(Long importacaoId);
+
+}
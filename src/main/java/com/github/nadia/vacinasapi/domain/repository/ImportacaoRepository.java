@@ -0,0 +1,10 @@
+package com.github.nadia.vacinasapi.domain.repository;
+
+import com.github.nadia.vacinasapi.domain.entity.Importacao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImportacaoRepository extends JpaRepository<Importacao, Long> {
+
+}
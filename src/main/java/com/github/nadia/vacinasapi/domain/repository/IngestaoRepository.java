@@ -0,0 +1,18 @@
+package com.github.nadia.vacinasapi.domain.repository;
+
+import com.github.nadia.vacinasapi.domain.entity.Ingestao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+
+@Repository
+public interface IngestaoRepository extends JpaRepository<Ingestao, String> {
+
+    @Modifying
+    @Query("delete from Ingestao i where i.concluidaEm < :limite")
+    public int deletarConcluidasAntesDe(@Param("limite") OffsetDateTime limite);
+}
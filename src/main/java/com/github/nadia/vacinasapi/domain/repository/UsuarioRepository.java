@@ -1,16 +1,67 @@
 package com.github.nadia.vacinasapi.domain.repository;
 
 import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
-public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
+public interface UsuarioRepository extends JpaRepository<Usuario, Long>, UsuarioRepositoryCustom {
 
     public Optional<Usuario> findByCpf(String cpf);
 
     public Optional<Usuario> findByEmail(String email);
 
+    public List<Usuario> findByEmailIn(Collection<String> emails);
+
+    //uma única consulta devolve os emails e cpfs já cadastrados de um lote
+    @Query("select u.email as email, u.cpf as cpf from Usuario u where u.email in :emails or u.cpf in :cpfs")
+    public List<EmailCpf> buscarExistentes(@Param("emails") Collection<String> emails, @Param("cpfs") Collection<String> cpfs);
+
+    public Slice<Usuario> findByIdGreaterThan(Long id, Pageable pageable);
+
+    //só a versão, para responder If-None-Match sem carregar o usuário
+    @Query("select u.versao from Usuario u where u.id = :id")
+    public Optional<Long> buscarVersao(@Param("id") Long id);
+
+    //varredura em streaming usada para montar o filtro de emails e cpfs
+    @QueryHints(value = {
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select u.email as email, u.cpf as cpf from Usuario u")
+    public Stream<EmailCpf> streamEmailsECpfs();
+
+    //varredura em streaming usada para montar o índice de busca por cpf, email e nome
+    @QueryHints(value = {
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select u.id as id, u.nome as nome, u.cpf as cpf, u.email as email from Usuario u")
+    public Stream<Indexavel> streamIndexaveis();
+
+    public interface EmailCpf {
+        String getEmail();
+        String getCpf();
+    }
+
+    public interface Indexavel {
+        Long getId();
+        String getNome();
+        String getCpf();
+        String getEmail();
+    }
 }
@@ -0,0 +1,25 @@
+package com.github.nadia.vacinasapi.domain.repository;
+
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface UsuarioRepositoryCustom {
+
+    //busca pelo id natural: usa o cache de ids naturais antes de ir ao banco
+    public Optional<Usuario> buscarPorEmail(String email);
+
+    //vários ids de uma vez: os que estão no cache de segundo nível não vão ao banco, o resto sai em IN de até tamanhoBloco
+    public List<Usuario> buscarPorIds(List<Long> ids, int tamanhoBloco);
+
+    //UPDATE só das colunas não nulas em campos; com versão, só altera se ela ainda for a atual
+    public int atualizarParcial(Long id, Long versao, Usuario campos);
+
+    //soma 1 na versão de cada usuário, sem carregar nem mexer no resto do cache
+    public int incrementarVersao(Collection<Long> ids);
+
+    //DELETE direto; as vacinas do usuário saem antes com VacinaRepository.deletarPorUsuario
+    public int deletarPorId(Long id);
+}
@@ -0,0 +1,141 @@
+package com.github.nadia.vacinasapi.domain.repository;
+
+import com.github.nadia.vacinasapi.core.transacao.AposCommit;
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+public class UsuarioRepositoryImpl implements UsuarioRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //a sessão desembrulhada só fica aberta dentro de uma transação
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Usuario> buscarPorEmail(String email) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Usuario.class)
+                .loadOptional(email);
+    }
+
+    //multiLoad devolve na ordem dos ids, com nulo para os inexistentes; aqui só os encontrados
+    @Override
+    @Transactional(readOnly = true)
+    public List<Usuario> buscarPorIds(List<Long> ids, int tamanhoBloco) {
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(Usuario.class)
+                .withBatchSize(tamanhoBloco)
+                .multiLoad(ids)
+                .stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    //UPDATE nativo declarando que não toca em nenhuma região de cache: sem isso o Hibernate esvazia as regiões
+    //inteiras de Usuario e dos ids naturais. Sai do cache só o que este id tinha, inclusive o email antigo
+    @Override
+    @Transactional
+    public int atualizarParcial(Long id, Long versao, Usuario campos) {
+        var colunas = new StringBuilder();
+        var parametros = new LinkedHashMap<String, Object>();
+        adicionar(colunas, parametros, "nome", campos.getNome());
+        adicionar(colunas, parametros, "cpf", campos.getCpf());
+        adicionar(colunas, parametros, "email", campos.getEmail());
+        adicionar(colunas, parametros, "data_nascimento", campos.getDataNascimento());
+        var sql = "update usuarios set " + colunas + "versao = versao + 1 where id = :id"
+                + (versao != null ? " and versao = :versao" : "");
+        //o email antigo só é consultado quando muda, para tirar a entrada dele do cache de ids naturais
+        var emailAntigo = campos.getEmail() != null ? emailAtual(id) : null;
+        var query = entityManager.createNativeQuery(sql);
+        parametros.forEach(query::setParameter);
+        query.setParameter("id", id);
+        if (versao != null) {
+            query.setParameter("versao", versao);
+        }
+        var linhas = query.unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("")
+                .executeUpdate();
+        if (linhas > 0) {
+            removerDoCache(id, emailAntigo);
+        }
+        return linhas;
+    }
+
+    //UPDATE nativo pelo mesmo motivo; o email não muda, então do cache sai só a entidade
+    @Override
+    @Transactional
+    public int incrementarVersao(Collection<Long> ids) {
+        var linhas = entityManager.createNativeQuery("update usuarios set versao = versao + 1 where id in (:ids)")
+                .setParameter("ids", ids)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("")
+                .executeUpdate();
+        ids.forEach(id -> removerDoCache(id, null));
+        return linhas;
+    }
+
+    //DELETE nativo pelo mesmo motivo: do cache sai só este id e o seu email. Sem isso, um cadastro novo com o
+    //mesmo email não substituiria a entrada antiga do cache de ids naturais, que aponta para o id removido
+    @Override
+    @Transactional
+    public int deletarPorId(Long id) {
+        var email = emailAtual(id);
+        if (email == null) {
+            return 0;
+        }
+        var linhas = entityManager.createNativeQuery("delete from usuarios where id = :id")
+                .setParameter("id", id)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("")
+                .executeUpdate();
+        if (linhas > 0) {
+            removerDoCache(id, email);
+        }
+        return linhas;
+    }
+
+    private static void adicionar(StringBuilder colunas, Map<String, Object> parametros, String coluna, Object valor) {
+        if (valor != null) {
+            colunas.append(coluna).append(" = :").append(coluna).append(", ");
+            parametros.put(coluna, valor);
+        }
+    }
+
+    private String emailAtual(Long id) {
+        var emails = entityManager.createNativeQuery("select email from usuarios where id = :id")
+                .setParameter("id", id)
+                .getResultList();
+        return emails.isEmpty() ? null : (String) emails.get(0);
+    }
+
+    //remove agora, para a própria transação ler o valor novo, e de novo após o commit, porque uma leitura
+    //concorrente pode ter recolocado a versão antiga no cache antes do commit
+    private void removerDoCache(Long id, String email) {
+        var sessao = entityManager.unwrap(SessionImplementor.class);
+        var fabrica = sessao.getFactory();
+        var persister = fabrica.getMetamodel().entityPersister(Usuario.class);
+        var idsNaturais = persister.getNaturalIdCacheAccessStrategy();
+        var chave = email != null ? idsNaturais.generateCacheKey(new Object[]{email}, persister, sessao) : null;
+        Runnable remover = () -> {
+            fabrica.getCache().evictEntityData(Usuario.class, id);
+            if (chave != null) {
+                idsNaturais.evict(chave);
+            }
+        };
+        remover.run();
+        AposCommit.executar(remover);
+    }
+}
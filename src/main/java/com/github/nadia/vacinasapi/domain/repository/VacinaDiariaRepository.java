@@ -0,0 +1,48 @@
+package com.github.nadia.vacinasapi.domain.repository;
+
+import com.github.nadia.vacinasapi.api.DTO.response.VacinaDiariaResponse;
+import com.github.nadia.vacinasapi.domain.entity.VacinaDiaria;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface VacinaDiariaRepository extends JpaRepository<VacinaDiaria, VacinaDiaria.Chave> {
+
+    //upsert: a linha do dia é criada na primeira dose e somada nas seguintes, numa única ida ao banco
+    @Modifying
+    @Query(value = "insert into vacinas_diarias (data_aplicacao, nome, quantidade) values (:dataAplicacao, :nome, :quantidade)"
+            + " on duplicate key update quantidade = quantidade + values(quantidade)", nativeQuery = true)
+    public int somar(@Param("dataAplicacao") LocalDate dataAplicacao, @Param("nome") String nome, @Param("quantidade") long quantidade);
+
+    //linhas zeradas por remoções ficam na tabela até a próxima reconstrução, por isso o quantidade > 0
+    @Query("select new com.github.nadia.vacinasapi.api.DTO.response.VacinaDiariaResponse(d.id.dataAplicacao, d.id.nome, d.quantidade)"
+            + " from VacinaDiaria d where d.id.dataAplicacao between :de and :ate and (:nome is null or d.id.nome = :nome)"
+            + " and d.quantidade > 0 order by d.id.dataAplicacao, d.id.nome")
+    public List<VacinaDiariaResponse> buscarPorPeriodo(@Param("de") LocalDate de, @Param("ate") LocalDate ate, @Param("nome") String nome);
+
+    @Modifying
+    @Query(value = "delete from vacinas_diarias where data_aplicacao between :de and :ate", nativeQuery = true)
+    public int deletarPeriodo(@Param("de") LocalDate de, @Param("ate") LocalDate ate);
+
+    //refaz a fatia a partir de vacinas, lendo só o índice (data_aplicacao, nome)
+    @Modifying
+    @Query(value = "insert into vacinas_diarias (data_aplicacao, nome, quantidade)"
+            + " select data_aplicacao, nome, count(*) from vacinas where data_aplicacao between :de and :ate"
+            + " group by data_aplicacao, nome", nativeQuery = true)
+    public int preencherPeriodo(@Param("de") LocalDate de, @Param("ate") LocalDate ate);
+
+    @Query(value = "select min(data_aplicacao) as inicio, max(data_aplicacao) as fim from vacinas", nativeQuery = true)
+    public Periodo buscarPeriodoDasVacinas();
+
+    //datas nulas quando não há vacinas
+    public interface Periodo {
+        LocalDate getInicio();
+        LocalDate getFim();
+    }
+}
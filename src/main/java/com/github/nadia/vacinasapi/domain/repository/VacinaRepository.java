@@ -1,10 +1,147 @@
 package com.github.nadia.vacinasapi.domain.repository;
 
+import com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse;
 import com.github.nadia.vacinasapi.domain.entity.Vacina;
+import com.github.nadia.vacinasapi.domain.entity.VacinaDiaria;
+import lombok.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
-public interface VacinaRepository extends JpaRepository<Vacina, Long> {
+public interface VacinaRepository extends JpaRepository<Vacina, Long>, VacinaRepositoryCustom {
+
+    public static final String TAMANHO_FETCH_EXPORTACAO = "1000";
+
+    //projeções montadas direto do select vacinas JOIN usuarios, sem hidratar Vacina/Usuario
+    @Query("select new com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse(v.id, v.nome, u.email, v.dataAplicacao)"
+            + " from Vacina v join v.usuario u where v.id > :after")
+    public Slice<VacinaResponse> buscarResponsesAposId(@Param("after") Long after, Pageable pageable);
+
+    @Query("select new com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse(v.id, v.nome, u.email, v.dataAplicacao, u.id)"
+            + " from Vacina v join v.usuario u where v.id = :id")
+    public Optional<VacinaResponse> buscarResponsePorId(@Param("id") Long id);
+
+    //um bloco da busca por lista de ids; a ordem pedida é refeita por quem chama
+    @Query("select new com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse(v.id, v.nome, u.email, v.dataAplicacao, u.id)"
+            + " from Vacina v join v.usuario u where v.id in :ids")
+    public List<VacinaResponse> buscarResponsesPorIds(@Param("ids") Collection<Long> ids);
+
+    //percorre o índice (usuario_id, data_aplicacao) a partir da posição (aposData, aposId)
+    @Query("select new com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse(v.id, v.nome, u.email, v.dataAplicacao)"
+            + " from Vacina v join v.usuario u"
+            + " where v.usuario.id = :usuarioId and v.dataAplicacao >= :de and v.dataAplicacao <= :ate"
+            + " and (v.dataAplicacao > :aposData or (v.dataAplicacao = :aposData and v.id > :aposId))"
+            + " order by v.dataAplicacao, v.id")
+    public Slice<VacinaResponse> buscarResponsesPorUsuario(@Param("usuarioId") Long usuarioId,
+                                                           @Param("de") LocalDate de,
+                                                           @Param("ate") LocalDate ate,
+                                                           @Param("aposData") LocalDate aposData,
+                                                           @Param("aposId") Long aposId,
+                                                           Pageable pageable);
+
+    //cursor forward-only: as linhas chegam do banco em blocos de TAMANHO_FETCH_EXPORTACAO (useCursorFetch no MySQL)
+    @QueryHints(value = {
+            @QueryHint(name = HINT_FETCH_SIZE, value = TAMANHO_FETCH_EXPORTACAO),
+            @QueryHint(name = HINT_CACHEABLE, value = "false"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select v from Vacina v join fetch v.usuario")
+    public Stream<Vacina> streamAll();
+
+    //GROUP BY usados para semear e reconciliar as estatísticas em memória
+    @Query("select v.nome as nome, count(v) as quantidade from Vacina v group by v.nome")
+    public List<ContagemVacinas> contarPorNome();
+
+    @Query("select v.dataAplicacao as dataAplicacao, count(v) as quantidade from Vacina v group by v.dataAplicacao")
+    public List<ContagemVacinas> contarPorDia();
+
+    //o que uma remoção ou renomeação vai tirar das estatísticas, lido antes do DELETE/UPDATE com as linhas travadas
+    //(for update) até o commit: uma operação concorrente sobre as mesmas vacinas espera e lê o estado novo, sem
+    //descontar a mesma linha duas vezes. O H2 não aceita for update com GROUP BY, então a soma por (nome, dia) é feita aqui
+    default List<ContagemVacinas> travarContagemPorIds(Collection<Long> ids) {
+        return contar(travarPorIds(ids));
+    }
+
+    default List<ContagemVacinas> travarContagemPorUsuario(Long usuarioId) {
+        return contar(travarPorUsuario(usuarioId));
+    }
+
+    //donos das vacinas, para versionar os usuários antes de alterá-las
+    @Query("select distinct v.usuario.id from Vacina v where v.id in :ids")
+    public List<Long> buscarIdsDosUsuarios(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select v.nome as nome, v.dataAplicacao as dataAplicacao from Vacina v where v.id in :ids")
+    public List<NomeEDia> travarPorIds(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select v.nome as nome, v.dataAplicacao as dataAplicacao from Vacina v where v.usuario.id = :usuarioId")
+    public List<NomeEDia> travarPorUsuario(@Param("usuarioId") Long usuarioId);
+
+    //PATCH: um único UPDATE, sem carregar a vacina; nenhuma linha afetada quando o id não existe
+    @Modifying
+    @Query("update Vacina v set v.nome = :nome, v.versao = v.versao + 1 where v.id = :id")
+    public int atualizarNome(@Param("id") Long id, @Param("nome") String nome);
+
+    //remoções em conjunto: um DELETE por chamada, sem carregar as vacinas
+    @Modifying
+    @Query("delete from Vacina v where v.id = :id")
+    public int deletarPorId(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from Vacina v where v.id in :ids")
+    public int deletarPorIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from Vacina v where v.usuario.id = :usuarioId")
+    public int deletarPorUsuario(@Param("usuarioId") Long usuarioId);
+
+    //nome ou data ficam nulos quando a consulta não agrupa por eles
+    public interface ContagemVacinas {
+        String getNome();
+        LocalDate getDataAplicacao();
+        Long getQuantidade();
+    }
+
+    public interface NomeEDia {
+        String getNome();
+        LocalDate getDataAplicacao();
+    }
+
+    @Value
+    class Contagem implements ContagemVacinas {
+        String nome;
+        LocalDate dataAplicacao;
+        Long quantidade;
+    }
 
+    private static List<ContagemVacinas> contar(List<NomeEDia> linhas) {
+        var porDiaENome = linhas.stream().collect(Collectors.groupingBy(
+                linha -> new VacinaDiaria.Chave(linha.getDataAplicacao(), linha.getNome()), LinkedHashMap::new, Collectors.counting()));
+        var contagens = new ArrayList<ContagemVacinas>(porDiaENome.size());
+        porDiaENome.forEach((chave, quantidade) -> contagens.add(new Contagem(chave.getNome(), chave.getDataAplicacao(), quantidade)));
+        return contagens;
+    }
 }
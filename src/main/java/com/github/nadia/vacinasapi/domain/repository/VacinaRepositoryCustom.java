@@ -0,0 +1,12 @@
+package com.github.nadia.vacinasapi.domain.repository;
+
+import com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse;
+import com.github.nadia.vacinasapi.domain.entity.Vacina;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface VacinaRepositoryCustom {
+
+    //projeção filtrada por Specification, ordenada por (data_aplicacao, id) para paginar por keyset
+    public Slice<VacinaResponse> buscarResponses(Specification<Vacina> filtro, int limite);
+}
@@ -0,0 +1,38 @@
+package com.github.nadia.vacinasapi.domain.repository;
+
+import com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse;
+import com.github.nadia.vacinasapi.domain.entity.Vacina;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.JoinType;
+
+public class VacinaRepositoryImpl implements VacinaRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //o join explícito com usuarios é reaproveitado pelos filtros de email, sem um segundo join
+    @Override
+    public Slice<VacinaResponse> buscarResponses(Specification<Vacina> filtro, int limite) {
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createQuery(VacinaResponse.class);
+        var vacina = query.from(Vacina.class);
+        var usuario = vacina.join("usuario", JoinType.INNER);
+        query.select(builder.construct(VacinaResponse.class,
+                vacina.get("id"), vacina.get("nome"), usuario.get("email"), vacina.get("dataAplicacao")));
+        if (filtro != null) {
+            query.where(filtro.toPredicate(vacina, query, builder));
+        }
+        query.orderBy(builder.asc(vacina.get("dataAplicacao")), builder.asc(vacina.get("id")));
+
+        //uma linha a mais diz se existe próxima página, sem COUNT
+        var linhas = entityManager.createQuery(query).setMaxResults(limite + 1).getResultList();
+        var temProxima = linhas.size() > limite;
+        return new SliceImpl<>(temProxima ? linhas.subList(0, limite) : linhas, PageRequest.of(0, limite), temProxima);
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.nadia.vacinasapi.domain.repository;
+
+import com.github.nadia.vacinasapi.domain.entity.Vacina;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+//filtros da busca de vacinas e o índice de cada combinação: nome -> idx_vacinas_nome_data, email -> uk_usuarios_email +
+//idx_vacinas_usuario_data, só datas -> prefixo data_aplicacao de idx_vacinas_data_nome
+public final class VacinaSpecifications {
+
+    private VacinaSpecifications() {
+    }
+
+    public static Specification<Vacina> comNome(String nome) {
+        return (vacina, query, builder) -> builder.equal(vacina.get("nome"), nome);
+    }
+
+    public static Specification<Vacina> aplicadaDesde(LocalDate de) {
+        return (vacina, query, builder) -> builder.greaterThanOrEqualTo(vacina.get("dataAplicacao"), de);
+    }
+
+    public static Specification<Vacina> aplicadaAte(LocalDate ate) {
+        return (vacina, query, builder) -> builder.lessThanOrEqualTo(vacina.get("dataAplicacao"), ate);
+    }
+
+    public static Specification<Vacina> doUsuarioComEmail(Collection<String> emails) {
+        return (vacina, query, builder) -> vacina.get("usuario").get("email").in(emails);
+    }
+
+    //posição de keyset: (data_aplicacao, id) > (aposData, aposId)
+    public static Specification<Vacina> apos(LocalDate aposData, Long aposId) {
+        return (vacina, query, builder) -> builder.or(
+                builder.greaterThan(vacina.get("dataAplicacao"), aposData),
+                builder.and(builder.equal(vacina.get("dataAplicacao"), aposData), builder.greaterThan(vacina.get("id"), aposId)));
+    }
+}
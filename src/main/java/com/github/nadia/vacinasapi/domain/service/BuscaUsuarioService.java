@@ -0,0 +1,313 @@
+package com.github.nadia.vacinasapi.domain.service;
+
+import com.github.nadia.vacinasapi.core.autocompletar.IndicePrefixos;
+import com.github.nadia.vacinasapi.core.busca.ArvoreRadix;
+import com.github.nadia.vacinasapi.core.busca.IndiceTrigramas;
+import com.github.nadia.vacinasapi.core.transacao.AposCommit;
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.exception.ServiceException;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+//busca de usuários por trecho de cpf, email ou nome num índice em memória: árvores radix para cpf e email
+//e trigramas para o nome; devolve só os ids ranqueados, a hidratação fica com uma única consulta IN
+@Service
+public class BuscaUsuarioService {
+
+    private static final Logger log = LoggerFactory.getLogger(BuscaUsuarioService.class);
+    private static final Pattern SO_CPF = Pattern.compile("[\\d.\\-\\s]+");
+
+    public static final int TAMANHO_MINIMO_BUSCA = 2;
+    public static final int LIMITE_PADRAO = 20;
+    public static final int LIMITE_MAXIMO = 50;
+
+    //pontuação por tipo de acerto; empates saem por id
+    private static final int CPF_EXATO = 100;
+    private static final int EMAIL_EXATO = 100;
+    private static final int PREFIXO_CPF = 80;
+    private static final int PREFIXO_EMAIL = 70;
+    private static final int INICIO_NOME = 60;
+    private static final int INICIO_PALAVRA = 50;
+    private static final int TRECHO_NOME = 30;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //nulo até a primeira construção; enquanto isso a busca responde que o índice não está pronto
+    private volatile Indice indice;
+    private volatile Indice emConstrucao;
+
+    @PostConstruct
+    public void registrarMetricas() {
+        Gauge.builder("vacinas.busca.usuarios.memoria", this, servico -> servico.indice == null ? 0 : servico.indice.tamanhoEmBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("vacinas.busca.usuarios.itens", this, servico -> servico.indice == null ? 0 : servico.indice.getUsuarios())
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirNaInicializacao() {
+        reconstruir();
+    }
+
+    //as alterações entram incrementalmente; a reconstrução periódica só corrige desvios e devolve a memória das listas
+    @Scheduled(fixedDelayString = "${vacinas-api.busca-usuarios.intervalo-reconstrucao:PT6H}",
+            initialDelayString = "${vacinas-api.busca-usuarios.intervalo-reconstrucao:PT6H}")
+    public synchronized void reconstruir() {
+        var novo = new Indice();
+        //alterações confirmadas durante a varredura entram também no índice novo e prevalecem sobre a linha lida
+        emConstrucao = novo;
+        try {
+            transactionTemplate.execute(status -> {
+                try (var existentes = usuarioRepository.streamIndexaveis()) {
+                    existentes.forEach(existente -> novo.completar(existente.getId(), existente.getNome(), existente.getCpf(), existente.getEmail()));
+                }
+                return null;
+            });
+            indice = novo;
+            log.info("Índice de busca de usuários construído com {} usuários ({} bytes)", novo.getUsuarios(), novo.tamanhoEmBytes());
+        } catch (RuntimeException ex) {
+            log.warn("Falha ao construir o índice de busca de usuários; segue valendo o anterior", ex);
+        } finally {
+            emConstrucao = null;
+        }
+    }
+
+    //ids ranqueados pela melhor forma de acerto: cpf ou email exato, prefixo de cpf, prefixo de email, nome
+    public List<Long> buscar(String q, int limite) {
+        var termo = q == null ? "" : q.trim();
+        if (termo.length() < TAMANHO_MINIMO_BUSCA) {
+            throw new ServiceException("Informe ao menos " + TAMANHO_MINIMO_BUSCA + " caracteres para a busca.");
+        }
+        var atual = indice;
+        if (atual == null) {
+            throw new ServiceException("O índice de busca de usuários ainda está em construção; tente novamente em instantes.");
+        }
+        var pontuacoes = atual.pontuar(termo);
+        return pontuacoes.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+                .limit(Math.min(Math.max(limite, 1), LIMITE_MAXIMO))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    //só aplica depois do commit; numa atualização parcial só os campos alterados vêm preenchidos
+    public void registrar(Usuario usuario) {
+        registrar(usuario.getId(), usuario);
+    }
+
+    public void registrar(Collection<Usuario> usuarios) {
+        AposCommit.executar(() -> {
+            for (Usuario usuario : usuarios) {
+                aplicar(destino -> destino.atualizar(usuario.getId(), usuario.getNome(), usuario.getCpf(), usuario.getEmail()));
+            }
+        });
+    }
+
+    public void registrar(Long id, Usuario campos) {
+        AposCommit.executar(() -> aplicar(destino -> destino.atualizar(id, campos.getNome(), campos.getCpf(), campos.getEmail())));
+    }
+
+    public void remover(Long id) {
+        AposCommit.executar(() -> aplicar(destino -> destino.remover(id)));
+    }
+
+    public long tamanhoEmBytes() {
+        var atual = indice;
+        return atual == null ? 0 : atual.tamanhoEmBytes();
+    }
+
+    private void aplicar(Consumer<Indice> alteracao) {
+        //emConstrucao é lido antes de indice: a reconstrução publica indice antes de limpar emConstrucao
+        var novo = emConstrucao;
+        var atual = indice;
+        if (novo != null) {
+            alteracao.accept(novo);
+        }
+        if (atual != null && atual != novo) {
+            alteracao.accept(atual);
+        }
+    }
+
+    static String chaveCpf(String cpf) {
+        return cpf.replaceAll("\\D", "");
+    }
+
+    static String chaveEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static class Indice {
+
+        private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+        private final Map<Long, Registro> registros = new HashMap<>();
+        private final ArvoreRadix cpfs = new ArvoreRadix();
+        private final ArvoreRadix emails = new ArvoreRadix();
+        private final IndiceTrigramas nomes = new IndiceTrigramas();
+        //ids alterados ou removidos depois que a varredura começou: a linha lida do banco pode estar velha
+        private final Set<Long> tocados = ConcurrentHashMap.newKeySet();
+
+        //linha da varredura: só preenche o que nenhuma alteração posterior já informou.
+        //a trava de escrita cobre a leitura de registros e a escrita juntas (a de leitura não pode virar de escrita),
+        //então uma alteração concorrente entra inteira antes ou depois da linha, nunca no meio
+        void completar(Long id, String nome, String cpf, String email) {
+            trava.writeLock().lock();
+            try {
+                if (tocados.contains(id)) {
+                    var registro = registros.get(id);
+                    if (registro == null) {
+                        return;
+                    }
+                    escrever(id, !registro.temNome ? nome : null, registro.cpf == null ? cpf : null, registro.email == null ? email : null);
+                    return;
+                }
+                escrever(id, nome, cpf, email);
+            } finally {
+                trava.writeLock().unlock();
+            }
+        }
+
+        void atualizar(Long id, String nome, String cpf, String email) {
+            tocados.add(id);
+            escrever(id, nome, cpf, email);
+        }
+
+        void remover(Long id) {
+            tocados.add(id);
+            trava.writeLock().lock();
+            try {
+                var registro = registros.remove(id);
+                if (registro == null) {
+                    return;
+                }
+                if (registro.cpf != null) {
+                    cpfs.remover(registro.cpf, id);
+                }
+                if (registro.email != null) {
+                    emails.remover(registro.email, id);
+                }
+                nomes.remover(id);
+            } finally {
+                trava.writeLock().unlock();
+            }
+        }
+
+        Map<Long, Integer> pontuar(String termo) {
+            var pontuacoes = new HashMap<Long, Integer>();
+            trava.readLock().lock();
+            try {
+                if (SO_CPF.matcher(termo).matches()) {
+                    var digitos = chaveCpf(termo);
+                    for (Long id : cpfs.buscarPrefixo(digitos, IndiceTrigramas.MAXIMO_CANDIDATOS)) {
+                        pontuacoes.merge(id, digitos.equals(registros.get(id).cpf) ? CPF_EXATO : PREFIXO_CPF, Math::max);
+                    }
+                    return pontuacoes;
+                }
+                var email = chaveEmail(termo);
+                for (Long id : emails.buscarPrefixo(email, IndiceTrigramas.MAXIMO_CANDIDATOS)) {
+                    pontuacoes.merge(id, email.equals(registros.get(id).email) ? EMAIL_EXATO : PREFIXO_EMAIL, Math::max);
+                }
+                var fragmento = IndicePrefixos.normalizar(termo);
+                for (Long id : nomes.buscar(termo)) {
+                    var nome = nomes.nomeNormalizado(id);
+                    var pontos = nome.startsWith(fragmento) ? INICIO_NOME : nome.contains(" " + fragmento) ? INICIO_PALAVRA : TRECHO_NOME;
+                    pontuacoes.merge(id, pontos, Math::max);
+                }
+                return pontuacoes;
+            } finally {
+                trava.readLock().unlock();
+            }
+        }
+
+        long tamanhoEmBytes() {
+            trava.readLock().lock();
+            try {
+                //registros: entrada do HashMap, Long, objeto e as duas chaves guardadas
+                var bytes = registros.size() * (32L + 16 + 24);
+                for (Registro registro : registros.values()) {
+                    bytes += tamanhoTexto(registro.cpf) + tamanhoTexto(registro.email);
+                }
+                return bytes + cpfs.tamanhoEmBytes() + emails.tamanhoEmBytes() + nomes.tamanhoEmBytes();
+            } finally {
+                trava.readLock().unlock();
+            }
+        }
+
+        int getUsuarios() {
+            trava.readLock().lock();
+            try {
+                return registros.size();
+            } finally {
+                trava.readLock().unlock();
+            }
+        }
+
+        private void escrever(Long id, String nome, String cpf, String email) {
+            trava.writeLock().lock();
+            try {
+                var registro = registros.computeIfAbsent(id, chave -> new Registro());
+                if (cpf != null) {
+                    if (registro.cpf != null) {
+                        cpfs.remover(registro.cpf, id);
+                    }
+                    registro.cpf = chaveCpf(cpf);
+                    cpfs.adicionar(registro.cpf, id);
+                }
+                if (email != null) {
+                    if (registro.email != null) {
+                        emails.remover(registro.email, id);
+                    }
+                    registro.email = chaveEmail(email);
+                    emails.adicionar(registro.email, id);
+                }
+                if (nome != null) {
+                    registro.temNome = true;
+                    nomes.adicionar(id, nome);
+                }
+            } finally {
+                trava.writeLock().unlock();
+            }
+        }
+
+        private static long tamanhoTexto(String texto) {
+            return texto == null ? 0 : 24 + 16 + texto.length();
+        }
+    }
+
+    //o nome normalizado fica no índice de trigramas; aqui só a marca de que já foi informado
+    private static class Registro {
+        private boolean temNome;
+        private String cpf;
+        private String email;
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.nadia.vacinasapi.domain.service;
+
+import com.github.nadia.vacinasapi.core.lote.AgrupadorLotes;
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+//carregamento de usuários por email no estilo DataLoader: buscas concorrentes dentro de uma janela curta
+//viram um único "where email in (...)", sem repetir emails, e o resultado é distribuído a quem esperava
+@Service
+public class CarregadorUsuarioService {
+
+    @Value("${vacinas-api.carregador-usuarios.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${vacinas-api.carregador-usuarios.tamanho-maximo:100}")
+    private int tamanhoMaximo;
+
+    @Value("${vacinas-api.carregador-usuarios.janela-micros:1000}")
+    private long janelaMicros;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private AgrupadorLotes<String, Optional<Usuario>> agrupador;
+    private Counter consultas;
+    private Timer esperas;
+
+    @PostConstruct
+    public void iniciar() {
+        consultas = meterRegistry.counter("vacinas.carregador.usuarios.consultas");
+        esperas = meterRegistry.timer("vacinas.carregador.usuarios.espera");
+        if (habilitado) {
+            DistributionSummary lotes = meterRegistry.summary("vacinas.carregador.usuarios.lote");
+            agrupador = new AgrupadorLotes<>("carregador-usuarios", tamanhoMaximo, janelaMicros, this::carregar, lotes::record);
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        if (agrupador != null) {
+            agrupador.close();
+        }
+    }
+
+    public Optional<Usuario> buscarPorEmail(String email) {
+        var inicio = System.nanoTime();
+        try {
+            if (agrupador == null) {
+                consultas.increment();
+                return usuarioRepository.buscarPorEmail(email);
+            }
+            return agrupador.enviar(email).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        } finally {
+            esperas.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    //uma consulta por lote; um email só, sem companhia, segue pelo cache de ids naturais
+    private List<Optional<Usuario>> carregar(List<String> emails) {
+        var distintos = new LinkedHashMap<String, String>();
+        emails.forEach(email -> distintos.putIfAbsent(email.toLowerCase(Locale.ROOT), email));
+        var encontrados = new HashMap<String, Usuario>();
+        transactionTemplate.executeWithoutResult(status -> {
+            consultas.increment();
+            if (distintos.size() == 1) {
+                var email = distintos.values().iterator().next();
+                usuarioRepository.buscarPorEmail(email).ifPresent(usuario -> encontrados.put(email.toLowerCase(Locale.ROOT), usuario));
+                return;
+            }
+            for (Usuario usuario : usuarioRepository.findByEmailIn(distintos.values())) {
+                encontrados.put(usuario.getEmail().toLowerCase(Locale.ROOT), usuario);
+            }
+        });
+        var resultados = new ArrayList<Optional<Usuario>>(emails.size());
+        emails.forEach(email -> resultados.add(Optional.ofNullable(encontrados.get(email.toLowerCase(Locale.ROOT)))));
+        return resultados;
+    }
+}
@@ -0,0 +1,202 @@
+package com.github.nadia.vacinasapi.domain.service;
+
+import com.github.nadia.vacinasapi.api.DTO.response.EstatisticasResponse;
+import com.github.nadia.vacinasapi.core.transacao.AposCommit;
+import com.github.nadia.vacinasapi.domain.entity.Vacina;
+import com.github.nadia.vacinasapi.domain.entity.VacinaDiaria;
+import com.github.nadia.vacinasapi.domain.repository.VacinaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+//doses por nome e por dia em contadores na memória: a leitura custa O(nomes + dias), nunca O(linhas)
+@Service
+public class EstatisticaVacinaService {
+
+    private static final Logger log = LoggerFactory.getLogger(EstatisticaVacinaService.class);
+
+    @Autowired
+    private VacinaRepository vacinaRepository;
+
+    @Autowired
+    private VacinaDiariaService vacinaDiariaService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile Contadores contadores = new Contadores();
+    private volatile Contadores emConstrucao;
+    private volatile OffsetDateTime reconciliadoEm;
+    //muda quando o conjunto de nomes muda (nome novo ou reconciliação), sinal para quem indexa os nomes
+    private final AtomicLong versaoNomes = new AtomicLong();
+
+    private Counter divergencias;
+
+    @PostConstruct
+    public void registrarMetricas() {
+        divergencias = meterRegistry.counter("vacinas.estatisticas.divergencias");
+        Gauge.builder("vacinas.estatisticas.nomes", this, servico -> servico.contadores.porNome.size())
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void semearNaInicializacao() {
+        reconciliar();
+    }
+
+    //recalcula com GROUP BY e troca os contadores; a diferença encontrada é a deriva acumulada
+    @Scheduled(fixedDelayString = "${vacinas-api.estatisticas.intervalo-reconciliacao:PT15M}",
+            initialDelayString = "${vacinas-api.estatisticas.intervalo-reconciliacao:PT15M}")
+    public synchronized void reconciliar() {
+        var novos = new Contadores();
+        //escritas confirmadas durante as consultas entram também nos contadores novos
+        emConstrucao = novos;
+        try {
+            vacinaRepository.contarPorNome().forEach(contagem -> novos.somar(contagem.getNome(), null, contagem.getQuantidade()));
+            vacinaRepository.contarPorDia().forEach(contagem -> novos.somar(null, contagem.getDataAplicacao(), contagem.getQuantidade()));
+            var anteriores = contadores;
+            contadores = novos;
+            versaoNomes.incrementAndGet();
+            if (reconciliadoEm != null) {
+                var divergencia = diferenca(anteriores.porNome, novos.porNome) + diferenca(anteriores.porDia, novos.porDia);
+                if (divergencia > 0) {
+                    log.warn("Estatísticas de vacinas corrigidas na reconciliação ({} doses de diferença)", divergencia);
+                    divergencias.increment(divergencia);
+                }
+            }
+            reconciliadoEm = OffsetDateTime.now();
+        } catch (RuntimeException ex) {
+            log.warn("Falha ao reconciliar as estatísticas de vacinas; os contadores atuais seguem em uso", ex);
+        } finally {
+            emConstrucao = null;
+        }
+    }
+
+    public EstatisticasResponse estatisticas() {
+        var atuais = contadores;
+        var porNome = new TreeMap<String, Long>();
+        atuais.porNome.forEach((nome, quantidade) -> {
+            if (quantidade.sum() > 0) {
+                porNome.put(nome, quantidade.sum());
+            }
+        });
+        var porDia = new TreeMap<LocalDate, Long>();
+        atuais.porDia.forEach((dia, quantidade) -> {
+            if (quantidade.sum() > 0) {
+                porDia.put(dia, quantidade.sum());
+            }
+        });
+        var total = porNome.values().stream().mapToLong(Long::longValue).sum();
+        return new EstatisticasResponse(total, porNome, porDia, reconciliadoEm);
+    }
+
+    //visão ao vivo dos contadores por nome; a reconciliação troca o mapa e muda getVersaoNomes
+    public Map<String, LongAdder> contagensPorNome() {
+        return Collections.unmodifiableMap(contadores.porNome);
+    }
+
+    public long getVersaoNomes() {
+        return versaoNomes.get();
+    }
+
+    //a tabela diária é atualizada na transação de quem chama; os contadores em memória
+    //só depois do commit, para um rollback não deixar deriva
+    public void registrarAplicacoes(Collection<Vacina> vacinas) {
+        //um upsert por (dia, nome), não por vacina
+        var porDiaENome = vacinas.stream().collect(Collectors.groupingBy(
+                vacina -> new VacinaDiaria.Chave(vacina.getDataAplicacao(), vacina.getNome()), Collectors.counting()));
+        porDiaENome.forEach((chave, quantidade) -> vacinaDiariaService.somar(chave.getDataAplicacao(), chave.getNome(), quantidade));
+        AposCommit.executar(() -> porDiaENome.forEach((chave, quantidade) ->
+                somar(chave.getNome(), chave.getDataAplicacao(), quantidade)));
+    }
+
+    public void registrarRenomeacao(String nomeAnterior, String nomeNovo, LocalDate dataAplicacao) {
+        if (nomeAnterior.equals(nomeNovo)) {
+            return;
+        }
+        vacinaDiariaService.somar(dataAplicacao, nomeAnterior, -1);
+        vacinaDiariaService.somar(dataAplicacao, nomeNovo, 1);
+        AposCommit.executar(() -> {
+            somar(nomeAnterior, null, -1);
+            somar(nomeNovo, null, 1);
+        });
+    }
+
+    public void registrarRemocoes(List<VacinaRepository.ContagemVacinas> contagens) {
+        contagens.forEach(contagem -> vacinaDiariaService.somar(contagem.getDataAplicacao(), contagem.getNome(), -contagem.getQuantidade()));
+        AposCommit.executar(() -> contagens.forEach(contagem ->
+                somar(contagem.getNome(), contagem.getDataAplicacao(), -contagem.getQuantidade())));
+    }
+
+    private void somar(String nome, LocalDate dia, long quantidade) {
+        //emConstrucao é lido antes de contadores: a reconciliação publica contadores antes de limpar emConstrucao;
+        //um commit entre ativar emConstrucao e a consulta conta em dobro, e a reconciliação seguinte corrige
+        var novos = emConstrucao;
+        var atuais = contadores;
+        if (atuais.somar(nome, dia, quantidade)) {
+            versaoNomes.incrementAndGet();
+        }
+        if (novos != null && novos != atuais) {
+            novos.somar(nome, dia, quantidade);
+        }
+    }
+
+    private static <K> long diferenca(Map<K, LongAdder> anteriores, Map<K, LongAdder> novos) {
+        var chaves = new HashSet<>(anteriores.keySet());
+        chaves.addAll(novos.keySet());
+        long diferenca = 0;
+        for (K chave : chaves) {
+            var anterior = anteriores.get(chave);
+            var novo = novos.get(chave);
+            diferenca += Math.abs((anterior != null ? anterior.sum() : 0) - (novo != null ? novo.sum() : 0));
+        }
+        return diferenca;
+    }
+
+    private static class Contadores {
+        private final Map<String, LongAdder> porNome = new ConcurrentHashMap<>();
+        private final Map<LocalDate, LongAdder> porDia = new ConcurrentHashMap<>();
+
+        //true quando o nome ainda não tinha contador
+        private boolean somar(String nome, LocalDate dia, long quantidade) {
+            var nomeNovo = false;
+            if (nome != null) {
+                var contador = porNome.get(nome);
+                if (contador == null) {
+                    var criado = new LongAdder();
+                    contador = porNome.putIfAbsent(nome, criado);
+                    if (contador == null) {
+                        contador = criado;
+                        nomeNovo = true;
+                    }
+                }
+                contador.add(quantidade);
+            }
+            if (dia != null) {
+                porDia.computeIfAbsent(dia, chave -> new LongAdder()).add(quantidade);
+            }
+            return nomeNovo;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.nadia.vacinasapi.domain.service;
+
+import com.github.nadia.vacinasapi.core.filtro.FiltroBloom;
+import com.github.nadia.vacinasapi.core.transacao.AposCommit;
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+//filtro de Bloom com os emails e cpfs cadastrados, local a cada nó e reconstruído periodicamente: "ausente" só dispensa
+//o banco onde uma restrição única confirma a resposta (pré-checagem de unicidade da importação, que refaz a checagem no
+//banco quando a restrição acusa um filtro desatualizado), nunca em buscas de existência
+@Service
+public class FiltroUsuarioService {
+
+    private static final Logger log = LoggerFactory.getLogger(FiltroUsuarioService.class);
+    private static final long CAPACIDADE_MINIMA = 10_000;
+
+    @Value("${vacinas-api.filtro-usuarios.taxa-falso-positivo:0.01}")
+    private double taxaFalsoPositivo;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //nulo até a primeira construção; enquanto isso toda consulta vai ao banco
+    private volatile FiltroBloom filtro;
+    private volatile FiltroBloom emConstrucao;
+    private final AtomicLong removidosDesdeConstrucao = new AtomicLong();
+
+    private Counter consultasEvitadas;
+    private Counter consultasNecessarias;
+    private Counter falsosPositivos;
+
+    @PostConstruct
+    public void registrarMetricas() {
+        consultasEvitadas = meterRegistry.counter("vacinas.filtro.usuarios.consultas", "resultado", "evitada");
+        consultasNecessarias = meterRegistry.counter("vacinas.filtro.usuarios.consultas", "resultado", "necessaria");
+        falsosPositivos = meterRegistry.counter("vacinas.filtro.usuarios.falsos.positivos");
+        Gauge.builder("vacinas.filtro.usuarios.taxa.falso.positivo.estimada", this,
+                        servico -> servico.filtro == null ? 1.0 : servico.filtro.taxaFalsoPositivoEstimada())
+                .register(meterRegistry);
+        Gauge.builder("vacinas.filtro.usuarios.memoria", this,
+                        servico -> servico.filtro == null ? 0 : servico.filtro.tamanhoEmBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("vacinas.filtro.usuarios.itens", this,
+                        servico -> servico.filtro == null ? 0 : servico.filtro.getInseridos())
+                .register(meterRegistry);
+        Gauge.builder("vacinas.filtro.usuarios.removidos.desde.construcao", removidosDesdeConstrucao, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirNaInicializacao() {
+        reconstruir();
+    }
+
+    //remoções não saem de um filtro de Bloom; a reconstrução periódica descarta os itens removidos
+    @Scheduled(fixedDelayString = "${vacinas-api.filtro-usuarios.intervalo-reconstrucao:PT1H}",
+            initialDelayString = "${vacinas-api.filtro-usuarios.intervalo-reconstrucao:PT1H}")
+    public synchronized void reconstruir() {
+        var capacidade = Math.max(CAPACIDADE_MINIMA, usuarioRepository.count() * 4);
+        var novo = FiltroBloom.criar(capacidade, taxaFalsoPositivo);
+        //cadastros confirmados durante a varredura entram também no filtro novo
+        emConstrucao = novo;
+        try {
+            transactionTemplate.execute(status -> {
+                try (var existentes = usuarioRepository.streamEmailsECpfs()) {
+                    existentes.forEach(existente -> {
+                        novo.adicionar(chaveEmail(existente.getEmail()));
+                        novo.adicionar(chaveCpf(existente.getCpf()));
+                    });
+                }
+                return null;
+            });
+            removidosDesdeConstrucao.set(0);
+            filtro = novo;
+            log.info("Filtro de usuários construído com {} itens ({} bytes)", novo.getInseridos(), novo.tamanhoEmBytes());
+        } catch (RuntimeException ex) {
+            log.warn("Falha ao construir o filtro de usuários; as consultas seguem indo ao banco", ex);
+        } finally {
+            emConstrucao = null;
+        }
+    }
+
+    //true só quando o filtro garante que nenhum usuário tem esse email
+    public boolean emailAusente(String email) {
+        return ausente(chaveEmail(email));
+    }
+
+    //true só quando o filtro garante que nenhum usuário tem esse cpf
+    public boolean cpfAusente(String cpf) {
+        return ausente(chaveCpf(cpf));
+    }
+
+    //o filtro disse "pode existir" e o banco não encontrou
+    public void registrarFalsoPositivo(long quantidade) {
+        falsosPositivos.increment(quantidade);
+    }
+
+    //só adiciona depois do commit, para a varredura de uma reconstrução não perder o cadastro
+    public void registrar(Usuario usuario) {
+        registrar(List.of(usuario));
+    }
+
+    public void registrar(Collection<Usuario> usuarios) {
+        AposCommit.executar(() -> {
+            //emConstrucao é lido antes de filtro: a reconstrução publica filtro antes de limpar emConstrucao
+            var novo = emConstrucao;
+            var atual = filtro;
+            for (Usuario usuario : usuarios) {
+                for (FiltroBloom destino : new FiltroBloom[]{novo, atual}) {
+                    //numa atualização parcial só os campos alterados vêm preenchidos
+                    if (destino != null && usuario.getEmail() != null) {
+                        destino.adicionar(chaveEmail(usuario.getEmail()));
+                    }
+                    if (destino != null && usuario.getCpf() != null) {
+                        destino.adicionar(chaveCpf(usuario.getCpf()));
+                    }
+                }
+            }
+        });
+    }
+
+    public void registrarRemocao() {
+        removidosDesdeConstrucao.incrementAndGet();
+    }
+
+    private boolean ausente(String chave) {
+        var atual = filtro;
+        if (atual == null) {
+            return false;
+        }
+        if (atual.podeConter(chave)) {
+            consultasNecessarias.increment();
+            return false;
+        }
+        consultasEvitadas.increment();
+        return true;
+    }
+
+    //normalização mais larga que a comparação do banco: no pior caso gera falso positivo, nunca falso negativo
+    private static String chaveEmail(String email) {
+        return "e:" + email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String chaveCpf(String cpf) {
+        return "c:" + cpf.replaceAll("\\D", "");
+    }
+}
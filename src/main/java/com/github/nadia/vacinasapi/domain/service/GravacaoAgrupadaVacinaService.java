@@ -0,0 +1,106 @@
+package com.github.nadia.vacinasapi.domain.service;
+
+import com.github.nadia.vacinasapi.core.lote.AgrupadorLotes;
+import com.github.nadia.vacinasapi.domain.entity.Vacina;
+import com.github.nadia.vacinasapi.domain.repository.VacinaRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+//POST síncrono de vacinas com group commit: requisições concorrentes dividem uma transação e um INSERT de várias linhas
+@Service
+public class GravacaoAgrupadaVacinaService {
+
+    @Getter
+    @Value("${vacinas-api.gravacao-agrupada.habilitada:false}")
+    private boolean habilitada;
+
+    @Value("${vacinas-api.gravacao-agrupada.tamanho-maximo:100}")
+    private int tamanhoMaximo;
+
+    //espera máxima de uma vacina por companhia antes do lote ser gravado
+    @Value("${vacinas-api.gravacao-agrupada.janela-micros:2000}")
+    private long janelaMicros;
+
+    @Autowired
+    private VacinaRepository vacinaRepository;
+
+    @Autowired
+    private VacinaService vacinaService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private EstatisticaVacinaService estatisticaVacinaService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private AgrupadorLotes<Vacina, Vacina> agrupador;
+    private DistributionSummary lotes;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+        lotes = meterRegistry.summary("vacinas.gravacao.agrupada.lote");
+        agrupador = new AgrupadorLotes<>("gravacao-agrupada-vacinas", tamanhoMaximo, janelaMicros, this::gravar, lotes::record);
+        Gauge.builder("vacinas.gravacao.agrupada.pendentes", agrupador, AgrupadorLotes::getPendentes)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        if (agrupador != null) {
+            agrupador.close();
+        }
+    }
+
+    //bloqueia até o commit do lote em que a vacina entrou; o erro do próprio item volta como se a gravação fosse direta.
+    //desabilitado, grava pelo caminho direto
+    public Vacina salvar(Vacina vacina) {
+        if (agrupador == null) {
+            return vacinaService.salvar(vacina);
+        }
+        vacina.setDataAplicacao(LocalDate.now());
+        try {
+            return agrupador.enviar(vacina).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private List<Vacina> gravar(List<Vacina> vacinas) {
+        //na regravação individual depois de um lote desfeito, o id e a versão atribuídos no lote não valem mais
+        vacinas.forEach(vacina -> {
+            vacina.setId(null);
+            vacina.setVersao(null);
+        });
+        return transactionTemplate.execute(status -> {
+            usuarioService.registrarAlteracaoDasVacinas(vacinas.stream().map(vacina -> vacina.getUsuario().getId()).collect(Collectors.toSet()));
+            var salvas = vacinaRepository.saveAll(vacinas);
+            estatisticaVacinaService.registrarAplicacoes(salvas);
+            return salvas;
+        });
+    }
+}
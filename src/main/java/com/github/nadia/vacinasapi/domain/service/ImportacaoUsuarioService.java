@@ -0,0 +1,316 @@
+package com.github.nadia.vacinasapi.domain.service;
+
+import com.github.nadia.vacinasapi.api.DTO.request.UsuarioRequest;
+import com.github.nadia.vacinasapi.domain.entity.Importacao;
+import com.github.nadia.vacinasapi.domain.entity.ImportacaoErro;
+import com.github.nadia.vacinasapi.domain.entity.StatusImportacao;
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.exception.NotFoundException;
+import com.github.nadia.vacinasapi.domain.exception.ServiceException;
+import com.github.nadia.vacinasapi.domain.repository.ImportacaoErroRepository;
+import com.github.nadia.vacinasapi.domain.repository.ImportacaoRepository;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+//importação de usuários em CSV: lê o corpo em streaming, valida cada lote em paralelo e confirma lote a lote
+@Service
+public class ImportacaoUsuarioService {
+
+    public static final String CABECALHO = "nome,cpf,email,dataNascimento";
+
+    @Value("${vacinas-api.importacao.tamanho-lote:1000}")
+    private int tamanhoLote;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ImportacaoRepository importacaoRepository;
+
+    @Autowired
+    private ImportacaoErroRepository importacaoErroRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private FiltroUsuarioService filtroUsuarioService;
+
+    @Autowired
+    private BuscaUsuarioService buscaUsuarioService;
+
+    public Importacao importar(InputStream csv, Long retomarImportacaoId) {
+        var importacao = retomarImportacaoId == null ? iniciar() : retomar(retomarImportacaoId);
+        var emailsVistos = new HashSet<String>();
+        var cpfsVistos = new HashSet<String>();
+        try (var leitor = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            validarCabecalho(leitor.readLine());
+            var lote = new ArrayList<LinhaCsv>(tamanhoLote);
+            long numero = 0;
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                numero++;
+                //linhas já confirmadas numa execução anterior são puladas na retomada
+                if (numero <= importacao.getLinhasConfirmadas() || linha.isBlank()) {
+                    continue;
+                }
+                lote.add(new LinhaCsv(numero, linha));
+                if (lote.size() == tamanhoLote) {
+                    importacao = processarLote(importacao, lote, emailsVistos, cpfsVistos);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                importacao = processarLote(importacao, lote, emailsVistos, cpfsVistos);
+            }
+        } catch (IOException ex) {
+            falhar(importacao);
+            throw new UncheckedIOException(ex);
+        }
+        importacao.setStatus(StatusImportacao.CONCLUIDA);
+        importacao.setAtualizadaEm(OffsetDateTime.now());
+        return importacaoRepository.save(importacao);
+    }
+
+    public Importacao buscarPorId(Long id) {
+        return importacaoRepository.findById(id).orElseThrow(() -> new NotFoundException("Importação não encontrada."));
+    }
+
+    @Transactional(readOnly = true)
+    public void exportarErros(Long id, Consumer<ImportacaoErro> consumidor) {
+        try (var erros = importacaoErroRepository.streamByImportacaoIdOrderByLinha(id)) {
+            erros.forEach(consumidor);
+        }
+    }
+
+    private Importacao iniciar() {
+        return importacaoRepository.save(new Importacao(null, StatusImportacao.EM_ANDAMENTO, 0L, 0L, 0L, OffsetDateTime.now()));
+    }
+
+    private Importacao retomar(Long id) {
+        var importacao = buscarPorId(id);
+        if (importacao.getStatus() == StatusImportacao.CONCLUIDA) {
+            throw new ServiceException("Importação já concluída.");
+        }
+        importacao.setStatus(StatusImportacao.EM_ANDAMENTO);
+        return importacao;
+    }
+
+    private void validarCabecalho(String cabecalho) {
+        if (cabecalho == null) {
+            throw new ServiceException("Arquivo CSV vazio.");
+        }
+        var normalizado = cabecalho.replace("\uFEFF", "").replace(" ", "").toLowerCase(Locale.ROOT);
+        if (!normalizado.equals(CABECALHO.toLowerCase(Locale.ROOT))) {
+            throw new ServiceException("Cabeçalho do CSV deve ser: " + CABECALHO);
+        }
+    }
+
+    private Importacao processarLote(Importacao importacao, List<LinhaCsv> lote, Set<String> emailsVistos, Set<String> cpfsVistos) {
+        //validação de formato (CPF, email, datas) em paralelo
+        var validadas = lote.parallelStream().map(this::validar).collect(Collectors.toList());
+
+        //duplicados dentro do próprio arquivo
+        for (LinhaValidada linha : validadas) {
+            if (linha.getErro() == null) {
+                var email = linha.getUsuario().getEmail().toLowerCase(Locale.ROOT);
+                if (!emailsVistos.add(email)) {
+                    linha.setErro("Email duplicado no arquivo.");
+                } else if (!cpfsVistos.add(linha.getUsuario().getCpf())) {
+                    linha.setErro("Cpf duplicado no arquivo.");
+                }
+            }
+        }
+
+        marcarExistentes(validadas, true);
+        try {
+            return confirmar(importacao, lote, validadas);
+        } catch (DataIntegrityViolationException ex) {
+            //o filtro é local ao nó: email ou cpf gravado por outro nó depois da última reconstrução passa como ausente
+            //e a restrição única desfaz o lote. a checagem é refeita no banco para todas as linhas e o lote gravado de novo
+            validadas.stream().filter(linha -> linha.getErro() == null).forEach(linha -> {
+                linha.getUsuario().setId(null);
+                linha.getUsuario().setVersao(null);
+            });
+            marcarExistentes(validadas, false);
+            try {
+                return confirmar(importacao, lote, validadas);
+            } catch (DataAccessException novaFalha) {
+                throw falharLote(importacao, lote);
+            }
+        } catch (DataAccessException ex) {
+            throw falharLote(importacao, lote);
+        }
+    }
+
+    //duplicados no banco, com uma única consulta para o lote inteiro; com o filtro, linhas cujo email e cpf
+    //ele dá como ausentes ficam fora dela
+    private void marcarExistentes(List<LinhaValidada> validadas, boolean usarFiltro) {
+        var candidatas = validadas.stream()
+                .filter(linha -> linha.getErro() == null)
+                .filter(linha -> !usarFiltro || !(filtroUsuarioService.emailAusente(linha.getUsuario().getEmail())
+                        && filtroUsuarioService.cpfAusente(linha.getUsuario().getCpf())))
+                .collect(Collectors.toList());
+        if (candidatas.isEmpty()) {
+            return;
+        }
+        var existentes = usuarioRepository.buscarExistentes(
+                candidatas.stream().map(linha -> linha.getUsuario().getEmail()).collect(Collectors.toList()),
+                candidatas.stream().map(linha -> linha.getUsuario().getCpf()).collect(Collectors.toList()));
+        var emailsExistentes = existentes.stream().map(existente -> existente.getEmail().toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+        var cpfsExistentes = existentes.stream().map(UsuarioRepository.EmailCpf::getCpf).collect(Collectors.toSet());
+        for (LinhaValidada linha : candidatas) {
+            if (emailsExistentes.contains(linha.getUsuario().getEmail().toLowerCase(Locale.ROOT))) {
+                linha.setErro("Email já cadastrado!");
+            } else if (cpfsExistentes.contains(linha.getUsuario().getCpf())) {
+                linha.setErro("Cpf já cadastrado!");
+            }
+        }
+        if (usarFiltro) {
+            filtroUsuarioService.registrarFalsoPositivo(candidatas.stream().filter(linha -> linha.getErro() == null).count());
+        }
+    }
+
+    private Importacao confirmar(Importacao importacao, List<LinhaCsv> lote, List<LinhaValidada> validadas) {
+        var usuarios = new ArrayList<Usuario>();
+        var erros = new ArrayList<ImportacaoErro>();
+        for (LinhaValidada linha : validadas) {
+            if (linha.getErro() == null) {
+                usuarios.add(linha.getUsuario());
+            } else {
+                var mensagem = linha.getErro().length() > 500 ? linha.getErro().substring(0, 500) : linha.getErro();
+                erros.add(new ImportacaoErro(null, importacao.getId(), linha.getNumero(), mensagem));
+            }
+        }
+        var ultimaLinha = lote.get(lote.size() - 1).getNumero();
+        return transactionTemplate.execute(status -> {
+            usuarioRepository.saveAll(usuarios);
+            importacaoErroRepository.saveAll(erros);
+            filtroUsuarioService.registrar(usuarios);
+            buscaUsuarioService.registrar(usuarios);
+            importacao.setLinhasConfirmadas(ultimaLinha);
+            importacao.setImportados(importacao.getImportados() + usuarios.size());
+            importacao.setRejeitados(importacao.getRejeitados() + erros.size());
+            importacao.setAtualizadaEm(OffsetDateTime.now());
+            return importacaoRepository.save(importacao);
+        });
+    }
+
+    private ServiceException falharLote(Importacao importacao, List<LinhaCsv> lote) {
+        falhar(buscarPorId(importacao.getId()));
+        return new ServiceException("Falha ao gravar o lote iniciado na linha " + lote.get(0).getNumero()
+                + ". Retome a importação " + importacao.getId() + " para continuar do último lote confirmado.");
+    }
+
+    private LinhaValidada validar(LinhaCsv linhaCsv) {
+        var campos = separarCampos(linhaCsv.getConteudo());
+        if (campos.size() != 4) {
+            return new LinhaValidada(linhaCsv.getNumero(), null, "Linha deve ter 4 colunas: " + CABECALHO);
+        }
+        LocalDate dataNascimento;
+        try {
+            dataNascimento = campos.get(3).isEmpty() ? null : LocalDate.parse(campos.get(3));
+        } catch (DateTimeParseException ex) {
+            return new LinhaValidada(linhaCsv.getNumero(), null, "dataNascimento: data inválida, use o formato AAAA-MM-DD");
+        }
+        var request = new UsuarioRequest(campos.get(0), campos.get(1), campos.get(2), dataNascimento);
+        var mensagens = validator.validate(request).stream()
+                .map(violacao -> violacao.getPropertyPath() + ": " + violacao.getMessage())
+                .sorted()
+                .collect(Collectors.toList());
+        if (request.getCpf().isEmpty()) {
+            mensagens.add("cpf: não deve estar em branco");
+        }
+        if (request.getEmail().isEmpty()) {
+            mensagens.add("email: não deve estar em branco");
+        }
+        if (!mensagens.isEmpty()) {
+            return new LinhaValidada(linhaCsv.getNumero(), null, String.join("; ", mensagens));
+        }
+        var usuario = new Usuario();
+        usuario.setNome(request.getNome());
+        usuario.setCpf(request.getCpf());
+        usuario.setEmail(request.getEmail());
+        usuario.setDataNascimento(request.getDataNascimento());
+        return new LinhaValidada(linhaCsv.getNumero(), usuario, null);
+    }
+
+    //separa os campos por vírgula respeitando aspas duplas ("a,b" e "" para aspas literais)
+    private List<String> separarCampos(String linha) {
+        var campos = new ArrayList<String>();
+        var atual = new StringBuilder();
+        var entreAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (c == '"') {
+                if (entreAspas && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    atual.append('"');
+                    i++;
+                } else {
+                    entreAspas = !entreAspas;
+                }
+            } else if (c == ',' && !entreAspas) {
+                campos.add(atual.toString().trim());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        campos.add(atual.toString().trim());
+        return campos;
+    }
+
+    private void falhar(Importacao importacao) {
+        importacao.setStatus(StatusImportacao.FALHOU);
+        importacao.setAtualizadaEm(OffsetDateTime.now());
+        importacaoRepository.save(importacao);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class LinhaCsv {
+        private final long numero;
+        private final String conteudo;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class LinhaValidada {
+        private final long numero;
+        private final Usuario usuario;
+        private String erro;
+
+        void setErro(String erro) {
+            this.erro = erro;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.github.nadia.vacinasapi.domain.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.nadia.vacinasapi.api.DTO.request.VacinaRequest;
+import com.github.nadia.vacinasapi.api.DTO.response.IngestaoResponse;
+import com.github.nadia.vacinasapi.core.replica.ContextoLeitura;
+import com.github.nadia.vacinasapi.domain.entity.Ingestao;
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.entity.Vacina;
+import com.github.nadia.vacinasapi.domain.exception.NotFoundException;
+import com.github.nadia.vacinasapi.domain.exception.TooManyRequestsException;
+import com.github.nadia.vacinasapi.domain.repository.IngestaoRepository;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import com.github.nadia.vacinasapi.domain.repository.VacinaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+//modo assíncrono do POST de vacinas: a requisição entra numa fila limitada e uma thread grava em lotes
+//(saveAll com hibernate.jdbc.batch_size e rewriteBatchedStatements vira INSERT de várias linhas no MySQL).
+//a fila fica na memória do nó: o 202 não é durável, e o que estiver na fila se perde se o nó cair antes de gravar.
+//o resultado final (GRAVADA ou FALHOU) vai para a tabela ingestoes junto das vacinas e é visto de qualquer nó;
+//PENDENTE só existe no nó que recebeu o POST, então sem roteamento fixo por cliente outro nó responde 404 até a gravação
+@Service
+public class IngestaoVacinaService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestaoVacinaService.class);
+    private static final Duration RETENCAO_SITUACOES = Duration.ofHours(1);
+
+    public static final String PENDENTE = "PENDENTE";
+    public static final String GRAVADA = "GRAVADA";
+    public static final String FALHOU = "FALHOU";
+
+    private static final String EMAIL_INVALIDO = "Email inválido. Nenhum usuário resgistrado com esse email.";
+
+    //ligado por implantação; desligado, o POST segue gravando na própria requisição
+    @Getter
+    @Value("${vacinas-api.ingestao-assincrona.habilitada:false}")
+    private boolean habilitada;
+
+    @Value("${vacinas-api.ingestao-assincrona.capacidade-fila:10000}")
+    private int capacidadeFila;
+
+    @Value("${vacinas-api.ingestao-assincrona.tamanho-lote:500}")
+    private int tamanhoLote;
+
+    //espera máxima de uma vacina na fila antes do lote ser gravado incompleto
+    @Value("${vacinas-api.ingestao-assincrona.intervalo-maximo-ms:200}")
+    private long intervaloMaximoMs;
+
+    @Value("${vacinas-api.ingestao-assincrona.situacoes-mantidas:100000}")
+    private long situacoesMantidas;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private VacinaRepository vacinaRepository;
+
+    @Autowired
+    private IngestaoRepository ingestaoRepository;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private EstatisticaVacinaService estatisticaVacinaService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<Pendente> fila;
+    private Cache<String, IngestaoResponse> situacoes;
+    private Thread escritor;
+    private volatile boolean ativo;
+
+    private Counter rejeitadas;
+    private Timer gravacoes;
+    private Timer esperas;
+    private DistributionSummary lotes;
+
+    @PostConstruct
+    public void iniciar() {
+        fila = new ArrayBlockingQueue<>(capacidadeFila);
+        situacoes = Caffeine.newBuilder()
+                .maximumSize(situacoesMantidas)
+                .expireAfterWrite(RETENCAO_SITUACOES)
+                .build();
+        Gauge.builder("vacinas.ingestao.fila", fila, BlockingQueue::size)
+                .register(meterRegistry);
+        rejeitadas = meterRegistry.counter("vacinas.ingestao.rejeitadas");
+        gravacoes = meterRegistry.timer("vacinas.ingestao.gravacao");
+        esperas = meterRegistry.timer("vacinas.ingestao.espera");
+        lotes = meterRegistry.summary("vacinas.ingestao.lote");
+        if (habilitada) {
+            ativo = true;
+            escritor = new Thread(this::executar, "ingestao-vacinas");
+            escritor.setDaemon(true);
+            escritor.start();
+        }
+    }
+
+    //grava o que ainda estiver na fila antes de desligar
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        ativo = false;
+        if (escritor != null) {
+            //sem interrupt: a espera na fila termina sozinha em até intervaloMaximoMs e uma gravação em curso conclui
+            escritor.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        descarregar();
+    }
+
+    //os emails são resolvidos em lote pela thread; um email sem usuário marca só o próprio item como FALHOU
+    public IngestaoResponse enfileirar(VacinaRequest request) {
+        var pendente = new Pendente(UUID.randomUUID().toString(), request, LocalDate.now(), System.nanoTime());
+        var situacao = new IngestaoResponse(pendente.id, PENDENTE, null, null);
+        situacoes.put(pendente.id, situacao);
+        if (!fila.offer(pendente)) {
+            situacoes.invalidate(pendente.id);
+            rejeitadas.increment();
+            throw new TooManyRequestsException("Fila de gravação cheia. Tente novamente em instantes.");
+        }
+        return situacao;
+    }
+
+    //primeiro a memória deste nó, depois a tabela, no primário: o resultado acabou de ser gravado
+    public IngestaoResponse buscarSituacao(String id) {
+        var situacao = situacoes.getIfPresent(id);
+        if (situacao != null) {
+            return situacao;
+        }
+        return ContextoLeitura.noPrimario(() -> ingestaoRepository.findById(id))
+                .map(ingestao -> new IngestaoResponse(ingestao.getId(), ingestao.getSituacao(), ingestao.getVacinaId(), ingestao.getMensagem()))
+                .orElseThrow(() -> new NotFoundException("Id de acompanhamento não encontrado ou expirado."));
+    }
+
+    //mesma retenção da memória; cada nó limpa, e limpezas simultâneas só apagam as mesmas linhas
+    @Scheduled(fixedDelayString = "${vacinas-api.ingestao-assincrona.intervalo-limpeza:PT10M}")
+    public void limparSituacoes() {
+        if (!habilitada) {
+            return;
+        }
+        var removidas = transactionTemplate.execute(status ->
+                ingestaoRepository.deletarConcluidasAntesDe(OffsetDateTime.now().minus(RETENCAO_SITUACOES)));
+        log.debug("{} situações de ingestão expiradas removidas", removidas);
+    }
+
+    //grava na thread chamadora tudo o que está na fila, em lotes
+    public void descarregar() {
+        var lote = new ArrayList<Pendente>(tamanhoLote);
+        while (fila.drainTo(lote, tamanhoLote) > 0) {
+            gravar(lote);
+            lote.clear();
+        }
+    }
+
+    private void executar() {
+        while (ativo) {
+            try {
+                var lote = coletarLote();
+                if (!lote.isEmpty()) {
+                    gravar(lote);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Falha inesperada na gravação assíncrona de vacinas", ex);
+            }
+        }
+    }
+
+    //fecha o lote com tamanhoLote itens ou quando o primeiro completa intervaloMaximoMs de espera
+    private List<Pendente> coletarLote() throws InterruptedException {
+        var lote = new ArrayList<Pendente>(tamanhoLote);
+        var primeiro = fila.poll(intervaloMaximoMs, TimeUnit.MILLISECONDS);
+        if (primeiro == null) {
+            return lote;
+        }
+        lote.add(primeiro);
+        var prazo = primeiro.enfileiradoEm + TimeUnit.MILLISECONDS.toNanos(intervaloMaximoMs);
+        while (lote.size() < tamanhoLote) {
+            fila.drainTo(lote, tamanhoLote - lote.size());
+            var restante = prazo - System.nanoTime();
+            if (lote.size() >= tamanhoLote || restante <= 0) {
+                break;
+            }
+            var proximo = fila.poll(restante, TimeUnit.NANOSECONDS);
+            if (proximo == null) {
+                break;
+            }
+            lote.add(proximo);
+        }
+        return lote;
+    }
+
+    private void gravar(List<Pendente> lote) {
+        var inicio = System.nanoTime();
+        try {
+            gravarOuSeparar(lote);
+        } finally {
+            var fim = System.nanoTime();
+            gravacoes.record(fim - inicio, TimeUnit.NANOSECONDS);
+            lotes.record(lote.size());
+            lote.forEach(pendente -> esperas.record(fim - pendente.enfileiradoEm, TimeUnit.NANOSECONDS));
+        }
+    }
+
+    //um item ruim derruba o lote inteiro: cada um é regravado sozinho para só ele ficar como FALHOU
+    private void gravarOuSeparar(List<Pendente> lote) {
+        try {
+            gravarNaTransacao(lote);
+        } catch (RuntimeException ex) {
+            if (lote.size() > 1) {
+                log.warn("Falha ao gravar um lote de {} vacinas enfileiradas; gravando uma a uma", lote.size(), ex);
+                for (Pendente pendente : lote) {
+                    gravarOuSeparar(List.of(pendente));
+                }
+                return;
+            }
+            log.warn("Falha ao gravar a vacina enfileirada {}", lote.get(0).id, ex);
+            var falha = new IngestaoResponse(lote.get(0).id, FALHOU, null, "Falha ao gravar a vacina. Envie novamente.");
+            situacoes.put(falha.getId(), falha);
+            registrarFalha(falha);
+        }
+    }
+
+    //fora da transação desfeita; se o banco também recusar esta, a falha fica só na memória deste nó
+    private void registrarFalha(IngestaoResponse falha) {
+        try {
+            transactionTemplate.execute(status -> ingestaoRepository.save(
+                    new Ingestao(falha.getId(), FALHOU, null, falha.getMensagem(), OffsetDateTime.now())));
+        } catch (RuntimeException ex) {
+            log.warn("Falha ao registrar a situação da vacina enfileirada {}", falha.getId(), ex);
+        }
+    }
+
+    private void gravarNaTransacao(List<Pendente> lote) {
+        transactionTemplate.execute(status -> {
+            //um único IN resolve os emails do lote inteiro
+            var emails = new HashSet<String>();
+            lote.forEach(pendente -> emails.add(pendente.request.getEmail().toLowerCase(Locale.ROOT)));
+            var usuariosPorEmail = new HashMap<String, Usuario>();
+            for (Usuario usuario : usuarioRepository.findByEmailIn(emails)) {
+                usuariosPorEmail.put(usuario.getEmail().toLowerCase(Locale.ROOT), usuario);
+            }
+            var vacinas = new ArrayList<Vacina>(lote.size());
+            for (Pendente pendente : lote) {
+                var usuario = usuariosPorEmail.get(pendente.request.getEmail().toLowerCase(Locale.ROOT));
+                //refeita a cada tentativa: a de uma transação desfeita pode ter ficado com id
+                pendente.vacina = usuario != null
+                        ? new Vacina(null, pendente.request.getNome(), usuario, pendente.dataAplicacao, null)
+                        : null;
+                if (pendente.vacina != null) {
+                    vacinas.add(pendente.vacina);
+                }
+            }
+            usuarioService.registrarAlteracaoDasVacinas(vacinas.stream().map(vacina -> vacina.getUsuario().getId()).collect(Collectors.toSet()));
+            var salvas = vacinaRepository.saveAll(vacinas);
+            estatisticaVacinaService.registrarAplicacoes(salvas);
+            //o resultado é confirmado junto das vacinas: não existe GRAVADA sem a vacina, nem vacina sem o resultado
+            var agora = OffsetDateTime.now();
+            ingestaoRepository.saveAll(lote.stream()
+                    .map(pendente -> pendente.vacina != null
+                            ? new Ingestao(pendente.id, GRAVADA, pendente.vacina.getId(), null, agora)
+                            : new Ingestao(pendente.id, FALHOU, null, EMAIL_INVALIDO, agora))
+                    .collect(Collectors.toList()));
+            return null;
+        });
+        //as situações só mudam depois do commit
+        for (Pendente pendente : lote) {
+            situacoes.put(pendente.id, pendente.vacina != null
+                    ? new IngestaoResponse(pendente.id, GRAVADA, pendente.vacina.getId(), null)
+                    : new IngestaoResponse(pendente.id, FALHOU, null, EMAIL_INVALIDO));
+        }
+    }
+
+    private static class Pendente {
+        private final String id;
+        private final VacinaRequest request;
+        private final LocalDate dataAplicacao;
+        private final long enfileiradoEm;
+        //preenchida dentro da transação quando o email é encontrado
+        private Vacina vacina;
+
+        private Pendente(String id, VacinaRequest request, LocalDate dataAplicacao, long enfileiradoEm) {
+            this.id = id;
+            this.request = request;
+            this.dataAplicacao = dataAplicacao;
+            this.enfileiradoEm = enfileiradoEm;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.nadia.vacinasapi.domain.service;
+
+import com.github.nadia.vacinasapi.api.DTO.response.NomeVacinaResponse;
+import com.github.nadia.vacinasapi.core.autocompletar.IndicePrefixos;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//autocompletar nomes de vacina sobre os contadores por nome de EstatisticaVacinaService, sem ir ao banco
+@Service
+public class NomeVacinaService {
+
+    public static final int LIMITE_PADRAO = 10;
+    public static final int LIMITE_MAXIMO = 20;
+
+    @Value("${vacinas-api.nomes.maximo-indexados:10000}")
+    private int maximoIndexados;
+
+    @Autowired
+    private EstatisticaVacinaService estatisticaVacinaService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile Indexado indexado;
+
+    @PostConstruct
+    public void registrarMetricas() {
+        Gauge.builder("vacinas.nomes.indice.nomes", this, servico -> servico.indexado == null ? 0 : servico.indexado.indice.getNomes())
+                .register(meterRegistry);
+        Gauge.builder("vacinas.nomes.indice.nos", this, servico -> servico.indexado == null ? 0 : servico.indexado.indice.getNos())
+                .register(meterRegistry);
+    }
+
+    public List<NomeVacinaResponse> sugerir(String prefixo, int limite) {
+        var limitado = Math.min(Math.max(limite, 1), LIMITE_MAXIMO);
+        return indice().buscar(prefixo, limitado).stream()
+                .map(sugestao -> new NomeVacinaResponse(sugestao.getNome(), sugestao.getQuantidade()))
+                .collect(Collectors.toList());
+    }
+
+    //reconstrói só quando o conjunto de nomes mudou; doses de nomes já indexados aparecem na hora pelos contadores
+    private IndicePrefixos indice() {
+        var versao = estatisticaVacinaService.getVersaoNomes();
+        var atual = indexado;
+        if (atual != null && atual.versao == versao) {
+            return atual.indice;
+        }
+        synchronized (this) {
+            atual = indexado;
+            if (atual == null || atual.versao != versao) {
+                //a versão é lida antes dos contadores: um nome novo durante a construção força outra na próxima busca
+                atual = new Indexado(versao, IndicePrefixos.construir(
+                        estatisticaVacinaService.contagensPorNome(), maximoIndexados, LIMITE_MAXIMO));
+                indexado = atual;
+            }
+            return atual.indice;
+        }
+    }
+
+    private static class Indexado {
+        private final long versao;
+        private final IndicePrefixos indice;
+
+        private Indexado(long versao, IndicePrefixos indice) {
+            this.versao = versao;
+            this.indice = indice;
+        }
+    }
+}
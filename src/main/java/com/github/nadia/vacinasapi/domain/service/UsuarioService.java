@@ -1,74 +1,254 @@
 package com.github.nadia.vacinasapi.domain.service;
 
+import com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse;
+import com.github.nadia.vacinasapi.core.cache.CacheRespostas;
+import com.github.nadia.vacinasapi.core.lote.BuscaEmBlocos;
+import com.github.nadia.vacinasapi.core.pagination.CursorDataId;
+import com.github.nadia.vacinasapi.core.pagination.Paginacao;
+import com.github.nadia.vacinasapi.core.replica.ContextoLeitura;
 import com.github.nadia.vacinasapi.domain.entity.Usuario;
-import com.github.nadia.vacinasapi.domain.entity.Vacina;
 import com.github.nadia.vacinasapi.domain.exception.NotFoundException;
+import com.github.nadia.vacinasapi.domain.exception.PreconditionFailedException;
 import com.github.nadia.vacinasapi.domain.exception.ServiceException;
 import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import com.github.nadia.vacinasapi.domain.repository.VacinaRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 public class UsuarioService {
 
+    //limites da coluna DATE do MySQL, usados quando o período não é informado
+    private static final LocalDate DATA_MINIMA = LocalDate.of(1000, 1, 1);
+    private static final LocalDate DATA_MAXIMA = LocalDate.of(9999, 12, 31);
+
+    public static final int TAMANHO_MAXIMO_IDS = 10_000;
+    private static final int TAMANHO_BLOCO_IDS = 500;
+
     @Autowired
     private UsuarioRepository usuarioRepository;
 
-    public List<Usuario> buscarTodos(){
-        return usuarioRepository.findAll();
+    @Autowired
+    private VacinaRepository vacinaRepository;
+
+    @Autowired
+    private FiltroUsuarioService filtroUsuarioService;
+
+    @Autowired
+    private BuscaUsuarioService buscaUsuarioService;
+
+    @Autowired
+    private CacheRespostas cacheRespostas;
+
+    @Autowired
+    private EstatisticaVacinaService estatisticaVacinaService;
+
+    @Transactional(readOnly = true)
+    public Slice<Usuario> buscarTodos(Long after, int limite){
+        return usuarioRepository.findByIdGreaterThan(after, Paginacao.ordenadoPorId(limite));
     }
 
+    //a unicidade de email e cpf fica com as restrições da tabela; a violação é traduzida no ApiExceptionHandler
     public Usuario salvar(Usuario usuario){
-        var usuarioEmail = usuarioRepository.findByEmail(usuario.getEmail());
-        var usuarioCpf = usuarioRepository.findByCpf(usuario.getCpf());
-        if (usuarioEmail.isPresent()){
-            throw new ServiceException("Email já cadastrado!");
+        var salvo = usuarioRepository.saveAndFlush(usuario);
+        filtroUsuarioService.registrar(salvo);
+        buscaUsuarioService.registrar(salvo);
+        return salvo;
+    }
+
+    //os ids ranqueados pelo índice viram usuários numa única consulta IN, devolvidos na ordem do ranking
+    @Transactional(readOnly = true)
+    public List<Usuario> buscar(String q, int limite){
+        var ids = buscaUsuarioService.buscar(q, limite);
+        if (ids.isEmpty()) {
+            return List.of();
         }
-        if (usuarioCpf.isPresent()){
-            throw new ServiceException("Cpf já cadastrado!");
+        var porId = usuarioRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Usuario::getId, Function.identity()));
+        //um id removido entre o ranking e a consulta simplesmente some da resposta
+        return ids.stream().map(porId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    //valida já; a busca em blocos roda depois, enquanto a resposta é escrita
+    public BuscaEmBlocos<Usuario> buscarPorIds(List<Long> ids){
+        if (ids == null || ids.isEmpty() || ids.size() > TAMANHO_MAXIMO_IDS) {
+            throw new ServiceException("Informe de 1 a " + TAMANHO_MAXIMO_IDS + " ids.");
         }
-        return usuarioRepository.save(usuario);
+        return new BuscaEmBlocos<>(ids, TAMANHO_BLOCO_IDS, bloco -> usuarioRepository.buscarPorIds(bloco, TAMANHO_BLOCO_IDS), Usuario::getId);
     }
 
+    //sempre no primário: o resultado alimenta o cache de respostas, que só muda na próxima escrita
     public Usuario buscarPorId(Long id){
-        return usuarioRepository.findById(id).orElseThrow(()-> new NotFoundException("Usuário não encontrado."));
+        return ContextoLeitura.noPrimario(() -> usuarioRepository.findById(id)
+                .orElseThrow(()-> new NotFoundException("Usuário não encontrado.")));
     }
 
+    @Transactional
     public Usuario atualizar(Long id, Usuario usuario) {
         var usuarioNoBanco = check(id);
-        usuario.setId(usuarioNoBanco.getId());
-        if (!usuario.getEmail().isEmpty()) {
-            if (usuarioRepository.findByEmail(usuario.getEmail()).isPresent()) {
-                throw new ServiceException("Email já cadastrado.");
-            }
+        var emailAnterior = usuarioNoBanco.getEmail();
+        if (usuario.getNome() != null && !usuario.getNome().isBlank()) {
+            usuarioNoBanco.setNome(usuario.getNome());
+        }
+        if (usuario.getEmail() != null && !usuario.getEmail().isEmpty()) {
+            usuarioNoBanco.setEmail(usuario.getEmail());
         }
-        if (!usuario.getCpf().isEmpty()) {
-            if (usuarioRepository.findByCpf(usuario.getCpf()).isPresent()) {
-                throw new ServiceException("CPF já cadastrado.");
+        if (usuario.getCpf() != null && !usuario.getCpf().isEmpty()) {
+            usuarioNoBanco.setCpf(usuario.getCpf());
+        }
+        if (usuario.getDataNascimento() != null) {
+            usuarioNoBanco.setDataNascimento(usuario.getDataNascimento());
+        }
+        //flush dentro do método para a violação de unicidade surgir aqui, e não no commit
+        var atualizado = usuarioRepository.saveAndFlush(usuarioNoBanco);
+        filtroUsuarioService.registrar(atualizado);
+        buscaUsuarioService.registrar(atualizado);
+        cacheRespostas.invalidarUsuario(id);
+        //as respostas de vacina carregam o email do usuário
+        if (!emailAnterior.equals(atualizado.getEmail())) {
+            cacheRespostas.invalidarVacinasDoUsuario(id);
+        }
+        return atualizado;
+    }
+
+    //com a versão do If-Match, um único UPDATE condicional substitui o ciclo leitura-alteração-escrita
+    @Transactional
+    public Usuario atualizar(Long id, Long versao, Usuario usuario) {
+        if (executarAtualizacaoParcial(id, versao, usuario) == 0) {
+            //a linha não casou: só agora vale a pena descobrir o motivo
+            if (!usuarioRepository.existsById(id)) {
+                throw new ServiceException("Usuário não encontrado.");
             }
+            throw new PreconditionFailedException("Usuário foi alterado por outra requisição.");
         }
-        if (usuario.getNome() == null){
-            usuario.setNome(usuarioNoBanco.getNome());
+        return check(id);
+    }
+
+    //PATCH: só as colunas informadas, num único UPDATE; a contagem de linhas decide o 404
+    @Transactional
+    public void atualizarParcial(Long id, Long versao, Usuario usuario) {
+        if (preenchido(usuario.getNome()) == null && preenchido(usuario.getCpf()) == null
+                && preenchido(usuario.getEmail()) == null && usuario.getDataNascimento() == null) {
+            throw new ServiceException("Informe ao menos um campo para atualizar.");
         }
-        if (usuario.getDataNascimento() == null){
-            usuario.setDataNascimento(usuarioNoBanco.getDataNascimento());
+        if (executarAtualizacaoParcial(id, versao, usuario) == 0) {
+            if (versao != null && usuarioRepository.existsById(id)) {
+                throw new PreconditionFailedException("Usuário foi alterado por outra requisição.");
+            }
+            throw new NotFoundException("Usuário não encontrado.");
         }
-        return usuarioRepository.save(usuario);
     }
 
+    //sempre no primário: decide o 304 do If-None-Match, e uma réplica atrasada devolveria a versão de antes da escrita
+    @Transactional(readOnly = true)
+    public Long buscarVersao(Long id){
+        return ContextoLeitura.noPrimario(() -> usuarioRepository.buscarVersao(id)
+                .orElseThrow(()-> new NotFoundException("Usuário não encontrado.")));
+    }
+
+    //a versão do usuário também muda a cada inclusão, alteração ou remoção de vacina dele (registrarAlteracaoDasVacinas)
+    @Transactional(readOnly = true)
+    public Long buscarVersaoVacinas(Long id){
+        return usuarioRepository.buscarVersao(id).orElseThrow(()-> new ServiceException("Usuário não encontrado."));
+    }
+
+    //chamado antes de gravar as vacinas: a linha do usuário fica bloqueada até o commit e é sempre a primeira,
+    //então escritas simultâneas nas vacinas de um mesmo usuário se enfileiram em vez de travarem umas às outras
+    @Transactional
+    public void registrarAlteracaoDasVacinas(Collection<Long> ids){
+        if (ids.isEmpty()) {
+            return;
+        }
+        usuarioRepository.incrementarVersao(ids);
+        ids.forEach(cacheRespostas::invalidarUsuario);
+    }
+
+    //versão e página na mesma transação readOnly: com réplicas, as duas vêm da mesma conexão e do mesmo snapshot,
+    //e um ETag novo nunca acompanha uma página velha. Sem página quando naoModificada aceita a versão
+    @Transactional(readOnly = true)
+    public VacinasDoUsuario listarVacinasSeModificadas(Long id, LocalDate de, LocalDate ate, CursorDataId apos, int limite,
+                                                      Predicate<Long> naoModificada){
+        var versao = buscarVersaoVacinas(id);
+        if (naoModificada.test(versao)) {
+            return new VacinasDoUsuario(versao, null);
+        }
+        return new VacinasDoUsuario(versao, listarVacinas(id, de, ate, apos, limite));
+    }
 
-    public List<Vacina> listarVacinas(Long id){
-        return check(id).getVacinas();
+    @Transactional(readOnly = true)
+    public Slice<VacinaResponse> listarVacinas(Long id, LocalDate de, LocalDate ate, CursorDataId apos, int limite){
+        var inicio = de != null ? de : DATA_MINIMA;
+        var fim = ate != null ? ate : DATA_MAXIMA;
+        var aposData = apos != null ? apos.getData() : inicio;
+        var aposId = apos != null ? apos.getId() : 0L;
+        var vacinas = vacinaRepository.buscarResponsesPorUsuario(id, inicio, fim, aposData, aposId, Paginacao.limite(limite));
+        //só consulta a existência do usuário quando a página vem vazia
+        if (!vacinas.hasContent() && !usuarioRepository.existsById(id)) {
+            throw new ServiceException("Usuário não encontrado.");
+        }
+        return vacinas;
     }
 
+    //dois DELETEs em conjunto no lugar do cascade, que carregava e removia vacina a vacina
+    @Transactional
     public void deletar(Long id){
-        check(id);
-        usuarioRepository.deleteById(id);
+        var vacinasRemovidas = vacinaRepository.travarContagemPorUsuario(id);
+        vacinaRepository.deletarPorUsuario(id);
+        if (usuarioRepository.deletarPorId(id) == 0) {
+            throw new NotFoundException("Usuário não encontrado.");
+        }
+        filtroUsuarioService.registrarRemocao();
+        buscaUsuarioService.remover(id);
+        cacheRespostas.invalidarUsuario(id);
+        cacheRespostas.invalidarVacinasDoUsuario(id);
+        estatisticaVacinaService.registrarRemocoes(vacinasRemovidas);
+    }
+
+    private int executarAtualizacaoParcial(Long id, Long versao, Usuario usuario){
+        var campos = Usuario.builder()
+                .nome(preenchido(usuario.getNome()))
+                .cpf(preenchido(usuario.getCpf()))
+                .email(preenchido(usuario.getEmail()))
+                .dataNascimento(usuario.getDataNascimento())
+                .build();
+        //o UPDATE executa na hora: a violação de unicidade surge aqui, e não no commit
+        var linhas = usuarioRepository.atualizarParcial(id, versao, campos);
+        if (linhas > 0) {
+            filtroUsuarioService.registrar(campos);
+            buscaUsuarioService.registrar(id, campos);
+            cacheRespostas.invalidarUsuario(id);
+            //as respostas de vacina carregam o email do usuário
+            if (campos.getEmail() != null) {
+                cacheRespostas.invalidarVacinasDoUsuario(id);
+            }
+        }
+        return linhas;
+    }
+
+    private static String preenchido(String valor){
+        return valor != null && !valor.isBlank() ? valor : null;
     }
 
     private Usuario check(Long id){
         return usuarioRepository.findById(id).orElseThrow(()-> new ServiceException("Usuário não encontrado."));
     }
+
+    @Getter
+    @AllArgsConstructor
+    public static class VacinasDoUsuario {
+        private final Long versao;
+        private final Slice<VacinaResponse> pagina;
+    }
 }
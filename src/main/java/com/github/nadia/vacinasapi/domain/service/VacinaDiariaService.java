@@ -0,0 +1,107 @@
+package com.github.nadia.vacinasapi.domain.service;
+
+import com.github.nadia.vacinasapi.api.DTO.response.ReconstrucaoDiariasResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.VacinaDiariaResponse;
+import com.github.nadia.vacinasapi.domain.exception.ServiceException;
+import com.github.nadia.vacinasapi.domain.repository.VacinaDiariaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+//tabela vacinas_diarias: consultas por período leem no máximo (dias x nomes) linhas, não as vacinas
+@Service
+public class VacinaDiariaService {
+
+    private static final Logger log = LoggerFactory.getLogger(VacinaDiariaService.class);
+    public static final int PERIODO_MAXIMO_DIAS = 366;
+
+    @Value("${vacinas-api.vacinas-diarias.dias-por-fatia:31}")
+    private int diasPorFatia;
+
+    @Value("${vacinas-api.vacinas-diarias.paralelismo:4}")
+    private int paralelismo;
+
+    @Autowired
+    private VacinaDiariaRepository vacinaDiariaRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    //roda na transação de quem grava a vacina: o rollback desfaz os dois juntos
+    public void somar(LocalDate dataAplicacao, String nome, long quantidade) {
+        if (quantidade != 0) {
+            vacinaDiariaRepository.somar(dataAplicacao, nome, quantidade);
+        }
+    }
+
+    public List<VacinaDiariaResponse> buscar(LocalDate de, LocalDate ate, String nome) {
+        if (de.isAfter(ate) || ChronoUnit.DAYS.between(de, ate) >= PERIODO_MAXIMO_DIAS) {
+            throw new ServiceException("O período deve ter de 1 a " + PERIODO_MAXIMO_DIAS + " dias.");
+        }
+        return vacinaDiariaRepository.buscarPorPeriodo(de, ate, nome == null || nome.isBlank() ? null : nome);
+    }
+
+    //backfill: refaz o período em fatias de datas, cada uma na sua transação e em paralelo
+    public ReconstrucaoDiariasResponse reconstruir(LocalDate de, LocalDate ate) {
+        if (de == null || ate == null) {
+            var periodo = vacinaDiariaRepository.buscarPeriodoDasVacinas();
+            de = de != null ? de : periodo.getInicio();
+            ate = ate != null ? ate : periodo.getFim();
+        }
+        if (de == null || ate == null) {
+            return new ReconstrucaoDiariasResponse(null, null, 0, 0L);
+        }
+        if (de.isAfter(ate)) {
+            throw new ServiceException("A data inicial deve ser anterior à final.");
+        }
+
+        var fatias = fatiar(de, ate);
+        var executor = Executors.newFixedThreadPool(Math.min(paralelismo, fatias.size()));
+        try {
+            var tarefas = fatias.stream()
+                    .map(fatia -> CompletableFuture.supplyAsync(() -> reconstruirFatia(fatia[0], fatia[1]), executor))
+                    .collect(Collectors.toList());
+            long linhas = 0;
+            for (CompletableFuture<Integer> tarefa : tarefas) {
+                linhas += tarefa.join();
+            }
+            log.info("Vacinas diárias reconstruídas de {} a {} em {} fatias ({} linhas)", de, ate, fatias.size(), linhas);
+            return new ReconstrucaoDiariasResponse(de, ate, fatias.size(), linhas);
+        } catch (CompletionException ex) {
+            //fatias já confirmadas ficam corretas; basta repetir a reconstrução
+            throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    //DELETE + INSERT ... SELECT na mesma transação; no MySQL o SELECT trava as vacinas lidas
+    //e uma aplicação concorrente na fatia espera o commit, sem contar em dobro
+    private int reconstruirFatia(LocalDate de, LocalDate ate) {
+        return transactionTemplate.execute(status -> {
+            vacinaDiariaRepository.deletarPeriodo(de, ate);
+            return vacinaDiariaRepository.preencherPeriodo(de, ate);
+        });
+    }
+
+    private List<LocalDate[]> fatiar(LocalDate de, LocalDate ate) {
+        var fatias = new ArrayList<LocalDate[]>();
+        for (var inicio = de; !inicio.isAfter(ate); inicio = inicio.plusDays(diasPorFatia)) {
+            var fim = inicio.plusDays(diasPorFatia - 1L);
+            fatias.add(new LocalDate[]{inicio, fim.isAfter(ate) ? ate : fim});
+        }
+        return fatias;
+    }
+}
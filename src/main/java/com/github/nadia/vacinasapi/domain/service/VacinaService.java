@@ -1,45 +1,257 @@
 package com.github.nadia.vacinasapi.domain.service;
 
+import com.github.nadia.vacinasapi.api.DTO.request.VacinaRequest;
+import com.github.nadia.vacinasapi.api.DTO.response.ItemLoteResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.LoteResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse;
+import com.github.nadia.vacinasapi.core.cache.CacheRespostas;
+import com.github.nadia.vacinasapi.core.lote.BuscaEmBlocos;
+import com.github.nadia.vacinasapi.core.pagination.CursorDataId;
+import com.github.nadia.vacinasapi.core.pagination.Paginacao;
+import com.github.nadia.vacinasapi.core.replica.ContextoLeitura;
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
 import com.github.nadia.vacinasapi.domain.entity.Vacina;
 import com.github.nadia.vacinasapi.domain.exception.NotFoundException;
 import com.github.nadia.vacinasapi.domain.exception.ServiceException;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
 import com.github.nadia.vacinasapi.domain.repository.VacinaRepository;
+import com.github.nadia.vacinasapi.domain.repository.VacinaSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class VacinaService {
 
+    private static final int LIMPAR_CONTEXTO_A_CADA = 1000;
+    public static final int TAMANHO_MAXIMO_LOTE = 1000;
+    public static final int TAMANHO_MAXIMO_EMAILS = 100;
+    public static final int TAMANHO_MAXIMO_IDS = 10_000;
+    private static final int TAMANHO_BLOCO_IDS = 500;
+
     @Autowired
     private VacinaRepository vacinaRepository;
 
-    public List<Vacina> buscarTodos(){
-        return vacinaRepository.findAll();
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private CacheRespostas cacheRespostas;
+
+    @Autowired
+    private EstatisticaVacinaService estatisticaVacinaService;
+
+    @Autowired
+    private Validator validator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public Slice<VacinaResponse> buscarTodos(Long after, int limite){
+        return vacinaRepository.buscarResponsesAposId(after, Paginacao.ordenadoPorId(limite));
     }
 
+    //filtros combinados por Specification; a paginação segue (data_aplicacao, id), a ordem dos índices usados
+    @Transactional(readOnly = true)
+    public Slice<VacinaResponse> buscar(String nome, LocalDate de, LocalDate ate, List<String> emails, CursorDataId apos, int limite){
+        Specification<Vacina> filtro = Specification.where(null);
+        if (nome != null && !nome.isBlank()) {
+            filtro = filtro.and(VacinaSpecifications.comNome(nome));
+        }
+        if (de != null) {
+            filtro = filtro.and(VacinaSpecifications.aplicadaDesde(de));
+        }
+        if (ate != null) {
+            filtro = filtro.and(VacinaSpecifications.aplicadaAte(ate));
+        }
+        if (emails != null && !emails.isEmpty()) {
+            if (emails.size() > TAMANHO_MAXIMO_EMAILS) {
+                throw new ServiceException("Informe até " + TAMANHO_MAXIMO_EMAILS + " emails.");
+            }
+            filtro = filtro.and(VacinaSpecifications.doUsuarioComEmail(new HashSet<>(emails)));
+        }
+        if (apos != null) {
+            filtro = filtro.and(VacinaSpecifications.apos(apos.getData(), apos.getId()));
+        }
+        return vacinaRepository.buscarResponses(filtro, Paginacao.limitar(limite));
+    }
+
+    @Transactional(readOnly = true)
+    public void exportar(Consumer<Vacina> consumidor){
+        try (var vacinas = vacinaRepository.streamAll()) {
+            var iterador = vacinas.iterator();
+            long lidas = 0;
+            while (iterador.hasNext()) {
+                consumidor.accept(iterador.next());
+                if (++lidas % LIMPAR_CONTEXTO_A_CADA == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    @Transactional
     public Vacina salvar(Vacina vacina){
         vacina.setDataAplicacao(LocalDate.now());
-        return vacinaRepository.save(vacina);
+        usuarioService.registrarAlteracaoDasVacinas(List.of(vacina.getUsuario().getId()));
+        var salva = vacinaRepository.save(vacina);
+        estatisticaVacinaService.registrarAplicacoes(List.of(salva));
+        return salva;
+    }
+
+    //resolve todos os emails com um único IN e grava as vacinas em batch (hibernate.jdbc.batch_size)
+    @Transactional
+    public LoteResponse salvarLote(List<VacinaRequest> requests){
+        if (requests == null || requests.isEmpty() || requests.size() > TAMANHO_MAXIMO_LOTE) {
+            throw new ServiceException("O lote deve ter entre 1 e " + TAMANHO_MAXIMO_LOTE + " vacinas.");
+        }
+        var resultados = new ItemLoteResponse[requests.size()];
+        var validas = new LinkedHashMap<Integer, VacinaRequest>();
+        var emails = new HashSet<String>();
+        for (int i = 0; i < requests.size(); i++) {
+            var request = requests.get(i);
+            var violacoes = request == null ? null : validator.validate(request);
+            if (request == null) {
+                resultados[i] = ItemLoteResponse.falha(i, "Item vazio.");
+            } else if (!violacoes.isEmpty()) {
+                resultados[i] = ItemLoteResponse.falha(i, descrever(violacoes));
+            } else {
+                validas.put(i, request);
+                emails.add(request.getEmail().toLowerCase(Locale.ROOT));
+            }
+        }
+
+        //existência confirmada sempre no banco: o filtro de Bloom é local ao nó e não vê cadastros de outros nós
+        var usuariosPorEmail = new HashMap<String, Usuario>();
+        if (!emails.isEmpty()) {
+            for (Usuario usuario : usuarioRepository.findByEmailIn(emails)) {
+                usuariosPorEmail.put(usuario.getEmail().toLowerCase(Locale.ROOT), usuario);
+            }
+        }
+
+        var hoje = LocalDate.now();
+        var indices = new ArrayList<Integer>(validas.size());
+        var vacinas = new ArrayList<Vacina>(validas.size());
+        validas.forEach((indice, request) -> {
+            var usuario = usuariosPorEmail.get(request.getEmail().toLowerCase(Locale.ROOT));
+            if (usuario == null) {
+                resultados[indice] = ItemLoteResponse.falha(indice, "Email inválido. Nenhum usuário resgistrado com esse email.");
+                return;
+            }
+            indices.add(indice);
+            vacinas.add(new Vacina(null, request.getNome(), usuario, hoje, null));
+        });
+
+        usuarioService.registrarAlteracaoDasVacinas(vacinas.stream().map(vacina -> vacina.getUsuario().getId()).collect(Collectors.toSet()));
+        var salvas = vacinaRepository.saveAll(vacinas);
+        estatisticaVacinaService.registrarAplicacoes(salvas);
+        for (int i = 0; i < salvas.size(); i++) {
+            resultados[indices.get(i)] = ItemLoteResponse.sucesso(indices.get(i), salvas.get(i).getId());
+        }
+        return new LoteResponse(salvas.size(), requests.size() - salvas.size(), Arrays.asList(resultados));
+    }
+
+    //sempre no primário: o resultado vai para o cache de respostas
+    public VacinaResponse buscarPorId(Long id){
+       return ContextoLeitura.noPrimario(() -> vacinaRepository.buscarResponsePorId(id)
+               .orElseThrow(()-> new NotFoundException("Vacina não encontrada.")));
     }
 
-    public Vacina buscarPorId(Long id){
-       return vacinaRepository.findById(id).orElseThrow(()-> new NotFoundException("Vacina não encontrada."));
+    //valida já; a busca em blocos roda depois, enquanto a resposta é escrita
+    public BuscaEmBlocos<VacinaResponse> buscarPorIds(List<Long> ids){
+        if (ids == null || ids.isEmpty() || ids.size() > TAMANHO_MAXIMO_IDS) {
+            throw new ServiceException("Informe de 1 a " + TAMANHO_MAXIMO_IDS + " ids.");
+        }
+        return new BuscaEmBlocos<>(ids, TAMANHO_BLOCO_IDS, vacinaRepository::buscarResponsesPorIds, VacinaResponse::getId);
     }
 
+    @Transactional
     public Vacina atualizar(Long id, Vacina vacina){
         var vacinaNoBanco = check(id);
         vacina.setId(vacinaNoBanco.getId());
         vacina.setUsuario(vacinaNoBanco.getUsuario());
         vacina.setDataAplicacao(vacinaNoBanco.getDataAplicacao());
-        return vacinaRepository.save(vacina);
+        //sem a versão o Spring Data trataria a vacina como nova
+        vacina.setVersao(vacinaNoBanco.getVersao());
+        //o nome é lido antes do save, que copia o estado novo sobre a entidade gerenciada
+        var nomeAnterior = vacinaNoBanco.getNome();
+        usuarioService.registrarAlteracaoDasVacinas(List.of(vacinaNoBanco.getUsuario().getId()));
+        var atualizada = vacinaRepository.save(vacina);
+        cacheRespostas.invalidarVacina(id);
+        estatisticaVacinaService.registrarRenomeacao(nomeAnterior, atualizada.getNome(), vacinaNoBanco.getDataAplicacao());
+        return atualizada;
+    }
+
+    //PATCH: um único UPDATE; a contagem de linhas decide o 404
+    @Transactional
+    public void atualizarNome(Long id, String nome){
+        usuarioService.registrarAlteracaoDasVacinas(vacinaRepository.buscarIdsDosUsuarios(List.of(id)));
+        //o nome anterior é o que sai das estatísticas
+        var anteriores = vacinaRepository.travarContagemPorIds(List.of(id));
+        if (vacinaRepository.atualizarNome(id, nome) == 0) {
+            throw new NotFoundException("Vacina não encontrada.");
+        }
+        cacheRespostas.invalidarVacina(id);
+        anteriores.forEach(anterior -> estatisticaVacinaService.registrarRenomeacao(anterior.getNome(), nome, anterior.getDataAplicacao()));
     }
 
+    @Transactional
     public void deletar(Long id){
-        check(id);
-        vacinaRepository.deleteById(id);
+        usuarioService.registrarAlteracaoDasVacinas(vacinaRepository.buscarIdsDosUsuarios(List.of(id)));
+        var removidas = vacinaRepository.travarContagemPorIds(List.of(id));
+        if (vacinaRepository.deletarPorId(id) == 0) {
+            throw new NotFoundException("Vacina não encontrada.");
+        }
+        cacheRespostas.invalidarVacina(id);
+        estatisticaVacinaService.registrarRemocoes(removidas);
+    }
+
+    //um único DELETE ... IN para o lote; 404 só quando nenhum id existia
+    @Transactional
+    public int deletar(Collection<Long> ids){
+        var distintos = new HashSet<>(ids);
+        if (distintos.isEmpty() || distintos.size() > TAMANHO_MAXIMO_LOTE) {
+            throw new ServiceException("Informe de 1 a " + TAMANHO_MAXIMO_LOTE + " ids.");
+        }
+        usuarioService.registrarAlteracaoDasVacinas(vacinaRepository.buscarIdsDosUsuarios(distintos));
+        var contagens = vacinaRepository.travarContagemPorIds(distintos);
+        var removidas = vacinaRepository.deletarPorIds(distintos);
+        if (removidas == 0) {
+            throw new NotFoundException("Nenhuma vacina encontrada.");
+        }
+        distintos.forEach(cacheRespostas::invalidarVacina);
+        estatisticaVacinaService.registrarRemocoes(contagens);
+        return removidas;
+    }
+
+    private String descrever(Set<ConstraintViolation<VacinaRequest>> violacoes){
+        return violacoes.stream()
+                .map(violacao -> violacao.getPropertyPath() + ": " + violacao.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
     }
 
     private Vacina check(Long id){
@@ -0,0 +1,21 @@
+-- mesmo esquema da pasta mysql, como o ddl-auto: update o criava no H2
+create table usuarios (
+    id bigint generated by default as identity,
+    cpf varchar(255) not null,
+    data_nascimento date not null,
+    email varchar(255) not null,
+    nome varchar(255) not null,
+    primary key (id)
+);
+
+create table vacinas (
+    id bigint generated by default as identity,
+    data_aplicacao date not null,
+    nome varchar(255) not null,
+    usuario_id bigint not null,
+    primary key (id)
+);
+
+alter table usuarios add constraint UK_2et2smpfrtsohr7w9fe1v8a5e unique (cpf);
+alter table usuarios add constraint UK_kfsp0s1tflm1cwlj8idhqsad0 unique (email);
+alter table vacinas add constraint FKiwm9r11umphoiy2uq8ijaph86 foreign key (usuario_id) references usuarios (id);
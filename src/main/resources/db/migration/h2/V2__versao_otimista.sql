@@ -0,0 +1,3 @@
+-- mesmas colunas @Version da pasta mysql
+alter table usuarios add column versao bigint not null default 0;
+alter table vacinas add column versao bigint not null default 0;
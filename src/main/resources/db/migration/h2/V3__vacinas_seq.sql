@@ -0,0 +1,7 @@
+-- mesma troca da pasta mysql, com a sequence nativa do H2
+alter table vacinas alter column id bigint not null;
+
+create sequence vacinas_seq start with 50 increment by 50;
+
+-- o primeiro bloco reservado termina no valor inicial, então começa logo depois do maior id existente
+alter sequence vacinas_seq restart with (select coalesce(max(id), 0) + 50 from vacinas);
@@ -0,0 +1,20 @@
+-- mesmas tabelas da pasta mysql
+create table importacoes (
+    id bigint generated by default as identity,
+    status varchar(20) not null,
+    linhas_confirmadas bigint not null,
+    importados bigint not null,
+    rejeitados bigint not null,
+    atualizada_em timestamp not null,
+    primary key (id)
+);
+
+create table importacao_erros (
+    id bigint generated by default as identity,
+    importacao_id bigint not null,
+    linha bigint not null,
+    mensagem varchar(500) not null,
+    primary key (id)
+);
+
+create index idx_importacao_erros_importacao_linha on importacao_erros (importacao_id, linha);
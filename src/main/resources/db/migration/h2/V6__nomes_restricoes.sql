@@ -0,0 +1,10 @@
+-- mesmos nomes da pasta mysql; no H2 o banco sempre nasce da V1, então os nomes antigos são os dela.
+-- recriadas em vez de renomeadas: o rename do H2 não muda o nome do índice, que é o que aparece nos erros
+alter table usuarios drop constraint UK_kfsp0s1tflm1cwlj8idhqsad0;
+alter table usuarios add constraint uk_usuarios_email unique (email);
+
+alter table usuarios drop constraint UK_2et2smpfrtsohr7w9fe1v8a5e;
+alter table usuarios add constraint uk_usuarios_cpf unique (cpf);
+
+alter table vacinas drop constraint FKiwm9r11umphoiy2uq8ijaph86;
+alter table vacinas add constraint fk_vacinas_usuario foreign key (usuario_id) references usuarios (id);
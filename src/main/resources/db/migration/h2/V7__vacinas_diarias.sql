@@ -0,0 +1,10 @@
+-- doses por dia e nome, mantida por upsert junto de cada gravação em vacinas
+create table vacinas_diarias (
+    data_aplicacao date not null,
+    nome varchar(255) not null,
+    quantidade bigint not null,
+    primary key (data_aplicacao, nome)
+);
+
+-- cobre o GROUP BY da reconstrução por fatia de datas e o filtro só por datas sem ler a tabela
+create index idx_vacinas_data_nome on vacinas (data_aplicacao, nome);
@@ -0,0 +1,11 @@
+-- mesma tabela da pasta mysql
+create table ingestoes (
+    id varchar(36) not null,
+    situacao varchar(10) not null,
+    vacina_id bigint,
+    mensagem varchar(255),
+    concluida_em timestamp not null,
+    primary key (id)
+);
+
+create index idx_ingestoes_concluida_em on ingestoes (concluida_em);
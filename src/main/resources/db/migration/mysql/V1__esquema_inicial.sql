@@ -0,0 +1,23 @@
+-- esquema exatamente como o antigo ddl-auto: update o criava (nomes de restrição gerados pelo Hibernate).
+-- bancos existentes entram com baseline nesta versão; tudo que veio depois fica nas versões seguintes
+
+create table usuarios (
+    id bigint not null auto_increment,
+    cpf varchar(255) not null,
+    data_nascimento date not null,
+    email varchar(255) not null,
+    nome varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table vacinas (
+    id bigint not null auto_increment,
+    data_aplicacao date not null,
+    nome varchar(255) not null,
+    usuario_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table usuarios add constraint UK_2et2smpfrtsohr7w9fe1v8a5e unique (cpf);
+alter table usuarios add constraint UK_kfsp0s1tflm1cwlj8idhqsad0 unique (email);
+alter table vacinas add constraint FKiwm9r11umphoiy2uq8ijaph86 foreign key (usuario_id) references usuarios (id);
@@ -0,0 +1,3 @@
+-- colunas @Version; linhas já gravadas começam na versão 0
+alter table usuarios add column versao bigint not null default 0;
+alter table vacinas add column versao bigint not null default 0;
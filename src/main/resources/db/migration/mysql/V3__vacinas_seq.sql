@@ -0,0 +1,9 @@
+-- vacinas passa de auto_increment para o gerador pooled (de 50 em 50), emulado em tabela pelo Hibernate no MySQL
+alter table vacinas modify id bigint not null;
+
+create table vacinas_seq (
+    next_val bigint
+) engine=InnoDB;
+
+-- o primeiro bloco reservado termina em next_val, então começa logo depois do maior id existente
+insert into vacinas_seq (next_val) select coalesce(max(id), 0) + 50 from vacinas;
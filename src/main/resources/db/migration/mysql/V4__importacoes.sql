@@ -0,0 +1,20 @@
+-- acompanhamento das importações de usuários e erros por linha
+create table importacoes (
+    id bigint not null auto_increment,
+    status varchar(20) not null,
+    linhas_confirmadas bigint not null,
+    importados bigint not null,
+    rejeitados bigint not null,
+    atualizada_em datetime(6) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table importacao_erros (
+    id bigint not null auto_increment,
+    importacao_id bigint not null,
+    linha bigint not null,
+    mensagem varchar(500) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_importacao_erros_importacao_linha on importacao_erros (importacao_id, linha);
@@ -0,0 +1,8 @@
+-- vacinas de um usuário por período; também serve à chave estrangeira usuario_id (V6)
+create index idx_vacinas_usuario_data on vacinas (usuario_id, data_aplicacao);
+
+-- vacinas por nome dentro de um período
+create index idx_vacinas_nome_data on vacinas (nome, data_aplicacao);
+
+-- usuários por faixa de data de nascimento
+create index idx_usuarios_data_nascimento on usuarios (data_nascimento);
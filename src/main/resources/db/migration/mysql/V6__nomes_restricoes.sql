@@ -0,0 +1,49 @@
+-- troca os nomes gerados pelo Hibernate pelos nomes fixos que o tratamento de erros reconhece.
+-- os nomes atuais são lidos do information_schema pela coluna, então vale para qualquer banco criado pelo ddl-auto
+
+set @uk_email = (select s.index_name from information_schema.statistics s
+                 where s.table_schema = database() and s.table_name = 'usuarios' and s.non_unique = 0
+                   and s.index_name <> 'PRIMARY'
+                 group by s.index_name
+                 having count(*) = 1 and max(s.column_name) = 'email');
+set @sql = if(@uk_email is null,
+              'alter table usuarios add constraint uk_usuarios_email unique (email)',
+              concat('alter table usuarios drop index `', @uk_email, '`, add constraint uk_usuarios_email unique (email)'));
+prepare renomear from @sql;
+execute renomear;
+deallocate prepare renomear;
+
+set @uk_cpf = (select s.index_name from information_schema.statistics s
+               where s.table_schema = database() and s.table_name = 'usuarios' and s.non_unique = 0
+                 and s.index_name <> 'PRIMARY'
+               group by s.index_name
+               having count(*) = 1 and max(s.column_name) = 'cpf');
+set @sql = if(@uk_cpf is null,
+              'alter table usuarios add constraint uk_usuarios_cpf unique (cpf)',
+              concat('alter table usuarios drop index `', @uk_cpf, '`, add constraint uk_usuarios_cpf unique (cpf)'));
+prepare renomear from @sql;
+execute renomear;
+deallocate prepare renomear;
+
+-- a chave estrangeira não tem rename: sai a antiga e entra a nova, apoiada em idx_vacinas_usuario_data (V5)
+set @fk_usuario = (select k.constraint_name from information_schema.key_column_usage k
+                   where k.table_schema = database() and k.table_name = 'vacinas'
+                     and k.column_name = 'usuario_id' and k.referenced_table_name = 'usuarios'
+                   limit 1);
+set @sql = if(@fk_usuario is null, 'do 0', concat('alter table vacinas drop foreign key `', @fk_usuario, '`'));
+prepare renomear from @sql;
+execute renomear;
+deallocate prepare renomear;
+
+-- o MySQL deixa para trás o índice que criou para a chave antiga; idx_vacinas_usuario_data já cobre usuario_id
+set @idx_fk = (select s.index_name from information_schema.statistics s
+               where s.table_schema = database() and s.table_name = 'vacinas'
+                 and s.index_name not in ('PRIMARY', 'idx_vacinas_usuario_data')
+               group by s.index_name
+               having count(*) = 1 and max(s.column_name) = 'usuario_id');
+set @sql = if(@idx_fk is null, 'do 0', concat('alter table vacinas drop index `', @idx_fk, '`'));
+prepare renomear from @sql;
+execute renomear;
+deallocate prepare renomear;
+
+alter table vacinas add constraint fk_vacinas_usuario foreign key (usuario_id) references usuarios (id);
@@ -0,0 +1,12 @@
+-- resultado das vacinas recebidas no modo assíncrono, consultável em qualquer nó
+create table ingestoes (
+    id varchar(36) not null,
+    situacao varchar(10) not null,
+    vacina_id bigint,
+    mensagem varchar(255),
+    concluida_em datetime(6) not null,
+    primary key (id)
+) engine=InnoDB;
+
+-- limpeza periódica das antigas
+create index idx_ingestoes_concluida_em on ingestoes (concluida_em);
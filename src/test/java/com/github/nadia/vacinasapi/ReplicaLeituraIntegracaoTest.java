@@ -0,0 +1,134 @@
+package com.github.nadia.vacinasapi;
+
+import com.github.nadia.vacinasapi.core.replica.DataSourceRoteado;
+import com.github.nadia.vacinasapi.core.replica.LeituraAposEscritaFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//dois H2 em memória fazem o papel do primário e da réplica; nada replica entre eles, então cada leitura mostra de onde veio
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica_teste_primario;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "vacinas-api.replicas.habilitada=true",
+        "vacinas-api.replicas.urls=jdbc:h2:mem:replica_teste_replica;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "vacinas-api.replicas.leitura-apos-escrita=PT1M"
+})
+@AutoConfigureMockMvc
+public class ReplicaLeituraIntegracaoTest {
+
+    private static final String USUARIO_API_URL_PATH = "/api/v1/usuarios";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSourceRoteado dataSourceRoteado;
+
+    @Autowired
+    private HikariDataSource dataSourcePrimario;
+
+    @BeforeEach
+    void setUp() {
+        //Condições iniciais: a réplica recebe o esquema e um usuário que o primário não tem
+        DataSource replica = dataSourceRoteado.getReplicas().get(0).getDataSource();
+        Flyway.configure().dataSource(replica).locations("classpath:db/migration/h2").load().migrate();
+        var jdbcReplica = new JdbcTemplate(replica);
+        jdbcReplica.update("delete from usuarios");
+        jdbcReplica.update("insert into usuarios (nome, cpf, email, data_nascimento, versao) "
+                + "values ('Somente Replica', '111.444.777-35', 'replica@teste.com.br', '1990-10-10', 0)");
+        new JdbcTemplate(dataSourcePrimario).update("delete from usuarios");
+    }
+
+    @Test
+    void whenAClientReadsTheList_thenItComesFromTheReplica() throws Exception {
+        //Realizando o teste
+        mockMvc.perform(get(USUARIO_API_URL_PATH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens", hasSize(1)))
+                .andExpect(jsonPath("$.itens[0].nome", is("Somente Replica")));
+    }
+
+    @Test
+    void whenAClientWrites_thenOnlyThatClientReadsFromThePrimaryForAWhile() throws Exception {
+        //Realizando o teste: a escrita devolve o instante dela, que o cliente reenvia por cookie ou cabeçalho
+        var escrita = mockMvc.perform(post(USUARIO_API_URL_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nome\":\"Recem Cadastrada\",\"cpf\":\"529.982.247-25\","
+                                + "\"email\":\"recem@teste.com.br\",\"dataNascimento\":\"1990-10-10\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().exists(LeituraAposEscritaFilter.COOKIE_ESCRITA))
+                .andReturn().getResponse();
+
+        mockMvc.perform(get(USUARIO_API_URL_PATH).cookie(escrita.getCookie(LeituraAposEscritaFilter.COOKIE_ESCRITA)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens", hasSize(1)))
+                .andExpect(jsonPath("$.itens[0].nome", is("Recem Cadastrada")));
+        mockMvc.perform(get(USUARIO_API_URL_PATH)
+                        .header(LeituraAposEscritaFilter.CABECALHO_ESCRITA, escrita.getHeader(LeituraAposEscritaFilter.CABECALHO_ESCRITA)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens[0].nome", is("Recem Cadastrada")));
+        mockMvc.perform(get(USUARIO_API_URL_PATH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens[0].nome", is("Somente Replica")));
+    }
+
+    @Test
+    void whenTheWriteTokenIsOlderThanTheWindow_thenTheReplicaIsUsedAgain() throws Exception {
+        //Realizando o teste: o instante vem do cliente, então também vale o que outro nó emitiu
+        var antiga = String.valueOf(System.currentTimeMillis() - Duration.ofMinutes(2).toMillis());
+        mockMvc.perform(get(USUARIO_API_URL_PATH).header(LeituraAposEscritaFilter.CABECALHO_ESCRITA, antiga))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens[0].nome", is("Somente Replica")));
+    }
+
+    @Test
+    void whenAUsuarioIsReadById_thenThePrimaryIsUsed() throws Exception {
+        //Condições iniciais: o id só existe no primário
+        var resposta = mockMvc.perform(post(USUARIO_API_URL_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nome\":\"Por Id\",\"cpf\":\"103.966.960-31\","
+                                + "\"email\":\"porid@teste.com.br\",\"dataNascimento\":\"1990-10-10\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        var id = resposta.replaceAll(".*\"id\":(\\d+).*", "$1");
+
+        //Realizando o teste: a busca por id alimenta o cache de respostas e não pode vir de uma réplica atrasada
+        mockMvc.perform(get(USUARIO_API_URL_PATH + "/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nome", is("Por Id")));
+    }
+
+    @Test
+    void whenIfNoneMatchIsChecked_thenTheVersionComesFromThePrimary() throws Exception {
+        //Condições iniciais: a réplica ainda não recebeu a alteração que levou o usuário à versão 1
+        new JdbcTemplate(dataSourcePrimario).update("insert into usuarios (id, nome, cpf, email, data_nascimento, versao) "
+                + "values (900, 'Alterada', '103.966.960-31', 'versao@teste.com.br', '1990-10-10', 1)");
+        new JdbcTemplate(dataSourceRoteado.getReplicas().get(0).getDataSource()).update(
+                "insert into usuarios (id, nome, cpf, email, data_nascimento, versao) "
+                        + "values (900, 'Original', '103.966.960-31', 'versao@teste.com.br', '1990-10-10', 0)");
+
+        //Realizando o teste: o ETag da versão 0 não pode receber 304
+        mockMvc.perform(get(USUARIO_API_URL_PATH + "/900").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nome", is("Alterada")));
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.nadia.vacinasapi.benchmark;
+
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.entity.Vacina;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import com.github.nadia.vacinasapi.domain.service.GravacaoAgrupadaVacinaService;
+import com.github.nadia.vacinasapi.domain.service.VacinaService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//comparação do POST síncrono direto com o group commit: mvn test -Dtest=GravacaoAgrupadaBenchmarkTest -Dbenchmark=true
+//o H2 em memória não faz fsync, então o ganho medido aqui é só o de transações e idas ao banco; no MySQL é maior
+@SpringBootTest(properties = "vacinas-api.gravacao-agrupada.habilitada=true")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class GravacaoAgrupadaBenchmarkTest {
+
+    private static final int THREADS = 64;
+    private static final int VACINAS_POR_THREAD = 200;
+
+    @Autowired
+    private VacinaService vacinaService;
+
+    @Autowired
+    private GravacaoAgrupadaVacinaService gravacaoAgrupadaVacinaService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void whenManyClientsPostConcurrently_thenGroupCommitNeedsFarFewerCommits() throws Exception {
+        //Condições iniciais
+        var usuario = usuarioRepository.save(new Usuario(null, "Benchmark", "529.982.247-25", "benchmark@teste.com.br",
+                LocalDate.parse("1990-10-10"), null, new ArrayList<>()));
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        //aquecimento dos dois caminhos
+        medir("aquecimento", usuario, vacinaService::salvar, statistics);
+        medir("aquecimento", usuario, gravacaoAgrupadaVacinaService::salvar, statistics);
+
+        //Realizando o teste
+        var direto = medir("direto", usuario, vacinaService::salvar, statistics);
+        var agrupado = medir("agrupado", usuario, gravacaoAgrupadaVacinaService::salvar, statistics);
+
+        assertTrue(agrupado < direto / 4, "commits: direto=" + direto + " agrupado=" + agrupado);
+    }
+
+    private long medir(String nome, Usuario usuario, Function<Vacina, Vacina> salvar, Statistics statistics) throws Exception {
+        statistics.clear();
+        var executor = Executors.newFixedThreadPool(THREADS);
+        var largada = new CountDownLatch(1);
+        var latencias = new long[THREADS * VACINAS_POR_THREAD];
+        var tarefas = new ArrayList<CompletableFuture<Void>>();
+        for (int t = 0; t < THREADS; t++) {
+            var inicio = t * VACINAS_POR_THREAD;
+            tarefas.add(CompletableFuture.runAsync(() -> {
+                try {
+                    largada.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < VACINAS_POR_THREAD; i++) {
+                    var antes = System.nanoTime();
+                    salvar.apply(new Vacina(null, "CoronaVac", usuario, null, null));
+                    latencias[inicio + i] = System.nanoTime() - antes;
+                }
+            }, executor));
+        }
+        var antes = System.nanoTime();
+        largada.countDown();
+        CompletableFuture.allOf(tarefas.toArray(new CompletableFuture[0])).get(5, TimeUnit.MINUTES);
+        var segundos = (System.nanoTime() - antes) / 1e9;
+        executor.shutdown();
+
+        Arrays.sort(latencias);
+        var commits = statistics.getSuccessfulTransactionCount();
+        System.out.printf("%s: %d vacinas em %.2fs, %d commits (%.0f/s), %.0f vacinas/s, p50 %.2fms, p99 %.2fms%n",
+                nome, latencias.length, segundos, commits, commits / segundos, latencias.length / segundos,
+                latencias[latencias.length / 2] / 1e6, latencias[(int) (latencias.length * 0.99)] / 1e6);
+        return commits;
+    }
+}
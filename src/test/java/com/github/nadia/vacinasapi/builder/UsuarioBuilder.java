@@ -30,10 +30,13 @@ public class UsuarioBuilder {
     @Builder.Default
     private LocalDate dataNascimento = LocalDate.parse("1990-10-10");
 
+    @Builder.Default
+    private Long versao = 0L;
+
     @Builder.Default
     private List<Vacina> vacinas = new ArrayList<>();
 
     public Usuario toUsuario(){
-        return new Usuario(id,nome,cpf,email,dataNascimento,vacinas);
+        return new Usuario(id,nome,cpf,email,dataNascimento,versao,vacinas);
     }
 }
@@ -22,8 +22,11 @@ public class VacinaBuilder {
     @Builder.Default
     private LocalDate dataAplicacao = LocalDate.now();
 
+    @Builder.Default
+    private Long versao = 0L;
+
     public Vacina toVacina(){
-        var vacinne = new Vacina(id,nome,usuario,dataAplicacao);
+        var vacinne = new Vacina(id,nome,usuario,dataAplicacao,versao);
         vacinne.getUsuario().getVacinas().add(vacinne);
         return vacinne;
     }
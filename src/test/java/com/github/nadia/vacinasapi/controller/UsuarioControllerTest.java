@@ -4,44 +4,78 @@ import com.github.nadia.vacinasapi.api.DTO.request.UsuarioRequest;
 import com.github.nadia.vacinasapi.api.DTO.request.UsuarioUpdateRequest;
 import com.github.nadia.vacinasapi.api.DTO.request.VacinaRequest;
 import com.github.nadia.vacinasapi.api.DTO.request.VacinaUpdateRequest;
+import com.github.nadia.vacinasapi.api.DTO.response.ImportacaoResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.PaginaResponse;
 import com.github.nadia.vacinasapi.api.DTO.response.UsuarioResponse;
 import com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse;
 import com.github.nadia.vacinasapi.api.controller.UsuarioController;
 import com.github.nadia.vacinasapi.api.controller.VacinaController;
+import com.github.nadia.vacinasapi.api.exceptionHandler.ApiExceptionHandler;
 import com.github.nadia.vacinasapi.builder.*;
+import com.github.nadia.vacinasapi.core.cache.CacheRespostas;
+import com.github.nadia.vacinasapi.core.lote.BuscaEmBlocos;
+import com.github.nadia.vacinasapi.core.mapper.ImportacaoMapper;
 import com.github.nadia.vacinasapi.core.mapper.UsuarioMapper;
 import com.github.nadia.vacinasapi.core.mapper.VacinaMapper;
+import com.github.nadia.vacinasapi.core.pagination.Cursor;
+import com.github.nadia.vacinasapi.core.pagination.CursorDataId;
+import com.github.nadia.vacinasapi.domain.entity.Importacao;
+import com.github.nadia.vacinasapi.domain.entity.ImportacaoErro;
+import com.github.nadia.vacinasapi.domain.entity.StatusImportacao;
 import com.github.nadia.vacinasapi.domain.entity.Usuario;
 import com.github.nadia.vacinasapi.domain.entity.Vacina;
 import com.github.nadia.vacinasapi.domain.exception.NotFoundException;
+import com.github.nadia.vacinasapi.domain.exception.PreconditionFailedException;
 import com.github.nadia.vacinasapi.domain.exception.ServiceException;
+import com.github.nadia.vacinasapi.domain.service.ImportacaoUsuarioService;
 import com.github.nadia.vacinasapi.domain.service.UsuarioService;
 import com.github.nadia.vacinasapi.domain.service.VacinaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.servlet.view.json.MappingJackson2JsonView;
 
+import java.io.InputStream;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static com.github.nadia.vacinasapi.utils.JsonConvertionUtils.asJsonString;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -66,11 +100,31 @@ public class UsuarioControllerTest {
     @Mock
     private VacinaMapper vacinaMapper;
 
+    @Mock
+    private ImportacaoUsuarioService importacaoUsuarioService;
+
+    @Mock
+    private ImportacaoMapper importacaoMapper;
+
+    @Mock
+    private CacheRespostas cacheRespostas;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
     @InjectMocks
     private UsuarioController usuarioController;
 
     @BeforeEach
     void setUp() {
+        //o cache apenas repassa para a carga, sem guardar nada
+        when(cacheRespostas.usuario(any(), any())).thenAnswer(invocation ->
+                invocation.<Supplier<CacheRespostas.Resposta>>getArgument(1).get());
+        when(cacheRespostas.versaoUsuario(any())).thenReturn(null);
+        when(usuarioService.buscarVersaoVacinas(any())).thenReturn(1L);
+        //a leitura combinada delega para buscarVersaoVacinas e listarVacinas, configurados em cada teste
+        when(usuarioService.listarVacinasSeModificadas(any(), any(), any(), any(), anyInt(), any())).thenCallRealMethod();
         mockMvc = MockMvcBuilders.standaloneSetup(usuarioController)
                 .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
                 .setViewResolvers((s, locale) -> new MappingJackson2JsonView())
@@ -82,19 +136,70 @@ public class UsuarioControllerTest {
         Usuario usuario = UsuarioBuilder.builder().build().toUsuario();
         UsuarioResponse usuarioResponse = UsuarioResponseBuilder.builder().build().toUsuarioResponse();
 
+        Slice<Usuario> pagina = new SliceImpl<>(Collections.singletonList(usuario));
+        var paginaResponse = new PaginaResponse<>(Collections.singletonList(usuarioResponse), Cursor.codificarId(usuarioResponse.getId()));
+
         //Estabelecendo comportamento dos Mocks
-        when(usuarioService.buscarTodos()).thenReturn(Collections.singletonList(usuario));
-        when(usuarioMapper.toUsuarioResponseList(Collections.singletonList(usuario))).thenReturn(Collections.singletonList(usuarioResponse));
+        when(usuarioService.buscarTodos(0L, 50)).thenReturn(pagina);
+        when(usuarioMapper.toUsuarioResponsePagina(pagina)).thenReturn(paginaResponse);
 
         //Realizando o teste via MockMVC
 
         mockMvc.perform(get(USUARIO_API_URL_PATH).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens[0].id", is((usuarioResponse.getId().intValue()))))
+                .andExpect(jsonPath("$.itens[0].nome", is(usuarioResponse.getNome())))
+                .andExpect(jsonPath("$.itens[0].email", is(usuarioResponse.getEmail())))
+                .andExpect(jsonPath("$.itens[0].cpf", is(usuarioResponse.getCpf())))
+                .andExpect(jsonPath("$.itens[0].dataNascimento", is(parse(usuarioResponse.getDataNascimento()))))
+                .andExpect(jsonPath("$.proximoCursor", is(paginaResponse.getProximoCursor())));
+    }
+
+    @Test
+    void whenGETListUsuariosIsCalledWithInvalidCursor_ThenAnErrorIsReturned() throws Exception {
+        //Realizando o teste via MockMVC
+        mockMvc.perform(get(USUARIO_API_URL_PATH).param("after", "%%%").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenGETUsuariosWithIdsIsCalled_ThenFoundUsuariosAndMissingIdsAreStreamed() throws Exception {
+        //Configurações iniciais
+        Usuario usuario = UsuarioBuilder.builder().build().toUsuario();
+        UsuarioResponse usuarioResponse = UsuarioResponseBuilder.builder().build().toUsuarioResponse();
+        var busca = new BuscaEmBlocos<Usuario>(List.of(usuario.getId(), INVALID_ID), 500, ids -> List.of(usuario), Usuario::getId);
+
+        //Estabelecendo comportamento dos Mocks
+        when(usuarioService.buscarPorIds(List.of(usuario.getId(), INVALID_ID))).thenReturn(busca);
+        when(usuarioMapper.toUsuarioResponse(usuario)).thenReturn(usuarioResponse);
+
+        //Realizando o teste via MockMVC
+        var resultado = mockMvc.perform(get(USUARIO_API_URL_PATH).param("ids", usuario.getId() + "," + INVALID_ID))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens[0].id", is((usuarioResponse.getId().intValue()))))
+                .andExpect(jsonPath("$.itens[0].email", is(usuarioResponse.getEmail())))
+                .andExpect(jsonPath("$.ausentes[0]", is(INVALID_ID.intValue())));
+        verify(usuarioService, never()).buscarTodos(any(), anyInt());
+    }
+
+    @Test
+    void whenGETBuscaIsCalled_ThenTheRankedUsuariosAreReturned() throws Exception {
+        //Configurações iniciais
+        Usuario usuario = UsuarioBuilder.builder().build().toUsuario();
+        UsuarioResponse usuarioResponse = UsuarioResponseBuilder.builder().build().toUsuarioResponse();
+
+        //Estabelecendo comportamento dos Mocks
+        when(usuarioService.buscar("mari", 5)).thenReturn(Collections.singletonList(usuario));
+        when(usuarioMapper.toUsuarioResponseList(Collections.singletonList(usuario))).thenReturn(Collections.singletonList(usuarioResponse));
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(get(USUARIO_API_URL_PATH + "/busca").param("q", "mari").param("limit", "5").contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].id", is((usuarioResponse.getId().intValue()))))
-                .andExpect(jsonPath("$[0].nome", is(usuarioResponse.getNome())))
-                .andExpect(jsonPath("$[0].email", is(usuarioResponse.getEmail())))
-                .andExpect(jsonPath("$[0].cpf", is(usuarioResponse.getCpf())))
-                .andExpect(jsonPath("$[0].dataNascimento", is(parse(usuarioResponse.getDataNascimento()))));
+                .andExpect(jsonPath("$[0].nome", is(usuarioResponse.getNome())));
     }
 
     @Test
@@ -114,7 +219,40 @@ public class UsuarioControllerTest {
                 .andExpect(jsonPath("$.nome", is(usuarioResponse.getNome())))
                 .andExpect(jsonPath("$.email", is(usuarioResponse.getEmail())))
                 .andExpect(jsonPath("$.cpf", is(usuarioResponse.getCpf())))
-                .andExpect(jsonPath("$.dataNascimento", is(parse(usuarioResponse.getDataNascimento()))));
+                .andExpect(jsonPath("$.dataNascimento", is(usuarioResponse.getDataNascimento().toString())))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+    }
+
+    @Test
+    void whenGETUsuarioWithCurrentETagIsCalled_ThenNotModifiedIsReturnedWithoutLoadingIt() throws Exception {
+        //Estabelecendo comportamento dos Mocks
+        when(usuarioService.buscarVersao(VALID_ID)).thenReturn(3L);
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(get(USUARIO_API_URL_PATH+"/"+VALID_ID.toString()).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(content().bytes(new byte[0]));
+        verify(usuarioService, never()).buscarPorId(any());
+        verify(cacheRespostas, never()).usuario(any(), any());
+    }
+
+    @Test
+    void whenGETUsuarioWithStaleETagIsCalled_ThenTheCurrentVersionIsReturned() throws Exception {
+        //Configurações iniciais
+        Usuario usuario = UsuarioBuilder.builder().versao(4L).build().toUsuario();
+        UsuarioResponse usuarioResponse = UsuarioResponseBuilder.builder().build().toUsuarioResponse();
+
+        //Estabelecendo comportamento dos Mocks
+        when(usuarioService.buscarVersao(VALID_ID)).thenReturn(4L);
+        when(usuarioService.buscarPorId(VALID_ID)).thenReturn(usuario);
+        when(usuarioMapper.toUsuarioResponse(usuario)).thenReturn(usuarioResponse);
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(get(USUARIO_API_URL_PATH+"/"+VALID_ID.toString()).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("$.id", is((usuarioResponse.getId().intValue()))));
     }
 
     @Test
@@ -189,6 +327,73 @@ public class UsuarioControllerTest {
     }
 
 
+    @Test
+    void whenPOSTUsuarioViolatesAForeignKey_ThenInvalidDataIsReturned() throws Exception {
+        //Configurações iniciais
+        Usuario usuario = UsuarioBuilder.builder().build().toUsuario();
+        UsuarioRequest usuarioRequest = UsuarioRequestBuilder.builder().build().toUsuarioRequest();
+        var mockMvcComHandler = MockMvcBuilders.standaloneSetup(usuarioController)
+                .setControllerAdvice(new ApiExceptionHandler())
+                .build();
+
+        //Estabelecendo comportamento dos Mocks
+        when(usuarioMapper.toUsuarioEntity(usuarioRequest)).thenReturn(usuario);
+        when(usuarioService.salvar(usuario)).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new SQLException("Cannot add or update a child row: a foreign key constraint fails (`vacinas_api`.`vacinas`)", "23000", 1452)));
+
+        //Realizando o teste via MockMVC: a mensagem do banco não chega ao cliente
+        mockMvcComHandler.perform(post(USUARIO_API_URL_PATH).contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(usuarioRequest)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.title", is("Dados inválidos.")));
+    }
+
+    @Test
+    void whenPOSTUsuarioViolatesAnUnknownUniqueKey_ThenAGenericConflictIsReturned() throws Exception {
+        //Configurações iniciais
+        Usuario usuario = UsuarioBuilder.builder().build().toUsuario();
+        UsuarioRequest usuarioRequest = UsuarioRequestBuilder.builder().build().toUsuarioRequest();
+        var mockMvcComHandler = MockMvcBuilders.standaloneSetup(usuarioController)
+                .setControllerAdvice(new ApiExceptionHandler())
+                .build();
+
+        //Estabelecendo comportamento dos Mocks
+        when(usuarioMapper.toUsuarioEntity(usuarioRequest)).thenReturn(usuario);
+        when(usuarioService.salvar(usuario)).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new SQLException("Duplicate entry '1' for key 'usuarios.PRIMARY'", "23000", 1062)))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new SQLException("Unique index or primary key violation: \"PUBLIC.PRIMARY_KEY_E\"", "23505", 23505)));
+
+        //Realizando o teste via MockMVC: chave duplicada do MySQL e do H2
+        for (int i = 0; i < 2; i++) {
+            mockMvcComHandler.perform(post(USUARIO_API_URL_PATH).contentType(MediaType.APPLICATION_JSON)
+                            .content(asJsonString(usuarioRequest)))
+                    .andExpect(status().isConflict())
+                    .andExpect(jsonPath("$.title", is("Operação conflita com dados já cadastrados.")));
+        }
+    }
+
+    @Test
+    void whenPOSTUsuarioViolatesAUniqueConstraint_ThenTheConstraintIsTranslated() throws Exception {
+        //Configurações iniciais
+        Usuario usuario = UsuarioBuilder.builder().build().toUsuario();
+        UsuarioRequest usuarioRequest = UsuarioRequestBuilder.builder().build().toUsuarioRequest();
+        var mockMvcComHandler = MockMvcBuilders.standaloneSetup(usuarioController)
+                .setControllerAdvice(new ApiExceptionHandler())
+                .build();
+
+        //Estabelecendo comportamento dos Mocks
+        when(usuarioMapper.toUsuarioEntity(usuarioRequest)).thenReturn(usuario);
+        when(usuarioService.salvar(usuario)).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("Duplicate entry", new SQLException(), "usuarios." + Usuario.UK_EMAIL)));
+
+        //Realizando o teste via MockMVC
+        mockMvcComHandler.perform(post(USUARIO_API_URL_PATH).contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(usuarioRequest)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.title", is("Email já cadastrado!")));
+    }
+
     @Test
     void whenPUTUsuarioWithValidIdIsCalled_ThenAUsuarioIsReturned() throws Exception {
         //Configurações iniciais
@@ -215,6 +420,94 @@ public class UsuarioControllerTest {
                 .andExpect(jsonPath("$.dataNascimento", is(parse(usuarioResponse.getDataNascimento()))));
     }
 
+    @Test
+    void whenPUTUsuarioWithIfMatchIsCalled_ThenTheConditionalUpdateIsUsed() throws Exception {
+        //Configurações iniciais
+        Usuario usuario = UsuarioBuilder.builder().versao(8L).build().toUsuario();
+        UsuarioResponse usuarioResponse = UsuarioResponseBuilder.builder().build().toUsuarioResponse();
+        UsuarioUpdateRequest usuarioUpdateRequest = UsuarioUpdateRequestBuilder.builder().build().toUsuarioUpdateRequest();
+        updateSet(usuarioUpdateRequest,usuarioResponse);
+        updateSet(usuarioUpdateRequest,usuario);
+
+        //Estabelecendo comportamento dos Mocks
+        when(usuarioMapper.toUsuarioEntity(usuarioUpdateRequest)).thenReturn(usuario);
+        when(usuarioMapper.toUsuarioResponse(usuario)).thenReturn(usuarioResponse);
+        when(usuarioService.atualizar(VALID_ID,7L,usuario)).thenReturn(usuario);
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(put(USUARIO_API_URL_PATH+"/"+VALID_ID.toString()).contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"7\"")
+                        .content(asJsonString(usuarioResponse)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"8\""));
+        verify(usuarioService, never()).atualizar(VALID_ID, usuario);
+    }
+
+    @Test
+    void whenPUTUsuarioWithStaleIfMatchIsCalled_ThenPreconditionFailedIsReturned() throws Exception {
+        //Configurações iniciais
+        Usuario usuario = UsuarioBuilder.builder().build().toUsuario();
+        UsuarioUpdateRequest usuarioUpdateRequest = UsuarioUpdateRequestBuilder.builder().build().toUsuarioUpdateRequest();
+        updateSet(usuarioUpdateRequest,usuario);
+
+        //Estabelecendo comportamento dos Mocks
+        when(usuarioMapper.toUsuarioEntity(usuarioUpdateRequest)).thenReturn(usuario);
+        doThrow(PreconditionFailedException.class).when(usuarioService).atualizar(VALID_ID,7L,usuario);
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(put(USUARIO_API_URL_PATH+"/"+VALID_ID.toString()).contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"7\"")
+                        .content(asJsonString(usuarioUpdateRequest)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void whenPATCHUsuarioIsCalled_ThenNoContentIsReturned() throws Exception {
+        //Configurações iniciais
+        Usuario usuario = new Usuario();
+        usuario.setNome("Maria");
+        UsuarioUpdateRequest usuarioUpdateRequest = new UsuarioUpdateRequest("Maria", null, null, null);
+
+        //Estabelecendo comportamento dos Mocks
+        when(usuarioMapper.toUsuarioEntity(usuarioUpdateRequest)).thenReturn(usuario);
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(patch(USUARIO_API_URL_PATH+"/"+VALID_ID.toString()).contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(usuarioUpdateRequest)))
+                .andExpect(status().isNoContent())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+        verify(usuarioService).atualizarParcial(VALID_ID, null, usuario);
+        verify(usuarioService, never()).buscarPorId(any());
+    }
+
+    @Test
+    void whenPATCHUsuarioWithIfMatchIsCalled_ThenTheNextVersionIsReturnedAsETag() throws Exception {
+        //Configurações iniciais
+        UsuarioUpdateRequest usuarioUpdateRequest = new UsuarioUpdateRequest("Maria", null, null, null);
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(patch(USUARIO_API_URL_PATH+"/"+VALID_ID.toString()).contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"7\"")
+                        .content(asJsonString(usuarioUpdateRequest)))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"8\""));
+        verify(usuarioService).atualizarParcial(eq(VALID_ID), eq(7L), any());
+    }
+
+    @Test
+    void whenPATCHInvalidUsuarioIdIsCalled_ThenNotFoundIsReturned() throws Exception {
+        //Configurações iniciais
+        UsuarioUpdateRequest usuarioUpdateRequest = new UsuarioUpdateRequest("Maria", null, null, null);
+
+        //Estabelecendo comportamento dos Mocks
+        doThrow(NotFoundException.class).when(usuarioService).atualizarParcial(eq(INVALID_ID), any(), any());
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(patch(USUARIO_API_URL_PATH+"/"+INVALID_ID.toString()).contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(usuarioUpdateRequest)))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void whenPUTInvalidUsuarioIdIsCalled_ThenAUsuarioIsReturned() throws Exception {
         //Configurações iniciais
@@ -284,43 +577,154 @@ public class UsuarioControllerTest {
     @Test
     void whenDELETECalledWithInvalidId_ThenAnErrorIsReturned() throws Exception {
         //Estabelecendo comportamento dos Mocks
-        doThrow(ServiceException.class).when(usuarioService).deletar(INVALID_ID);
+        doThrow(NotFoundException.class).when(usuarioService).deletar(INVALID_ID);
 
         //Realizando Testes
         mockMvc.perform(delete(USUARIO_API_URL_PATH+"/"+INVALID_ID.toString()).contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isBadRequest());
+                .andExpect(status().isNotFound());
     }
 
     @Test
     void whenGETUsuarioVacinaWithValidIdIsCalled_ThenAListOfVacinasIsReturned() throws Exception {
         //Estabelecendo comportamento dos Mocks
-        Vacina vacina = VacinaBuilder.builder().build().toVacina();
         VacinaResponse vacinaResponse = VacinaResponseBuilder.builder().build().toVacinaResponse();
+        Slice<VacinaResponse> pagina = new SliceImpl<>(Collections.singletonList(vacinaResponse));
+        var cursor = new CursorDataId(vacinaResponse.getDataAplicacao(), vacinaResponse.getId()).codificar();
 
         //Estabelecendo Comportamento dos Mocks
-        when(usuarioService.listarVacinas(VALID_ID)).thenReturn(Collections.singletonList(vacina));
-        when(vacinaMapper.toVacinaResponseList(Collections.singletonList(vacina))).thenReturn(Collections.singletonList(vacinaResponse));
+        when(usuarioService.listarVacinas(VALID_ID, null, null, null, 50)).thenReturn(pagina);
+        when(vacinaMapper.toVacinaResponsePaginaPorData(pagina)).thenReturn(new PaginaResponse<>(pagina.getContent(), cursor));
 
         //Realizando os testes
         mockMvc.perform(get(USUARIO_API_URL_PATH+USUARIO_VACINA+"/"+VALID_ID.toString()).contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].id", is((vacinaResponse.getId().intValue()))))
-                .andExpect(jsonPath("$[0].nome", is(vacinaResponse.getNome())))
-                .andExpect(jsonPath("$[0].email", is(vacinaResponse.getEmail())))
-                .andExpect(jsonPath("$[0].dataAplicacao", is(parse(vacinaResponse.getDataAplicacao()))));
+                .andExpect(jsonPath("$.itens[0].id", is((vacinaResponse.getId().intValue()))))
+                .andExpect(jsonPath("$.itens[0].nome", is(vacinaResponse.getNome())))
+                .andExpect(jsonPath("$.itens[0].email", is(vacinaResponse.getEmail())))
+                .andExpect(jsonPath("$.itens[0].dataAplicacao", is(parse(vacinaResponse.getDataAplicacao()))))
+                .andExpect(jsonPath("$.proximoCursor", is(cursor)))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+    }
+
+    @Test
+    void whenGETUsuarioVacinaWithCurrentETagIsCalled_ThenNotModifiedIsReturnedWithoutListing() throws Exception {
+        //Realizando os testes
+        mockMvc.perform(get(USUARIO_API_URL_PATH+USUARIO_VACINA+"/"+VALID_ID.toString()).header(HttpHeaders.IF_NONE_MATCH, "\"1\""))
+                .andExpect(status().isNotModified());
+        verify(usuarioService, never()).listarVacinas(any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void whenGETUsuarioVacinaWithStaleETagIsCalled_ThenTheListIsReturned() throws Exception {
+        //Configurações iniciais
+        Slice<VacinaResponse> pagina = new SliceImpl<>(Collections.emptyList());
+
+        //Estabelecendo Comportamento dos Mocks: uma vacina nova entrou depois do ETag do cliente
+        when(usuarioService.buscarVersaoVacinas(VALID_ID)).thenReturn(2L);
+        when(usuarioService.listarVacinas(VALID_ID, null, null, null, 50)).thenReturn(pagina);
+        when(vacinaMapper.toVacinaResponsePaginaPorData(pagina)).thenReturn(new PaginaResponse<>(Collections.emptyList(), null));
+
+        //Realizando os testes
+        mockMvc.perform(get(USUARIO_API_URL_PATH+USUARIO_VACINA+"/"+VALID_ID.toString()).header(HttpHeaders.IF_NONE_MATCH, "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+    }
+
+    @Test
+    void whenGETUsuarioVacinaWithPeriodAndCursorIsCalled_ThenTheFiltersAreForwarded() throws Exception {
+        //Configurações iniciais
+        var de = LocalDate.parse("2022-01-01");
+        var ate = LocalDate.parse("2022-12-31");
+        var apos = new CursorDataId(LocalDate.parse("2022-03-10"), 7L);
+        Slice<VacinaResponse> pagina = new SliceImpl<>(Collections.emptyList());
+
+        //Estabelecendo Comportamento dos Mocks
+        when(usuarioService.listarVacinas(VALID_ID, de, ate, apos, 20)).thenReturn(pagina);
+        when(vacinaMapper.toVacinaResponsePaginaPorData(pagina)).thenReturn(new PaginaResponse<>(Collections.emptyList(), null));
+
+        //Realizando os testes
+        mockMvc.perform(get(USUARIO_API_URL_PATH+USUARIO_VACINA+"/"+VALID_ID.toString())
+                        .param("de", "2022-01-01").param("ate", "2022-12-31")
+                        .param("after", apos.codificar()).param("limit", "20")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens", hasSize(0)));
     }
 
     @Test
     void whenGETUsuarioVacinaWithInvalidIdIsCalled_ThenAnErrorIsReturned() throws Exception {
 
         //Estabelecendo Comportamento dos Mocks
-        doThrow(ServiceException.class).when(usuarioService).listarVacinas(INVALID_ID);
+        doThrow(ServiceException.class).when(usuarioService).listarVacinas(INVALID_ID, null, null, null, 50);
 
         //Realizando os testes
         mockMvc.perform(get(USUARIO_API_URL_PATH+USUARIO_VACINA+"/"+INVALID_ID.toString()).contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void whenPOSTImportIsCalled_ThenTheImportacaoSummaryIsReturned() throws Exception {
+        //Configurações iniciais
+        var importacao = new Importacao(VALID_ID, StatusImportacao.CONCLUIDA, 2L, 1L, 1L, OffsetDateTime.now());
+        var response = new ImportacaoResponse(VALID_ID, "CONCLUIDA", 2L, 1L, 1L, USUARIO_API_URL_PATH + "/import/1/erros", importacao.getAtualizadaEm());
+        var csv = "nome,cpf,email,dataNascimento\nMaria,288.580.430-05,maria@teste.com.br,1990-10-10\n";
+
+        //Estabelecendo comportamento dos Mocks
+        when(importacaoUsuarioService.importar(any(InputStream.class), eq(null))).thenReturn(importacao);
+        when(importacaoMapper.toImportacaoResponse(importacao)).thenReturn(response);
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(post(USUARIO_API_URL_PATH + "/import").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("CONCLUIDA")))
+                .andExpect(jsonPath("$.importados", is(1)))
+                .andExpect(jsonPath("$.rejeitados", is(1)))
+                .andExpect(jsonPath("$.relatorioErros", is(response.getRelatorioErros())));
+    }
+
+    @Test
+    void whenPOSTImportIsCalledToResume_ThenTheImportacaoIdIsForwarded() throws Exception {
+        //Estabelecendo comportamento dos Mocks
+        doThrow(ServiceException.class).when(importacaoUsuarioService).importar(any(InputStream.class), eq(INVALID_ID));
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(post(USUARIO_API_URL_PATH + "/import").param("importacao", INVALID_ID.toString())
+                        .contentType("text/csv").content("nome,cpf,email,dataNascimento\n"))
+                .andExpect(status().isBadRequest());
+        verify(importacaoUsuarioService).importar(any(InputStream.class), eq(INVALID_ID));
+    }
+
+    @Test
+    void whenGETImportErrosIsCalled_ThenACsvReportIsStreamed() throws Exception {
+        //Estabelecendo comportamento dos Mocks
+        doAnswer(invocation -> {
+            Consumer<ImportacaoErro> consumidor = invocation.getArgument(1);
+            consumidor.accept(new ImportacaoErro(1L, VALID_ID, 3L, "email: deve ser um endereço de e-mail bem formado"));
+            consumidor.accept(new ImportacaoErro(2L, VALID_ID, 7L, "Email já cadastrado!"));
+            return null;
+        }).when(importacaoUsuarioService).exportarErros(eq(VALID_ID), any());
+
+        //Realizando o teste via MockMVC
+        MvcResult resultado = mockMvc.perform(get(USUARIO_API_URL_PATH + "/import/" + VALID_ID + "/erros"))
+                .andExpect(status().isOk())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().string("linha,mensagem\n"
+                        + "3,\"email: deve ser um endereço de e-mail bem formado\"\n"
+                        + "7,\"Email já cadastrado!\"\n"));
+    }
+
+    @Test
+    void whenGETImportErrosWithInvalidIdIsCalled_ThenAnErrorIsReturned() throws Exception {
+        //Estabelecendo comportamento dos Mocks
+        doThrow(NotFoundException.class).when(importacaoUsuarioService).buscarPorId(INVALID_ID);
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(get(USUARIO_API_URL_PATH + "/import/" + INVALID_ID + "/erros"))
+                .andExpect(status().isNotFound());
+    }
+
     private void updateSet(UsuarioUpdateRequest usuarioUpdateRequest, UsuarioResponse usuarioResponse){
         usuarioResponse.setCpf(usuarioUpdateRequest.getCpf());
         usuarioResponse.setEmail(usuarioUpdateRequest.getEmail());
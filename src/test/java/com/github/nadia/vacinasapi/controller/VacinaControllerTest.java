@@ -2,25 +2,48 @@ package com.github.nadia.vacinasapi.controller;
 
 import com.github.nadia.vacinasapi.api.DTO.request.VacinaRequest;
 import com.github.nadia.vacinasapi.api.DTO.request.VacinaUpdateRequest;
+import com.github.nadia.vacinasapi.api.DTO.response.EstatisticasResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.IngestaoResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.ItemLoteResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.LoteResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.NomeVacinaResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.PaginaResponse;
+import com.github.nadia.vacinasapi.api.DTO.response.VacinaDiariaResponse;
 import com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse;
 import com.github.nadia.vacinasapi.api.controller.VacinaController;
 import com.github.nadia.vacinasapi.builder.VacinaBuilder;
 import com.github.nadia.vacinasapi.builder.VacinaRequestBuilder;
 import com.github.nadia.vacinasapi.builder.VacinaResponseBuilder;
 import com.github.nadia.vacinasapi.builder.VacinaUpdateRequestBuilder;
+import com.github.nadia.vacinasapi.core.cache.CacheRespostas;
+import com.github.nadia.vacinasapi.core.lote.BuscaEmBlocos;
 import com.github.nadia.vacinasapi.core.mapper.VacinaMapper;
+import com.github.nadia.vacinasapi.core.pagination.Cursor;
+import com.github.nadia.vacinasapi.core.pagination.CursorDataId;
 import com.github.nadia.vacinasapi.domain.entity.Vacina;
 import com.github.nadia.vacinasapi.domain.exception.NotFoundException;
 import com.github.nadia.vacinasapi.domain.exception.ServiceException;
+import com.github.nadia.vacinasapi.domain.exception.TooManyRequestsException;
+import com.github.nadia.vacinasapi.domain.service.EstatisticaVacinaService;
+import com.github.nadia.vacinasapi.domain.service.GravacaoAgrupadaVacinaService;
+import com.github.nadia.vacinasapi.domain.service.IngestaoVacinaService;
+import com.github.nadia.vacinasapi.domain.service.NomeVacinaService;
+import com.github.nadia.vacinasapi.domain.service.VacinaDiariaService;
 import com.github.nadia.vacinasapi.domain.service.VacinaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -31,9 +54,14 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static com.github.nadia.vacinasapi.utils.JsonConvertionUtils.asJsonString;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -55,11 +83,36 @@ public class VacinaControllerTest {
     @Mock
     private VacinaMapper vacinaMapper;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Mock
+    private CacheRespostas cacheRespostas;
+
+    @Mock
+    private EstatisticaVacinaService estatisticaVacinaService;
+
+    @Mock
+    private VacinaDiariaService vacinaDiariaService;
+
+    @Mock
+    private NomeVacinaService nomeVacinaService;
+
+    @Mock
+    private IngestaoVacinaService ingestaoVacinaService;
+
+    @Mock
+    private GravacaoAgrupadaVacinaService gravacaoAgrupadaVacinaService;
+
     @InjectMocks
     private VacinaController vacinaController;
 
     @BeforeEach
     void setUp() {
+        //o cache apenas repassa para a carga, sem guardar nada
+        when(cacheRespostas.vacina(any(), any())).thenAnswer(invocation ->
+                invocation.<Supplier<CacheRespostas.Resposta>>getArgument(1).get());
         mockMvc = MockMvcBuilders.standaloneSetup(vacinaController)
                 .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
                 .setViewResolvers((s, locale) -> new MappingJackson2JsonView())
@@ -68,32 +121,109 @@ public class VacinaControllerTest {
     @Test
     void whenGETListVacinasIsCalled_ThenAnListOfVacinasIsReturned() throws Exception {
         //Configurações iniciais
-        Vacina vacina = VacinaBuilder.builder().build().toVacina();
         VacinaResponse vacinaResponse = VacinaResponseBuilder.builder().build().toVacinaResponse();
 
+        Slice<VacinaResponse> pagina = new SliceImpl<>(Collections.singletonList(vacinaResponse));
+        var paginaResponse = new PaginaResponse<>(Collections.singletonList(vacinaResponse), Cursor.codificarId(vacinaResponse.getId()));
+
         //Estabelecendo comportamento dos Mocks
-        when(vacinaService.buscarTodos()).thenReturn(Collections.singletonList(vacina));
-        when(vacinaMapper.toVacinaResponseList(Collections.singletonList(vacina))).thenReturn(Collections.singletonList(vacinaResponse));
+        when(vacinaService.buscarTodos(0L, 50)).thenReturn(pagina);
+        when(vacinaMapper.toVacinaResponsePagina(pagina)).thenReturn(paginaResponse);
 
         //Realizando o teste via MockMVC
 
         mockMvc.perform(get(VACINA_API_URL_PATH).contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].id", is((vacinaResponse.getId().intValue()))))
-                .andExpect(jsonPath("$[0].nome", is(vacinaResponse.getNome())))
-                .andExpect(jsonPath("$[0].email", is(vacinaResponse.getEmail())))
-                .andExpect(jsonPath("$[0].dataAplicacao", is(parse(vacinaResponse.getDataAplicacao()))));
+                .andExpect(jsonPath("$.itens[0].id", is((vacinaResponse.getId().intValue()))))
+                .andExpect(jsonPath("$.itens[0].nome", is(vacinaResponse.getNome())))
+                .andExpect(jsonPath("$.itens[0].email", is(vacinaResponse.getEmail())))
+                .andExpect(jsonPath("$.itens[0].dataAplicacao", is(parse(vacinaResponse.getDataAplicacao()))))
+                .andExpect(jsonPath("$.proximoCursor", is(paginaResponse.getProximoCursor())));
+    }
+
+    @Test
+    void whenGETListVacinasIsCalledWithCursor_ThenTheNextPageIsRequested() throws Exception {
+        //Configurações iniciais
+        Slice<VacinaResponse> pagina = new SliceImpl<>(Collections.emptyList());
+
+        //Estabelecendo comportamento dos Mocks
+        when(vacinaService.buscarTodos(VALID_ID, 10)).thenReturn(pagina);
+        when(vacinaMapper.toVacinaResponsePagina(pagina)).thenReturn(new PaginaResponse<>(Collections.emptyList(), null));
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(get(VACINA_API_URL_PATH).param("after", Cursor.codificarId(VALID_ID)).param("limit", "10")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens", hasSize(0)));
+    }
+
+    @Test
+    void whenGETExportIsCalled_ThenVacinasAreStreamedAsNdjson() throws Exception {
+        //Configurações iniciais
+        Vacina vacina1 = VacinaBuilder.builder().id(1L).build().toVacina();
+        Vacina vacina2 = VacinaBuilder.builder().id(2L).build().toVacina();
+        VacinaResponse vacinaResponse1 = VacinaResponseBuilder.builder().id(1L).build().toVacinaResponse();
+        VacinaResponse vacinaResponse2 = VacinaResponseBuilder.builder().id(2L).build().toVacinaResponse();
+
+        //Estabelecendo comportamento dos Mocks
+        doAnswer(invocation -> {
+            Consumer<Vacina> consumidor = invocation.getArgument(0);
+            consumidor.accept(vacina1);
+            consumidor.accept(vacina2);
+            return null;
+        }).when(vacinaService).exportar(any());
+        when(vacinaMapper.toVacinaResponse(vacina1)).thenReturn(vacinaResponse1);
+        when(vacinaMapper.toVacinaResponse(vacina2)).thenReturn(vacinaResponse2);
+
+        //Realizando o teste via MockMVC
+        var resultado = mockMvc.perform(get(VACINA_API_URL_PATH + "/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(objectMapper.writeValueAsString(vacinaResponse1) + "\n"
+                        + objectMapper.writeValueAsString(vacinaResponse2) + "\n"));
+    }
+
+    @Test
+    void whenPOSTBuscarIsCalled_ThenFoundVacinasAndMissingIdsAreStreamed() throws Exception {
+        //Configurações iniciais
+        VacinaResponse vacinaResponse = VacinaResponseBuilder.builder().id(3L).build().toVacinaResponse();
+        var busca = new BuscaEmBlocos<VacinaResponse>(List.of(9L, 3L), 500, ids -> List.of(vacinaResponse), VacinaResponse::getId);
+
+        //Estabelecendo comportamento dos Mocks
+        when(vacinaService.buscarPorIds(List.of(9L, 3L))).thenReturn(busca);
+
+        //Realizando o teste via MockMVC
+        var resultado = mockMvc.perform(post(VACINA_API_URL_PATH + "/buscar").contentType(MediaType.APPLICATION_JSON).content("[9,3]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens", hasSize(1)))
+                .andExpect(jsonPath("$.itens[0].id", is(3)))
+                .andExpect(jsonPath("$.itens[0].nome", is(vacinaResponse.getNome())))
+                .andExpect(jsonPath("$.ausentes[0]", is(9)));
+    }
+
+    @Test
+    void whenPOSTBuscarIsCalledWithTooManyIds_ThenAnErrorIsReturned() throws Exception {
+        //Estabelecendo comportamento dos Mocks
+        when(vacinaService.buscarPorIds(any())).thenThrow(new ServiceException("Informe de 1 a 10000 ids."));
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(post(VACINA_API_URL_PATH + "/buscar").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
     void whenGETVacinaWithValidIdIsCalled_ThenAVacinaIsReturned() throws Exception {
         //Configurações iniciais
-        Vacina vacina = VacinaBuilder.builder().build().toVacina();
         VacinaResponse vacinaResponse = VacinaResponseBuilder.builder().build().toVacinaResponse();
 
         //Estabelecendo comportamento dos Mocks
-        when(vacinaService.buscarPorId(VALID_ID)).thenReturn(vacina);
-        when(vacinaMapper.toVacinaResponse(vacina)).thenReturn(vacinaResponse);
+        when(vacinaService.buscarPorId(VALID_ID)).thenReturn(vacinaResponse);
 
         //Realizando o teste via MockMVC
         mockMvc.perform(get(VACINA_API_URL_PATH+"/"+VALID_ID.toString()).contentType(MediaType.APPLICATION_JSON)
@@ -102,7 +232,7 @@ public class VacinaControllerTest {
                 .andExpect(jsonPath("$.id", is((vacinaResponse.getId().intValue()))))
                 .andExpect(jsonPath("$.nome", is(vacinaResponse.getNome())))
                 .andExpect(jsonPath("$.email", is(vacinaResponse.getEmail())))
-                .andExpect(jsonPath("$.dataAplicacao", is(parse(vacinaResponse.getDataAplicacao()))));
+                .andExpect(jsonPath("$.dataAplicacao", is(vacinaResponse.getDataAplicacao().toString())));
     }
 
     @Test
@@ -137,6 +267,96 @@ public class VacinaControllerTest {
                 .andExpect(jsonPath("$.dataAplicacao", is(parse(vacinaResponse.getDataAplicacao()))));
     }
 
+    @Test
+    void whenPOSTVacinaIsCalledWithGroupCommit_ThenTheGroupedWriteIsUsed() throws Exception {
+        //Configurações iniciais
+        Vacina vacina = VacinaBuilder.builder().build().toVacina();
+        VacinaResponse vacinaResponse = VacinaResponseBuilder.builder().build().toVacinaResponse();
+        VacinaRequest vacinaRequest = VacinaRequestBuilder.builder().build().toVacinaResquet();
+
+        //Estabelecendo comportamento dos Mocks
+        when(gravacaoAgrupadaVacinaService.isHabilitada()).thenReturn(true);
+        when(vacinaMapper.toVacinaEntity(vacinaRequest)).thenReturn(vacina);
+        when(vacinaMapper.toVacinaResponse(vacina)).thenReturn(vacinaResponse);
+        when(gravacaoAgrupadaVacinaService.salvar(vacina)).thenReturn(vacina);
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(post(VACINA_API_URL_PATH).contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(vacinaRequest)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id", is((vacinaResponse.getId().intValue()))));
+        verify(vacinaService, never()).salvar(any());
+    }
+
+    @Test
+    void whenPOSTVacinaIsCalledInAsyncMode_ThenItIsAcceptedWithATrackingId() throws Exception {
+        //Configurações iniciais
+        VacinaRequest vacinaRequest = VacinaRequestBuilder.builder().build().toVacinaResquet();
+        var ingestao = new IngestaoResponse("abc", IngestaoVacinaService.PENDENTE, null, null);
+
+        //Estabelecendo comportamento dos Mocks
+        when(ingestaoVacinaService.isHabilitada()).thenReturn(true);
+        when(ingestaoVacinaService.enfileirar(vacinaRequest)).thenReturn(ingestao);
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(post(VACINA_API_URL_PATH).contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(vacinaRequest)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/api/v1/vacinas/ingestao/abc"))
+                .andExpect(jsonPath("$.id", is("abc")))
+                .andExpect(jsonPath("$.situacao", is("PENDENTE")));
+        verify(vacinaService, never()).salvar(any());
+    }
+
+    @Test
+    void whenPOSTVacinaIsCalledInAsyncModeWithAFullQueue_ThenTooManyRequestsIsReturned() throws Exception {
+        //Configurações iniciais
+        VacinaRequest vacinaRequest = VacinaRequestBuilder.builder().build().toVacinaResquet();
+
+        //Estabelecendo comportamento dos Mocks
+        when(ingestaoVacinaService.isHabilitada()).thenReturn(true);
+        when(ingestaoVacinaService.enfileirar(vacinaRequest)).thenThrow(new TooManyRequestsException("Fila de gravação cheia."));
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(post(VACINA_API_URL_PATH).contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(vacinaRequest)))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void whenGETIngestaoIsCalled_ThenTheTrackingStatusIsReturned() throws Exception {
+        //Estabelecendo comportamento dos Mocks
+        when(ingestaoVacinaService.buscarSituacao("abc")).thenReturn(new IngestaoResponse("abc", IngestaoVacinaService.GRAVADA, 7L, null));
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(get(VACINA_API_URL_PATH + "/ingestao/abc").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.situacao", is("GRAVADA")))
+                .andExpect(jsonPath("$.vacinaId", is(7)));
+    }
+
+    @Test
+    void whenPOSTLoteIsCalled_ThenTheResultOfEachItemIsReturned() throws Exception {
+        //Configurações iniciais
+        VacinaRequest vacinaRequest = VacinaRequestBuilder.builder().build().toVacinaResquet();
+        VacinaRequest vacinaRequestInvalida = VacinaRequestBuilder.builder().email(INVALID_USER_MAIL).build().toVacinaResquet();
+        var requests = List.of(vacinaRequest, vacinaRequestInvalida);
+        var loteResponse = new LoteResponse(1, 1, List.of(ItemLoteResponse.sucesso(0, VALID_ID),
+                ItemLoteResponse.falha(1, "Email inválido. Nenhum usuário resgistrado com esse email.")));
+
+        //Estabelecendo comportamento dos Mocks
+        when(vacinaService.salvarLote(requests)).thenReturn(loteResponse);
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(post(VACINA_API_URL_PATH + "/lote").contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sucessos", is(1)))
+                .andExpect(jsonPath("$.falhas", is(1)))
+                .andExpect(jsonPath("$.itens[0].id", is(VALID_ID.intValue())))
+                .andExpect(jsonPath("$.itens[1].sucesso", is(false)));
+    }
+
     @Test
     void whenPOSTInvalidVacinaIsCalled_ThenAnErrorIsReturned() throws Exception {
         //Configurações iniciais
@@ -191,6 +411,32 @@ public class VacinaControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void whenPATCHVacinaIsCalled_ThenNoContentIsReturned() throws Exception {
+        //Configurações iniciais
+        VacinaUpdateRequest vacinaRequest = VacinaUpdateRequestBuilder.builder().build().ToVacinaUpdateRequest();
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(patch(VACINA_API_URL_PATH+"/"+VALID_ID).contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(vacinaRequest)))
+                .andExpect(status().isNoContent());
+        verify(vacinaService).atualizarNome(VALID_ID, vacinaRequest.getNome());
+    }
+
+    @Test
+    void whenPATCHInvalidVacinaIdIsCalled_ThenNotFoundIsReturned() throws Exception {
+        //Configurações iniciais
+        VacinaUpdateRequest vacinaRequest = VacinaUpdateRequestBuilder.builder().build().ToVacinaUpdateRequest();
+
+        //Estabelecendo comportamento dos Mocks
+        doThrow(NotFoundException.class).when(vacinaService).atualizarNome(INVALID_ID, vacinaRequest.getNome());
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(patch(VACINA_API_URL_PATH+"/"+INVALID_ID).contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(vacinaRequest)))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void whenDELETECalledWithValidId_ThenStatusNoContentIsReturned() throws Exception {
         //Estabelecendo comportamento dos Mocks
@@ -204,10 +450,100 @@ public class VacinaControllerTest {
     @Test
     void whenDELETECalledWithInvalidId_ThenAnErrorIsReturned() throws Exception {
         //Estabelecendo comportamento dos Mocks
-        doThrow(ServiceException.class).when(vacinaService).deletar(INVALID_ID);
+        doThrow(NotFoundException.class).when(vacinaService).deletar(INVALID_ID);
 
         //Realizando Testes
         mockMvc.perform(delete(VACINA_API_URL_PATH+"/"+INVALID_ID.toString()).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void whenDELETECalledWithIds_ThenTheBulkDeleteIsUsed() throws Exception {
+        //Realizando Testes
+        mockMvc.perform(delete(VACINA_API_URL_PATH).param("ids", "1,2,3"))
+                .andExpect(status().isNoContent());
+        verify(vacinaService).deletar(List.of(1L, 2L, 3L));
+    }
+
+    @Test
+    void whenGETListVacinasIsCalledWithFilters_ThenTheFilteredSearchIsUsedWithADateCursor() throws Exception {
+        //Configurações iniciais
+        var vacinaResponse = VacinaResponseBuilder.builder().build().toVacinaResponse();
+        var cursor = new CursorDataId(LocalDate.parse("2022-01-05"), 9L);
+        Slice<VacinaResponse> pagina = new SliceImpl<>(List.of(vacinaResponse));
+        var paginaResponse = new PaginaResponse<>(List.of(vacinaResponse), null);
+
+        //Estabelecendo comportamento dos Mocks
+        when(vacinaService.buscar("Gripe", LocalDate.parse("2022-01-01"), LocalDate.parse("2022-01-31"),
+                List.of("maria@teste.com.br", "ana@teste.com.br"), cursor, 20)).thenReturn(pagina);
+        when(vacinaMapper.toVacinaResponsePaginaPorData(pagina)).thenReturn(paginaResponse);
+
+        //Realizando o teste via MockMVC
+        mockMvc.perform(get(VACINA_API_URL_PATH).param("nome", "Gripe").param("de", "2022-01-01").param("ate", "2022-01-31")
+                        .param("email", "maria@teste.com.br", "ana@teste.com.br").param("after", cursor.codificar()).param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens", hasSize(1)));
+        verify(vacinaService, never()).buscarTodos(any(), anyInt());
+    }
+
+    @Test
+    void whenGETNomesIsCalled_ThenTheSuggestionsAreReturned() throws Exception {
+        //Estabelecendo comportamento dos Mocks
+        when(nomeVacinaService.sugerir("feb", 5)).thenReturn(List.of(new NomeVacinaResponse("Febre Amarela", 30L)));
+
+        //Realizando Testes
+        mockMvc.perform(get(VACINA_API_URL_PATH + "/nomes").param("prefixo", "feb").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].nome", is("Febre Amarela")))
+                .andExpect(jsonPath("$[0].quantidade", is(30)));
+        verify(vacinaService, never()).buscarTodos(any(), anyInt());
+    }
+
+    @Test
+    void whenGETEstatisticasIsCalled_ThenTheCountersAreReturned() throws Exception {
+        //Configurações iniciais
+        var estatisticas = new EstatisticasResponse(3L, Map.of("CoronaVac", 2L, "Gripe", 1L),
+                Map.of(LocalDate.parse("2022-04-10"), 3L), null);
+
+        //Estabelecendo comportamento dos Mocks
+        when(estatisticaVacinaService.estatisticas()).thenReturn(estatisticas);
+
+        //Realizando Testes
+        mockMvc.perform(get(VACINA_API_URL_PATH + "/estatisticas").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(3)))
+                .andExpect(jsonPath("$.porNome.CoronaVac", is(2)))
+                .andExpect(jsonPath("$.porDia.2022-04-10", is(3)));
+        verify(vacinaService, never()).buscarPorId(any());
+    }
+
+    @Test
+    void whenGETEstatisticasDiariasIsCalled_ThenTheDailyRowsAreReturned() throws Exception {
+        //Configurações iniciais
+        var de = LocalDate.parse("2022-04-01");
+        var ate = LocalDate.parse("2022-04-30");
+
+        //Estabelecendo comportamento dos Mocks
+        when(vacinaDiariaService.buscar(de, ate, "Gripe")).thenReturn(List.of(new VacinaDiariaResponse(de, "Gripe", 4L)));
+
+        //Realizando Testes
+        mockMvc.perform(get(VACINA_API_URL_PATH + "/estatisticas/diarias")
+                        .param("de", "2022-04-01").param("ate", "2022-04-30").param("nome", "Gripe"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].nome", is("Gripe")))
+                .andExpect(jsonPath("$[0].quantidade", is(4)));
+    }
+
+    @Test
+    void whenGETEstatisticasDiariasIsCalledWithAnInvalidPeriod_ThenBadRequestIsReturned() throws Exception {
+        //Estabelecendo comportamento dos Mocks
+        when(vacinaDiariaService.buscar(any(), any(), any())).thenThrow(new ServiceException("O período deve ter de 1 a 366 dias."));
+
+        //Realizando Testes
+        mockMvc.perform(get(VACINA_API_URL_PATH + "/estatisticas/diarias")
+                        .param("de", "2022-04-30").param("ate", "2022-04-01"))
                 .andExpect(status().isBadRequest());
     }
 
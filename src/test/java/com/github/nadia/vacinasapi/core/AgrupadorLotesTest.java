@@ -0,0 +1,136 @@
+package com.github.nadia.vacinasapi.core;
+
+import com.github.nadia.vacinasapi.core.lote.AgrupadorLotes;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AgrupadorLotesTest {
+
+    @Test
+    void whenManyThreadsSendAtOnce_thenTheyShareBatchesAndEachGetsItsOwnResult() throws Exception {
+        //Condições iniciais: a gravação demora, e quem chega nesse meio tempo entra no próximo lote
+        var lotes = new CopyOnWriteArrayList<Integer>();
+        var agrupador = new AgrupadorLotes<Integer, String>("teste", 50, 5_000, itens -> {
+            dormir(20);
+            return itens.stream().map(item -> "r" + item).collect(Collectors.toList());
+        }, lotes::add);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        var largada = new CountDownLatch(1);
+
+        //Realizando o teste
+        var futuros = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < 200; i++) {
+            var item = i;
+            futuros.add(CompletableFuture.supplyAsync(() -> {
+                aguardar(largada);
+                return agrupador.enviar(item).join();
+            }, executor));
+        }
+        largada.countDown();
+
+        for (int i = 0; i < 200; i++) {
+            assertEquals("r" + i, futuros.get(i).get());
+        }
+        executor.shutdown();
+        agrupador.close();
+        assertEquals(200, lotes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(lotes.size() < 50, "lotes gravados: " + lotes);
+        assertTrue(lotes.stream().allMatch(tamanho -> tamanho <= 50));
+    }
+
+    @Test
+    void whenOneItemBreaksTheBatch_thenOnlyItsCallerSeesTheError() throws Exception {
+        //Condições iniciais: o item negativo derruba qualquer lote em que estiver
+        var gravacoes = new CopyOnWriteArrayList<List<Integer>>();
+        var agrupador = new AgrupadorLotes<Integer, Integer>("teste", 10, 50_000, itens -> {
+            gravacoes.add(List.copyOf(itens));
+            if (itens.stream().anyMatch(item -> item < 0)) {
+                throw new IllegalArgumentException("item inválido");
+            }
+            return itens;
+        }, tamanho -> { });
+
+        //Realizando o teste
+        var bom = agrupador.enviar(1);
+        var ruim = agrupador.enviar(-1);
+        var outro = agrupador.enviar(2);
+
+        assertEquals(1, bom.get());
+        assertEquals(2, outro.get());
+        var ex = assertThrows(CompletionException.class, ruim::join);
+        assertInstanceOf(IllegalArgumentException.class, ex.getCause());
+        //o lote desfeito é regravado item a item
+        assertEquals(List.of(List.of(1, -1, 2), List.of(1), List.of(-1), List.of(2)), gravacoes);
+        agrupador.close();
+    }
+
+    @Test
+    void whenTheAgrupadorIsClosed_thenNewItemsAreRefused() throws Exception {
+        //Condições iniciais
+        var agrupador = new AgrupadorLotes<Integer, Integer>("teste", 10, 1_000, itens -> itens, tamanho -> { });
+        assertEquals(7, agrupador.enviar(7).get());
+
+        //Realizando o teste
+        agrupador.close();
+
+        var ex = assertThrows(CompletionException.class, () -> agrupador.enviar(8).join());
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+    }
+
+    @Test
+    void whenItemsAreSentWhileClosing_thenEveryFutureCompletes() throws Exception {
+        //Condições iniciais: várias threads enviando sem parar enquanto o agrupador é fechado
+        var agrupador = new AgrupadorLotes<Integer, Integer>("teste", 10, 1_000, itens -> itens, tamanho -> { });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        var futuros = new CopyOnWriteArrayList<CompletableFuture<Integer>>();
+        var enviando = new CountDownLatch(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                enviando.countDown();
+                for (int i = 0; i < 5_000; i++) {
+                    futuros.add(agrupador.enviar(i));
+                }
+            });
+        }
+        enviando.await();
+
+        //Realizando o teste
+        agrupador.close();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        //aceito antes do fechamento é processado; depois dele é recusado na hora. nenhum fica sem resposta
+        assertTrue(CompletableFuture.allOf(futuros.toArray(CompletableFuture[]::new))
+                .handle((ok, ex) -> true)
+                .completeOnTimeout(false, 10, TimeUnit.SECONDS)
+                .join());
+    }
+
+    private static void dormir(long milis) {
+        try {
+            Thread.sleep(milis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void aguardar(CountDownLatch largada) {
+        try {
+            largada.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
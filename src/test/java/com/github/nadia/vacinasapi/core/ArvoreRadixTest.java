@@ -0,0 +1,66 @@
+package com.github.nadia.vacinasapi.core;
+
+import com.github.nadia.vacinasapi.core.busca.ArvoreRadix;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArvoreRadixTest {
+
+    @Test
+    void whenSearchingAPrefix_thenMatchingIdsComeInKeyOrder() {
+        //Condições iniciais
+        var arvore = new ArvoreRadix();
+        arvore.adicionar("maria@teste.com.br", 3);
+        arvore.adicionar("mariana@teste.com.br", 1);
+        arvore.adicionar("marcos@teste.com.br", 2);
+        arvore.adicionar("ana@teste.com.br", 4);
+
+        //Realizando o teste
+        assertEquals(List.of(2L, 3L, 1L), arvore.buscarPrefixo("mar", 10));
+        assertEquals(List.of(3L, 1L), arvore.buscarPrefixo("maria", 10));
+        assertEquals(List.of(3L), arvore.buscarPrefixo("maria@", 10));
+        assertEquals(List.of(2L), arvore.buscarPrefixo("mar", 1));
+        assertEquals(List.of(), arvore.buscarPrefixo("mariaz", 10));
+        assertEquals(List.of(), arvore.buscarPrefixo("b", 10));
+        assertEquals(4, arvore.getChaves());
+    }
+
+    @Test
+    void whenKeysAreRemoved_thenTheTreeIsCompactedAgain() {
+        //Condições iniciais
+        var arvore = new ArvoreRadix();
+        arvore.adicionar("11144477735", 1);
+        var compacta = arvore.tamanhoEmBytes();
+        arvore.adicionar("11144400000", 2);
+        arvore.adicionar("11144477735", 5);
+
+        //Realizando o teste
+        arvore.remover("11144400000", 2);
+        arvore.remover("11144477735", 5);
+        arvore.remover("99999999999", 1);
+
+        assertEquals(List.of(1L), arvore.buscarPrefixo("111", 10));
+        assertEquals(compacta, arvore.tamanhoEmBytes());
+        arvore.remover("11144477735", 1);
+        assertEquals(List.of(), arvore.buscarPrefixo("", 10));
+        assertEquals(0, arvore.getChaves());
+    }
+
+    @Test
+    void whenManyCpfsShareAPrefix_thenEachOneIsStillFound() {
+        //Condições iniciais
+        var arvore = new ArvoreRadix();
+        for (int i = 0; i < 1000; i++) {
+            arvore.adicionar(String.format("123456%05d", i), i);
+        }
+
+        //Realizando o teste
+        assertEquals(100, arvore.buscarPrefixo("123456009", 1000).size());
+        assertEquals(List.of(42L), arvore.buscarPrefixo("12345600042", 10));
+        assertEquals(1000, arvore.getChaves());
+        assertTrue(arvore.tamanhoEmBytes() > 0);
+    }
+}
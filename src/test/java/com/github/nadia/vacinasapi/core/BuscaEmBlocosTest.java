@@ -0,0 +1,34 @@
+package com.github.nadia.vacinasapi.core;
+
+import com.github.nadia.vacinasapi.core.lote.BuscaEmBlocos;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BuscaEmBlocosTest {
+
+    @Test
+    void whenIdsSpanSeveralBlocks_thenEachBlockIsOneQueryAndTheRequestOrderIsKept() {
+        //Condições iniciais: só ids pares existem, e o "banco" devolve fora de ordem
+        var consultas = new ArrayList<List<Long>>();
+        var busca = new BuscaEmBlocos<Long>(List.of(8L, 3L, 2L, 8L, 6L, 5L, 4L), 3, bloco -> {
+            consultas.add(List.copyOf(bloco));
+            return bloco.stream().filter(id -> id % 2 == 0).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }, id -> id);
+
+        //Realizando o teste
+        var encontrados = new ArrayList<Long>();
+        var ausentes = new ArrayList<Long>();
+        busca.executar(encontrados::add, ausentes::add);
+
+        assertEquals(6, busca.getIds());
+        assertEquals(List.of(List.of(8L, 3L, 2L), List.of(6L, 5L, 4L)), consultas);
+        assertEquals(List.of(8L, 2L, 6L, 4L), encontrados);
+        assertEquals(List.of(3L, 5L), ausentes);
+    }
+}
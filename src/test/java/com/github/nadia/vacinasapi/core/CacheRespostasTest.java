@@ -0,0 +1,207 @@
+package com.github.nadia.vacinasapi.core;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.nadia.vacinasapi.core.cache.CacheRespostas;
+import com.github.nadia.vacinasapi.domain.exception.NotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+public class CacheRespostasTest {
+
+    private static final int CHAMADORES = 20;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private CacheRespostas cacheRespostas;
+
+    private final AtomicInteger cargas = new AtomicInteger();
+
+    private final AtomicLong agora = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cacheRespostas, "usuariosBytes", 1024 * 1024L);
+        ReflectionTestUtils.setField(cacheRespostas, "vacinasBytes", 1024 * 1024L);
+        ReflectionTestUtils.setField(cacheRespostas, "validade", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(cacheRespostas, "ticker", (Ticker) agora::get);
+        cacheRespostas.iniciar();
+    }
+
+    @Test
+    void whenTheSameUsuarioIsRequestedTwice_thenItIsSerializedOnce() {
+        //Realizar o teste
+        var primeira = cacheRespostas.usuario(1L, () -> usuario(0L, "{\"id\":1}"));
+        var segunda = cacheRespostas.usuario(1L, () -> usuario(0L, "{\"id\":1}"));
+
+        assertArrayEquals(primeira.getJson(), segunda.getJson());
+        assertEquals(1, cargas.get());
+        assertEquals(0.5, meterRegistry.get("vacinas.cache.respostas.usuarios.taxa.acerto").gauge().value());
+        assertTrue(meterRegistry.get("vacinas.cache.respostas.usuarios.bytes").gauge().value() > 0);
+        assertEquals(0L, cacheRespostas.versaoUsuario(1L));
+    }
+
+    @Test
+    void whenManyThreadsMissTheSameUsuario_thenASingleLoadServesAllOfThem() throws Exception {
+        //Condições iniciais: a carga só termina quando todos já pediram o mesmo id
+        var liberar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CHAMADORES);
+
+        //Realizar o teste
+        var futuros = new ArrayList<Future<CacheRespostas.Resposta>>();
+        for (int i = 0; i < CHAMADORES; i++) {
+            futuros.add(executor.submit(() -> cacheRespostas.usuario(1L, () -> {
+                aguardar(liberar);
+                return usuario(0L, "{\"id\":1}");
+            })));
+        }
+        esperarAte(() -> coalescidas("usuarios") == CHAMADORES - 1);
+        liberar.countDown();
+        for (var futuro : futuros) {
+            assertEquals(0L, futuro.get().getVersao());
+        }
+        executor.shutdown();
+
+        //quem esperou não conta como acerto do cache
+        assertEquals(1, cargas.get());
+        assertEquals(1.0, meterRegistry.get("vacinas.cache.respostas.usuarios.cargas").functionCounter().count());
+        assertEquals(0.0, meterRegistry.get("vacinas.cache.respostas.usuarios.taxa.acerto").gauge().value());
+    }
+
+    @Test
+    void whenTheLoadFails_thenEveryWaitingCallerGetsTheSameErrorAndNothingIsCached() throws Exception {
+        //Condições iniciais: a vacina não existe e a consulta só responde depois que todos pediram
+        var liberar = new CountDownLatch(1);
+        var consultas = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(CHAMADORES);
+
+        //Realizar o teste
+        var futuros = new ArrayList<Future<CacheRespostas.Resposta>>();
+        for (int i = 0; i < CHAMADORES; i++) {
+            futuros.add(executor.submit(() -> cacheRespostas.vacina(9L, () -> {
+                consultas.incrementAndGet();
+                aguardar(liberar);
+                throw new NotFoundException("Vacina não encontrada.");
+            })));
+        }
+        esperarAte(() -> coalescidas("vacinas") == CHAMADORES - 1);
+        liberar.countDown();
+        for (var futuro : futuros) {
+            var ex = assertThrows(ExecutionException.class, futuro::get);
+            assertInstanceOf(NotFoundException.class, ex.getCause());
+        }
+        executor.shutdown();
+
+        assertEquals(1, consultas.get());
+        //a falha não fica guardada: o próximo pedido consulta de novo
+        cacheRespostas.vacina(9L, () -> new CacheRespostas.Resposta(1L, null, json("{\"id\":9}")));
+        assertEquals(1, cargas.get());
+    }
+
+    @Test
+    void whenUsuarioIsInvalidated_thenTheNextRequestReloads() {
+        //Condições iniciais
+        cacheRespostas.usuario(1L, () -> usuario(0L, "{\"id\":1}"));
+
+        //Realizar o teste
+        cacheRespostas.invalidarUsuario(1L);
+        assertNull(cacheRespostas.versaoUsuario(1L));
+        var recarregada = cacheRespostas.usuario(1L, () -> usuario(1L, "{\"id\":1,\"nome\":\"Maria\"}"));
+
+        assertEquals("{\"id\":1,\"nome\":\"Maria\"}", new String(recarregada.getJson(), StandardCharsets.UTF_8));
+        assertEquals(1L, recarregada.getVersao());
+        assertEquals(2, cargas.get());
+    }
+
+    @Test
+    void whenAnUsuarioChanges_thenOnlyHisVacinasAreInvalidated() {
+        //Condições iniciais
+        cacheRespostas.vacina(1L, () -> new CacheRespostas.Resposta(1L, null, json("{\"id\":1}")));
+        cacheRespostas.vacina(2L, () -> new CacheRespostas.Resposta(1L, null, json("{\"id\":2}")));
+        cacheRespostas.vacina(3L, () -> new CacheRespostas.Resposta(2L, null, json("{\"id\":3}")));
+
+        //Realizar o teste
+        cacheRespostas.invalidarVacinasDoUsuario(1L);
+        for (long id = 1; id <= 3; id++) {
+            var vacina = id;
+            cacheRespostas.vacina(id, () -> new CacheRespostas.Resposta(3L, null, json("{\"id\":" + vacina + "}")));
+        }
+
+        //as duas vacinas da Maria são recarregadas, a da Ana continua em cache
+        assertEquals(5, cargas.get());
+    }
+
+    @Test
+    void whenTheValidityExpires_thenAWriteFromAnotherNodeBecomesVisible() {
+        //Condições iniciais: a escrita em outro nó não invalida a entrada deste
+        cacheRespostas.usuario(1L, () -> usuario(0L, "{\"id\":1}"));
+
+        //Realizar o teste
+        agora.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertEquals(0L, cacheRespostas.versaoUsuario(1L));
+        agora.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(cacheRespostas.versaoUsuario(1L));
+        var recarregada = cacheRespostas.usuario(1L, () -> usuario(1L, "{\"id\":1,\"nome\":\"Maria\"}"));
+
+        assertEquals(1L, recarregada.getVersao());
+        assertEquals(2, cargas.get());
+    }
+
+    private double coalescidas(String cache) {
+        return meterRegistry.get("vacinas.cache.respostas." + cache + ".coalescidas").functionCounter().count();
+    }
+
+    private static void esperarAte(BooleanSupplier condicao) throws InterruptedException {
+        var prazo = System.currentTimeMillis() + 5_000;
+        while (!condicao.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < prazo, "condição não atingida a tempo");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private CacheRespostas.Resposta usuario(Long versao, String conteudo) {
+        return new CacheRespostas.Resposta(1L, versao, json(conteudo));
+    }
+
+    private byte[] json(String conteudo) {
+        cargas.incrementAndGet();
+        return conteudo.getBytes(StandardCharsets.UTF_8);
+    }
+}
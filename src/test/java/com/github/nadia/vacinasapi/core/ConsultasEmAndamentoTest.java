@@ -0,0 +1,128 @@
+package com.github.nadia.vacinasapi.core;
+
+import com.github.nadia.vacinasapi.core.concorrencia.ConsultasEmAndamento;
+import com.github.nadia.vacinasapi.domain.exception.NotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsultasEmAndamentoTest {
+
+    private static final int CHAMADORES = 50;
+
+    @Test
+    void whenManyThreadsAskForTheSameKey_thenASingleQueryServesAllOfThem() throws Exception {
+        //Condições iniciais: a consulta só termina quando todos já estiverem esperando por ela
+        var consultas = new ConsultasEmAndamento<Long, String>();
+        var execucoes = new AtomicInteger();
+        var liberar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CHAMADORES);
+
+        //Realizando o teste
+        var futuros = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < CHAMADORES; i++) {
+            futuros.add(CompletableFuture.supplyAsync(() -> consultas.executar(1L, () -> {
+                execucoes.incrementAndGet();
+                aguardar(liberar);
+                return "usuario 1";
+            }), executor));
+        }
+        esperarAte(() -> consultas.getCompartilhadas() == CHAMADORES - 1);
+        liberar.countDown();
+
+        for (var futuro : futuros) {
+            assertEquals("usuario 1", futuro.get());
+        }
+        executor.shutdown();
+        assertEquals(1, execucoes.get());
+        assertEquals(1, consultas.getExecutadas());
+        assertEquals(0, consultas.getEmAndamento());
+    }
+
+    @Test
+    void whenTheQueryFails_thenEveryWaitingCallerGetsTheSameError() throws Exception {
+        //Condições iniciais
+        var consultas = new ConsultasEmAndamento<Long, String>();
+        var liberar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        //Realizando o teste
+        var lider = CompletableFuture.supplyAsync(() -> consultas.executar(2L, () -> {
+            aguardar(liberar);
+            throw new NotFoundException("Usuário não encontrado.");
+        }), executor);
+        esperarAte(() -> consultas.getEmAndamento() == 1);
+        var seguidor = CompletableFuture.supplyAsync(() -> consultas.executar(2L, () -> "não deveria consultar"), executor);
+        esperarAte(() -> consultas.getCompartilhadas() == 1);
+        liberar.countDown();
+
+        var erroLider = assertThrows(ExecutionException.class, lider::get);
+        var erroSeguidor = assertThrows(ExecutionException.class, seguidor::get);
+        executor.shutdown();
+        assertTrue(erroLider.getCause() instanceof NotFoundException);
+        assertTrue(erroSeguidor.getCause() instanceof NotFoundException);
+        assertEquals(1, consultas.getExecutadas());
+    }
+
+    @Test
+    void whenTheQueryHasFinished_thenTheNextCallQueriesAgain() {
+        //Condições iniciais
+        var consultas = new ConsultasEmAndamento<Long, Integer>();
+        var execucoes = new AtomicInteger();
+
+        //Realizando o teste: nada fica guardado depois de concluída
+        assertEquals(1, consultas.executar(3L, execucoes::incrementAndGet));
+        assertEquals(2, consultas.executar(3L, execucoes::incrementAndGet));
+        assertEquals(0, consultas.getCompartilhadas());
+    }
+
+    @Test
+    void whenAKeyIsForgottenDuringAQuery_thenNewCallersStartTheirOwnQuery() throws Exception {
+        //Condições iniciais: uma escrita é confirmada enquanto a consulta antiga ainda roda
+        var consultas = new ConsultasEmAndamento<Long, String>();
+        var liberar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        var antiga = CompletableFuture.supplyAsync(() -> consultas.executar(4L, () -> {
+            aguardar(liberar);
+            return "antes da escrita";
+        }), executor);
+        esperarAte(() -> consultas.getEmAndamento() == 1);
+
+        //Realizando o teste
+        consultas.esquecer(4L);
+        var nova = consultas.executar(4L, () -> "depois da escrita");
+        liberar.countDown();
+
+        assertEquals("depois da escrita", nova);
+        assertEquals("antes da escrita", antiga.get());
+        executor.shutdown();
+        assertEquals(2, consultas.getExecutadas());
+        assertEquals(0, consultas.getCompartilhadas());
+    }
+
+    private static void esperarAte(BooleanSupplier condicao) throws InterruptedException {
+        var prazo = System.currentTimeMillis() + 5_000;
+        while (!condicao.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < prazo, "condição não atingida a tempo");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.github.nadia.vacinasapi.core;
+
+import com.github.nadia.vacinasapi.core.replica.ContextoLeitura;
+import com.github.nadia.vacinasapi.core.replica.DataSourceRoteado;
+import com.github.nadia.vacinasapi.core.replica.ReplicaLeitura;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataSourceRoteadoTest {
+
+    private final BancoTeste primario = new BancoTeste("roteado_primario");
+    private final BancoTeste replica1 = new BancoTeste("roteado_replica1");
+    private final BancoTeste replica2 = new BancoTeste("roteado_replica2");
+
+    @AfterEach
+    void tearDown() {
+        ContextoLeitura.limpar();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void whenTheRequestDoesNotAllowReplicas_thenReadOnlyConnectionsComeFromThePrimary() throws Exception {
+        //Condições iniciais: transação readOnly fora de uma requisição de leitura (tarefa agendada, escrita)
+        var roteado = roteado(DataSourceRoteado.Estrategia.ROUND_ROBIN);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        //Realizando o teste
+        assertEquals("roteado_primario", banco(roteado));
+        assertEquals(1, roteado.getConexoesPrimario());
+    }
+
+    @Test
+    void whenAReadWriteTransactionRunsInAReadRequest_thenItGoesToThePrimary() throws Exception {
+        //Condições iniciais
+        var roteado = roteado(DataSourceRoteado.Estrategia.ROUND_ROBIN);
+        ContextoLeitura.permitirReplica();
+
+        //Realizando o teste
+        assertEquals("roteado_primario", banco(roteado));
+    }
+
+    @Test
+    void whenReadOnlyReadsAreAllowed_thenReplicasAreUsedInRoundRobin() throws Exception {
+        //Condições iniciais
+        var roteado = roteado(DataSourceRoteado.Estrategia.ROUND_ROBIN);
+        permitirLeituraEmReplica();
+
+        //Realizando o teste
+        assertEquals("roteado_replica1", banco(roteado));
+        assertEquals("roteado_replica2", banco(roteado));
+        assertEquals("roteado_replica1", banco(roteado));
+        assertEquals(0, roteado.getConexoesPrimario());
+        assertEquals(2, roteado.getReplicas().get(0).getConexoes());
+    }
+
+    @Test
+    void whenLeastConnectionsIsUsed_thenTheLessBusyReplicaIsChosen() throws Exception {
+        //Condições iniciais
+        var roteado = roteado(DataSourceRoteado.Estrategia.MENOS_CONEXOES);
+        permitirLeituraEmReplica();
+
+        //Realizando o teste: enquanto a primeira conexão está aberta, a outra réplica é a menos ocupada
+        try (Connection primeira = roteado.getConnection()) {
+            assertEquals("roteado_replica1", nome(primeira));
+            assertEquals(1, roteado.getReplicas().get(0).getEmUso());
+            try (Connection segunda = roteado.getConnection()) {
+                assertEquals("roteado_replica2", nome(segunda));
+            }
+            //a vez seria da replica1, mas ela ainda tem uma conexão em uso
+            assertEquals("roteado_replica2", banco(roteado));
+        }
+        assertEquals(0, roteado.getReplicas().get(0).getEmUso());
+        assertEquals(0, roteado.getReplicas().get(1).getEmUso());
+    }
+
+    @Test
+    void whenAReplicaFails_thenItIsEjectedUntilAHealthCheckSucceeds() throws Exception {
+        //Condições iniciais
+        var roteado = roteado(DataSourceRoteado.Estrategia.ROUND_ROBIN);
+        permitirLeituraEmReplica();
+        replica1.fora = true;
+
+        //Realizando o teste: a falha ao abrir a conexão ejeta a réplica e a leitura segue na outra
+        assertEquals("roteado_replica2", banco(roteado));
+        assertEquals("roteado_replica2", banco(roteado));
+        assertFalse(roteado.getReplicas().get(0).isSaudavel());
+        assertEquals(1, roteado.getReplicas().get(0).getEjecoes());
+        assertEquals(1, roteado.getReplicasSaudaveis());
+
+        replica1.fora = false;
+        roteado.verificarReplicas();
+
+        assertTrue(roteado.getReplicas().get(0).isSaudavel());
+        assertEquals(2, roteado.getReplicasSaudaveis());
+    }
+
+    @Test
+    void whenAReplicaPoolIsExhausted_thenTheReadGoesElsewhereWithoutEjectingIt() throws Exception {
+        //Condições iniciais
+        var roteado = roteado(DataSourceRoteado.Estrategia.ROUND_ROBIN);
+        permitirLeituraEmReplica();
+        replica1.esgotado = true;
+
+        //Realizando o teste
+        assertEquals("roteado_replica2", banco(roteado));
+
+        assertTrue(roteado.getReplicas().get(0).isSaudavel());
+        assertEquals(0, roteado.getReplicas().get(0).getEjecoes());
+
+        //a verificação periódica também não a ejeta
+        roteado.verificarReplicas();
+
+        assertEquals(2, roteado.getReplicasSaudaveis());
+    }
+
+    @Test
+    void whenNoReplicaIsHealthy_thenReadsFallBackToThePrimary() throws Exception {
+        //Condições iniciais
+        var roteado = roteado(DataSourceRoteado.Estrategia.ROUND_ROBIN);
+        permitirLeituraEmReplica();
+        replica1.fora = true;
+        replica2.fora = true;
+
+        //Realizando o teste
+        roteado.verificarReplicas();
+
+        assertEquals(0, roteado.getReplicasSaudaveis());
+        assertEquals("roteado_primario", banco(roteado));
+        assertEquals(1, roteado.getLeiturasSemReplica());
+    }
+
+    private DataSourceRoteado roteado(DataSourceRoteado.Estrategia estrategia) {
+        return new DataSourceRoteado(primario, List.of(new ReplicaLeitura("replica-1", replica1),
+                new ReplicaLeitura("replica-2", replica2)), estrategia);
+    }
+
+    private static void permitirLeituraEmReplica() {
+        ContextoLeitura.permitirReplica();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    private static String banco(DataSourceRoteado roteado) throws SQLException {
+        try (var conexao = roteado.getConnection()) {
+            return nome(conexao);
+        }
+    }
+
+    private static String nome(Connection conexao) throws SQLException {
+        return conexao.getMetaData().getURL().replaceFirst("jdbc:h2:mem:([^;]+).*", "$1");
+    }
+
+    //banco H2 em memória que pode ser "derrubado" pelo teste
+    private static class BancoTeste extends JdbcDataSource {
+
+        private volatile boolean fora;
+        private volatile boolean esgotado;
+
+        BancoTeste(String nome) {
+            setURL("jdbc:h2:mem:" + nome + ";DB_CLOSE_DELAY=-1");
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (fora) {
+                throw new SQLNonTransientConnectionException("Conexão recusada", "08001");
+            }
+            if (esgotado) {
+                //o que o Hikari lança quando todas as conexões do pool estão em uso
+                throw new SQLTransientConnectionException("replica - Connection is not available, request timed out after 2000ms.");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.nadia.vacinasapi.core;
+
+import com.github.nadia.vacinasapi.core.autocompletar.IndicePrefixos;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndicePrefixosTest {
+
+    @Test
+    void whenSearchingAPrefix_thenMatchingNamesComeRankedByDoses() {
+        //Condições iniciais
+        var indice = IndicePrefixos.construir(contagens(Map.of(
+                "Febre Amarela", 30L, "Febre Tifoide", 50L, "Fluzone", 5L, "CoronaVac", 100L)), 100, 20);
+
+        //Realizando o teste
+        assertEquals(List.of("Febre Tifoide", "Febre Amarela"), nomes(indice.buscar("febre", 10)));
+        assertEquals(List.of("Febre Tifoide", "Febre Amarela", "Fluzone"), nomes(indice.buscar("F", 10)));
+        assertEquals(List.of("Febre Amarela"), nomes(indice.buscar("febre a", 10)));
+        assertEquals(List.of("CoronaVac", "Febre Tifoide"), nomes(indice.buscar("", 2)));
+        assertEquals(List.of(), nomes(indice.buscar("febrex", 10)));
+        assertEquals(List.of(), nomes(indice.buscar("g", 10)));
+    }
+
+    @Test
+    void whenSearchingWithAccentsOrCase_thenTheNormalizedNameMatches() {
+        //Condições iniciais
+        var indice = IndicePrefixos.construir(contagens(Map.of("Tríplice Viral", 3L, "Hepatite B", 2L)), 100, 20);
+
+        //Realizando o teste
+        assertEquals(List.of("Tríplice Viral"), nomes(indice.buscar("TRIPLI", 10)));
+        assertEquals(List.of("Tríplice Viral"), nomes(indice.buscar("  tríplice   v", 10)));
+        assertEquals(List.of("Hepatite B"), nomes(indice.buscar("hépàtite", 10)));
+    }
+
+    @Test
+    void whenDosesChangeAfterConstruction_thenTheRankingFollowsTheLiveCounters() {
+        //Condições iniciais
+        var contagens = contagens(Map.of("Gripe", 10L, "Gripe H1N1", 5L, "Gripe Quadrivalente", 1L));
+        var indice = IndicePrefixos.construir(contagens, 100, 20);
+
+        //Realizando o teste
+        contagens.get("Gripe Quadrivalente").add(20);
+        contagens.get("Gripe").add(-10);
+
+        var sugestoes = indice.buscar("gripe", 10);
+        assertEquals(List.of("Gripe Quadrivalente", "Gripe H1N1"), nomes(sugestoes));
+        assertEquals(21L, sugestoes.get(0).getQuantidade());
+    }
+
+    @Test
+    void whenThereAreMoreNamesThanTheLimit_thenOnlyTheMostAppliedAreIndexed() {
+        //Condições iniciais
+        var valores = new HashMap<String, Long>();
+        for (int i = 0; i < 1000; i++) {
+            valores.put("Vacina " + i, (long) i + 1);
+        }
+
+        //Realizando o teste
+        var indice = IndicePrefixos.construir(contagens(valores), 100, 5);
+
+        assertEquals(100, indice.getNomes());
+        //árvore radix: nenhum nó de um só filho, então no máximo 2 nós por nome
+        assertTrue(indice.getNos() < 2 * indice.getNomes());
+        assertEquals(List.of("Vacina 999", "Vacina 998", "Vacina 997", "Vacina 996", "Vacina 995"), nomes(indice.buscar("vac", 20)));
+        assertEquals(List.of("Vacina 909"), nomes(indice.buscar("vacina 909", 20)));
+        assertEquals(List.of(), nomes(indice.buscar("vacina 5", 20)));
+    }
+
+    @Test
+    void whenNamesDifferOnlyInCase_thenBothAreSuggestedUnderTheSameKey() {
+        //Condições iniciais
+        var indice = IndicePrefixos.construir(contagens(Map.of("CoronaVac", 8L, "coronavac", 2L, "Covaxin", 0L)), 100, 20);
+
+        //Realizando o teste
+        assertEquals(List.of("CoronaVac", "coronavac"), nomes(indice.buscar("co", 10)));
+    }
+
+    private Map<String, LongAdder> contagens(Map<String, Long> valores) {
+        var contagens = new HashMap<String, LongAdder>();
+        valores.forEach((nome, quantidade) -> {
+            var contador = new LongAdder();
+            contador.add(quantidade);
+            contagens.put(nome, contador);
+        });
+        return contagens;
+    }
+
+    private List<String> nomes(List<IndicePrefixos.Sugestao> sugestoes) {
+        return sugestoes.stream().map(IndicePrefixos.Sugestao::getNome).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.nadia.vacinasapi.core;
+
+import com.github.nadia.vacinasapi.core.busca.IndiceTrigramas;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndiceTrigramasTest {
+
+    @Test
+    void whenSearchingANameFragment_thenEveryNameContainingItIsFound() {
+        //Condições iniciais
+        var indice = new IndiceTrigramas();
+        indice.adicionar(1, "Maria da Silva");
+        indice.adicionar(2, "João Silveira");
+        indice.adicionar(3, "Ana Maria Souza");
+
+        //Realizando o teste
+        assertEquals(List.of(1L, 2L), indice.buscar("silv"));
+        assertEquals(List.of(1L, 3L), indice.buscar("MARIA"));
+        assertEquals(List.of(2L), indice.buscar("joão"));
+        assertEquals(List.of(2L), indice.buscar("joao silveira"));
+        assertEquals(List.of(), indice.buscar("xyz"));
+    }
+
+    @Test
+    void whenTheTrigramsMatchOutOfOrder_thenTheNameIsNotReturned() {
+        //Condições iniciais: "cabcab" tem todos os trigramas de "abcabc" sem conter o trecho
+        var indice = new IndiceTrigramas();
+        indice.adicionar(1, "cabcab");
+
+        //Realizando o teste
+        assertEquals(List.of(), indice.buscar("abcabc"));
+        assertEquals(List.of(1L), indice.buscar("abca"));
+    }
+
+    @Test
+    void whenSearchingTwoCharacters_thenOnlyWordStartsMatch() {
+        //Condições iniciais
+        var indice = new IndiceTrigramas();
+        indice.adicionar(1, "Ana Souza");
+        indice.adicionar(2, "Mariana");
+
+        //Realizando o teste
+        assertEquals(List.of(1L), indice.buscar("an"));
+        assertEquals(List.of(1L), indice.buscar("so"));
+        assertEquals(List.of(), indice.buscar("a"));
+    }
+
+    @Test
+    void whenANameChangesOrIsRemoved_thenTheOldTrigramsStopMatching() {
+        //Condições iniciais
+        var indice = new IndiceTrigramas();
+        indice.adicionar(1, "Carlos");
+        indice.adicionar(2, "Carla");
+
+        //Realizando o teste
+        indice.adicionar(1, "Pedro");
+        indice.remover(2);
+
+        assertEquals(List.of(), indice.buscar("car"));
+        assertEquals(List.of(1L), indice.buscar("edr"));
+        assertEquals("pedro", indice.nomeNormalizado(1));
+        indice.remover(1);
+        assertEquals(0, indice.getTrigramas());
+        assertEquals(0, indice.tamanhoEmBytes());
+    }
+}
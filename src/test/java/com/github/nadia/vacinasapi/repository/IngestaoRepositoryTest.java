@@ -0,0 +1,75 @@
+package com.github.nadia.vacinasapi.repository;
+
+import com.github.nadia.vacinasapi.domain.entity.Ingestao;
+import com.github.nadia.vacinasapi.domain.repository.IngestaoRepository;
+import com.github.nadia.vacinasapi.utils.ConsultasCapturadas;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.github.nadia.vacinasapi.utils.ConsultasCapturadas")
+public class IngestaoRepositoryTest {
+
+    @Autowired
+    private IngestaoRepository ingestaoRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void whenResultsWithTheirOwnIdsAreSaved_thenNoSelectPrecedesTheInserts() {
+        //Condições iniciais
+        var agora = OffsetDateTime.now();
+        ConsultasCapturadas.limpar();
+
+        //Realizando o teste
+        ingestaoRepository.saveAll(List.of(
+                new Ingestao("a", "GRAVADA", 1L, null, agora),
+                new Ingestao("b", "FALHOU", null, "Email inválido.", agora)));
+        testEntityManager.flush();
+
+        assertEquals(2, statistics.getEntityInsertCount());
+        assertTrue(ConsultasCapturadas.todas().stream()
+                .noneMatch(sql -> sql.toLowerCase(Locale.ROOT).startsWith("select")), ConsultasCapturadas.todas()::toString);
+    }
+
+    @Test
+    void whenOldResultsAreDeleted_thenOnlyTheExpiredOnesLeave() {
+        //Condições iniciais
+        var agora = OffsetDateTime.now();
+        ingestaoRepository.saveAll(List.of(
+                new Ingestao("antiga", "GRAVADA", 1L, null, agora.minusHours(2)),
+                new Ingestao("recente", "GRAVADA", 2L, null, agora)));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        //Realizando o teste
+        assertEquals(1, ingestaoRepository.deletarConcluidasAntesDe(agora.minusHours(1)));
+
+        assertTrue(ingestaoRepository.findById("antiga").isEmpty());
+        assertEquals(2L, ingestaoRepository.findById("recente").orElseThrow().getVacinaId());
+    }
+}
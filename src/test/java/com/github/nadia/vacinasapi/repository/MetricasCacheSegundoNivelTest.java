@@ -0,0 +1,78 @@
+package com.github.nadia.vacinasapi.repository;
+
+import com.github.nadia.vacinasapi.core.cache.MetricasCacheSegundoNivel;
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//com as estatísticas do Hibernate desligadas, como em produção
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({MetricasCacheSegundoNivel.class, MetricasCacheSegundoNivelTest.Registro.class})
+public class MetricasCacheSegundoNivelTest {
+
+    private static final String REGIAO_EMAIL = Usuario.class.getName() + "##NaturalId";
+
+    @TestConfiguration
+    static class Registro {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        usuarioRepository.deleteAll();
+    }
+
+    @Test
+    void whenHibernateStatisticsAreOff_thenTheNaturalIdRegionStillReportsHitsAndMisses() {
+        //Condições iniciais: um usuário cadastrado, com o email já na região ao gravar
+        usuarioRepository.save(new Usuario(null, "Maria", "111.444.777-35", "maria@teste.com.br",
+                LocalDate.parse("1990-10-10"), null, new ArrayList<>()));
+        var acertosAntes = gets("hit");
+        var falhasAntes = gets("miss");
+
+        //Realizando o teste: o email cadastrado acerta a região e o desconhecido falha
+        usuarioRepository.buscarPorEmail("maria@teste.com.br").orElseThrow();
+        assertTrue(usuarioRepository.buscarPorEmail("joao@teste.com.br").isEmpty());
+
+        assertFalse(entityManagerFactory.unwrap(SessionFactory.class).getStatistics().isStatisticsEnabled());
+        assertEquals(1, gets("hit") - acertosAntes);
+        assertEquals(1, gets("miss") - falhasAntes);
+    }
+
+    private double gets(String resultado) {
+        return meterRegistry.get("cache.gets").tags("cache", REGIAO_EMAIL, "result", resultado)
+                .functionCounter().count();
+    }
+}
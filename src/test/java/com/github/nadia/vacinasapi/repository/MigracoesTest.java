@@ -0,0 +1,79 @@
+package com.github.nadia.vacinasapi.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//banco criado pelo antigo ddl-auto: update, sem histórico do Flyway, recebendo baseline na versão 1 como em produção
+public class MigracoesTest {
+
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:migracoes_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        jdbc = new JdbcTemplate(dataSource);
+
+        //esquema antigo aplicado direto, como o Hibernate fazia, e dados gravados com ids do auto_increment
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/h2/V1__esquema_inicial.sql")).execute(dataSource);
+        jdbc.update("insert into usuarios (id, cpf, data_nascimento, email, nome) values (1, '11111111111', '1990-01-01', 'ana@email.com', 'Ana')");
+        jdbc.update("insert into vacinas (id, data_aplicacao, nome, usuario_id) values (7, '2022-04-10', 'CoronaVac', 1)");
+        jdbc.update("insert into vacinas (id, data_aplicacao, nome, usuario_id) values (130, '2022-04-11', 'Gripe', 1)");
+    }
+
+    @Test
+    void whenAnOldDatabaseIsBaselined_thenTheRemainingMigrationsBringItToTheCurrentSchema() {
+        //Realizando o teste
+        var resultado = migrar();
+
+        assertEquals(7, resultado.migrationsExecuted);
+        assertEquals(0L, jdbc.queryForObject("select versao from usuarios where id = 1", Long.class));
+        assertEquals(List.of(0L, 0L), jdbc.queryForList("select versao from vacinas order by id", Long.class));
+        assertEquals(List.of("FK_VACINAS_USUARIO", "UK_USUARIOS_CPF", "UK_USUARIOS_EMAIL"), jdbc.queryForList(
+                "select constraint_name from information_schema.constraints"
+                        + " where table_name in ('USUARIOS', 'VACINAS') and constraint_type <> 'PRIMARY KEY'"
+                        + " order by constraint_name", String.class));
+        var indices = jdbc.queryForList("select distinct index_name from information_schema.indexes", String.class);
+        assertTrue(indices.containsAll(List.of("IDX_VACINAS_USUARIO_DATA", "IDX_VACINAS_NOME_DATA",
+                "IDX_VACINAS_DATA_NOME", "IDX_USUARIOS_DATA_NASCIMENTO", "IDX_IMPORTACAO_ERROS_IMPORTACAO_LINHA",
+                "IDX_INGESTOES_CONCLUIDA_EM")));
+        assertEquals(0, jdbc.queryForObject("select count(*) from importacoes", Integer.class));
+        assertEquals(0, jdbc.queryForObject("select count(*) from vacinas_diarias", Integer.class));
+        assertEquals(0, jdbc.queryForObject("select count(*) from ingestoes", Integer.class));
+    }
+
+    @Test
+    void whenAnOldDatabaseIsBaselined_thenTheFirstVacinaBlockStartsAfterTheExistingIds() {
+        //Realizando o teste
+        migrar();
+        var fimDoBloco = jdbc.queryForObject("select next value for vacinas_seq", Long.class);
+
+        //o gerador pooled usa o bloco (fimDoBloco - 49 .. fimDoBloco)
+        assertEquals(180L, fimDoBloco);
+        jdbc.update("insert into vacinas (id, data_aplicacao, nome, usuario_id) values (?, '2022-04-12', 'Gripe', 1)",
+                fimDoBloco - 49);
+    }
+
+    private MigrateResult migrar() {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/h2")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+}
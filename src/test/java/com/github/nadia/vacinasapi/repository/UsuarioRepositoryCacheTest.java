@@ -0,0 +1,94 @@
+package com.github.nadia.vacinasapi.repository;
+
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//sem a transação do teste: o cache de segundo nível só é atualizado quando cada transação é confirmada
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UsuarioRepositoryCacheTest {
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    private Long id;
+
+    @BeforeEach
+    void setUp() {
+        //Condições iniciais: um usuário cadastrado e o cache vazio
+        entityManagerFactory.getCache().evictAll();
+        id = usuarioRepository.save(new Usuario(null, "Maria", "111.444.777-35", "maria@teste.com.br",
+                LocalDate.parse("1990-10-10"), null, new ArrayList<>())).getId();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        usuarioRepository.deleteAll();
+    }
+
+    @Test
+    void whenSearchingByEmailTwice_thenTheSecondLookupIsServedByTheNaturalIdCache() {
+        //Condições iniciais: a primeira busca aquece o cache
+        usuarioRepository.buscarPorEmail("maria@teste.com.br").orElseThrow();
+        statistics.clear();
+
+        //Realizando o teste
+        var emCache = usuarioRepository.buscarPorEmail("maria@teste.com.br").orElseThrow();
+
+        assertEquals(id, emCache.getId());
+        assertEquals(1, statistics.getNaturalIdCacheHitCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void whenEmailIsChanged_thenTheOldEmailNoLongerResolves() {
+        //Condições iniciais
+        usuarioRepository.buscarPorEmail("maria@teste.com.br").orElseThrow();
+
+        //Realizando o teste
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                usuarioRepository.findById(id).orElseThrow().setEmail("maria.silva@teste.com.br"));
+
+        assertTrue(usuarioRepository.buscarPorEmail("maria@teste.com.br").isEmpty());
+        assertEquals(id, usuarioRepository.buscarPorEmail("maria.silva@teste.com.br").orElseThrow().getId());
+    }
+
+    @Test
+    void whenUsuarioIsDeleted_thenItsEmailNoLongerResolves() {
+        //Condições iniciais
+        usuarioRepository.buscarPorEmail("maria@teste.com.br").orElseThrow();
+
+        //Realizando o teste
+        usuarioRepository.deleteById(id);
+
+        assertTrue(usuarioRepository.buscarPorEmail("maria@teste.com.br").isEmpty());
+    }
+}
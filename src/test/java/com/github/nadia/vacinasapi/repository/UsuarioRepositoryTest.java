@@ -0,0 +1,231 @@
+package com.github.nadia.vacinasapi.repository;
+
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.entity.Vacina;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import com.github.nadia.vacinasapi.domain.repository.VacinaRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+public class UsuarioRepositoryTest {
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private VacinaRepository vacinaRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        //Condições iniciais: um usuário já cadastrado
+        testEntityManager.persistAndFlush(usuario("maria@teste.com.br", "111.444.777-35"));
+        testEntityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void whenSavingANewUsuario_thenASingleStatementIsExecuted() {
+        //Realizando o teste
+        usuarioRepository.saveAndFlush(usuario("ana@teste.com.br", "123.456.789-09"));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void whenSavingADuplicatedEmail_thenTheEmailConstraintIsReported() {
+        //Realizando o teste
+        var ex = assertThrows(DataIntegrityViolationException.class,
+                () -> usuarioRepository.saveAndFlush(usuario("maria@teste.com.br", "123.456.789-09")));
+
+        assertTrue(nomeDaRestricao(ex).contains(Usuario.UK_EMAIL));
+    }
+
+    @Test
+    void whenSavingADuplicatedCpf_thenTheCpfConstraintIsReported() {
+        //Realizando o teste
+        var ex = assertThrows(DataIntegrityViolationException.class,
+                () -> usuarioRepository.saveAndFlush(usuario("ana@teste.com.br", "111.444.777-35")));
+
+        assertTrue(nomeDaRestricao(ex).contains(Usuario.UK_CPF));
+    }
+
+    @Test
+    void whenSearchingExistingEmailsAndCpfs_thenASingleStatementIsExecuted() {
+        //Realizando o teste
+        var existentes = usuarioRepository.buscarExistentes(
+                List.of("maria@teste.com.br", "ana@teste.com.br"), List.of("123.456.789-09"));
+
+        assertEquals(1, existentes.size());
+        assertEquals("111.444.777-35", existentes.get(0).getCpf());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void whenLoadingManyIds_thenMissingIdsAreSkippedAndBlocksBecomeInStatements() {
+        //Condições iniciais
+        var ids = new ArrayList<Long>();
+        ids.add(usuarioRepository.findByEmail("maria@teste.com.br").orElseThrow().getId());
+        for (int i = 0; i < 4; i++) {
+            ids.add(testEntityManager.persist(usuario("usuario" + i + "@teste.com.br", "000.000.000-0" + i)).getId());
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        ids.add(1, -1L);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        statistics.clear();
+
+        //Realizando o teste: 5 ids existentes em blocos de 2
+        var usuarios = usuarioRepository.buscarPorIds(ids, 2);
+
+        assertEquals(5, usuarios.size());
+        assertEquals(ids.get(0), usuarios.get(0).getId());
+        assertEquals(ids.get(2), usuarios.get(1).getId());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void whenUpdatingWithTheCurrentVersion_thenTheRowIsChangedAndTheVersionIncremented() {
+        //Condições iniciais
+        var id = usuarioRepository.findByEmail("maria@teste.com.br").orElseThrow().getId();
+        testEntityManager.clear();
+        statistics.clear();
+
+        //Realizando o teste: campos nulos mantêm o valor do banco
+        var linhas = usuarioRepository.atualizarParcial(id, 0L, Usuario.builder().nome("Maria").build());
+        var comandos = statistics.getPrepareStatementCount();
+        testEntityManager.clear();
+
+        assertEquals(1, linhas);
+        assertEquals(1, comandos);
+        var atualizado = usuarioRepository.findById(id).orElseThrow();
+        assertEquals("Maria", atualizado.getNome());
+        assertEquals("111.444.777-35", atualizado.getCpf());
+        assertEquals(1L, atualizado.getVersao());
+        assertEquals(Optional.of(1L), usuarioRepository.buscarVersao(id));
+    }
+
+    @Test
+    void whenUpdatingWithAStaleVersion_thenNoRowIsChanged() {
+        //Condições iniciais
+        var id = usuarioRepository.findByEmail("maria@teste.com.br").orElseThrow().getId();
+        testEntityManager.clear();
+
+        //Realizando o teste
+        assertEquals(0, usuarioRepository.atualizarParcial(id, 5L, Usuario.builder().nome("Maria").build()));
+    }
+
+    @Test
+    void whenUpdatingAnUsuario_thenOnlyItsCacheEntriesAreEvicted() {
+        //Condições iniciais: o Hibernate não põe no cache o que foi inserido na transação corrente, então os dados são
+        //confirmados e cada chamada abaixo roda na sua própria transação
+        var cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        var id = usuarioRepository.findByEmail("maria@teste.com.br").orElseThrow().getId();
+        var outro = testEntityManager.persistAndFlush(usuario("ana@teste.com.br", "123.456.789-09")).getId();
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        try {
+            cache.evictAllRegions();
+            usuarioRepository.findById(outro);
+            usuarioRepository.buscarPorEmail("maria@teste.com.br");
+            assertTrue(cache.containsEntity(Usuario.class, id));
+
+            //Realizando o teste
+            usuarioRepository.atualizarParcial(id, null, Usuario.builder().email("maria.nova@teste.com.br").build());
+
+            assertFalse(cache.containsEntity(Usuario.class, id));
+            assertTrue(cache.containsEntity(Usuario.class, outro));
+            assertEquals(Optional.empty(), usuarioRepository.buscarPorEmail("maria@teste.com.br"));
+            assertEquals(id, usuarioRepository.buscarPorEmail("maria.nova@teste.com.br").orElseThrow().getId());
+        } finally {
+            usuarioRepository.deleteAllById(List.of(id, outro));
+        }
+    }
+
+    @Test
+    void whenVersionsAreIncremented_thenOnlyTheGivenUsuariosChangeAndLeaveTheCache() {
+        //Condições iniciais: dados confirmados, como em whenUpdatingAnUsuario_thenOnlyItsCacheEntriesAreEvicted
+        var cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        var id = usuarioRepository.findByEmail("maria@teste.com.br").orElseThrow().getId();
+        var outro = testEntityManager.persistAndFlush(usuario("ana@teste.com.br", "123.456.789-09")).getId();
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        try {
+            cache.evictAllRegions();
+            usuarioRepository.findById(id);
+            usuarioRepository.findById(outro);
+
+            //Realizando o teste
+            assertEquals(1, usuarioRepository.incrementarVersao(List.of(id)));
+
+            assertFalse(cache.containsEntity(Usuario.class, id));
+            assertTrue(cache.containsEntity(Usuario.class, outro));
+            assertEquals(1L, usuarioRepository.findById(id).orElseThrow().getVersao());
+            assertEquals(Optional.of(0L), usuarioRepository.buscarVersao(outro));
+            assertEquals(id, usuarioRepository.buscarPorEmail("maria@teste.com.br").orElseThrow().getId());
+        } finally {
+            usuarioRepository.deleteAllById(List.of(id, outro));
+        }
+    }
+
+    @Test
+    void whenDeletingAnUsuarioWithManyVacinas_thenThreeStatementsAreExecuted() {
+        //Condições iniciais
+        var usuario = usuarioRepository.findByEmail("maria@teste.com.br").orElseThrow();
+        for (int i = 0; i < 100; i++) {
+            testEntityManager.persist(new Vacina(null, "CoronaVac", usuario, LocalDate.now(), null));
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        statistics.clear();
+
+        //Realizando o teste
+        var vacinas = vacinaRepository.deletarPorUsuario(usuario.getId());
+        var usuarios = usuarioRepository.deletarPorId(usuario.getId());
+
+        //os dois DELETEs e a leitura do email, que sai do cache de ids naturais junto com o id
+        assertEquals(100, vacinas);
+        assertEquals(1, usuarios);
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, usuarioRepository.deletarPorId(usuario.getId()));
+    }
+
+    private Usuario usuario(String email, String cpf) {
+        return new Usuario(null, "Usuario", cpf, email, LocalDate.parse("1990-10-10"), null, new ArrayList<>());
+    }
+
+    private String nomeDaRestricao(DataIntegrityViolationException ex) {
+        var causa = (ConstraintViolationException) ex.getCause();
+        return causa.getConstraintName().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.nadia.vacinasapi.repository;
+
+import com.github.nadia.vacinasapi.api.DTO.response.VacinaDiariaResponse;
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.entity.Vacina;
+import com.github.nadia.vacinasapi.domain.repository.VacinaDiariaRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+//o upsert é SQL do MySQL: usa o H2 do application.yml de teste (MODE=MySQL) no lugar do embutido padrão
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class VacinaDiariaRepositoryTest {
+
+    private static final LocalDate ONTEM = LocalDate.parse("2022-04-09");
+    private static final LocalDate HOJE = LocalDate.parse("2022-04-10");
+
+    @Autowired
+    private VacinaDiariaRepository vacinaDiariaRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void whenSummingTheSameDayAndNome_thenASingleRowIsKeptWithOneStatementEach() {
+        //Realizando o teste
+        vacinaDiariaRepository.somar(HOJE, "CoronaVac", 2);
+        vacinaDiariaRepository.somar(HOJE, "CoronaVac", 3);
+        vacinaDiariaRepository.somar(HOJE, "Gripe", 1);
+        vacinaDiariaRepository.somar(HOJE, "Gripe", -1);
+        var comandos = statistics.getPrepareStatementCount();
+
+        assertEquals(4, comandos);
+        assertEquals(List.of(new VacinaDiariaResponse(HOJE, "CoronaVac", 5L)),
+                vacinaDiariaRepository.buscarPorPeriodo(HOJE, HOJE, null));
+    }
+
+    @Test
+    void whenSearchingAPeriod_thenRowsComeOrderedAndFilteredByNome() {
+        //Condições iniciais
+        vacinaDiariaRepository.somar(ONTEM, "Gripe", 1);
+        vacinaDiariaRepository.somar(HOJE, "Gripe", 4);
+        vacinaDiariaRepository.somar(HOJE, "CoronaVac", 2);
+        vacinaDiariaRepository.somar(HOJE.plusDays(1), "Gripe", 7);
+
+        //Realizando o teste
+        var todas = vacinaDiariaRepository.buscarPorPeriodo(ONTEM, HOJE, null);
+        var gripe = vacinaDiariaRepository.buscarPorPeriodo(ONTEM, HOJE, "Gripe");
+
+        assertEquals(List.of(new VacinaDiariaResponse(ONTEM, "Gripe", 1L),
+                new VacinaDiariaResponse(HOJE, "CoronaVac", 2L),
+                new VacinaDiariaResponse(HOJE, "Gripe", 4L)), todas);
+        assertEquals(List.of(new VacinaDiariaResponse(ONTEM, "Gripe", 1L),
+                new VacinaDiariaResponse(HOJE, "Gripe", 4L)), gripe);
+    }
+
+    @Test
+    void whenRebuildingAPeriod_thenTheRowsMatchTheVacinasTable() {
+        //Condições iniciais: tabela diária errada para ontem e vacinas reais em dois dias
+        var usuario = new Usuario(null, "Usuario", "111.444.777-35", "maria@teste.com.br",
+                LocalDate.parse("1990-10-10"), null, new ArrayList<>());
+        testEntityManager.persist(usuario);
+        for (int i = 0; i < 3; i++) {
+            testEntityManager.persist(new Vacina(null, "Gripe", usuario, ONTEM, null));
+        }
+        testEntityManager.persist(new Vacina(null, "CoronaVac", usuario, HOJE, null));
+        testEntityManager.flush();
+        vacinaDiariaRepository.somar(ONTEM, "Gripe", 10);
+        vacinaDiariaRepository.somar(ONTEM, "Febre Amarela", 2);
+
+        //Realizando o teste
+        vacinaDiariaRepository.deletarPeriodo(ONTEM, HOJE);
+        var linhas = vacinaDiariaRepository.preencherPeriodo(ONTEM, HOJE);
+        var periodo = vacinaDiariaRepository.buscarPeriodoDasVacinas();
+
+        assertEquals(2, linhas);
+        assertEquals(List.of(new VacinaDiariaResponse(ONTEM, "Gripe", 3L),
+                new VacinaDiariaResponse(HOJE, "CoronaVac", 1L)),
+                vacinaDiariaRepository.buscarPorPeriodo(ONTEM, HOJE, null));
+        assertEquals(ONTEM, periodo.getInicio());
+        assertEquals(HOJE, periodo.getFim());
+    }
+
+    @Test
+    void whenThereAreNoVacinas_thenThePeriodIsEmpty() {
+        //Realizando o teste
+        var periodo = vacinaDiariaRepository.buscarPeriodoDasVacinas();
+
+        assertNull(periodo.getInicio());
+        assertNull(periodo.getFim());
+    }
+}
@@ -0,0 +1,212 @@
+package com.github.nadia.vacinasapi.repository;
+
+import com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse;
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.entity.Vacina;
+import com.github.nadia.vacinasapi.domain.repository.VacinaRepository;
+import com.github.nadia.vacinasapi.utils.ConsultasCapturadas;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.github.nadia.vacinasapi.utils.ConsultasCapturadas")
+public class VacinaRepositoryTest {
+
+    private static final int QUANTIDADE_USUARIOS = 100;
+    private static final int VACINAS_POR_USUARIO = 10;
+
+    @Autowired
+    private VacinaRepository vacinaRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        //Condições iniciais: 1000 vacinas espalhadas por 100 usuários
+        for (int i = 0; i < QUANTIDADE_USUARIOS; i++) {
+            var usuario = new Usuario(null, "Usuario " + i, "cpf-" + i, "usuario" + i + "@teste.com.br",
+                    LocalDate.parse("1990-10-10"), null, new ArrayList<>());
+            testEntityManager.persist(usuario);
+            for (int j = 0; j < VACINAS_POR_USUARIO; j++) {
+                testEntityManager.persist(new Vacina(null, "CoronaVac", usuario, LocalDate.now(), null));
+            }
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void whenListingAThousandVacinas_thenASingleStatementIsExecuted() {
+        //Realizando o teste
+        var pagina = vacinaRepository.buscarResponsesAposId(0L, PageRequest.of(0, 1000, Sort.by("id")));
+
+        assertEquals(1000, pagina.getNumberOfElements());
+        assertFalse(pagina.hasNext());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void whenListingSmallAndLargePages_thenStatementCountIsConstant() {
+        //Realizando o teste
+        vacinaRepository.buscarResponsesAposId(0L, PageRequest.of(0, 10, Sort.by("id")));
+        long statementsPaginaPequena = statistics.getPrepareStatementCount();
+        statistics.clear();
+        vacinaRepository.buscarResponsesAposId(0L, PageRequest.of(0, 1000, Sort.by("id")));
+
+        assertEquals(statementsPaginaPequena, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void whenListingVacinasOfAUsuario_thenRowsComeOrderedByDateAndPagedByKeyset() {
+        //Condições iniciais
+        var usuario = new Usuario(null, "Maria", "cpf-maria", "maria@teste.com.br", LocalDate.parse("1990-10-10"), null, new ArrayList<>());
+        testEntityManager.persist(usuario);
+        var antiga = testEntityManager.persist(new Vacina(null, "Febre Amarela", usuario, LocalDate.parse("2021-05-01"), null));
+        var recente = testEntityManager.persist(new Vacina(null, "CoronaVac", usuario, LocalDate.parse("2022-08-13"), null));
+        var mesmaData = testEntityManager.persist(new Vacina(null, "Gripe", usuario, LocalDate.parse("2022-08-13"), null));
+        testEntityManager.flush();
+        testEntityManager.clear();
+        var de = LocalDate.parse("2000-01-01");
+        var ate = LocalDate.parse("2030-01-01");
+
+        //Realizando o teste
+        var primeira = vacinaRepository.buscarResponsesPorUsuario(usuario.getId(), de, ate, de, 0L, PageRequest.of(0, 2));
+        var ultima = primeira.getContent().get(1);
+        var segunda = vacinaRepository.buscarResponsesPorUsuario(usuario.getId(), de, ate, ultima.getDataAplicacao(), ultima.getId(), PageRequest.of(0, 2));
+
+        assertEquals(antiga.getId(), primeira.getContent().get(0).getId());
+        assertEquals(recente.getId(), ultima.getId());
+        assertTrue(primeira.hasNext());
+        assertEquals(1, segunda.getNumberOfElements());
+        assertEquals(mesmaData.getId(), segunda.getContent().get(0).getId());
+        assertFalse(segunda.hasNext());
+    }
+
+    @Test
+    void whenSavingManyVacinas_thenInsertsAreBatched() {
+        //Condições iniciais
+        var usuario = new Usuario(null, "Maria", "cpf-maria", "maria@teste.com.br", LocalDate.parse("1990-10-10"), null, new ArrayList<>());
+        testEntityManager.persistAndFlush(usuario);
+        var vacinas = new ArrayList<Vacina>();
+        for (int i = 0; i < 200; i++) {
+            vacinas.add(new Vacina(null, "CoronaVac", usuario, LocalDate.now(), null));
+        }
+        statistics.clear();
+
+        //Realizando o teste
+        vacinaRepository.saveAll(vacinas);
+        testEntityManager.flush();
+
+        //200 inserts em batches de 50, mais poucas idas à sequence pooled
+        assertEquals(200, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 10);
+    }
+
+    @Test
+    void whenSearchingById_thenTheProjectionIsReturnedWithoutLoadingEntities() {
+        //Condições iniciais
+        var primeira = vacinaRepository.buscarResponsesAposId(0L, PageRequest.of(0, 1, Sort.by("id"))).getContent().get(0);
+        statistics.clear();
+
+        //Realizando o teste
+        var response = vacinaRepository.buscarResponsePorId(primeira.getId()).orElseThrow();
+
+        //a busca por id traz também o dono, usado na invalidação do cache de respostas
+        assertEquals(primeira.getId(), response.getId());
+        assertEquals(primeira.getNome(), response.getNome());
+        assertEquals(primeira.getEmail(), response.getEmail());
+        assertNotNull(response.getUsuarioId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void whenSearchingByManyIds_thenASingleInStatementReturnsTheFoundOnes() {
+        //Condições iniciais
+        var ids = vacinaRepository.buscarResponsesAposId(0L, PageRequest.of(0, 3, Sort.by("id"))).getContent().stream()
+                .map(VacinaResponse::getId).collect(Collectors.toList());
+        statistics.clear();
+
+        //Realizando o teste
+        var responses = vacinaRepository.buscarResponsesPorIds(List.of(ids.get(2), -1L, ids.get(0)));
+
+        assertEquals(2, responses.size());
+        assertTrue(responses.stream().allMatch(response -> response.getEmail() != null && response.getUsuarioId() != null));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void whenRenamingAVacina_thenASingleUpdateIsExecuted() {
+        //Condições iniciais
+        var primeira = vacinaRepository.buscarResponsesAposId(0L, PageRequest.of(0, 1, Sort.by("id"))).getContent().get(0);
+        statistics.clear();
+
+        //Realizando o teste
+        var linhas = vacinaRepository.atualizarNome(primeira.getId(), "Gripe");
+        var comandos = statistics.getPrepareStatementCount();
+
+        assertEquals(1, linhas);
+        assertEquals(1, comandos);
+        assertEquals(0, vacinaRepository.atualizarNome(-1L, "Gripe"));
+        assertEquals("Gripe", vacinaRepository.buscarResponsePorId(primeira.getId()).orElseThrow().getNome());
+    }
+
+    @Test
+    void whenCountingByNomeAndDia_thenTheGroupByTotalsAreReturned() {
+        //Condições iniciais
+        var primeira = vacinaRepository.buscarResponsesAposId(0L, PageRequest.of(0, 1, Sort.by("id"))).getContent().get(0);
+        vacinaRepository.atualizarNome(primeira.getId(), "Gripe");
+
+        //Realizando o teste
+        var porNome = vacinaRepository.contarPorNome();
+        var porDia = vacinaRepository.contarPorDia();
+        var porIds = vacinaRepository.travarContagemPorIds(List.of(primeira.getId(), -1L));
+        var consultaPorIds = ConsultasCapturadas.ultima();
+        var porUsuario = vacinaRepository.travarContagemPorUsuario(
+                testEntityManager.find(Vacina.class, primeira.getId()).getUsuario().getId());
+
+        assertEquals(2, porNome.size());
+        assertEquals(QUANTIDADE_USUARIOS * VACINAS_POR_USUARIO,
+                porNome.stream().mapToLong(VacinaRepository.ContagemVacinas::getQuantidade).sum());
+        assertEquals(1, porDia.size());
+        assertEquals(LocalDate.now(), porDia.get(0).getDataAplicacao());
+        assertEquals(1, porIds.size());
+        assertEquals("Gripe", porIds.get(0).getNome());
+        assertEquals(1L, porIds.get(0).getQuantidade());
+        //as linhas lidas para descontar das estatísticas ficam travadas até o commit
+        assertTrue(consultaPorIds.toLowerCase(Locale.ROOT).endsWith(" for update"), consultaPorIds);
+        assertTrue(ConsultasCapturadas.ultima().toLowerCase(Locale.ROOT).endsWith(" for update"));
+        assertEquals(Map.of("Gripe", 1L, "CoronaVac", (long) VACINAS_POR_USUARIO - 1), porUsuario.stream()
+                .collect(Collectors.toMap(VacinaRepository.ContagemVacinas::getNome, VacinaRepository.ContagemVacinas::getQuantidade)));
+    }
+}
@@ -0,0 +1,181 @@
+package com.github.nadia.vacinasapi.repository;
+
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.entity.Vacina;
+import com.github.nadia.vacinasapi.domain.repository.VacinaRepository;
+import com.github.nadia.vacinasapi.domain.repository.VacinaSpecifications;
+import com.github.nadia.vacinasapi.utils.ConsultasCapturadas;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//os filtros rodam sobre o esquema das migrações; o EXPLAIN do SQL gerado confere o índice de cada combinação
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.github.nadia.vacinasapi.utils.ConsultasCapturadas")
+public class VacinaSpecificationsTest {
+
+    private static final LocalDate INICIO = LocalDate.parse("2022-01-01");
+
+    @Autowired
+    private VacinaRepository vacinaRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        //Condições iniciais: 10 usuários, cada um com uma dose de CoronaVac e uma de Gripe por dia durante 10 dias
+        for (int i = 0; i < 10; i++) {
+            var usuario = new Usuario(null, "Usuario " + i, "cpf-" + i, "usuario" + i + "@teste.com.br",
+                    LocalDate.parse("1990-10-10"), null, new ArrayList<>());
+            testEntityManager.persist(usuario);
+            for (int dia = 0; dia < 10; dia++) {
+                testEntityManager.persist(new Vacina(null, "CoronaVac", usuario, INICIO.plusDays(dia), null));
+                testEntityManager.persist(new Vacina(null, "Gripe", usuario, INICIO.plusDays(dia), null));
+            }
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        ConsultasCapturadas.limpar();
+    }
+
+    @Test
+    void whenFilteringByNomeAndPeriod_thenTheNomeDataIndexIsUsed() {
+        //Realizando o teste
+        var pagina = vacinaRepository.buscarResponses(Specification
+                .where(VacinaSpecifications.comNome("Gripe"))
+                .and(VacinaSpecifications.aplicadaDesde(INICIO.plusDays(2)))
+                .and(VacinaSpecifications.aplicadaAte(INICIO.plusDays(3))), 15);
+
+        assertEquals(15, pagina.getNumberOfElements());
+        assertTrue(pagina.hasNext());
+        assertTrue(pagina.getContent().stream().allMatch(vacina -> vacina.getNome().equals("Gripe")));
+        assertOrdenadaPorDataEId(pagina.getContent().stream().map(vacina -> vacina.getDataAplicacao() + ":" + vacina.getId()).collect(Collectors.toList()));
+        assertUsaIndice("idx_vacinas_nome_data", "Gripe", INICIO.plusDays(2), INICIO.plusDays(3), 16);
+    }
+
+    @Test
+    void whenFilteringByPeriodOnly_thenTheDataIndexIsUsed() {
+        //Realizando o teste
+        var pagina = vacinaRepository.buscarResponses(Specification
+                .where(VacinaSpecifications.aplicadaDesde(INICIO.plusDays(9))), 50);
+
+        assertEquals(20, pagina.getNumberOfElements());
+        assertFalse(pagina.hasNext());
+        assertUsaIndice("idx_vacinas_data_nome", INICIO.plusDays(9), 51);
+    }
+
+    @Test
+    void whenFilteringByEmails_thenTheUsuarioIsFoundByEmailAndItsVacinasByIndex() {
+        //Realizando o teste
+        var pagina = vacinaRepository.buscarResponses(Specification
+                .where(VacinaSpecifications.doUsuarioComEmail(List.of("usuario3@teste.com.br", "usuario7@teste.com.br"))), 50);
+
+        assertEquals(40, pagina.getNumberOfElements());
+        assertTrue(pagina.getContent().stream().allMatch(vacina -> vacina.getEmail().matches("usuario[37]@teste.com.br")));
+        assertUsaIndice("uk_usuarios_email", "usuario3@teste.com.br", "usuario7@teste.com.br", 51);
+        //as vacinas chegam pelo índice de usuario_id; o H2 prefere o índice próprio da chave estrangeira, que no MySQL
+        //não existe (V6 o remove e a chave fica apoiada em idx_vacinas_usuario_data, conferido no teste com período)
+        assertTrue(planoDaUltima("usuario3@teste.com.br", "usuario7@teste.com.br", 51).contains("usuario_id = usuario1_.id"));
+        //um único join com usuarios, reaproveitado pela projeção e pelo filtro
+        assertEquals(1, ConsultasCapturadas.ultima().toLowerCase(Locale.ROOT).split(" join ").length - 1);
+    }
+
+    @Test
+    void whenFilteringByNomeOnly_thenTheNomeDataIndexIsUsed() {
+        //Realizando o teste
+        var pagina = vacinaRepository.buscarResponses(Specification
+                .where(VacinaSpecifications.comNome("CoronaVac")), 30);
+
+        assertEquals(30, pagina.getNumberOfElements());
+        assertTrue(pagina.hasNext());
+        assertTrue(pagina.getContent().stream().allMatch(vacina -> vacina.getNome().equals("CoronaVac")));
+        assertOrdenadaPorDataEId(pagina.getContent().stream().map(vacina -> vacina.getDataAplicacao() + ":" + vacina.getId()).collect(Collectors.toList()));
+        assertUsaIndice("idx_vacinas_nome_data", "CoronaVac", 31);
+    }
+
+    @Test
+    void whenFilteringByNomeAndEmail_thenTheUsuarioIsFoundByEmailAndItsVacinasByIndex() {
+        //Realizando o teste
+        var pagina = vacinaRepository.buscarResponses(Specification
+                .where(VacinaSpecifications.comNome("Gripe"))
+                .and(VacinaSpecifications.doUsuarioComEmail(List.of("usuario3@teste.com.br"))), 50);
+
+        assertEquals(10, pagina.getNumberOfElements());
+        assertTrue(pagina.getContent().stream().allMatch(vacina -> vacina.getNome().equals("Gripe")
+                && vacina.getEmail().equals("usuario3@teste.com.br")));
+        //o H2 começa pelo nome e busca o usuário pela chave primária; com estatísticas reais o MySQL pode começar pelo
+        //email. nos dois caminhos nenhuma tabela é varrida
+        assertUsaIndice("idx_vacinas_nome_data", "Gripe", "usuario3@teste.com.br", 51);
+    }
+
+    @Test
+    void whenFilteringByEmailAndPeriod_thenTheUsuarioDataIndexIsUsed() {
+        //Realizando o teste
+        var pagina = vacinaRepository.buscarResponses(Specification
+                .where(VacinaSpecifications.doUsuarioComEmail(List.of("usuario3@teste.com.br")))
+                .and(VacinaSpecifications.aplicadaDesde(INICIO.plusDays(2)))
+                .and(VacinaSpecifications.aplicadaAte(INICIO.plusDays(3))), 50);
+
+        assertEquals(4, pagina.getNumberOfElements());
+        assertTrue(pagina.getContent().stream().allMatch(vacina -> vacina.getEmail().equals("usuario3@teste.com.br")));
+        assertUsaIndice("uk_usuarios_email", "usuario3@teste.com.br", INICIO.plusDays(2), INICIO.plusDays(3), 51);
+        assertUsaIndice("idx_vacinas_usuario_data", "usuario3@teste.com.br", INICIO.plusDays(2), INICIO.plusDays(3), 51);
+    }
+
+    @Test
+    void whenContinuingAfterACursor_thenTheNextPageStartsAfterThePosition() {
+        //Condições iniciais
+        var filtro = Specification.where(VacinaSpecifications.comNome("Gripe"));
+        var primeira = vacinaRepository.buscarResponses(filtro, 7);
+        var ultima = primeira.getContent().get(6);
+
+        //Realizando o teste
+        var segunda = vacinaRepository.buscarResponses(filtro.and(
+                VacinaSpecifications.apos(ultima.getDataAplicacao(), ultima.getId())), 7);
+
+        var ids = new ArrayList<String>();
+        primeira.getContent().forEach(vacina -> ids.add(vacina.getDataAplicacao() + ":" + vacina.getId()));
+        segunda.getContent().forEach(vacina -> ids.add(vacina.getDataAplicacao() + ":" + vacina.getId()));
+        assertEquals(14, ids.stream().distinct().count());
+        assertOrdenadaPorDataEId(ids);
+        assertUsaIndice("idx_vacinas_nome_data", "Gripe", ultima.getDataAplicacao(), ultima.getDataAplicacao(), 8);
+    }
+
+    //parâmetros na ordem em que aparecem no SQL gerado (números literais o Hibernate já escreve no SQL)
+    private void assertUsaIndice(String indice, Object... parametros) {
+        var plano = planoDaUltima(parametros);
+        assertTrue(plano.contains(indice), plano);
+        assertFalse(plano.contains("vacinas.tablescan"), plano);
+    }
+
+    private String planoDaUltima(Object... parametros) {
+        return new JdbcTemplate(dataSource)
+                .queryForObject("explain " + ConsultasCapturadas.ultima(), String.class, parametros)
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private void assertOrdenadaPorDataEId(List<String> posicoes) {
+        for (int i = 1; i < posicoes.size(); i++) {
+            var anterior = posicoes.get(i - 1).split(":");
+            var atual = posicoes.get(i).split(":");
+            var comparacao = LocalDate.parse(anterior[0]).compareTo(LocalDate.parse(atual[0]));
+            assertTrue(comparacao < 0 || comparacao == 0 && Long.parseLong(anterior[1]) < Long.parseLong(atual[1]));
+        }
+    }
+}
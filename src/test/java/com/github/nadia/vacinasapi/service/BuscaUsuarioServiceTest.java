@@ -0,0 +1,161 @@
+package com.github.nadia.vacinasapi.service;
+
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.exception.ServiceException;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import com.github.nadia.vacinasapi.domain.service.BuscaUsuarioService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class BuscaUsuarioServiceTest {
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private BuscaUsuarioService buscaUsuarioService;
+
+    @BeforeEach
+    void setUp() {
+        buscaUsuarioService.registrarMetricas();
+
+        //Estabelece o comportamento dos mocks
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(usuarioRepository.streamIndexaveis()).thenAnswer(invocation -> Stream.of(
+                indexavel(1L, "Maria da Silva", "111.444.777-35", "maria@teste.com.br"),
+                indexavel(2L, "Ana Maria Souza", "123.456.789-09", "ana@teste.com.br"),
+                indexavel(3L, "João Mariano", "111.444.000-00", "jmariano@teste.com.br"),
+                indexavel(4L, "Pedro Rosa", "987.654.321-00", "pedro.rosa@teste.com.br")));
+    }
+
+    @Test
+    void whenIndexIsNotBuiltYet_thenAnErrorIsShown() {
+        //Realizar o teste
+        assertThrows(ServiceException.class, () -> buscaUsuarioService.buscar("maria", 20));
+    }
+
+    @Test
+    void whenQueryIsTooShort_thenAnErrorIsShown() {
+        //Condições iniciais
+        buscaUsuarioService.reconstruir();
+
+        //Realizar o teste
+        assertThrows(ServiceException.class, () -> buscaUsuarioService.buscar(" m ", 20));
+    }
+
+    @Test
+    void whenSearchingByCpf_thenPunctuationIsIgnoredAndPrefixesMatch() {
+        //Condições iniciais
+        buscaUsuarioService.reconstruir();
+
+        //Realizar o teste
+        assertEquals(List.of(1L, 3L), buscaUsuarioService.buscar("111.444", 20));
+        assertEquals(List.of(3L), buscaUsuarioService.buscar("11144400000", 20));
+        assertEquals(List.of(), buscaUsuarioService.buscar("555", 20));
+    }
+
+    @Test
+    void whenSearchingByNameOrEmail_thenResultsAreRankedByTheKindOfMatch() {
+        //Condições iniciais
+        buscaUsuarioService.reconstruir();
+
+        //Realizar o teste: prefixo de email, início do nome, início de palavra, trecho do nome
+        assertEquals(List.of(1L, 2L, 3L), buscaUsuarioService.buscar("maria", 20));
+        assertEquals(List.of(2L), buscaUsuarioService.buscar("ana@teste.com.br", 20));
+        assertEquals(List.of(4L), buscaUsuarioService.buscar("PEDRO.", 20));
+        assertEquals(List.of(1L, 2L), buscaUsuarioService.buscar("maria", 2));
+    }
+
+    @Test
+    void whenUsuariosChangeAfterConstruction_thenTheIndexFollows() {
+        //Condições iniciais
+        buscaUsuarioService.reconstruir();
+
+        //Realizar o teste: cadastro, atualização parcial e remoção
+        buscaUsuarioService.registrar(usuario(5L, "Carla Dias", "555.666.777-88", "carla@teste.com.br"));
+        buscaUsuarioService.registrar(4L, Usuario.builder().email("rosa@teste.com.br").build());
+        buscaUsuarioService.remover(1L);
+
+        assertEquals(List.of(5L), buscaUsuarioService.buscar("555", 20));
+        assertEquals(List.of(4L), buscaUsuarioService.buscar("rosa@", 20));
+        assertEquals(List.of(), buscaUsuarioService.buscar("pedro.rosa", 20));
+        assertEquals(List.of(4L), buscaUsuarioService.buscar("pedro", 20));
+        assertEquals(List.of(2L, 3L), buscaUsuarioService.buscar("maria", 20));
+        assertEquals(4, meterRegistry.get("vacinas.busca.usuarios.itens").gauge().value());
+        assertTrue(meterRegistry.get("vacinas.busca.usuarios.memoria").gauge().value() > 0);
+    }
+
+    @Test
+    void whenUsuariosChangeDuringARebuild_thenTheChangesWinOverTheScannedRows() {
+        //Estabelece o comportamento dos mocks: a alteração e a remoção são confirmadas no meio da varredura
+        when(usuarioRepository.streamIndexaveis()).thenReturn(Stream.of(
+                indexavel(1L, "Maria da Silva", "111.444.777-35", "maria@teste.com.br"),
+                indexavel(2L, "Ana Maria Souza", "123.456.789-09", "ana@teste.com.br"))
+                .peek(existente -> {
+                    buscaUsuarioService.registrar(2L, Usuario.builder().nome("Ana Lima").build());
+                    buscaUsuarioService.remover(1L);
+                }));
+
+        //Realizar o teste
+        buscaUsuarioService.reconstruir();
+
+        assertEquals(List.of(), buscaUsuarioService.buscar("maria", 20));
+        assertEquals(List.of(2L), buscaUsuarioService.buscar("lima", 20));
+        assertEquals(List.of(2L), buscaUsuarioService.buscar("ana@", 20));
+    }
+
+    private static Usuario usuario(Long id, String nome, String cpf, String email) {
+        return Usuario.builder().id(id).nome(nome).cpf(cpf).email(email).build();
+    }
+
+    private static UsuarioRepository.Indexavel indexavel(Long id, String nome, String cpf, String email) {
+        return new UsuarioRepository.Indexavel() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getNome() {
+                return nome;
+            }
+
+            @Override
+            public String getCpf() {
+                return cpf;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.nadia.vacinasapi.service;
+
+import com.github.nadia.vacinasapi.builder.UsuarioBuilder;
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import com.github.nadia.vacinasapi.domain.service.CarregadorUsuarioService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class CarregadorUsuarioServiceTest {
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private CarregadorUsuarioService carregadorUsuarioService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(carregadorUsuarioService, "habilitado", true);
+        ReflectionTestUtils.setField(carregadorUsuarioService, "tamanhoMaximo", 100);
+        //janela larga para as buscas do teste caírem juntas
+        ReflectionTestUtils.setField(carregadorUsuarioService, "janelaMicros", 50_000L);
+
+        //Estabelece o comportamento dos mocks
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(usuarioRepository.findByEmailIn(anyCollection())).thenAnswer(invocation -> {
+            var usuarios = new ArrayList<Usuario>();
+            for (String email : invocation.<Collection<String>>getArgument(0)) {
+                if (!email.startsWith("ausente")) {
+                    usuarios.add(UsuarioBuilder.builder().email(email.toLowerCase()).build().toUsuario());
+                }
+            }
+            return usuarios;
+        });
+        carregadorUsuarioService.iniciar();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        carregadorUsuarioService.encerrar();
+    }
+
+    @Test
+    void whenConcurrentLookupsArrive_thenASingleDeduplicatedInQueryIsExecuted() throws Exception {
+        //Condições iniciais
+        var executor = Executors.newFixedThreadPool(8);
+        var largada = new CountDownLatch(1);
+        var emails = List.of("a@teste.com.br", "b@teste.com.br", "A@teste.com.br", "a@teste.com.br",
+                "c@teste.com.br", "ausente@teste.com.br", "b@teste.com.br", "c@teste.com.br");
+
+        //Realizando o teste
+        var futuros = new ArrayList<CompletableFuture<Optional<Usuario>>>();
+        for (String email : emails) {
+            futuros.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    largada.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return carregadorUsuarioService.buscarPorEmail(email);
+            }, executor));
+        }
+        largada.countDown();
+
+        for (int i = 0; i < emails.size(); i++) {
+            var usuario = futuros.get(i).get();
+            assertEquals(!emails.get(i).startsWith("ausente"), usuario.isPresent());
+            usuario.ifPresent(encontrado -> assertNotNull(encontrado.getEmail()));
+        }
+        executor.shutdown();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(usuarioRepository).findByEmailIn(captor.capture());
+        assertEquals(4, captor.getValue().size());
+        assertEquals(1, meterRegistry.counter("vacinas.carregador.usuarios.consultas").count());
+        assertEquals(8, meterRegistry.timer("vacinas.carregador.usuarios.espera").count());
+    }
+
+    @Test
+    void whenALookupArrivesAlone_thenTheNaturalIdCacheIsUsed() {
+        //Estabelece o comportamento dos mocks
+        var usuario = UsuarioBuilder.builder().build().toUsuario();
+        when(usuarioRepository.buscarPorEmail(usuario.getEmail())).thenReturn(Optional.of(usuario));
+
+        //Realizando o teste
+        assertEquals(Optional.of(usuario), carregadorUsuarioService.buscarPorEmail(usuario.getEmail()));
+        verify(usuarioRepository, never()).findByEmailIn(anyCollection());
+    }
+
+    @Test
+    void whenTheQueryFails_thenTheCallerSeesTheOriginalException() {
+        //Estabelece o comportamento dos mocks
+        when(usuarioRepository.buscarPorEmail("erro@teste.com.br")).thenThrow(new IllegalStateException("banco fora"));
+
+        //Realizando o teste
+        assertThrows(IllegalStateException.class, () -> carregadorUsuarioService.buscarPorEmail("erro@teste.com.br"));
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.nadia.vacinasapi.service;
+
+import com.github.nadia.vacinasapi.builder.VacinaBuilder;
+import com.github.nadia.vacinasapi.domain.repository.VacinaRepository;
+import com.github.nadia.vacinasapi.domain.service.EstatisticaVacinaService;
+import com.github.nadia.vacinasapi.domain.service.VacinaDiariaService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class EstatisticaVacinaServiceTest {
+
+    private static final LocalDate ONTEM = LocalDate.parse("2022-04-09");
+    private static final LocalDate HOJE = LocalDate.parse("2022-04-10");
+
+    @Mock
+    private VacinaRepository vacinaRepository;
+
+    @Mock
+    private VacinaDiariaService vacinaDiariaService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private EstatisticaVacinaService estatisticaVacinaService;
+
+    @BeforeEach
+    void setUp() {
+        estatisticaVacinaService.registrarMetricas();
+
+        //Estabelece o comportamento dos mocks: 2 CoronaVac ontem e 1 Gripe hoje
+        when(vacinaRepository.contarPorNome()).thenReturn(List.of(contagem("CoronaVac", null, 2), contagem("Gripe", null, 1)));
+        when(vacinaRepository.contarPorDia()).thenReturn(List.of(contagem(null, ONTEM, 2), contagem(null, HOJE, 1)));
+        estatisticaVacinaService.reconciliar();
+    }
+
+    @Test
+    void whenCountersAreSeeded_thenTheGroupByTotalsAreReturned() {
+        //Realizar o teste
+        var estatisticas = estatisticaVacinaService.estatisticas();
+
+        assertEquals(3L, estatisticas.getTotal());
+        assertEquals(Map.of("CoronaVac", 2L, "Gripe", 1L), estatisticas.getPorNome());
+        assertEquals(Map.of(ONTEM, 2L, HOJE, 1L), estatisticas.getPorDia());
+        assertNotNull(estatisticas.getReconciliadoEm());
+    }
+
+    @Test
+    void whenVacinasAreAppliedRenamedAndRemoved_thenTheCountersFollowWithoutQueries() {
+        //Condições iniciais
+        var vacina = VacinaBuilder.builder().nome("Gripe").dataAplicacao(HOJE).build().toVacina();
+
+        //Realizar o teste
+        estatisticaVacinaService.registrarAplicacoes(List.of(vacina));
+        estatisticaVacinaService.registrarRenomeacao("CoronaVac", "Febre Amarela", ONTEM);
+        estatisticaVacinaService.registrarRemocoes(List.of(contagem("Febre Amarela", ONTEM, 1)));
+
+        var estatisticas = estatisticaVacinaService.estatisticas();
+        assertEquals(3L, estatisticas.getTotal());
+        assertEquals(Map.of("CoronaVac", 1L, "Gripe", 2L), estatisticas.getPorNome());
+        assertEquals(Map.of(ONTEM, 1L, HOJE, 2L), estatisticas.getPorDia());
+    }
+
+    @Test
+    void whenManyVacinasAreApplied_thenTheDailyTableGetsOneUpsertPerDayAndNome() {
+        //Condições iniciais
+        var vacinas = List.of(
+                VacinaBuilder.builder().nome("Gripe").dataAplicacao(HOJE).build().toVacina(),
+                VacinaBuilder.builder().nome("Gripe").dataAplicacao(HOJE).build().toVacina(),
+                VacinaBuilder.builder().nome("CoronaVac").dataAplicacao(HOJE).build().toVacina());
+
+        //Realizar o teste
+        estatisticaVacinaService.registrarAplicacoes(vacinas);
+        estatisticaVacinaService.registrarRenomeacao("Gripe", "Febre Amarela", HOJE);
+
+        verify(vacinaDiariaService).somar(HOJE, "Gripe", 2);
+        verify(vacinaDiariaService).somar(HOJE, "CoronaVac", 1);
+        verify(vacinaDiariaService).somar(HOJE, "Gripe", -1);
+        verify(vacinaDiariaService).somar(HOJE, "Febre Amarela", 1);
+        verifyNoMoreInteractions(vacinaDiariaService);
+    }
+
+    @Test
+    void whenTheCountersDrift_thenTheReconciliationFixesAndReportsIt() {
+        //Condições iniciais: uma remoção que o banco não confirmou
+        estatisticaVacinaService.registrarRemocoes(List.of(contagem("Gripe", HOJE, 1)));
+        assertEquals(2L, estatisticaVacinaService.estatisticas().getTotal());
+
+        //Realizar o teste
+        estatisticaVacinaService.reconciliar();
+
+        assertEquals(3L, estatisticaVacinaService.estatisticas().getTotal());
+        assertEquals(2.0, meterRegistry.counter("vacinas.estatisticas.divergencias").count());
+    }
+
+    @Test
+    void whenAVacinaIsAppliedDuringTheReconciliation_thenTheNewCountersContainIt() {
+        //Condições iniciais
+        var vacina = VacinaBuilder.builder().nome("Gripe").dataAplicacao(HOJE).build().toVacina();
+
+        //Estabelece o comportamento dos mocks: a aplicação é confirmada depois da consulta por nome
+        when(vacinaRepository.contarPorDia()).thenAnswer(invocation -> {
+            estatisticaVacinaService.registrarAplicacoes(List.of(vacina));
+            return List.of(contagem(null, ONTEM, 2), contagem(null, HOJE, 1));
+        });
+
+        //Realizar o teste
+        estatisticaVacinaService.reconciliar();
+
+        var estatisticas = estatisticaVacinaService.estatisticas();
+        assertEquals(2L, estatisticas.getPorNome().get("Gripe"));
+        assertEquals(2L, estatisticas.getPorDia().get(HOJE));
+    }
+
+    @Test
+    void whenANewNameIsApplied_thenTheNamesVersionChanges() {
+        //Condições iniciais
+        var versao = estatisticaVacinaService.getVersaoNomes();
+
+        //Realizar o teste
+        estatisticaVacinaService.registrarAplicacoes(List.of(VacinaBuilder.builder().nome("Gripe").build().toVacina()));
+        var aposNomeExistente = estatisticaVacinaService.getVersaoNomes();
+        estatisticaVacinaService.registrarAplicacoes(List.of(VacinaBuilder.builder().nome("Hepatite B").build().toVacina()));
+
+        assertEquals(versao, aposNomeExistente);
+        assertTrue(estatisticaVacinaService.getVersaoNomes() > versao);
+        assertEquals(1L, estatisticaVacinaService.contagensPorNome().get("Hepatite B").sum());
+    }
+
+    @Test
+    void whenTheReconciliationFails_thenTheCurrentCountersAreKept() {
+        //Estabelece o comportamento dos mocks
+        when(vacinaRepository.contarPorNome()).thenThrow(new IllegalStateException("banco indisponível"));
+
+        //Realizar o teste
+        estatisticaVacinaService.reconciliar();
+
+        assertEquals(3L, estatisticaVacinaService.estatisticas().getTotal());
+    }
+
+    private VacinaRepository.ContagemVacinas contagem(String nome, LocalDate dataAplicacao, long quantidade) {
+        return new VacinaRepository.ContagemVacinas() {
+            @Override
+            public String getNome() {
+                return nome;
+            }
+
+            @Override
+            public LocalDate getDataAplicacao() {
+                return dataAplicacao;
+            }
+
+            @Override
+            public Long getQuantidade() {
+                return quantidade;
+            }
+        };
+    }
+}
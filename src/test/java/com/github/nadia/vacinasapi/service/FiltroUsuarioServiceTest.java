@@ -0,0 +1,165 @@
+package com.github.nadia.vacinasapi.service;
+
+import com.github.nadia.vacinasapi.builder.UsuarioBuilder;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import com.github.nadia.vacinasapi.domain.service.FiltroUsuarioService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class FiltroUsuarioServiceTest {
+
+    private static final int QUANTIDADE_USUARIOS = 1000;
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private FiltroUsuarioService filtroUsuarioService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(filtroUsuarioService, "taxaFalsoPositivo", 0.01);
+        filtroUsuarioService.registrarMetricas();
+
+        //Estabelece o comportamento dos mocks
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(usuarioRepository.count()).thenReturn((long) QUANTIDADE_USUARIOS);
+    }
+
+    @Test
+    void whenFiltroIsNotBuiltYet_thenEveryLookupGoesToTheDatabase() {
+        //Realizar o teste
+        assertFalse(filtroUsuarioService.emailAusente("qualquer@teste.com.br"));
+        assertFalse(filtroUsuarioService.cpfAusente("111.444.777-35"));
+    }
+
+    @Test
+    void whenFiltroIsBuilt_thenRegisteredValuesAreNeverReportedAbsent() {
+        //Estabelece o comportamento dos mocks
+        when(usuarioRepository.streamEmailsECpfs()).thenReturn(usuarios().stream());
+
+        //Realizar o teste
+        filtroUsuarioService.reconstruir();
+
+        for (int i = 0; i < QUANTIDADE_USUARIOS; i++) {
+            assertFalse(filtroUsuarioService.emailAusente("Usuario" + i + "@teste.com.br "));
+            assertFalse(filtroUsuarioService.cpfAusente(String.format("%011d", i)));
+        }
+    }
+
+    @Test
+    void whenUnknownEmailsAreLookedUp_thenMostLookupsAreSkipped() {
+        //Estabelece o comportamento dos mocks
+        when(usuarioRepository.streamEmailsECpfs()).thenReturn(usuarios().stream());
+        filtroUsuarioService.reconstruir();
+
+        //Realizar o teste
+        int ausentes = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filtroUsuarioService.emailAusente("desconhecido" + i + "@teste.com.br")) {
+                ausentes++;
+            }
+        }
+
+        assertTrue(ausentes > 9_800);
+        assertEquals(ausentes, meterRegistry.counter("vacinas.filtro.usuarios.consultas", "resultado", "evitada").count());
+        assertTrue(meterRegistry.get("vacinas.filtro.usuarios.memoria").gauge().value() > 0);
+        assertTrue(meterRegistry.get("vacinas.filtro.usuarios.taxa.falso.positivo.estimada").gauge().value() < 0.01);
+    }
+
+    @Test
+    void whenUsuarioIsRegisteredAfterConstruction_thenItIsNoLongerAbsent() {
+        //Condições iniciais
+        var usuario = UsuarioBuilder.builder().email("novo@teste.com.br").cpf("123.456.789-09").build().toUsuario();
+        when(usuarioRepository.streamEmailsECpfs()).thenReturn(Stream.empty());
+        filtroUsuarioService.reconstruir();
+        assertTrue(filtroUsuarioService.emailAusente(usuario.getEmail()));
+
+        //Realizar o teste
+        filtroUsuarioService.registrar(usuario);
+
+        assertFalse(filtroUsuarioService.emailAusente(usuario.getEmail()));
+        assertFalse(filtroUsuarioService.cpfAusente("12345678909"));
+    }
+
+    @Test
+    void whenUsuarioIsRegisteredDuringARebuild_thenTheNewFiltroContainsIt() {
+        //Condições iniciais
+        var usuario = UsuarioBuilder.builder().email("durante@teste.com.br").build().toUsuario();
+
+        //Estabelece o comportamento dos mocks: o cadastro é confirmado no meio da varredura
+        when(usuarioRepository.streamEmailsECpfs()).thenReturn(usuarios().stream()
+                .peek(existente -> filtroUsuarioService.registrar(usuario)));
+
+        //Realizar o teste
+        filtroUsuarioService.reconstruir();
+
+        assertFalse(filtroUsuarioService.emailAusente(usuario.getEmail()));
+    }
+
+    @Test
+    void whenFiltroIsRebuilt_thenRemovedUsuariosBecomeAbsent() {
+        //Condições iniciais
+        when(usuarioRepository.streamEmailsECpfs()).thenReturn(usuarios().stream());
+        filtroUsuarioService.reconstruir();
+        filtroUsuarioService.registrarRemocao();
+
+        //Estabelece o comportamento dos mocks
+        when(usuarioRepository.streamEmailsECpfs()).thenReturn(Stream.empty());
+
+        //Realizar o teste
+        filtroUsuarioService.reconstruir();
+
+        assertTrue(filtroUsuarioService.emailAusente("usuario0@teste.com.br"));
+        assertEquals(0, meterRegistry.get("vacinas.filtro.usuarios.removidos.desde.construcao").gauge().value());
+    }
+
+    private List<UsuarioRepository.EmailCpf> usuarios() {
+        var usuarios = new ArrayList<UsuarioRepository.EmailCpf>();
+        for (int i = 0; i < QUANTIDADE_USUARIOS; i++) {
+            var email = "usuario" + i + "@teste.com.br";
+            var cpf = String.format("%03d.%03d.%03d-%02d", i / 100_000_000, i / 100_000 % 1000, i / 100 % 1000, i % 100);
+            usuarios.add(new UsuarioRepository.EmailCpf() {
+                @Override
+                public String getEmail() {
+                    return email;
+                }
+
+                @Override
+                public String getCpf() {
+                    return cpf;
+                }
+            });
+        }
+        return usuarios;
+    }
+}
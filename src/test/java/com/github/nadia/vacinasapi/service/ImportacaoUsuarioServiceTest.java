@@ -0,0 +1,286 @@
+package com.github.nadia.vacinasapi.service;
+
+import com.github.nadia.vacinasapi.domain.entity.Importacao;
+import com.github.nadia.vacinasapi.domain.entity.ImportacaoErro;
+import com.github.nadia.vacinasapi.domain.entity.StatusImportacao;
+import com.github.nadia.vacinasapi.domain.entity.Usuario;
+import com.github.nadia.vacinasapi.domain.exception.NotFoundException;
+import com.github.nadia.vacinasapi.domain.exception.ServiceException;
+import com.github.nadia.vacinasapi.domain.repository.ImportacaoErroRepository;
+import com.github.nadia.vacinasapi.domain.repository.ImportacaoRepository;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import com.github.nadia.vacinasapi.domain.service.BuscaUsuarioService;
+import com.github.nadia.vacinasapi.domain.service.FiltroUsuarioService;
+import com.github.nadia.vacinasapi.domain.service.ImportacaoUsuarioService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class ImportacaoUsuarioServiceTest {
+
+    private final Long IMPORTACAO_ID = 1L;
+    private final String CABECALHO = "nome,cpf,email,dataNascimento\n";
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private ImportacaoRepository importacaoRepository;
+
+    @Mock
+    private ImportacaoErroRepository importacaoErroRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private FiltroUsuarioService filtroUsuarioService;
+
+    @Mock
+    private BuscaUsuarioService buscaUsuarioService;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @InjectMocks
+    private ImportacaoUsuarioService importacaoUsuarioService;
+
+    private final List<Usuario> usuariosSalvos = new ArrayList<>();
+    private final List<ImportacaoErro> errosSalvos = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(importacaoUsuarioService, "tamanhoLote", 2);
+
+        //Estabelece o comportamento dos mocks: o template executa o callback, os saves acumulam o que foi gravado
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(importacaoRepository.save(any(Importacao.class))).thenAnswer(invocation -> {
+            Importacao importacao = invocation.getArgument(0);
+            if (importacao.getId() == null) {
+                importacao.setId(IMPORTACAO_ID);
+            }
+            return importacao;
+        });
+        when(usuarioRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Usuario> usuarios = invocation.getArgument(0);
+            usuariosSalvos.addAll(usuarios);
+            return usuarios;
+        });
+        when(importacaoErroRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<ImportacaoErro> erros = invocation.getArgument(0);
+            errosSalvos.addAll(erros);
+            return erros;
+        });
+    }
+
+    @Test
+    void whenImportarRequested_thenValidLinesAreSavedAndInvalidLinesAreReported() {
+        //Condições iniciais
+        var csv = CABECALHO
+                + "Maria,111.444.777-35,maria@teste.com.br,1990-10-10\n"
+                + ",288.580.430-06,joao@teste.com.br,1990-10-10\n"
+                + "\"Silva, Ana\",123.456.789-09,ana@teste.com.br,1985-01-31\n"
+                + "Pedro,987.654.321-00,MARIA@teste.com.br,1980-02-02\n"
+                + "Carla,529.982.247-25,carla@teste.com.br,31/12/1980\n";
+
+        //Estabelece o comportamento dos mocks
+        when(usuarioRepository.buscarExistentes(any(), any())).thenReturn(List.of());
+
+        //Realizar o teste
+        var importacao = importacaoUsuarioService.importar(csv(csv), null);
+
+        assertEquals(StatusImportacao.CONCLUIDA, importacao.getStatus());
+        assertEquals(5L, importacao.getLinhasConfirmadas());
+        assertEquals(2L, importacao.getImportados());
+        assertEquals(3L, importacao.getRejeitados());
+        assertEquals("Silva, Ana", usuariosSalvos.get(1).getNome());
+        assertEquals(List.of(2L, 4L, 5L), errosSalvos.stream().map(ImportacaoErro::getLinha).collect(Collectors.toList()));
+        assertEquals("Email duplicado no arquivo.", errosSalvos.get(1).getMensagem());
+        //três lotes de até 2 linhas, cada um confirmado numa transação própria
+        verify(transactionTemplate, times(3)).execute(any());
+    }
+
+    @Test
+    void whenImportarRequestedWithExistingUsuarios_thenDuplicatesAreCheckedWithOneQueryPerLote() {
+        //Condições iniciais
+        var csv = CABECALHO
+                + "Maria,111.444.777-35,maria@teste.com.br,1990-10-10\n"
+                + "Ana,123.456.789-09,ana@teste.com.br,1985-01-31\n";
+
+        //Estabelece o comportamento dos mocks
+        when(usuarioRepository.buscarExistentes(any(), any())).thenReturn(List.of(
+                existente("Maria@teste.com.br", "352.698.080-21"), existente("outra@teste.com.br", "123.456.789-09")));
+
+        //Realizar o teste
+        var importacao = importacaoUsuarioService.importar(csv(csv), null);
+
+        assertEquals(0L, importacao.getImportados());
+        assertEquals("Email já cadastrado!", errosSalvos.get(0).getMensagem());
+        assertEquals("Cpf já cadastrado!", errosSalvos.get(1).getMensagem());
+        verify(usuarioRepository, times(1)).buscarExistentes(any(), any());
+    }
+
+    @Test
+    void whenEmailsAndCpfsAreAbsentFromTheFilter_thenNoDuplicateQueryIsExecuted() {
+        //Condições iniciais
+        var csv = CABECALHO
+                + "Maria,111.444.777-35,maria@teste.com.br,1990-10-10\n"
+                + "Ana,123.456.789-09,ana@teste.com.br,1985-01-31\n";
+
+        //Estabelece o comportamento dos mocks
+        when(filtroUsuarioService.emailAusente(any())).thenReturn(true);
+        when(filtroUsuarioService.cpfAusente(any())).thenReturn(true);
+
+        //Realizar o teste
+        var importacao = importacaoUsuarioService.importar(csv(csv), null);
+
+        assertEquals(2L, importacao.getImportados());
+        verify(usuarioRepository, never()).buscarExistentes(any(), any());
+        verify(filtroUsuarioService).registrar(usuariosSalvos);
+        verify(buscaUsuarioService).registrar(usuariosSalvos);
+    }
+
+    @Test
+    void whenTheFilterMissesAnExistingEmail_thenTheLineIsReportedAndTheRestOfTheLoteIsSaved() {
+        //Condições iniciais: Maria foi gravada por outro nó depois da última reconstrução do filtro
+        var csv = CABECALHO
+                + "Maria,111.444.777-35,maria@teste.com.br,1990-10-10\n"
+                + "Ana,123.456.789-09,ana@teste.com.br,1985-01-31\n";
+
+        //Estabelece o comportamento dos mocks
+        when(filtroUsuarioService.emailAusente(any())).thenReturn(true);
+        when(filtroUsuarioService.cpfAusente(any())).thenReturn(true);
+        doThrow(new DataIntegrityViolationException("uk_usuarios_email"))
+                .doAnswer(invocation -> {
+                    List<Usuario> usuarios = invocation.getArgument(0);
+                    usuariosSalvos.addAll(usuarios);
+                    return usuarios;
+                })
+                .when(usuarioRepository).saveAll(anyList());
+        when(usuarioRepository.buscarExistentes(any(), any())).thenReturn(List.of(
+                existente("maria@teste.com.br", "352.698.080-21")));
+
+        //Realizar o teste
+        var importacao = importacaoUsuarioService.importar(csv(csv), null);
+
+        assertEquals(StatusImportacao.CONCLUIDA, importacao.getStatus());
+        assertEquals(1L, importacao.getImportados());
+        assertEquals(1L, importacao.getRejeitados());
+        assertEquals("Ana", usuariosSalvos.get(0).getNome());
+        assertEquals("Email já cadastrado!", errosSalvos.get(0).getMensagem());
+        verify(usuarioRepository, times(1)).buscarExistentes(any(), any());
+    }
+
+    @Test
+    void whenImportarRequestedToResume_thenConfirmedLinesAreSkipped() {
+        //Condições iniciais
+        var interrompida = new Importacao(IMPORTACAO_ID, StatusImportacao.FALHOU, 2L, 2L, 0L, OffsetDateTime.now());
+        var csv = CABECALHO
+                + "Maria,111.444.777-35,maria@teste.com.br,1990-10-10\n"
+                + "Ana,123.456.789-09,ana@teste.com.br,1985-01-31\n"
+                + "Pedro,987.654.321-00,pedro@teste.com.br,1980-02-02\n";
+
+        //Estabelece o comportamento dos mocks
+        when(importacaoRepository.findById(IMPORTACAO_ID)).thenReturn(Optional.of(interrompida));
+        when(usuarioRepository.buscarExistentes(any(), any())).thenReturn(List.of());
+
+        //Realizar o teste
+        var importacao = importacaoUsuarioService.importar(csv(csv), IMPORTACAO_ID);
+
+        assertEquals(StatusImportacao.CONCLUIDA, importacao.getStatus());
+        assertEquals(3L, importacao.getLinhasConfirmadas());
+        assertEquals(3L, importacao.getImportados());
+        assertEquals(1, usuariosSalvos.size());
+        assertEquals("Pedro", usuariosSalvos.get(0).getNome());
+    }
+
+    @Test
+    void whenALoteFailsToCommit_thenImportacaoIsMarkedAsFailed() {
+        //Condições iniciais
+        var csv = CABECALHO + "Maria,111.444.777-35,maria@teste.com.br,1990-10-10\n";
+        var gravada = new Importacao(IMPORTACAO_ID, StatusImportacao.EM_ANDAMENTO, 0L, 0L, 0L, OffsetDateTime.now());
+
+        //Estabelece o comportamento dos mocks
+        when(usuarioRepository.buscarExistentes(any(), any())).thenReturn(List.of());
+        doThrow(new DataIntegrityViolationException("uk")).when(transactionTemplate).execute(any());
+        when(importacaoRepository.findById(IMPORTACAO_ID)).thenReturn(Optional.of(gravada));
+
+        //Realizar o teste
+        assertThrows(ServiceException.class, () -> importacaoUsuarioService.importar(csv(csv), null));
+        assertEquals(StatusImportacao.FALHOU, gravada.getStatus());
+        assertEquals(0L, gravada.getLinhasConfirmadas());
+    }
+
+    @Test
+    void whenCabecalhoIsInvalid_thenAnErrorShouldBeShown() {
+        //Realizar o teste
+        assertThrows(ServiceException.class, () -> importacaoUsuarioService.importar(csv("nome;cpf\n"), null));
+        verifyNoInteractions(usuarioRepository);
+    }
+
+    @Test
+    void whenConcludedImportacaoIsResumed_thenAnErrorShouldBeShown() {
+        //Estabelece o comportamento dos mocks
+        when(importacaoRepository.findById(IMPORTACAO_ID)).thenReturn(Optional.of(
+                new Importacao(IMPORTACAO_ID, StatusImportacao.CONCLUIDA, 3L, 3L, 0L, OffsetDateTime.now())));
+
+        //Realizar o teste
+        assertThrows(ServiceException.class, () -> importacaoUsuarioService.importar(csv(CABECALHO), IMPORTACAO_ID));
+    }
+
+    @Test
+    void whenInvalidImportacaoIdInformed_thenAnErrorShouldBeShown() {
+        //Estabelece o comportamento dos mocks
+        when(importacaoRepository.findById(IMPORTACAO_ID)).thenReturn(Optional.empty());
+
+        //Realizar o teste
+        assertThrows(NotFoundException.class, () -> importacaoUsuarioService.buscarPorId(IMPORTACAO_ID));
+    }
+
+    private UsuarioRepository.EmailCpf existente(String email, String cpf) {
+        return new UsuarioRepository.EmailCpf() {
+            @Override
+            public String getEmail() {
+                return email;
+            }
+
+            @Override
+            public String getCpf() {
+                return cpf;
+            }
+        };
+    }
+
+    private InputStream csv(String conteudo) {
+        return new ByteArrayInputStream(conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+}
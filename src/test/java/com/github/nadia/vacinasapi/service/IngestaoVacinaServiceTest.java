@@ -0,0 +1,235 @@
+package com.github.nadia.vacinasapi.service;
+
+import com.github.nadia.vacinasapi.api.DTO.request.VacinaRequest;
+import com.github.nadia.vacinasapi.builder.UsuarioBuilder;
+import com.github.nadia.vacinasapi.domain.entity.Ingestao;
+import com.github.nadia.vacinasapi.domain.entity.Vacina;
+import com.github.nadia.vacinasapi.domain.exception.NotFoundException;
+import com.github.nadia.vacinasapi.domain.exception.TooManyRequestsException;
+import com.github.nadia.vacinasapi.domain.repository.IngestaoRepository;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import com.github.nadia.vacinasapi.domain.repository.VacinaRepository;
+import com.github.nadia.vacinasapi.domain.service.EstatisticaVacinaService;
+import com.github.nadia.vacinasapi.domain.service.IngestaoVacinaService;
+import com.github.nadia.vacinasapi.domain.service.UsuarioService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class IngestaoVacinaServiceTest {
+
+    private static final String EMAIL = "maria@teste.com.br";
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private VacinaRepository vacinaRepository;
+
+    @Mock
+    private IngestaoRepository ingestaoRepository;
+
+    @Mock
+    private UsuarioService usuarioService;
+
+    @Mock
+    private EstatisticaVacinaService estatisticaVacinaService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private IngestaoVacinaService ingestaoVacinaService;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ingestaoVacinaService, "capacidadeFila", 10);
+        ReflectionTestUtils.setField(ingestaoVacinaService, "tamanhoLote", 4);
+        ReflectionTestUtils.setField(ingestaoVacinaService, "intervaloMaximoMs", 20L);
+        ReflectionTestUtils.setField(ingestaoVacinaService, "situacoesMantidas", 1000L);
+
+        //Estabelece o comportamento dos mocks: o saveAll atribui ids como o gerador do banco
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(usuarioRepository.findByEmailIn(anyCollection())).thenReturn(List.of(
+                UsuarioBuilder.builder().email(EMAIL).build().toUsuario()));
+        when(vacinaRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<Vacina> vacinas = invocation.getArgument(0);
+            vacinas.forEach(vacina -> vacina.setId(ids.incrementAndGet()));
+            return vacinas;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ingestaoVacinaService.encerrar();
+    }
+
+    @Test
+    void whenQueuedVacinasAreFlushed_thenTheyAreWrittenInBatchesAndTracked() {
+        //Condições iniciais
+        ingestaoVacinaService.iniciar();
+        var situacoes = new ArrayList<String>();
+        for (int i = 0; i < 9; i++) {
+            situacoes.add(ingestaoVacinaService.enfileirar(new VacinaRequest("CoronaVac", EMAIL.toUpperCase())).getId());
+        }
+        var desconhecida = ingestaoVacinaService.enfileirar(new VacinaRequest("CoronaVac", "outro@teste.com.br")).getId();
+        assertEquals(IngestaoVacinaService.PENDENTE, ingestaoVacinaService.buscarSituacao(desconhecida).getSituacao());
+
+        //Realizando o teste
+        ingestaoVacinaService.descarregar();
+
+        //10 vacinas em lotes de 4: três gravações, cada uma com um único IN de emails
+        verify(vacinaRepository, times(3)).saveAll(any());
+        verify(usuarioRepository, times(3)).findByEmailIn(anyCollection());
+        verify(estatisticaVacinaService, times(3)).registrarAplicacoes(any());
+        verify(usuarioService, times(3)).registrarAlteracaoDasVacinas(any());
+        verify(ingestaoRepository, times(3)).saveAll(any());
+        for (String id : situacoes) {
+            var situacao = ingestaoVacinaService.buscarSituacao(id);
+            assertEquals(IngestaoVacinaService.GRAVADA, situacao.getSituacao());
+            assertNotNull(situacao.getVacinaId());
+        }
+        assertEquals(IngestaoVacinaService.FALHOU, ingestaoVacinaService.buscarSituacao(desconhecida).getSituacao());
+        assertEquals(3, meterRegistry.get("vacinas.ingestao.gravacao").timer().count());
+        assertEquals(0, meterRegistry.get("vacinas.ingestao.fila").gauge().value());
+    }
+
+    @Test
+    void whenTheQueueIsFull_thenTheRequestIsRejected() {
+        //Condições iniciais
+        ingestaoVacinaService.iniciar();
+        for (int i = 0; i < 10; i++) {
+            ingestaoVacinaService.enfileirar(new VacinaRequest("CoronaVac", EMAIL));
+        }
+
+        //Realizando o teste
+        assertThrows(TooManyRequestsException.class, () -> ingestaoVacinaService.enfileirar(new VacinaRequest("CoronaVac", EMAIL)));
+        assertEquals(1, meterRegistry.counter("vacinas.ingestao.rejeitadas").count());
+        assertEquals(10, meterRegistry.get("vacinas.ingestao.fila").gauge().value());
+    }
+
+    @Test
+    void whenAnEmailIsUnknownToThisNode_thenItIsQueuedAndCheckedAgainstTheDatabase() {
+        //Condições iniciais: o usuário pode ter sido cadastrado em outro nó, então o email não é recusado na entrada
+        ingestaoVacinaService.iniciar();
+
+        //Realizando o teste
+        var id = ingestaoVacinaService.enfileirar(new VacinaRequest("CoronaVac", "outro.no@teste.com.br")).getId();
+        ingestaoVacinaService.descarregar();
+
+        verify(usuarioRepository, times(1)).findByEmailIn(anyCollection());
+        assertEquals(IngestaoVacinaService.FALHOU, ingestaoVacinaService.buscarSituacao(id).getSituacao());
+    }
+
+    @Test
+    void whenABatchFails_thenEveryVacinaOfItIsMarkedAsFailed() {
+        //Condições iniciais
+        ingestaoVacinaService.iniciar();
+        var id = ingestaoVacinaService.enfileirar(new VacinaRequest("CoronaVac", EMAIL)).getId();
+
+        //Estabelece o comportamento dos mocks
+        doThrow(new QueryTimeoutException("timeout")).when(vacinaRepository).saveAll(any());
+
+        //Realizando o teste
+        ingestaoVacinaService.descarregar();
+
+        assertEquals(IngestaoVacinaService.FALHOU, ingestaoVacinaService.buscarSituacao(id).getSituacao());
+        assertThrows(NotFoundException.class, () -> ingestaoVacinaService.buscarSituacao("inexistente"));
+        //o lote desfeito não levou o resultado junto: a falha é registrada à parte
+        verify(ingestaoRepository).save(argThat(ingestao -> id.equals(ingestao.getId())
+                && IngestaoVacinaService.FALHOU.equals(ingestao.getSituacao())));
+    }
+
+    @Test
+    void whenTheVacinaWasQueuedOnAnotherNode_thenItsResultIsReadFromTheDatabase() {
+        //Condições iniciais
+        ingestaoVacinaService.iniciar();
+
+        //Estabelece o comportamento dos mocks: a vacina foi enfileirada e gravada por outro nó
+        when(ingestaoRepository.findById("de-outro-no")).thenReturn(Optional.of(
+                new Ingestao("de-outro-no", IngestaoVacinaService.GRAVADA, 42L, null, OffsetDateTime.now())));
+
+        //Realizando o teste
+        var situacao = ingestaoVacinaService.buscarSituacao("de-outro-no");
+
+        assertEquals(IngestaoVacinaService.GRAVADA, situacao.getSituacao());
+        assertEquals(42L, situacao.getVacinaId());
+    }
+
+    @Test
+    void whenOneVacinaBreaksTheBatch_thenOnlyItIsMarkedAsFailed() {
+        //Condições iniciais
+        ingestaoVacinaService.iniciar();
+        var boa = ingestaoVacinaService.enfileirar(new VacinaRequest("CoronaVac", EMAIL)).getId();
+        var ruim = ingestaoVacinaService.enfileirar(new VacinaRequest("Ruim", EMAIL)).getId();
+        var outra = ingestaoVacinaService.enfileirar(new VacinaRequest("Gripe", EMAIL)).getId();
+
+        //Estabelece o comportamento dos mocks: qualquer lote com a vacina "Ruim" falha
+        doAnswer(invocation -> {
+            List<Vacina> vacinas = invocation.getArgument(0);
+            if (vacinas.stream().anyMatch(vacina -> "Ruim".equals(vacina.getNome()))) {
+                throw new DataIntegrityViolationException("nome inválido");
+            }
+            vacinas.forEach(vacina -> vacina.setId(ids.incrementAndGet()));
+            return vacinas;
+        }).when(vacinaRepository).saveAll(any());
+
+        //Realizando o teste: o lote de 3 falha e cada vacina é regravada sozinha
+        ingestaoVacinaService.descarregar();
+
+        verify(vacinaRepository, times(4)).saveAll(any());
+        assertEquals(IngestaoVacinaService.GRAVADA, ingestaoVacinaService.buscarSituacao(boa).getSituacao());
+        assertEquals(IngestaoVacinaService.FALHOU, ingestaoVacinaService.buscarSituacao(ruim).getSituacao());
+        assertEquals(IngestaoVacinaService.GRAVADA, ingestaoVacinaService.buscarSituacao(outra).getSituacao());
+        assertEquals(1, meterRegistry.get("vacinas.ingestao.gravacao").timer().count());
+    }
+
+    @Test
+    void whenAsyncModeIsEnabled_thenTheWriterThreadDrainsTheQueue() throws InterruptedException {
+        //Condições iniciais
+        ReflectionTestUtils.setField(ingestaoVacinaService, "habilitada", true);
+        ingestaoVacinaService.iniciar();
+
+        //Realizando o teste
+        var id = ingestaoVacinaService.enfileirar(new VacinaRequest("CoronaVac", EMAIL)).getId();
+
+        for (int i = 0; i < 200 && IngestaoVacinaService.PENDENTE.equals(ingestaoVacinaService.buscarSituacao(id).getSituacao()); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(IngestaoVacinaService.GRAVADA, ingestaoVacinaService.buscarSituacao(id).getSituacao());
+    }
+}
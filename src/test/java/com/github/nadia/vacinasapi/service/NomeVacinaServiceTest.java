@@ -0,0 +1,95 @@
+package com.github.nadia.vacinasapi.service;
+
+import com.github.nadia.vacinasapi.api.DTO.response.NomeVacinaResponse;
+import com.github.nadia.vacinasapi.domain.service.EstatisticaVacinaService;
+import com.github.nadia.vacinasapi.domain.service.NomeVacinaService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class NomeVacinaServiceTest {
+
+    @Mock
+    private EstatisticaVacinaService estatisticaVacinaService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private NomeVacinaService nomeVacinaService;
+
+    private final Map<String, LongAdder> contagens = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(nomeVacinaService, "maximoIndexados", 10_000);
+        nomeVacinaService.registrarMetricas();
+        somar("Febre Amarela", 3);
+        somar("Gripe", 7);
+
+        //Estabelece o comportamento dos mocks
+        when(estatisticaVacinaService.contagensPorNome()).thenReturn(contagens);
+        when(estatisticaVacinaService.getVersaoNomes()).thenReturn(1L);
+    }
+
+    @Test
+    void whenTheNameSetIsUnchanged_thenTheIndexIsBuiltOnce() {
+        //Realizar o teste
+        nomeVacinaService.sugerir("f", 10);
+        somar("Febre Amarela", 10);
+        var sugestoes = nomeVacinaService.sugerir("", 10);
+
+        assertEquals(List.of(new NomeVacinaResponse("Febre Amarela", 13L), new NomeVacinaResponse("Gripe", 7L)), sugestoes);
+        verify(estatisticaVacinaService, times(1)).contagensPorNome();
+        assertEquals(2.0, meterRegistry.get("vacinas.nomes.indice.nomes").gauge().value());
+    }
+
+    @Test
+    void whenANewNameAppears_thenTheIndexIsRebuilt() {
+        //Condições iniciais
+        assertEquals(List.of(), nomeVacinaService.sugerir("cor", 10));
+        somar("CoronaVac", 1);
+
+        //Estabelece o comportamento dos mocks
+        when(estatisticaVacinaService.getVersaoNomes()).thenReturn(2L);
+
+        //Realizar o teste
+        assertEquals(List.of(new NomeVacinaResponse("CoronaVac", 1L)), nomeVacinaService.sugerir("cor", 10));
+        verify(estatisticaVacinaService, times(2)).contagensPorNome();
+    }
+
+    @Test
+    void whenTheLimitIsAboveTheMaximum_thenItIsCapped() {
+        //Condições iniciais
+        for (int i = 0; i < 30; i++) {
+            somar("Vacina " + i, i + 1);
+        }
+
+        //Realizar o teste
+        assertEquals(NomeVacinaService.LIMITE_MAXIMO, nomeVacinaService.sugerir("vacina", 100).size());
+        assertEquals(1, nomeVacinaService.sugerir("vacina", 0).size());
+    }
+
+    private void somar(String nome, long quantidade) {
+        contagens.computeIfAbsent(nome, chave -> new LongAdder()).add(quantidade);
+    }
+}
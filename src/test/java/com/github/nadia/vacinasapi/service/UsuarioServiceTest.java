@@ -1,24 +1,44 @@
 package com.github.nadia.vacinasapi.service;
 
+import com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse;
 import com.github.nadia.vacinasapi.builder.UsuarioBuilder;
-import com.github.nadia.vacinasapi.builder.VacinaBuilder;
+import com.github.nadia.vacinasapi.builder.VacinaResponseBuilder;
+import com.github.nadia.vacinasapi.core.cache.CacheRespostas;
+import com.github.nadia.vacinasapi.core.pagination.CursorDataId;
 import com.github.nadia.vacinasapi.domain.entity.Usuario;
-import com.github.nadia.vacinasapi.domain.entity.Vacina;
 import com.github.nadia.vacinasapi.domain.exception.NotFoundException;
+import com.github.nadia.vacinasapi.domain.exception.PreconditionFailedException;
 import com.github.nadia.vacinasapi.domain.exception.ServiceException;
 import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
+import com.github.nadia.vacinasapi.domain.repository.VacinaRepository;
+import com.github.nadia.vacinasapi.domain.service.BuscaUsuarioService;
+import com.github.nadia.vacinasapi.domain.service.EstatisticaVacinaService;
+import com.github.nadia.vacinasapi.domain.service.FiltroUsuarioService;
 import com.github.nadia.vacinasapi.domain.service.UsuarioService;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 
@@ -37,6 +57,21 @@ public class UsuarioServiceTest {
     @Mock
     private UsuarioRepository usuarioRepository;
 
+    @Mock
+    private VacinaRepository vacinaRepository;
+
+    @Mock
+    private FiltroUsuarioService filtroUsuarioService;
+
+    @Mock
+    private BuscaUsuarioService buscaUsuarioService;
+
+    @Mock
+    private CacheRespostas cacheRespostas;
+
+    @Mock
+    private EstatisticaVacinaService estatisticaVacinaService;
+
     @InjectMocks
     private UsuarioService usuarioService;
 
@@ -50,11 +85,11 @@ public class UsuarioServiceTest {
         var usuarios = Arrays.asList(usuario1,usuario2,usuario3,usuario4);
 
         //Estabelecendo comportamento dos Mocks
-        when(usuarioRepository.findAll()).thenReturn(usuarios);
+        when(usuarioRepository.findByIdGreaterThan(eq(0L), any(Pageable.class))).thenReturn(new SliceImpl<>(usuarios));
 
         //Realizando o teste
-        var usuariosRetornados = usuarioService.buscarTodos();
-        assertEquals(usuarios,usuariosRetornados);
+        var usuariosRetornados = usuarioService.buscarTodos(0L, 50);
+        assertEquals(usuarios,usuariosRetornados.getContent());
     }
 
     @Test
@@ -65,12 +100,15 @@ public class UsuarioServiceTest {
         usuario.setEmail(VALID_EMAIL);
 
         //Estabelecendo Comportamento dos Mocks
-        when(usuarioRepository.findByEmail(VALID_EMAIL)).thenReturn(Optional.empty());
-        when(usuarioRepository.findByCpf(VALID_CPF)).thenReturn(Optional.empty());
-        when(usuarioRepository.save(usuario)).thenReturn(usuario);
+        when(usuarioRepository.saveAndFlush(usuario)).thenReturn(usuario);
 
         var usuarioSalvo = usuarioService.salvar(usuario);
         assertEquals(usuario,usuarioSalvo);
+        //nenhuma consulta prévia: o insert é o único statement
+        verify(usuarioRepository, never()).findByEmail(any());
+        verify(usuarioRepository, never()).findByCpf(any());
+        verify(filtroUsuarioService).registrar(usuario);
+        verify(buscaUsuarioService).registrar(usuario);
     }
 
     @Test
@@ -83,10 +121,9 @@ public class UsuarioServiceTest {
         usuario.setEmail(VALID_EMAIL);
 
         //Estabelecendo Comportamento dos Mocks
-        when(usuarioRepository.findByEmail(VALID_EMAIL)).thenReturn(Optional.empty());
-        when(usuarioRepository.findByCpf(INVALID_CPF)).thenReturn(Optional.of(usuarioJaRegistrado));
+        when(usuarioRepository.saveAndFlush(usuario)).thenThrow(violacao(Usuario.UK_CPF));
 
-        assertThrows(ServiceException.class,()->usuarioService.salvar(usuario));
+        assertThrows(DataIntegrityViolationException.class,()->usuarioService.salvar(usuario));
     }
 
     @Test
@@ -99,11 +136,37 @@ public class UsuarioServiceTest {
         usuario.setEmail(INVALID_EMAIL);
 
         //Estabelecendo Comportamento dos Mocks
-        when(usuarioRepository.findByEmail(INVALID_EMAIL)).thenReturn(Optional.of(usuarioJaRegistrado));
-        when(usuarioRepository.findByCpf(VALID_CPF)).thenReturn(Optional.empty());
+        when(usuarioRepository.saveAndFlush(usuario)).thenThrow(violacao(Usuario.UK_EMAIL));
 
         //Realização do teste
-        assertThrows(ServiceException.class,()->usuarioService.salvar(usuario));
+        assertThrows(DataIntegrityViolationException.class,()->usuarioService.salvar(usuario));
+    }
+
+    @Test
+    void whenBuscarIsCalled_thenRankedIdsAreLoadedInASingleQueryAndKeepTheRanking(){
+        //Condições Iniciais
+        Usuario primeiro = UsuarioBuilder.builder().build().toUsuario();
+        primeiro.setId(3L);
+        Usuario segundo = UsuarioBuilder.builder().build().toUsuario();
+        segundo.setId(1L);
+
+        //Estabelecendo comportamento dos Mocks: o banco devolve fora de ordem e sem o id 2, removido nesse meio tempo
+        when(buscaUsuarioService.buscar("maria", 20)).thenReturn(Arrays.asList(3L, 2L, 1L));
+        when(usuarioRepository.findAllById(Arrays.asList(3L, 2L, 1L))).thenReturn(Arrays.asList(segundo, primeiro));
+
+        //Realização do teste
+        assertEquals(Arrays.asList(primeiro, segundo), usuarioService.buscar("maria", 20));
+        verify(usuarioRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void whenBuscarFindsNothing_thenTheDatabaseIsNotQueried(){
+        //Estabelecendo comportamento dos Mocks
+        when(buscaUsuarioService.buscar("zz", 20)).thenReturn(Collections.emptyList());
+
+        //Realização do teste
+        assertEquals(Collections.emptyList(), usuarioService.buscar("zz", 20));
+        verify(usuarioRepository, never()).findAllById(any());
     }
 
     @Test
@@ -142,13 +205,40 @@ public class UsuarioServiceTest {
 
         //Estabelecendo Comportamento dos Mocks
         when(usuarioRepository.findById(VALID_ID)).thenReturn(Optional.of(usuarioParaAtualizar));
-        when(usuarioRepository.findByEmail(VALID_EMAIL)).thenReturn(Optional.empty());
-        when(usuarioRepository.findByCpf(VALID_CPF)).thenReturn(Optional.empty());
-        when(usuarioRepository.save(usuario)).thenReturn(usuario);
+        when(usuarioRepository.saveAndFlush(usuarioParaAtualizar)).thenReturn(usuarioParaAtualizar);
 
         //Realizando o teste
         var usuarioAtualizado = usuarioService.atualizar(VALID_ID,usuario);
-        assertEquals(usuario,usuarioAtualizado);
+        assertEquals(VALID_ID,usuarioAtualizado.getId());
+        assertEquals(VALID_CPF,usuarioAtualizado.getCpf());
+        assertEquals(VALID_EMAIL,usuarioAtualizado.getEmail());
+        verify(usuarioRepository, never()).findByEmail(any());
+        verify(usuarioRepository, never()).findByCpf(any());
+        verify(cacheRespostas).invalidarUsuario(VALID_ID);
+        verify(cacheRespostas).invalidarVacinasDoUsuario(VALID_ID);
+    }
+
+    @Test
+    void whenAtualizarIsCalledWithOnlySomeFields_thenTheOthersAreKept(){
+        //Condições Iniciais
+        Usuario usuario = new Usuario();
+        usuario.setNome("Maria");
+        Usuario usuarioParaAtualizar = UsuarioBuilder.builder().build().toUsuario();
+        usuarioParaAtualizar.setId(VALID_ID);
+        var emailOriginal = usuarioParaAtualizar.getEmail();
+        var cpfOriginal = usuarioParaAtualizar.getCpf();
+
+        //Estabelecendo Comportamento dos Mocks
+        when(usuarioRepository.findById(VALID_ID)).thenReturn(Optional.of(usuarioParaAtualizar));
+        when(usuarioRepository.saveAndFlush(usuarioParaAtualizar)).thenReturn(usuarioParaAtualizar);
+
+        //Realizando o teste
+        var usuarioAtualizado = usuarioService.atualizar(VALID_ID,usuario);
+        assertEquals("Maria",usuarioAtualizado.getNome());
+        assertEquals(emailOriginal,usuarioAtualizado.getEmail());
+        assertEquals(cpfOriginal,usuarioAtualizado.getCpf());
+        verify(cacheRespostas).invalidarUsuario(VALID_ID);
+        verify(cacheRespostas, never()).invalidarVacinasDoUsuario(any());
     }
 
     @Test
@@ -164,6 +254,93 @@ public class UsuarioServiceTest {
         assertThrows(ServiceException.class,()->usuarioService.atualizar(INVALID_ID,usuario));
     }
 
+    @Test
+    void whenAtualizarIsCalledWithTheCurrentVersion_thenASingleConditionalUpdateIsExecuted(){
+        //Condições Iniciais
+        Usuario usuario = new Usuario();
+        usuario.setNome("Maria");
+        usuario.setEmail(" ");
+        Usuario atualizado = UsuarioBuilder.builder().nome("Maria").versao(4L).build().toUsuario();
+
+        //Estabelecendo Comportamento dos Mocks
+        when(usuarioRepository.atualizarParcial(eq(VALID_ID), eq(3L), argThat(campos -> "Maria".equals(campos.getNome()) && campos.getEmail() == null))).thenReturn(1);
+        when(usuarioRepository.findById(VALID_ID)).thenReturn(Optional.of(atualizado));
+
+        //Realizando o teste
+        var usuarioAtualizado = usuarioService.atualizar(VALID_ID, 3L, usuario);
+        assertEquals(4L, usuarioAtualizado.getVersao());
+        verify(usuarioRepository, never()).saveAndFlush(any());
+        verify(cacheRespostas).invalidarUsuario(VALID_ID);
+        verify(cacheRespostas, never()).invalidarVacinasDoUsuario(any());
+    }
+
+    @Test
+    void whenAtualizarIsCalledWithAStaleVersion_thenPreconditionFailedIsThrown(){
+        //Condições Iniciais
+        Usuario usuario = UsuarioBuilder.builder().build().toUsuario();
+
+        //Estabelecendo Comportamento dos Mocks
+        when(usuarioRepository.atualizarParcial(eq(VALID_ID), eq(3L), any())).thenReturn(0);
+        when(usuarioRepository.existsById(VALID_ID)).thenReturn(true);
+
+        //Realizando o teste
+        assertThrows(PreconditionFailedException.class,()->usuarioService.atualizar(VALID_ID, 3L, usuario));
+        verify(cacheRespostas, never()).invalidarUsuario(any());
+    }
+
+    @Test
+    void whenAtualizarIsCalledWithVersionAndInvalidId_thenAnErrorShouldBeShown(){
+        //Condições Iniciais
+        Usuario usuario = UsuarioBuilder.builder().build().toUsuario();
+
+        //Estabelecendo Comportamento dos Mocks
+        when(usuarioRepository.atualizarParcial(eq(INVALID_ID), eq(3L), any())).thenReturn(0);
+        when(usuarioRepository.existsById(INVALID_ID)).thenReturn(false);
+
+        //Realizando o teste
+        assertThrows(ServiceException.class,()->usuarioService.atualizar(INVALID_ID, 3L, usuario));
+    }
+
+    @Test
+    void whenAtualizarParcialIsCalled_thenOnlyTheUpdateIsExecuted(){
+        //Condições Iniciais
+        Usuario usuario = new Usuario();
+        usuario.setEmail("nova@teste.com.br");
+
+        //Estabelecendo Comportamento dos Mocks
+        when(usuarioRepository.atualizarParcial(eq(VALID_ID), isNull(), any())).thenReturn(1);
+
+        //Realizando o teste
+        usuarioService.atualizarParcial(VALID_ID, null, usuario);
+        verify(usuarioRepository, never()).findById(any());
+        verify(filtroUsuarioService).registrar(argThat((Usuario campos) -> "nova@teste.com.br".equals(campos.getEmail()) && campos.getCpf() == null));
+        verify(buscaUsuarioService).registrar(eq(VALID_ID), argThat((Usuario campos) -> "nova@teste.com.br".equals(campos.getEmail())));
+        verify(cacheRespostas).invalidarUsuario(VALID_ID);
+        verify(cacheRespostas).invalidarVacinasDoUsuario(VALID_ID);
+    }
+
+    @Test
+    void whenAtualizarParcialAffectsNoRow_thenNotFoundIsThrown(){
+        //Condições Iniciais
+        Usuario usuario = new Usuario();
+        usuario.setNome("Maria");
+
+        //Estabelecendo Comportamento dos Mocks
+        when(usuarioRepository.atualizarParcial(eq(INVALID_ID), isNull(), any())).thenReturn(0);
+
+        //Realizando o teste
+        assertThrows(NotFoundException.class,()->usuarioService.atualizarParcial(INVALID_ID, null, usuario));
+        verify(usuarioRepository, never()).existsById(any());
+        verify(cacheRespostas, never()).invalidarUsuario(any());
+    }
+
+    @Test
+    void whenAtualizarParcialIsCalledWithoutFields_thenAnErrorShouldBeShown(){
+        //Realizando o teste
+        assertThrows(ServiceException.class,()->usuarioService.atualizarParcial(VALID_ID, null, new Usuario()));
+        verify(usuarioRepository, never()).atualizarParcial(any(), any(), any());
+    }
+
     @Test
     void whenAtualizarIsCalledWithInvalidCPF_thenAnErrorShouldBeShown(){
         //Condições Iniciais
@@ -176,10 +353,9 @@ public class UsuarioServiceTest {
 
         //Estabelecendo Comportamento dos Mocks
         when(usuarioRepository.findById(VALID_ID)).thenReturn(Optional.of(usuarioParaAtualizar));
-        when(usuarioRepository.findByEmail(VALID_EMAIL)).thenReturn(Optional.empty());
-        when(usuarioRepository.findByCpf(INVALID_CPF)).thenReturn(Optional.of(usuarioParaAtualizar));
+        when(usuarioRepository.saveAndFlush(usuarioParaAtualizar)).thenThrow(violacao(Usuario.UK_CPF));
 
-        assertThrows(ServiceException.class,()->usuarioService.atualizar(VALID_ID,usuario));
+        assertThrows(DataIntegrityViolationException.class,()->usuarioService.atualizar(VALID_ID,usuario));
     }
 
     @Test
@@ -194,69 +370,132 @@ public class UsuarioServiceTest {
 
         //Estabelecendo Comportamento dos Mocks
         when(usuarioRepository.findById(VALID_ID)).thenReturn(Optional.of(usuarioParaAtualizar));
-        when(usuarioRepository.findByEmail(INVALID_EMAIL)).thenReturn(Optional.of(usuarioParaAtualizar));
+        when(usuarioRepository.saveAndFlush(usuarioParaAtualizar)).thenThrow(violacao(Usuario.UK_EMAIL));
 
         //Realização do teste
-        assertThrows(ServiceException.class,()->usuarioService.atualizar(VALID_ID,usuario));
+        assertThrows(DataIntegrityViolationException.class,()->usuarioService.atualizar(VALID_ID,usuario));
     }
 
     @Test
     void whenListaDeVacinasRequested_thenShownThis() {
         //Condições Iniciais
-        Usuario usuario = UsuarioBuilder.builder().build().toUsuario();
-        usuario.setId(VALID_ID);
-        Vacina vacina1 = VacinaBuilder.builder().build().toVacina();
-        usuario.getVacinas().add(vacina1);
-        Vacina vacina2 = VacinaBuilder.builder().build().toVacina();
-        usuario.getVacinas().add(vacina2);
-        Vacina vacina3 = VacinaBuilder.builder().build().toVacina();
-        usuario.getVacinas().add(vacina3);
-        Vacina vacina4 = VacinaBuilder.builder().build().toVacina();
-        usuario.getVacinas().add(vacina4);
+        VacinaResponse vacina1 = VacinaResponseBuilder.builder().id(1L).build().toVacinaResponse();
+        VacinaResponse vacina2 = VacinaResponseBuilder.builder().id(2L).build().toVacinaResponse();
+        Slice<VacinaResponse> pagina = new SliceImpl<>(Arrays.asList(vacina1, vacina2));
 
         //Estabelecendo comportamento dos Mocks
-        when(usuarioRepository.findById(VALID_ID)).thenReturn(Optional.of(usuario));
+        when(vacinaRepository.buscarResponsesPorUsuario(eq(VALID_ID), any(), any(), any(), eq(0L), any(Pageable.class))).thenReturn(pagina);
 
         //Realizando o teste
-        var vacinasRetornadas = usuarioService.listarVacinas(VALID_ID);
-        assertEquals(usuario.getVacinas(),vacinasRetornadas);
+        var vacinasRetornadas = usuarioService.listarVacinas(VALID_ID, null, null, null, 50);
+        assertEquals(pagina, vacinasRetornadas);
+        verify(usuarioRepository, never()).existsById(any());
+        verify(usuarioRepository, never()).findById(any());
     }
 
     @Test
-    void whenListaDeVacinasRequestedWithInvalidId_thenAnErrorShouldBeShown() {
+    void whenVacinasOfUsuariosChange_thenTheirVersionsAreIncrementedAndTheirResponsesInvalidated() {
+        //Realizando o teste
+        usuarioService.registrarAlteracaoDasVacinas(List.of(VALID_ID));
+        usuarioService.registrarAlteracaoDasVacinas(List.of());
+
+        verify(usuarioRepository, times(1)).incrementarVersao(any());
+        verify(usuarioRepository).incrementarVersao(List.of(VALID_ID));
+        verify(cacheRespostas).invalidarUsuario(VALID_ID);
+    }
+
+    @Test
+    void whenVacinasAreListedWithAnUnchangedVersion_thenThePageIsNotQueried() {
+        //Condições Iniciais
+        var versao = 3L;
 
         //Estabelecendo comportamento dos Mocks
-        when(usuarioRepository.findById(INVALID_ID)).thenReturn(Optional.empty());
+        when(usuarioRepository.buscarVersao(VALID_ID)).thenReturn(Optional.of(versao));
 
         //Realizando o teste
-        assertThrows(ServiceException.class,()-> usuarioService.listarVacinas(INVALID_ID));
+        var vacinas = usuarioService.listarVacinasSeModificadas(VALID_ID, null, null, null, 50, recebida -> recebida == versao);
+        assertEquals(versao, vacinas.getVersao());
+        assertNull(vacinas.getPagina());
+        verify(vacinaRepository, never()).buscarResponsesPorUsuario(any(), any(), any(), any(), any(), any());
     }
 
     @Test
-    void whenDeletarIsRequestedWithValidId_thenUsuarioShouldBeExcluded() {
+    void whenVacinasAreListedWithAChangedVersion_thenVersionAndPageAreReturnedTogether() {
         //Condições Iniciais
-        var usuario = UsuarioBuilder.builder().build().toUsuario();
-        usuario.setId(VALID_ID);
+        var versao = 3L;
+        Slice<VacinaResponse> pagina = new SliceImpl<>(Collections.singletonList(VacinaResponseBuilder.builder().build().toVacinaResponse()));
+
+        //Estabelecendo comportamento dos Mocks
+        when(usuarioRepository.buscarVersao(VALID_ID)).thenReturn(Optional.of(versao));
+        when(vacinaRepository.buscarResponsesPorUsuario(eq(VALID_ID), any(), any(), any(), eq(0L), any(Pageable.class))).thenReturn(pagina);
+
+        //Realizando o teste
+        var vacinas = usuarioService.listarVacinasSeModificadas(VALID_ID, null, null, null, 50, recebida -> false);
+        assertEquals(versao, vacinas.getVersao());
+        assertEquals(pagina, vacinas.getPagina());
+    }
+
+    @Test
+    void whenListaDeVacinasRequestedWithPeriodAndCursor_thenTheKeysetIsForwarded() {
+        //Condições Iniciais
+        var de = LocalDate.parse("2022-01-01");
+        var ate = LocalDate.parse("2022-12-31");
+        var apos = new CursorDataId(LocalDate.parse("2022-03-10"), 7L);
+
+        //Estabelecendo comportamento dos Mocks
+        when(vacinaRepository.buscarResponsesPorUsuario(VALID_ID, de, ate, apos.getData(), apos.getId(), PageRequest.of(0, 10)))
+                .thenReturn(new SliceImpl<>(Collections.singletonList(VacinaResponseBuilder.builder().build().toVacinaResponse())));
+
+        //Realizando o teste
+        var vacinasRetornadas = usuarioService.listarVacinas(VALID_ID, de, ate, apos, 10);
+        assertEquals(1, vacinasRetornadas.getNumberOfElements());
+    }
+
+    @Test
+    void whenListaDeVacinasRequestedWithInvalidId_thenAnErrorShouldBeShown() {
 
+        //Estabelecendo comportamento dos Mocks
+        when(vacinaRepository.buscarResponsesPorUsuario(eq(INVALID_ID), any(), any(), any(), any(), any(Pageable.class))).thenReturn(new SliceImpl<>(Collections.emptyList()));
+        when(usuarioRepository.existsById(INVALID_ID)).thenReturn(false);
+
+        //Realizando o teste
+        assertThrows(ServiceException.class,()-> usuarioService.listarVacinas(INVALID_ID, null, null, null, 50));
+    }
+
+    @Test
+    void whenDeletarIsRequestedWithValidId_thenUsuarioShouldBeExcluded() {
         //Estabelecer comportamento dos Mocks
-        when(usuarioRepository.findById(VALID_ID)).thenReturn(Optional.of(usuario));
-        doNothing().when(usuarioRepository).deleteById(VALID_ID);
+        when(vacinaRepository.deletarPorUsuario(VALID_ID)).thenReturn(120);
+        when(usuarioRepository.deletarPorId(VALID_ID)).thenReturn(1);
 
         //Realizar teste
-        usuarioService.deletar(usuario.getId());
-
-        verify(usuarioRepository,times(1)).findById(usuario.getId());
-        verify(usuarioRepository,times(1)).deleteById(usuario.getId());
+        usuarioService.deletar(VALID_ID);
+
+        //dois DELETEs em conjunto, sem carregar o usuário nem as vacinas
+        var ordem = inOrder(vacinaRepository, usuarioRepository);
+        ordem.verify(vacinaRepository).deletarPorUsuario(VALID_ID);
+        ordem.verify(usuarioRepository).deletarPorId(VALID_ID);
+        verify(usuarioRepository, never()).findById(any());
+        verify(filtroUsuarioService).registrarRemocao();
+        verify(buscaUsuarioService).remover(VALID_ID);
+        verify(cacheRespostas).invalidarUsuario(VALID_ID);
+        verify(cacheRespostas).invalidarVacinasDoUsuario(VALID_ID);
+        verify(estatisticaVacinaService).registrarRemocoes(any());
     }
 
     @Test
     void whenDeletarIsRequestedWithInvalidId_thenAnErrorShouldBeShown() {
 
         //Estabelecer comportamento dos Mocks
-        when(usuarioRepository.findById(INVALID_ID)).thenReturn(Optional.empty());
+        when(usuarioRepository.deletarPorId(INVALID_ID)).thenReturn(0);
 
         //Realizar teste
-        assertThrows(ServiceException.class,()->usuarioService.deletar(INVALID_ID));
+        assertThrows(NotFoundException.class,()->usuarioService.deletar(INVALID_ID));
+        verify(cacheRespostas, never()).invalidarUsuario(any());
     }
 
+    private DataIntegrityViolationException violacao(String restricao){
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("Duplicate entry", new SQLException(), restricao));
+    }
 }
@@ -0,0 +1,141 @@
+package com.github.nadia.vacinasapi.service;
+
+import com.github.nadia.vacinasapi.domain.exception.ServiceException;
+import com.github.nadia.vacinasapi.domain.repository.VacinaDiariaRepository;
+import com.github.nadia.vacinasapi.domain.service.VacinaDiariaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class VacinaDiariaServiceTest {
+
+    private static final LocalDate INICIO = LocalDate.parse("2022-01-01");
+    private static final LocalDate FIM = LocalDate.parse("2022-03-31");
+
+    @Mock
+    private VacinaDiariaRepository vacinaDiariaRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private VacinaDiariaService vacinaDiariaService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(vacinaDiariaService, "diasPorFatia", 31);
+        ReflectionTestUtils.setField(vacinaDiariaService, "paralelismo", 4);
+
+        //Estabelece o comportamento dos mocks
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void whenRebuildingAPeriod_thenEverySliceIsRebuiltInParallel() {
+        //Estabelece o comportamento dos mocks
+        var threads = ConcurrentHashMap.<String>newKeySet();
+        when(vacinaDiariaRepository.preencherPeriodo(any(), any())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return 10;
+        });
+
+        //Realizar o teste
+        var reconstrucao = vacinaDiariaService.reconstruir(INICIO, FIM);
+
+        //90 dias em fatias de 31: jan, fev+1 de mar e o restante de mar
+        assertEquals(3, reconstrucao.getFatias());
+        assertEquals(30L, reconstrucao.getLinhas());
+        verify(vacinaDiariaRepository).deletarPeriodo(INICIO, LocalDate.parse("2022-01-31"));
+        verify(vacinaDiariaRepository).preencherPeriodo(LocalDate.parse("2022-02-01"), LocalDate.parse("2022-03-03"));
+        verify(vacinaDiariaRepository).preencherPeriodo(LocalDate.parse("2022-03-04"), FIM);
+        verify(transactionTemplate, times(3)).execute(any());
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test
+    void whenRebuildingWithoutDates_thenThePeriodOfTheVacinasIsUsed() {
+        //Estabelece o comportamento dos mocks
+        when(vacinaDiariaRepository.buscarPeriodoDasVacinas()).thenReturn(periodo(INICIO, INICIO.plusDays(9)));
+        when(vacinaDiariaRepository.preencherPeriodo(any(), any())).thenReturn(4);
+
+        //Realizar o teste
+        var reconstrucao = vacinaDiariaService.reconstruir(null, null);
+
+        assertEquals(INICIO, reconstrucao.getDe());
+        assertEquals(1, reconstrucao.getFatias());
+        verify(vacinaDiariaRepository).preencherPeriodo(INICIO, INICIO.plusDays(9));
+    }
+
+    @Test
+    void whenThereAreNoVacinas_thenNothingIsRebuilt() {
+        //Estabelece o comportamento dos mocks
+        when(vacinaDiariaRepository.buscarPeriodoDasVacinas()).thenReturn(periodo(null, null));
+
+        //Realizar o teste
+        var reconstrucao = vacinaDiariaService.reconstruir(null, null);
+
+        assertEquals(0, reconstrucao.getFatias());
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    void whenASliceFails_thenTheErrorIsPropagated() {
+        //Estabelece o comportamento dos mocks
+        when(vacinaDiariaRepository.preencherPeriodo(any(), any())).thenThrow(new IllegalStateException("falha na fatia"));
+
+        //Realizar o teste
+        var ex = assertThrows(IllegalStateException.class, () -> vacinaDiariaService.reconstruir(INICIO, FIM));
+        assertEquals("falha na fatia", ex.getMessage());
+    }
+
+    @Test
+    void whenSearchingAnInvalidPeriod_thenAnErrorShouldBeShown() {
+        //Realizar o teste
+        assertThrows(ServiceException.class, () -> vacinaDiariaService.buscar(FIM, INICIO, null));
+        assertThrows(ServiceException.class, () -> vacinaDiariaService.buscar(INICIO, INICIO.plusDays(VacinaDiariaService.PERIODO_MAXIMO_DIAS), null));
+        vacinaDiariaService.buscar(INICIO, FIM, " ");
+        verify(vacinaDiariaRepository).buscarPorPeriodo(INICIO, FIM, null);
+    }
+
+    @Test
+    void whenSummingZero_thenNoStatementIsExecuted() {
+        //Realizar o teste
+        vacinaDiariaService.somar(INICIO, "Gripe", 0);
+        vacinaDiariaService.somar(INICIO, "Gripe", -1);
+
+        verify(vacinaDiariaRepository, times(1)).somar(any(), any(), anyLong());
+    }
+
+    private VacinaDiariaRepository.Periodo periodo(LocalDate inicio, LocalDate fim) {
+        return new VacinaDiariaRepository.Periodo() {
+            @Override
+            public LocalDate getInicio() {
+                return inicio;
+            }
+
+            @Override
+            public LocalDate getFim() {
+                return fim;
+            }
+        };
+    }
+}
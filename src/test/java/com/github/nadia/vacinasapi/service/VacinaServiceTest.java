@@ -1,26 +1,51 @@
 package com.github.nadia.vacinasapi.service;
 
+import com.github.nadia.vacinasapi.api.DTO.request.VacinaRequest;
+import com.github.nadia.vacinasapi.api.DTO.response.VacinaResponse;
 import com.github.nadia.vacinasapi.builder.UsuarioBuilder;
 import com.github.nadia.vacinasapi.builder.VacinaBuilder;
+import com.github.nadia.vacinasapi.builder.VacinaRequestBuilder;
+import com.github.nadia.vacinasapi.builder.VacinaResponseBuilder;
+import com.github.nadia.vacinasapi.core.cache.CacheRespostas;
 import com.github.nadia.vacinasapi.domain.entity.Usuario;
 import com.github.nadia.vacinasapi.domain.entity.Vacina;
 import com.github.nadia.vacinasapi.domain.exception.NotFoundException;
 import com.github.nadia.vacinasapi.domain.exception.ServiceException;
+import com.github.nadia.vacinasapi.domain.repository.UsuarioRepository;
 import com.github.nadia.vacinasapi.domain.repository.VacinaRepository;
+import com.github.nadia.vacinasapi.domain.service.EstatisticaVacinaService;
+import com.github.nadia.vacinasapi.domain.service.UsuarioService;
 import com.github.nadia.vacinasapi.domain.service.VacinaService;
 import org.aspectj.weaver.ast.Not;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import javax.validation.Validator;
 import java.security.Provider;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 
@@ -33,23 +58,111 @@ public class VacinaServiceTest {
     @Mock
     private VacinaRepository vacinaRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private UsuarioService usuarioService;
+
+    @Mock
+    private CacheRespostas cacheRespostas;
+
+    @Mock
+    private EstatisticaVacinaService estatisticaVacinaService;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @InjectMocks
     private VacinaService vacinaService;
 
     @Test
     void whenListaDeVacinasRequested_thenShownThis() {
         //Condições Iniciais do test
-        Vacina vacina1 = VacinaBuilder.builder().build().toVacina();
-        Vacina vacina2 = VacinaBuilder.builder().build().toVacina();
-        Vacina vacina3 = VacinaBuilder.builder().build().toVacina();
-        List<Vacina> vacinas = Arrays.asList(vacina1, vacina2, vacina3);
+        VacinaResponse vacina1 = VacinaResponseBuilder.builder().id(1L).build().toVacinaResponse();
+        VacinaResponse vacina2 = VacinaResponseBuilder.builder().id(2L).build().toVacinaResponse();
+        VacinaResponse vacina3 = VacinaResponseBuilder.builder().id(3L).build().toVacinaResponse();
+        List<VacinaResponse> vacinas = Arrays.asList(vacina1, vacina2, vacina3);
+
+        Slice<VacinaResponse> pagina = new SliceImpl<>(vacinas);
+
+        //Estabelece o comportamento do mock
+        when(vacinaRepository.buscarResponsesAposId(eq(0L), any(Pageable.class))).thenReturn(pagina);
+
+        //Realizar o teste
+        var listaResposta = vacinaService.buscarTodos(0L, 50);
+        assertEquals(vacinas, listaResposta.getContent());
+    }
+
+    @Test
+    void whenListaDeVacinasRequestedWithLimitAboveMax_thenLimitIsCapped() {
+        //Estabelece o comportamento do mock
+        when(vacinaRepository.buscarResponsesAposId(eq(10L), any(Pageable.class))).thenReturn(new SliceImpl<>(List.of()));
+
+        //Realizar o teste
+        vacinaService.buscarTodos(10L, 10_000);
+        verify(vacinaRepository).buscarResponsesAposId(10L, PageRequest.of(0, 500, Sort.by("id")));
+    }
+
+    @Test
+    void whenBuscarIsRequestedWithFilters_thenASingleSpecificationQueryIsExecuted() {
+        //Condições Iniciais do test
+        var pagina = new SliceImpl<>(List.of(VacinaResponseBuilder.builder().build().toVacinaResponse()));
+
+        //Estabelecer comportamento dos Mocks
+        when(vacinaRepository.buscarResponses(any(), eq(50))).thenReturn(pagina);
+
+        //Realizar teste
+        var resultado = vacinaService.buscar("Gripe", LocalDate.parse("2022-01-01"), null,
+                List.of("maria@teste.com.br", "ninguem@teste.com.br"), null, 50);
+
+        assertEquals(pagina, resultado);
+        verify(vacinaRepository, times(1)).buscarResponses(any(), eq(50));
+    }
+
+    @Test
+    void whenBuscarIsRequestedWithAnEmailUnknownToThisNode_thenTheDatabaseIsStillQueried() {
+        //Estabelecer comportamento dos Mocks: o usuário pode ter sido cadastrado em outro nó
+        when(vacinaRepository.buscarResponses(any(), eq(50))).thenReturn(new SliceImpl<>(List.of()));
+
+        //Realizar teste
+        var resultado = vacinaService.buscar(null, null, null, List.of("outro.no@teste.com.br"), null, 50);
+
+        assertFalse(resultado.hasContent());
+        verify(vacinaRepository, times(1)).buscarResponses(any(), eq(50));
+    }
+
+    @Test
+    void whenBuscarIsRequestedWithTooManyEmails_thenAnErrorShouldBeShown() {
+        //Condições Iniciais do test
+        var emails = new ArrayList<String>();
+        for (int i = 0; i <= VacinaService.TAMANHO_MAXIMO_EMAILS; i++) {
+            emails.add("usuario" + i + "@teste.com.br");
+        }
+
+        //Realizar teste
+        assertThrows(ServiceException.class,()-> vacinaService.buscar(null, null, null, emails, null, 50));
+    }
+
+    @Test
+    void whenExportarRequested_thenEveryVacinaIsStreamedAndContextIsCleared() {
+        //Condições Iniciais do test
+        List<Vacina> vacinas = new ArrayList<>();
+        for (long i = 1; i <= 2500; i++) {
+            vacinas.add(VacinaBuilder.builder().id(i).build().toVacina());
+        }
+        List<Vacina> exportadas = new ArrayList<>();
 
         //Estabelece o comportamento do mock
-        when(vacinaRepository.findAll()).thenReturn(vacinas);
+        when(vacinaRepository.streamAll()).thenReturn(vacinas.stream());
 
         //Realizar o teste
-        var listaResposta = vacinaService.buscarTodos();
-        assertEquals(vacinas, listaResposta);
+        vacinaService.exportar(exportadas::add);
+        assertEquals(vacinas, exportadas);
+        verify(entityManager, times(2)).clear();
     }
 
     @Test
@@ -63,15 +176,82 @@ public class VacinaServiceTest {
         //Realizar teste
         var vacinaResposta = vacinaService.salvar(vacina);
         assertEquals(vacina, vacinaResposta);
+        //a versão do dono muda antes da inclusão: é o ETag da lista de vacinas dele
+        var ordem = inOrder(usuarioService, vacinaRepository);
+        ordem.verify(usuarioService).registrarAlteracaoDasVacinas(List.of(vacina.getUsuario().getId()));
+        ordem.verify(vacinaRepository).save(vacina);
+    }
+
+    @Test
+    void whenSalvarLoteRequested_thenEmailsAreResolvedOnceAndEachItemIsReported() {
+        //Condições Iniciais
+        Usuario usuario = UsuarioBuilder.builder().email("maria@teste.com.br").build().toUsuario();
+        var requests = Arrays.asList(
+                VacinaRequestBuilder.builder().email("maria@teste.com.br").build().toVacinaResquet(),
+                VacinaRequestBuilder.builder().email("desconhecido@teste.com.br").build().toVacinaResquet(),
+                VacinaRequestBuilder.builder().nome("").email("maria@teste.com.br").build().toVacinaResquet(),
+                VacinaRequestBuilder.builder().nome("Febre Amarela").email("MARIA@teste.com.br").build().toVacinaResquet());
+
+        //Estabelecer o comportamento dos mocks
+        when(usuarioRepository.findByEmailIn(Set.of("maria@teste.com.br", "desconhecido@teste.com.br"))).thenReturn(List.of(usuario));
+        when(vacinaRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Vacina> vacinas = invocation.getArgument(0);
+            long id = 10;
+            for (Vacina vacina : vacinas) {
+                vacina.setId(id++);
+            }
+            return vacinas;
+        });
+
+        //Realizar teste
+        var resposta = vacinaService.salvarLote(requests);
+        assertEquals(2, resposta.getSucessos());
+        assertEquals(2, resposta.getFalhas());
+        assertTrue(resposta.getItens().get(0).getSucesso());
+        assertEquals(10L, resposta.getItens().get(0).getId());
+        assertFalse(resposta.getItens().get(1).getSucesso());
+        assertFalse(resposta.getItens().get(2).getSucesso());
+        assertTrue(resposta.getItens().get(3).getSucesso());
+        assertEquals(11L, resposta.getItens().get(3).getId());
+        verify(usuarioRepository, times(1)).findByEmailIn(any());
+        verify(usuarioService).registrarAlteracaoDasVacinas(Set.of(usuario.getId()));
+    }
+
+    @Test
+    void whenSalvarLoteRequestedWithAnUnknownEmail_thenTheDatabaseConfirmsItIsAbsent() {
+        //Condições Iniciais
+        var requests = List.of(VacinaRequestBuilder.builder().email("desconhecido@teste.com.br").build().toVacinaResquet());
+
+        //Estabelecer o comportamento dos mocks
+        when(usuarioRepository.findByEmailIn(any())).thenReturn(List.of());
+        when(vacinaRepository.saveAll(anyList())).thenReturn(List.of());
+
+        //Realizar teste
+        var resposta = vacinaService.salvarLote(requests);
+        assertEquals(1, resposta.getFalhas());
+        verify(usuarioRepository, times(1)).findByEmailIn(any());
+    }
+
+    @Test
+    void whenSalvarLoteRequestedAboveTheLimit_thenAnErrorShouldBeShown() {
+        //Condições Iniciais
+        var requests = new ArrayList<VacinaRequest>();
+        for (int i = 0; i <= VacinaService.TAMANHO_MAXIMO_LOTE; i++) {
+            requests.add(VacinaRequestBuilder.builder().build().toVacinaResquet());
+        }
+
+        //Realizar teste
+        assertThrows(ServiceException.class, () -> vacinaService.salvarLote(requests));
+        verifyNoInteractions(usuarioRepository);
     }
 
     @Test
     void whenValidVacinaIdInformed_thenVacinaShouldBeShown() {
         //Condições iniciais
-        Vacina vacina = VacinaBuilder.builder().build().toVacina();
+        VacinaResponse vacina = VacinaResponseBuilder.builder().build().toVacinaResponse();
 
         //Estabelecer comportamento dos Mocks
-        when(vacinaRepository.findById(VALID_ID)).thenReturn(Optional.of(vacina));
+        when(vacinaRepository.buscarResponsePorId(VALID_ID)).thenReturn(Optional.of(vacina));
 
         //Realizar teste
         var vacinaResposta = vacinaService.buscarPorId(VALID_ID);
@@ -82,12 +262,23 @@ public class VacinaServiceTest {
     void whenInalidVacinaIdInformed_thenAnErrorShouldBeShown() {
 
         //Estabelecer comportamento dos Mocks
-        when(vacinaRepository.findById(INVALID_ID)).thenReturn(Optional.empty());
+        when(vacinaRepository.buscarResponsePorId(INVALID_ID)).thenReturn(Optional.empty());
 
         //Realizar teste
         assertThrows(NotFoundException.class,()->vacinaService.buscarPorId(INVALID_ID));
     }
 
+    @Test
+    void whenTooManyIdsAreInformed_thenAnErrorShouldBeShown() {
+        //Condições iniciais
+        var ids = LongStream.rangeClosed(1, VacinaService.TAMANHO_MAXIMO_IDS + 1).boxed().collect(Collectors.toList());
+
+        //Realizar teste
+        assertThrows(ServiceException.class, () -> vacinaService.buscarPorIds(ids));
+        assertThrows(ServiceException.class, () -> vacinaService.buscarPorIds(List.of()));
+        verify(vacinaRepository, never()).buscarResponsesPorIds(any());
+    }
+
     @Test
     void whenVacinaAndValidIdInformedToUpdate_thenVacinaShouldBeShown() {
         //Condições Iniciais
@@ -101,6 +292,7 @@ public class VacinaServiceTest {
         //Realizar teste
         var vacinaResposta = vacinaService.atualizar(VALID_ID,vacina);
         assertEquals(vacina,vacinaResposta);
+        verify(cacheRespostas).invalidarVacina(VALID_ID);
     }
 
     @Test
@@ -116,30 +308,98 @@ public class VacinaServiceTest {
         assertThrows(ServiceException.class,()-> vacinaService.atualizar(INVALID_ID,vacina));
     }
 
+    @Test
+    void whenAtualizarNomeIsRequested_thenASingleUpdateIsExecuted() {
+        //Estabelecer comportamento dos Mocks
+        var anterior = contagem("CoronaVac", 1L);
+        when(vacinaRepository.buscarIdsDosUsuarios(List.of(VALID_ID))).thenReturn(List.of(7L));
+        when(vacinaRepository.travarContagemPorIds(List.of(VALID_ID))).thenReturn(List.of(anterior));
+        when(vacinaRepository.atualizarNome(VALID_ID, "Gripe")).thenReturn(1);
+
+        //Realizar teste
+        vacinaService.atualizarNome(VALID_ID, "Gripe");
+
+        verify(vacinaRepository, never()).findById(any());
+        verify(usuarioService).registrarAlteracaoDasVacinas(List.of(7L));
+        verify(cacheRespostas).invalidarVacina(VALID_ID);
+        verify(estatisticaVacinaService).registrarRenomeacao(eq("CoronaVac"), eq("Gripe"), any());
+    }
+
+    @Test
+    void whenAtualizarNomeAffectsNoRow_thenNotFoundIsThrown() {
+        //Estabelecer comportamento dos Mocks
+        when(vacinaRepository.atualizarNome(INVALID_ID, "Gripe")).thenReturn(0);
+
+        //Realizar teste
+        assertThrows(NotFoundException.class,()-> vacinaService.atualizarNome(INVALID_ID, "Gripe"));
+        verify(cacheRespostas, never()).invalidarVacina(any());
+    }
+
     @Test
     void whenDeletarIsRequestedWithValidId_thenVacinaShouldBeExcluded() {
-        //Condições Iniciais
-        var vacina = VacinaBuilder.builder().build().toVacina();
-        vacina.setId(VALID_ID);
+        //Estabelecer comportamento dos Mocks
+        when(vacinaRepository.deletarPorId(VALID_ID)).thenReturn(1);
 
+        //Realizar teste
+        vacinaService.deletar(VALID_ID);
+
+        verify(vacinaRepository, never()).findById(any());
+        verify(cacheRespostas).invalidarVacina(VALID_ID);
+    }
+
+    @Test
+    void whenDeletarIsRequestedWithManyIds_thenASingleBulkDeleteIsExecuted() {
         //Estabelecer comportamento dos Mocks
-        when(vacinaRepository.findById(VALID_ID)).thenReturn(Optional.of(vacina));
-        doNothing().when(vacinaRepository).deleteById(VALID_ID);
+        var contagens = List.of(contagem("CoronaVac", 2L));
+        when(vacinaRepository.travarContagemPorIds(Set.of(1L, 2L, 3L))).thenReturn(contagens);
+        when(vacinaRepository.deletarPorIds(Set.of(1L, 2L, 3L))).thenReturn(2);
 
         //Realizar teste
-        vacinaService.deletar(vacina.getId());
+        var removidas = vacinaService.deletar(List.of(1L, 2L, 3L, 3L));
 
-        verify(vacinaRepository,times(1)).findById(vacina.getId());
-        verify(vacinaRepository,times(1)).deleteById(vacina.getId());
+        assertEquals(2, removidas);
+        verify(vacinaRepository, times(1)).deletarPorIds(any());
+        verify(cacheRespostas).invalidarVacina(1L);
+        verify(cacheRespostas).invalidarVacina(3L);
+        verify(estatisticaVacinaService).registrarRemocoes(contagens);
+    }
+
+    @Test
+    void whenDeletarIsRequestedWithUnknownIds_thenAnErrorShouldBeShown() {
+        //Estabelecer comportamento dos Mocks
+        when(vacinaRepository.deletarPorIds(any())).thenReturn(0);
+
+        //Realizar teste
+        assertThrows(NotFoundException.class,()-> vacinaService.deletar(List.of(8L, 9L)));
+        assertThrows(ServiceException.class,()-> vacinaService.deletar(List.of()));
     }
 
     @Test
     void whenDeletarIsRequestedWithValidId_thenAnErrorShouldBeShown() {
 
         //Estabelecer comportamento dos Mocks
-        when(vacinaRepository.findById(INVALID_ID)).thenReturn(Optional.empty());
+        when(vacinaRepository.deletarPorId(INVALID_ID)).thenReturn(0);
 
         //Realizar teste
-        assertThrows(ServiceException.class,()-> vacinaService.deletar(INVALID_ID));
+        assertThrows(NotFoundException.class,()-> vacinaService.deletar(INVALID_ID));
+    }
+
+    private VacinaRepository.ContagemVacinas contagem(String nome, Long quantidade) {
+        return new VacinaRepository.ContagemVacinas() {
+            @Override
+            public String getNome() {
+                return nome;
+            }
+
+            @Override
+            public LocalDate getDataAplicacao() {
+                return LocalDate.now();
+            }
+
+            @Override
+            public Long getQuantidade() {
+                return quantidade;
+            }
+        };
     }
-}
\ No newline at end of file
+}
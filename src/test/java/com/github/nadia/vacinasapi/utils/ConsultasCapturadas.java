@@ -0,0 +1,30 @@
+package com.github.nadia.vacinasapi.utils;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+//guarda o SQL gerado pelo Hibernate, para os testes rodarem EXPLAIN sobre ele
+public class ConsultasCapturadas implements StatementInspector {
+
+    private static final List<String> CONSULTAS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        CONSULTAS.add(sql);
+        return sql;
+    }
+
+    public static void limpar() {
+        CONSULTAS.clear();
+    }
+
+    public static List<String> todas() {
+        return List.copyOf(CONSULTAS);
+    }
+
+    public static String ultima() {
+        return CONSULTAS.get(CONSULTAS.size() - 1);
+    }
+}